@@ -11,6 +11,8 @@ package com.ibm.icu.charset;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
 import java.nio.Buffer;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
@@ -20,6 +22,8 @@ import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CoderResult;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.ibm.icu.charset.UConverterSharedData.UConverterType;
 import com.ibm.icu.impl.ICUBinary;
@@ -178,13 +182,14 @@ class CharsetMBCS extends CharsetICU {
         }
 
         // now try to load the data
-        sharedData = loadConverter(1, icuCanonicalName, classPath, loader);
+        sharedData = getSharedData(icuCanonicalName, classPath, loader);
 
         maxBytesPerChar = sharedData.staticData.maxBytesPerChar;
         minBytesPerChar = sharedData.staticData.minBytesPerChar;
         maxCharsPerByte = 1;
         fromUSubstitution = sharedData.staticData.subChar;
-        subChar = sharedData.staticData.subChar;
+        // Copy the subChar: Encoders may change it, and the static data is shared.
+        subChar = sharedData.staticData.subChar.clone();
         subCharLen = sharedData.staticData.subCharLen;
         subChar1 = sharedData.staticData.subChar1;
         fromUSubstitution = new byte[sharedData.staticData.subCharLen];
@@ -198,6 +203,141 @@ class CharsetMBCS extends CharsetICU {
         this(icuCanonicalName, javaCanonicalName, aliases, ICUData.ICU_BUNDLE, null);
     }
 
+    /**
+     * Cache of the loaded conversion tables, so that instantiating the same converter again
+     * does not read and parse the .cnv data again.
+     * Keyed by class path and ICU canonical name. The converter options are not part of the key:
+     * The table data does not depend on them, and the swaplfnl tables are added to the shared data
+     * when first requested (see initializeConverter()).
+     * The values are soft references so that unused tables can be garbage-collected;
+     * the entries of collected tables are removed on the next lookup.
+     */
+    private static final ConcurrentHashMap<String, SharedDataReference> sharedDataCache =
+            new ConcurrentHashMap<String, SharedDataReference>();
+    private static final ReferenceQueue<UConverterSharedData> sharedDataQueue =
+            new ReferenceQueue<UConverterSharedData>();
+    private static final AtomicLong sharedDataLoadCount = new AtomicLong();
+    private static final AtomicLong sharedDataHitCount = new AtomicLong();
+
+    /**
+     * A soft reference to cached table data, which remembers its cache key
+     * so that its entry can be removed once the data has been collected.
+     */
+    private static final class SharedDataReference extends SoftReference<UConverterSharedData> {
+        final String key;
+
+        SharedDataReference(String key, UConverterSharedData data) {
+            super(data, sharedDataQueue);
+            this.key = key;
+        }
+    }
+
+    /**
+     * Removes the cache entries whose table data has been garbage-collected.
+     */
+    private static void pruneSharedDataCache() {
+        SharedDataReference ref;
+        while ((ref = (SharedDataReference)sharedDataQueue.poll()) != null) {
+            sharedDataCache.remove(ref.key, ref);
+        }
+    }
+
+    /**
+     * Returns the shared data for the named converter, from the cache if possible.
+     * Tables loaded with a caller-provided ClassLoader are not cached,
+     * so that the cache does not keep that loader alive.
+     */
+    private UConverterSharedData getSharedData(String myName, String classPath, ClassLoader loader)
+            throws InvalidFormatException {
+        if (loader != null) {
+            sharedDataLoadCount.incrementAndGet();
+            return loadConverter(1, myName, classPath, loader);
+        }
+        pruneSharedDataCache();
+        String key = classPath + '/' + myName;
+        SharedDataReference ref = sharedDataCache.get(key);
+        UConverterSharedData data;
+        if (ref != null && (data = ref.get()) != null) {
+            sharedDataHitCount.incrementAndGet();
+            return data;
+        }
+        // Another thread might be loading the same table at the same time.
+        // That is harmless: Both results are equivalent, and the last one stays in the cache.
+        sharedDataLoadCount.incrementAndGet();
+        data = loadConverter(1, myName, classPath, loader);
+        sharedDataCache.put(key, new SharedDataReference(key, data));
+        return data;
+    }
+
+    /**
+     * Returns the number of times that conversion table data has been loaded and parsed.
+     */
+    static long getSharedDataLoadCount() {
+        return sharedDataLoadCount.get();
+    }
+
+    /**
+     * Returns the number of times that conversion table data has been found in the cache.
+     */
+    static long getSharedDataHitCount() {
+        return sharedDataHitCount.get();
+    }
+
+    /**
+     * Returns a table of the bytes after which the toUnicode conversion is always back in
+     * the initial state, for splitting the input into pieces that can be converted
+     * independently: a byte qualifies if it is a single-byte character in state 0 and is
+     * illegal in all other states, so that it can neither continue nor end a multi-byte sequence.
+     * Returns null if the conversion is stateful across characters (SI/SO),
+     * or if an extension mapping can consume more than two bytes, which might then span a split.
+     */
+    boolean[] getResyncBytes() {
+        UConverterMBCSTable mbcsTable = sharedData.mbcs;
+        if (mbcsTable.outputType == MBCS_OUTPUT_2_SISO || mbcsTable.outputType == MBCS_OUTPUT_DBCS_ONLY
+                || mbcsTable.outputType == MBCS_OUTPUT_EXT_ONLY || mbcsTable.dbcsOnlyState != 0) {
+            return null;
+        }
+        if (mbcsTable.extIndexes != null
+                && ((mbcsTable.extIndexes.asIntBuffer().get(EXT_COUNT_BYTES) >> 16) & 0xff) > 2) {
+            return null;
+        }
+        int[][] stateTable = mbcsTable.stateTable;
+        boolean[] resync = new boolean[256];
+        boolean any = false;
+        for (int b = 0; b < 256; ++b) {
+            int entry = stateTable[0][b];
+            if (!MBCS_ENTRY_IS_FINAL(entry) || MBCS_ENTRY_FINAL_STATE(entry) != 0
+                    || MBCS_ENTRY_FINAL_ACTION(entry) >= MBCS_STATE_UNASSIGNED) {
+                continue;
+            }
+            boolean isResync = true;
+            for (int state = 1; state < mbcsTable.countStates; ++state) {
+                entry = stateTable[state][b];
+                if (!MBCS_ENTRY_IS_FINAL(entry) || MBCS_ENTRY_FINAL_ACTION(entry) != MBCS_STATE_ILLEGAL) {
+                    isResync = false;
+                    break;
+                }
+            }
+            any |= resync[b] = isResync;
+        }
+        return any ? resync : null;
+    }
+
+    /**
+     * Returns true if the fromUnicode conversion of a string yields the same bytes
+     * as the concatenated conversions of any pieces of the string that do not split code points:
+     * There are no SI/SO state changes and no extension mappings for sequences of code points.
+     */
+    boolean isFromUnicodeStateless() {
+        UConverterMBCSTable mbcsTable = sharedData.mbcs;
+        if (mbcsTable.outputType == MBCS_OUTPUT_2_SISO || mbcsTable.outputType == MBCS_OUTPUT_DBCS_ONLY
+                || (options & (MBCS_OPTION_KEIS | MBCS_OPTION_JEF | MBCS_OPTION_JIPS)) != 0) {
+            return false;
+        }
+        return mbcsTable.extIndexes == null
+                || ((mbcsTable.extIndexes.asIntBuffer().get(EXT_COUNT_UCHARS) >> 16) & 0xff) <= 1;
+    }
+
     private UConverterSharedData loadConverter(int nestedLoads, String myName, String classPath, ClassLoader loader)
             throws InvalidFormatException {
         boolean noFromU = false;
@@ -398,6 +538,11 @@ class CharsetMBCS extends CharsetICU {
                 }
             }
 
+            if (mbcsTable.outputType == MBCS_OUTPUT_DBCS_ONLY) {
+                /* No SBCS mappings, therefore ASCII does not roundtrip. */
+                mbcsTable.asciiRoundtrips = 0;
+            }
+
             /*
              * unlike below for files with base tables, do not get the unicodeMask from the sharedData; instead, use the
              * base table's unicodeMask, which we copied in the memcpy above; this is necessary because the static data
@@ -484,7 +629,7 @@ class CharsetMBCS extends CharsetICU {
                 }
                 mbcsTable.asciiRoundtrips = asciiRoundtrips;
             }
-            // TODO: Use asciiRoundtrips to speed up conversion, like in ICU4C.
+            // asciiRoundtrips is used to convert runs of ASCII without the state/trie tables, see asciiRunToU().
 
             if (noFromU) {
                 int stage1Length = (mbcsTable.unicodeMask&UConverterConstants.HAS_SUPPLEMENTARY) != 0 ? 0x440 : 0x40;
@@ -868,22 +1013,21 @@ class CharsetMBCS extends CharsetICU {
         }
 
         if ((myOptions & UConverterConstants.OPTION_SWAP_LFNL) != 0) {
-            /* do this because double-checked locking is broken */
-            boolean isCached;
-
-            // agljport:todo umtx_lock(NULL);
-            isCached = mbcsTable.swapLFNLStateTable != null;
-            // agljport:todo umtx_unlock(NULL);
-
-            if (!isCached) {
-                try {
-                    if (!EBCDICSwapLFNL()) {
-                        /* this option does not apply, remove it */
-                        this.options = myOptions & ~UConverterConstants.OPTION_SWAP_LFNL;
+            // The table data is shared among converter instances (see sharedDataCache):
+            // Lock it while adding the swaplfnl tables.
+            synchronized (mbcsTable) {
+                boolean isCached = mbcsTable.swapLFNLStateTable != null;
+
+                if (!isCached) {
+                    try {
+                        if (!EBCDICSwapLFNL()) {
+                            /* this option does not apply, remove it */
+                            this.options = myOptions & ~UConverterConstants.OPTION_SWAP_LFNL;
+                        }
+                    } catch (Exception e) {
+                        /* something went wrong. */
+                        return;
                     }
-                } catch (Exception e) {
-                    /* something went wrong. */
-                    return;
                 }
             }
         }
@@ -1265,6 +1409,68 @@ class CharsetMBCS extends CharsetICU {
         return results[i];
     }
 
+    /**
+     * Converts a run of ASCII bytes that round-trip to the same code points,
+     * for any converter with a non-zero asciiRoundtrips bit set (4 ASCII characters per bit),
+     * without going through the state table.
+     * Must only be called in state 0 with no partial character, and without the swaplfnl option.
+     * The source position is not changed.
+     *
+     * @param count the maximum number of bytes to convert
+     * @return the number of bytes converted
+     */
+    static int asciiRunToU(int asciiRoundtrips, ByteBuffer source, int sourceIndex, CharBuffer target, int count) {
+        int i = 0;
+        int b;
+        if (source.hasArray() && target.hasArray()) {
+            byte[] sourceArray = source.array();
+            int sourceArrayIndex = source.arrayOffset() + sourceIndex;
+            char[] targetArray = target.array();
+            int targetArrayIndex = target.arrayOffset() + target.position();
+            while (i < count && (b = sourceArray[sourceArrayIndex + i]) >= 0
+                    && (asciiRoundtrips & (1 << (b >> 2))) != 0) {
+                targetArray[targetArrayIndex + i++] = (char) b;
+            }
+            target.position(target.position() + i);
+        } else {
+            while (i < count && (b = source.get(sourceIndex + i)) >= 0 && (asciiRoundtrips & (1 << (b >> 2))) != 0) {
+                target.put((char) b);
+                ++i;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Converts a run of ASCII characters that round-trip to the same bytes,
+     * the inverse of asciiRunToU().
+     * The source position is not changed.
+     *
+     * @param count the maximum number of characters to convert
+     * @return the number of characters converted
+     */
+    static int asciiRunFromU(int asciiRoundtrips, CharBuffer source, int sourceIndex, ByteBuffer target, int count) {
+        int i = 0;
+        char c;
+        if (source.hasArray() && target.hasArray()) {
+            char[] sourceArray = source.array();
+            int sourceArrayIndex = source.arrayOffset() + sourceIndex;
+            byte[] targetArray = target.array();
+            int targetArrayIndex = target.arrayOffset() + target.position();
+            while (i < count && (c = sourceArray[sourceArrayIndex + i]) <= 0x7f
+                    && (asciiRoundtrips & (1 << (c >> 2))) != 0) {
+                targetArray[targetArrayIndex + i++] = (byte) c;
+            }
+            target.position(target.position() + i);
+        } else {
+            while (i < count && (c = source.get(sourceIndex + i)) <= 0x7f && (asciiRoundtrips & (1 << (c >> 2))) != 0) {
+                target.put((byte) c);
+                ++i;
+            }
+        }
+        return i;
+    }
+
     /* single-byte fromUnicode: set the 16-bit result word with newValue*/
     static void MBCS_SINGLE_RESULT_FROM_U_SET(char[] table, char[] results, int c, int newValue) {
         int i1 = table[c >>> 10] + ((c >>> 4) & 0x3f);
@@ -1325,7 +1531,7 @@ class CharsetMBCS extends CharsetICU {
     static final int EXT_FROM_U_STAGE_3B_LENGTH = EXT_FROM_U_STAGE_3B_INDEX + 1;
 
     private static final int EXT_COUNT_BYTES = EXT_FROM_U_STAGE_3B_LENGTH + 1; /* 17 */
-    // private static final int EXT_COUNT_UCHARS = EXT_COUNT_BYTES + 1;
+    private static final int EXT_COUNT_UCHARS = EXT_COUNT_BYTES + 1;
     // private static final int EXT_FLAGS = EXT_COUNT_UCHARS + 1;
     //
     // private static final int EXT_RESERVED_INDEX = EXT_FLAGS + 1; /* 20, moves with additional indexes */
@@ -2010,6 +2216,7 @@ class CharsetMBCS extends CharsetICU {
             byte state;
             int byteIndex;
             byte[] bytes;
+            int asciiRoundtrips;
 
             int sourceIndex, nextSourceIndex;
 
@@ -2047,6 +2254,8 @@ class CharsetMBCS extends CharsetICU {
                 stateTable = sharedData.mbcs.stateTable;
             }
             unicodeCodeUnits = sharedData.mbcs.unicodeCodeUnits;
+            asciiRoundtrips = (options & UConverterConstants.OPTION_SWAP_LFNL) == 0 ?
+                    sharedData.mbcs.asciiRoundtrips : 0;
 
             /* get the converter state from UConverter */
             offset = toUnicodeStatus;
@@ -2084,6 +2293,23 @@ class CharsetMBCS extends CharsetICU {
                     /* optimized loop for 1/2-byte input and BMP output */
                     // agljport:todo see ucnvmbcs.c for deleted block
                     do {
+                        if (state == 0 && asciiRoundtrips != 0) {
+                            /* copy a run of ASCII without the state table */
+                            int count = asciiRunToU(asciiRoundtrips, source, sourceArrayIndex, target,
+                                    Math.min(source.limit() - sourceArrayIndex, target.remaining()));
+                            if (count > 0) {
+                                sourceArrayIndex += count;
+                                if (offsets != null) {
+                                    while (count-- > 0) {
+                                        offsets.put(sourceIndex);
+                                        sourceIndex = ++nextSourceIndex;
+                                    }
+                                }
+                                if (sourceArrayIndex >= source.limit() || !target.hasRemaining()) {
+                                    break;
+                                }
+                            }
+                        }
                         entry = stateTable[state][source.get(sourceArrayIndex)&UConverterConstants.UNSIGNED_BYTE_MASK];
                         if (MBCS_ENTRY_IS_TRANSITION(entry)) {
                             state = (byte)MBCS_ENTRY_TRANSITION_STATE(entry);
@@ -2393,8 +2619,23 @@ class CharsetMBCS extends CharsetICU {
                 targetCapacity = length;
             }
 
+            /* single-byte get() and put() are slow on direct buffers: use bulk conversion via scratch arrays */
+            boolean bulk = !source.hasArray() || !target.hasArray();
+            int asciiRoundtrips = (options & UConverterConstants.OPTION_SWAP_LFNL) == 0 ?
+                    sharedData.mbcs.asciiRoundtrips : 0;
+
             /* conversion loop */
             while (targetCapacity > 0 && sourceArrayIndex < source.limit()) {
+                if (bulk || asciiRoundtrips != 0) {
+                    int count = bulk ?
+                            singleToBMPBulk(stateTable[0], source, sourceArrayIndex, target, targetCapacity) :
+                            asciiRunToU(asciiRoundtrips, source, sourceArrayIndex, target, targetCapacity);
+                    sourceArrayIndex += count;
+                    targetCapacity -= count;
+                    if (targetCapacity == 0) {
+                        break;
+                    }
+                }
                 entry = stateTable[0][source.get(sourceArrayIndex++) & UConverterConstants.UNSIGNED_BYTE_MASK];
                 /* MBCS_ENTRY_IS_FINAL(entry) */
 
@@ -2485,6 +2726,57 @@ class CharsetMBCS extends CharsetICU {
             return cr[0];
         }
 
+        /* scratch arrays for singleToBMPBulk() */
+        private byte[] bulkBytes;
+        private char[] bulkChars;
+
+        /**
+         * For cnvMBCSSingleToBMPWithOffsets() with buffers that are not backed by arrays:
+         * Converts the bytes starting at sourceArrayIndex that map directly to BMP code points,
+         * with bulk get() and put() via scratch arrays.
+         * Stops before the first byte that needs any other handling.
+         * Sets the source position as a side effect.
+         *
+         * @param count the maximum number of bytes to convert
+         * @return the number of bytes converted
+         */
+        private int singleToBMPBulk(int[] stateRow, ByteBuffer source, int sourceArrayIndex, CharBuffer target,
+                int count) {
+            if (count < UConverterConstants.BULK_MIN_WINDOW) {
+                return 0;
+            }
+            if (bulkBytes == null) {
+                bulkBytes = new byte[UConverterConstants.BULK_MAX_WINDOW];
+                bulkChars = new char[UConverterConstants.BULK_MAX_WINDOW];
+            }
+            byte[] bytes = bulkBytes;
+            char[] chars = bulkChars;
+            source.position(sourceArrayIndex);
+            int total = 0;
+            int window = UConverterConstants.BULK_MIN_WINDOW;
+            while (total < count) {
+                int length = Math.min(count - total, window);
+                source.get(bytes, 0, length);
+                int i = 0;
+                while (i < length) {
+                    int entry = stateRow[bytes[i] & UConverterConstants.UNSIGNED_BYTE_MASK];
+                    if (!MBCS_ENTRY_FINAL_IS_VALID_DIRECT_16(entry)) {
+                        break;
+                    }
+                    chars[i++] = MBCS_ENTRY_FINAL_VALUE_16(entry);
+                }
+                target.put(chars, 0, i);
+                total += i;
+                if (i < length) {
+                    break;
+                }
+                if (window < UConverterConstants.BULK_MAX_WINDOW) {
+                    window <<= 1;
+                }
+            }
+            return total;
+        }
+
         /* This version of cnvMBCSToUnicodeWithOffsets() is optimized for single-byte, single-state codepages. */
         private CoderResult cnvMBCSSingleToUnicodeWithOffsets(ByteBuffer source, CharBuffer target, IntBuffer offsets,
                 boolean flush) {
@@ -4039,8 +4331,24 @@ class CharsetMBCS extends CharsetICU {
                 sourceArrayIndex = x.sourceArrayIndex;
             }
 
+            /* single-char get() and put() are slow on direct buffers: use bulk conversion via scratch arrays */
+            boolean bulk = !source.hasArray() || !target.hasArray();
+            int asciiRoundtrips = (options & UConverterConstants.OPTION_SWAP_LFNL) == 0 ?
+                    sharedData.mbcs.asciiRoundtrips : 0;
+
             if (doloop) {
                 while (targetCapacity > 0) {
+                    if ((bulk || asciiRoundtrips != 0) && c == 0) {
+                        int count = bulk ?
+                                singleFromBMPBulk(table, results, minValue, source, sourceArrayIndex, target,
+                                        targetCapacity) :
+                                asciiRunFromU(asciiRoundtrips, source, sourceArrayIndex, target, targetCapacity);
+                        sourceArrayIndex += count;
+                        targetCapacity -= count;
+                        if (targetCapacity == 0) {
+                            break;
+                        }
+                    }
                     /*
                      * Get a correct Unicode code point: a single UChar for a BMP code point or a matched surrogate pair
                      * for a "supplementary code point".
@@ -4147,6 +4455,57 @@ class CharsetMBCS extends CharsetICU {
             return cr[0];
         }
 
+        /* scratch arrays for singleFromBMPBulk() */
+        private char[] bulkChars;
+        private byte[] bulkBytes;
+
+        /**
+         * For cnvMBCSSingleFromBMPWithOffsets() with buffers that are not backed by arrays:
+         * Converts the chars starting at sourceArrayIndex that have single-byte results,
+         * with bulk get() and put() via scratch arrays.
+         * Stops before the first char that needs any other handling.
+         * Sets the source position as a side effect.
+         *
+         * @param count the maximum number of chars to convert
+         * @return the number of chars converted
+         */
+        private int singleFromBMPBulk(char[] table, char[] results, char minValue, CharBuffer source,
+                int sourceArrayIndex, ByteBuffer target, int count) {
+            if (count < UConverterConstants.BULK_MIN_WINDOW) {
+                return 0;
+            }
+            if (bulkChars == null) {
+                bulkChars = new char[UConverterConstants.BULK_MAX_WINDOW];
+                bulkBytes = new byte[UConverterConstants.BULK_MAX_WINDOW];
+            }
+            char[] chars = bulkChars;
+            byte[] bytes = bulkBytes;
+            source.position(sourceArrayIndex);
+            int total = 0;
+            int window = UConverterConstants.BULK_MIN_WINDOW;
+            while (total < count) {
+                int length = Math.min(count - total, window);
+                source.get(chars, 0, length);
+                int i = 0;
+                while (i < length) {
+                    char value = MBCS_SINGLE_RESULT_FROM_U(table, results, chars[i]);
+                    if (value < minValue) {
+                        break;
+                    }
+                    bytes[i++] = (byte) value;
+                }
+                target.put(bytes, 0, i);
+                total += i;
+                if (i < length) {
+                    break;
+                }
+                if (window < UConverterConstants.BULK_MAX_WINDOW) {
+                    window <<= 1;
+                }
+            }
+            return total;
+        }
+
         /* This version of ucnv_MBCSFromUnicodeWithOffsets() is optimized for single-byte codepages. */
         private CoderResult cnvMBCSSingleFromUnicodeWithOffsets(CharBuffer source, ByteBuffer target,
                 IntBuffer offsets, boolean flush) {
@@ -4313,6 +4672,7 @@ class CharsetMBCS extends CharsetICU {
             int value;
             int length;
             short uniMask;
+            int asciiRoundtrips;
 
             /* use optimized function if possible */
             uniMask = sharedData.mbcs.unicodeMask;
@@ -4325,8 +4685,10 @@ class CharsetMBCS extends CharsetICU {
 
             if ((options & UConverterConstants.OPTION_SWAP_LFNL) != 0) {
                 chars = sharedData.mbcs.swapLFNLFromUnicodeChars;
+                asciiRoundtrips = 0;
             } else {
                 chars = sharedData.mbcs.fromUnicodeChars;
+                asciiRoundtrips = sharedData.mbcs.asciiRoundtrips;
             }
 
             /* get the converter state from UConverter */
@@ -4363,6 +4725,23 @@ class CharsetMBCS extends CharsetICU {
                      */
                     if (target.hasRemaining()) {
                         if (doread) {
+                            if (asciiRoundtrips != 0) {
+                                /* copy a run of ASCII without the fromUnicode tables */
+                                int count = asciiRunFromU(asciiRoundtrips, source, sourceArrayIndex, target,
+                                        Math.min(source.limit() - sourceArrayIndex, target.remaining()));
+                                if (count > 0) {
+                                    sourceArrayIndex += count;
+                                    if (offsets != null) {
+                                        while (count-- > 0) {
+                                            offsets.put(sourceIndex);
+                                            sourceIndex = ++nextSourceIndex;
+                                        }
+                                    } else {
+                                        sourceIndex = nextSourceIndex += count;
+                                    }
+                                    continue;
+                                }
+                            }
                             /*
                              * Get a correct Unicode code point: a single UChar for a BMP code point or a matched
                              * surrogate pair for a "supplementary code point".
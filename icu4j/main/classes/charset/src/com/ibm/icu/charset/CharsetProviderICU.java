@@ -17,6 +17,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ibm.icu.impl.InvalidFormatException;
 
@@ -32,7 +33,22 @@ public final class CharsetProviderICU extends CharsetProvider{
      * Not a Set or Map, so that we can add different Charset objects with the same name(),
      * which means that they are .equals(). See ICU ticket #11493.
      */
-    private static List<Charset> icuCharsets = Collections.<Charset>emptyList();
+    private static volatile List<Charset> icuCharsets = Collections.<Charset>emptyList();
+
+    /**
+     * Maps each charset name that has been looked up to its ICU canonical name.
+     * The keys are names with case and punctuation removed, as by UConverterAlias.stripForCompare(),
+     * which is how the alias data is searched; see getCanonicalNameKey().
+     * Only names of supported converters are added, so the map is no larger than the alias data.
+     */
+    private static final ConcurrentHashMap<String, String> icuCanonicalNames =
+            new ConcurrentHashMap<String, String>();
+
+    /**
+     * Maps each ICU canonical name that has been looked up to its Java canonical name and aliases.
+     */
+    private static final ConcurrentHashMap<String, ConverterNames> converterNames =
+            new ConcurrentHashMap<String, ConverterNames>();
 
     /**
      * Default constructor
@@ -109,6 +125,32 @@ public final class CharsetProviderICU extends CharsetProvider{
         return cs;
     }
 
+    /**
+     * Returns the number of times that ICU conversion table (.cnv) data has been
+     * read and parsed since the class was loaded.
+     * Together with {@link #getConverterTableCacheHitCount()} this shows how well
+     * the shared table cache works for an application.
+     * @return the number of conversion table loads
+     * @internal
+     * @deprecated This API is ICU internal only.
+     */
+    @Deprecated
+    public static long getConverterTableLoadCount() {
+        return CharsetMBCS.getSharedDataLoadCount();
+    }
+
+    /**
+     * Returns the number of times that a Charset was instantiated with
+     * ICU conversion table data that had already been loaded.
+     * @return the number of conversion table cache hits
+     * @internal
+     * @deprecated This API is ICU internal only.
+     */
+    @Deprecated
+    public static long getConverterTableCacheHitCount() {
+        return CharsetMBCS.getSharedDataHitCount();
+    }
+
     /**
      * Gets the canonical name of the converter as defined by Java
      * @param enc converter name
@@ -119,6 +161,58 @@ public final class CharsetProviderICU extends CharsetProvider{
      @Deprecated
      public static final String getICUCanonicalName(String enc)
                                 throws UnsupportedCharsetException{
+        if (enc == null) {
+            return null;
+        }
+        String key = getCanonicalNameKey(enc);
+        if (key == null) {
+            return findICUCanonicalName(enc);
+        }
+        String name = icuCanonicalNames.get(key);
+        if (name == null) {
+            name = findICUCanonicalName(enc);
+            if (name.length() != 0) {
+                // Racing threads find the same name; whichever is stored first is kept.
+                icuCanonicalNames.putIfAbsent(key, name);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Returns the key for a name in icuCanonicalNames: all spellings of a name
+     * that findICUCanonicalName() resolves alike have the same key.
+     * The alias data is searched with the case and punctuation removed from the name,
+     * except that an "x-" prefix is also tried removed; so that prefix is kept in the key.
+     * A '-' cannot otherwise occur in a stripped name.
+     * Names with converter options (after a ',') are not cached, and null is returned.
+     */
+    private static String getCanonicalNameKey(String enc) {
+        if (enc.indexOf(',') >= 0) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(enc.length());
+        if (enc.startsWith("x-") || enc.startsWith("X-")) {
+            key.append("x-");
+            enc = enc.substring(2);
+        }
+        return UConverterAlias.stripForCompare(key, enc).toString();
+    }
+
+    /**
+     * Returns the number of names whose ICU canonical names are cached.
+     * For testing that the cache is bounded by the alias data; the tests call it through reflection.
+     */
+    static int getCanonicalNameCacheSize() {
+        return icuCanonicalNames.size();
+    }
+
+    /**
+     * Searches the alias data for the ICU canonical name of the converter.
+     * The result is the same as that of getICUCanonicalName().
+     */
+    private static final String findICUCanonicalName(String enc)
+                                throws UnsupportedCharsetException{
         String canonicalName = null;
         String ret = null;
         try{
@@ -157,8 +251,16 @@ public final class CharsetProviderICU extends CharsetProvider{
     }
     private static final Charset getCharset(String icuCanonicalName, String optionsString)
             throws IOException {
-       String[] aliases = getAliases(icuCanonicalName);
-       String canonicalName = getJavaCanonicalName(icuCanonicalName);
+       ConverterNames names = converterNames.get(icuCanonicalName);
+       if (names == null) {
+           names = new ConverterNames(getJavaCanonicalName(icuCanonicalName), getAliases(icuCanonicalName));
+           ConverterNames old = converterNames.putIfAbsent(icuCanonicalName, names);
+           if (old != null) {
+               names = old;
+           }
+       }
+       String[] aliases = names.aliases.clone();
+       String canonicalName = names.javaCanonicalName;
 
        /* Concat the option string to the icuCanonicalName so that the options can be handled properly
         * by the actual charset.
@@ -260,12 +362,31 @@ public final class CharsetProviderICU extends CharsetProvider{
 
     }
 
+    /**
+     * The Java canonical name and the aliases of one converter.
+     */
+    private static final class ConverterNames {
+        final String javaCanonicalName;
+        final String[] aliases;
+
+        ConverterNames(String javaCanonicalName, String[] aliases) {
+            this.javaCanonicalName = javaCanonicalName;
+            this.aliases = aliases;
+        }
+    }
+
     /**
      * Lazy-init the icuCharsets list.
      * Could be done during static initialization if constructing all of the Charsets
      * were cheap enough. See ICU ticket #11481.
      */
-    private static final synchronized void loadAvailableICUCharsets() {
+    private static final void loadAvailableICUCharsets() {
+        if (icuCharsets.isEmpty()) {
+            loadAvailableICUCharsetsSynchronized();
+        }
+    }
+
+    private static final synchronized void loadAvailableICUCharsetsSynchronized() {
         if (!icuCharsets.isEmpty()) {
             return;
         }
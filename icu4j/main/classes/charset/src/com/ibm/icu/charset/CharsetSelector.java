@@ -23,12 +23,15 @@ import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 
-import com.ibm.icu.impl.IntTrie;
 import com.ibm.icu.impl.PropsVectors;
 import com.ibm.icu.text.UTF16;
 import com.ibm.icu.text.UnicodeSet;
+import com.ibm.icu.util.CodePointTrie;
 
 /**
  * Charset Selector
@@ -36,11 +39,19 @@ import com.ibm.icu.text.UnicodeSet;
  * A charset selector is built with a list of charset names and given an input
  * CharSequence returns the list of names the corresponding charsets which can
  * convert the CharSequence.
+ * <p>
+ * For selecting charsets for many strings, the result can also be returned as a bit set
+ * instead of a list of names: bit i is set if the charset with index i in
+ * {@link #getCharsets()} can convert the text. With at most 64 charsets, the bit set
+ * fits into a long, and no objects are allocated per string. Bit sets can be combined
+ * across several strings, to select the charsets that can convert all of them.
+ * <p>
+ * A CharsetSelector is immutable and can be used concurrently by multiple threads.
  * 
  * @stable ICU 4.2
  */
 public final class CharsetSelector {
-    private IntTrie trie;
+    private CodePointTrie.Fast trie; // code point to index of its row in pv
     private int[] pv; // table of bits
     private String[] encodings; // encodings users ask to use
 
@@ -83,7 +94,7 @@ public final class CharsetSelector {
             }
         }
 
-        trie = pvec.compactToTrieWithRowIndexes();
+        trie = pvec.compactToCodePointTrieWithRowIndexes();
         pv = pvec.getCompactedArray();
     }
 
@@ -206,7 +217,7 @@ public final class CharsetSelector {
         int index = 0;
         while (index < unicodeText.length()) {
             int c = UTF16.charAt(unicodeText, index);
-            int pvIndex = trie.getCodePointValue(c);
+            int pvIndex = trie.get(c);
             index += UTF16.getCharCount(c);
             if (intersectMasks(mask, pvIndex, columns)) {
                 break;
@@ -214,4 +225,175 @@ public final class CharsetSelector {
         }
         return selectForMask(mask);
     }
+
+    /**
+     * Returns the names of the charsets of this selector, in the order of the
+     * bits in the bit sets returned by {@link #selectMask(CharSequence)} and
+     * {@link #selectBits(CharSequence)}.
+     * These are the names that were supplied when building the selector,
+     * or the names of all available charsets if none were supplied.
+     *
+     * @return an unmodifiable list of the charset names
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public List<String> getCharsets() {
+        return Collections.unmodifiableList(Arrays.asList(encodings));
+    }
+
+    /**
+     * Select charsets that can map all characters in a CharSequence, ignoring
+     * the excluded code points, as a bit set in a long.
+     * Bit i (<code>1L &lt;&lt; i</code>) is set if the charset with index i in
+     * {@link #getCharsets()} can convert the text.
+     * The selector must have at most 64 charsets.
+     *
+     * @param unicodeText
+     *            a CharSequence. It could be empty.
+     * @return the bit set of the charsets that can convert the text
+     * @throws IllegalStateException
+     *             if the selector has more than 64 charsets
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public long selectMask(CharSequence unicodeText) {
+        return intersectMask(unicodeText, -1L);
+    }
+
+    /**
+     * Select charsets, out of a given set of charsets, that can map all characters
+     * in a CharSequence, ignoring the excluded code points.
+     * Returns the intersection of the given bit set and the one that
+     * {@link #selectMask(CharSequence)} returns for the text.
+     * <p>
+     * For the charsets that can convert all of a sequence of strings, start with
+     * <code>-1L</code> and pass in the result for the previous string together with the next string.
+     * The text is not looked at any more once no charset remains.
+     *
+     * @param unicodeText
+     *            a CharSequence. It could be empty.
+     * @param mask
+     *            the bit set of the charsets to be considered
+     * @return the bit set of the charsets in mask that can convert the text
+     * @throws IllegalStateException
+     *             if the selector has more than 64 charsets
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public long intersectMask(CharSequence unicodeText, long mask) {
+        if (encodings.length > 64) {
+            throw new IllegalStateException(
+                    "A long bit set does not fit " + encodings.length + " charsets");
+        }
+        if (encodings.length < 64) {
+            mask &= (1L << encodings.length) - 1;
+        }
+        boolean twoColumns = encodings.length > 32;
+        int length = unicodeText.length();
+        int index = 0;
+        while (index < length && mask != 0) {
+            char c = unicodeText.charAt(index++);
+            int pvIndex;
+            if (!Character.isSurrogate(c)) {
+                pvIndex = trie.bmpGet(c);
+            } else {
+                char c2;
+                if (Character.isHighSurrogate(c) && index < length &&
+                        Character.isLowSurrogate(c2 = unicodeText.charAt(index))) {
+                    ++index;
+                    pvIndex = trie.suppGet(Character.toCodePoint(c, c2));
+                } else {
+                    // Unpaired surrogates are looked up like other code points.
+                    pvIndex = trie.get(c);
+                }
+            }
+            long rowMask = pv[pvIndex] & 0xffffffffL;
+            if (twoColumns) {
+                rowMask |= (long) pv[pvIndex + 1] << 32;
+            }
+            mask &= rowMask;
+        }
+        return mask;
+    }
+
+    /**
+     * Select charsets for each of an array of CharSequences.
+     * Equivalent to calling {@link #selectMask(CharSequence)} for each of them.
+     *
+     * @param unicodeTexts
+     *            the CharSequences
+     * @param masks
+     *            receives the bit set for each of the texts, at the same index;
+     *            must be at least as long as unicodeTexts
+     * @throws IllegalStateException
+     *             if the selector has more than 64 charsets
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public void selectMasks(CharSequence[] unicodeTexts, long[] masks) {
+        if (masks.length < unicodeTexts.length) {
+            throw new IllegalArgumentException("masks is shorter than unicodeTexts");
+        }
+        for (int i = 0; i < unicodeTexts.length; ++i) {
+            masks[i] = intersectMask(unicodeTexts[i], -1L);
+        }
+    }
+
+    /**
+     * Select charsets that can map all characters in a CharSequence, ignoring
+     * the excluded code points, as a BitSet.
+     * Bit i is set if the charset with index i in {@link #getCharsets()}
+     * can convert the text. There is no limit on the number of charsets.
+     *
+     * @param unicodeText
+     *            a CharSequence. It could be empty.
+     * @return the bit set of the charsets that can convert the text
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public BitSet selectBits(CharSequence unicodeText) {
+        BitSet bits = new BitSet(encodings.length);
+        bits.set(0, encodings.length);
+        intersectBits(unicodeText, bits);
+        return bits;
+    }
+
+    /**
+     * Select charsets, out of a given set of charsets, that can map all characters
+     * in a CharSequence, ignoring the excluded code points.
+     * Clears the bits of the charsets that cannot convert the text;
+     * bits that are not already set remain cleared.
+     * <p>
+     * For the charsets that can convert all of a sequence of strings,
+     * pass the same BitSet together with each of the strings.
+     * The text is not looked at any more once no charset remains.
+     *
+     * @param unicodeText
+     *            a CharSequence. It could be empty.
+     * @param bits
+     *            the bit set of the charsets to be considered, modified in place
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public void intersectBits(CharSequence unicodeText, BitSet bits) {
+        if (bits.length() > encodings.length) {
+            bits.clear(encodings.length, bits.length());
+        }
+        int prevPVIndex = -1;
+        int index = 0;
+        while (index < unicodeText.length() && !bits.isEmpty()) {
+            int c = UTF16.charAt(unicodeText, index);
+            int pvIndex = trie.get(c);
+            index += UTF16.getCharCount(c);
+            if (pvIndex == prevPVIndex) {
+                continue;  // same row of bits as the previous code point
+            }
+            prevPVIndex = pvIndex;
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                if ((pv[pvIndex + (i >> 5)] & (1 << i)) == 0) {
+                    bits.clear(i);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,229 @@
+// © 2018 and later: Unicode, Inc. and others.
+// License & terms of use: http://www.unicode.org/copyright.html#License
+package com.ibm.icu.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Converts bytes in one charset directly to bytes in another charset,
+ * through a small internal pivot buffer of UTF-16 text, like ucnv_convertEx() in ICU4C.
+ * <p>
+ * Decoding into a CharBuffer and then encoding that would need a UTF-16 copy of the whole text.
+ * A CharsetTranscoder instead decodes a little of the input at a time into its pivot buffer
+ * and encodes the pivot text into the output buffer, so that it uses a constant amount of memory
+ * for input of any length. The input can be supplied and the output consumed in pieces
+ * of any size: the state of the conversion, including any text left in the pivot buffer,
+ * is kept between calls to {@link #convert(ByteBuffer, ByteBuffer, boolean)}.
+ * <p>
+ * Errors are handled by the decoder and encoder, according to their actions
+ * (for example, {@link CharsetDecoder#onMalformedInput(CodingErrorAction)}) or,
+ * for ICU converters, their callbacks
+ * (for example, {@link CharsetDecoderICU#setToUCallback(CoderResult, CharsetCallback.Decoder, Object)}).
+ * They can be set on the objects passed into the constructor or returned by
+ * {@link #getDecoder()} and {@link #getEncoder()}.
+ * <p>
+ * A CharsetTranscoder is used for one conversion at a time, and then it can be {@link #reset()}.
+ * It is not thread-safe.
+ *
+ * @draft ICU 64
+ * @provisional This API might change or be removed in a future release.
+ */
+public final class CharsetTranscoder {
+    /** The same as UCNV_PIVOT_BUFFER_SIZE in ICU4C. */
+    private static final int PIVOT_SIZE = 1024;
+
+    private final CharsetDecoder decoder;
+    private final CharsetEncoder encoder;
+    /** Decoded text that has not been encoded yet is in [0, position). */
+    private final CharBuffer pivot = CharBuffer.allocate(PIVOT_SIZE);
+    /** An error from the decoder, returned once the pivot text before it has been encoded. */
+    private CoderResult decoderError = null;
+    private boolean decoderFlushed = false;
+    private boolean finished = false;
+
+    /**
+     * Constructs a transcoder with a new decoder and encoder of the charsets.
+     * Like those of {@link Charset#newDecoder()} and {@link Charset#newEncoder()},
+     * they report errors.
+     * @param from the charset of the input
+     * @param to the charset of the output
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public CharsetTranscoder(Charset from, Charset to) {
+        this(from.newDecoder(), to.newEncoder());
+    }
+
+    /**
+     * Constructs a transcoder with the given decoder and encoder.
+     * They should be in their initial states, and they must not be used by anything else
+     * until the transcoder is no longer used.
+     * @param decoder the decoder for the input
+     * @param encoder the encoder for the output
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public CharsetTranscoder(CharsetDecoder decoder, CharsetEncoder encoder) {
+        if (decoder == null || encoder == null) {
+            throw new NullPointerException();
+        }
+        this.decoder = decoder;
+        this.encoder = encoder;
+    }
+
+    /**
+     * Returns the decoder, for example for setting its error actions.
+     * @return the decoder for the input
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public CharsetDecoder getDecoder() {
+        return decoder;
+    }
+
+    /**
+     * Returns the encoder, for example for setting its error actions.
+     * @return the encoder for the output
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public CharsetEncoder getEncoder() {
+        return encoder;
+    }
+
+    /**
+     * Resets the decoder and encoder and discards any text in the pivot buffer,
+     * so that a new conversion can be started.
+     * @return this transcoder
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public CharsetTranscoder reset() {
+        decoder.reset();
+        encoder.reset();
+        pivot.clear();
+        decoderError = null;
+        decoderFlushed = false;
+        finished = false;
+        return this;
+    }
+
+    /**
+     * Converts as much of the input as possible, writing the result to the output.
+     * <p>
+     * The result is one of the following:
+     * <ul>
+     * <li>{@link CoderResult#UNDERFLOW}: If endOfInput is false, then all of the input
+     *     that can be converted without more input has been converted, and the method should
+     *     be called again with more input. Any remaining input bytes form an incomplete character
+     *     and must be passed in again with the following input.
+     *     If endOfInput is true, then the conversion is complete, including the flushing
+     *     of the decoder and encoder; call {@link #reset()} to start another conversion.</li>
+     * <li>{@link CoderResult#OVERFLOW}: There is not enough room in the output buffer.
+     *     The method should be called again with more room in the output buffer
+     *     and the same input buffer and endOfInput value.</li>
+     * <li>A malformed-input or unmappable-character result from the decoder,
+     *     after the text before the error has been written to the output:
+     *     The input buffer position is where the decoder's
+     *     {@link CharsetDecoder#decode(ByteBuffer, CharBuffer, boolean) decode()} method left it.
+     *     ICU decoders have consumed the erroneous bytes; with other decoders,
+     *     skip the result's length in bytes before continuing the conversion.</li>
+     * <li>A malformed-input or unmappable-character result from the encoder:
+     *     The result's length is the number of erroneous UTF-16 code units.
+     *     They have been removed from the pivot buffer, so that calling this method again
+     *     continues the conversion after them.</li>
+     * </ul>
+     * @param src the input bytes
+     * @param dst the output buffer
+     * @param endOfInput true if, and only if, there is no more input after what is in src
+     * @return a result that describes why the conversion stopped
+     * @throws IllegalStateException if the conversion is complete and there is more input
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public CoderResult convert(ByteBuffer src, ByteBuffer dst, boolean endOfInput) {
+        if (finished) {
+            if (src.hasRemaining()) {
+                throw new IllegalStateException("The conversion is complete; reset() the transcoder");
+            }
+            return CoderResult.UNDERFLOW;
+        }
+        for (;;) {
+            // Fill the pivot buffer.
+            CoderResult toU = CoderResult.UNDERFLOW;
+            if (decoderError != null) {
+                toU = decoderError;
+            } else if (!decoderFlushed) {
+                toU = decoder.decode(src, pivot, endOfInput);
+                if (endOfInput && toU.isUnderflow()) {
+                    toU = decoder.flush(pivot);
+                    decoderFlushed = toU.isUnderflow();
+                }
+                if (toU.isError()) {
+                    decoderError = toU;
+                }
+            }
+
+            // Empty the pivot buffer, even if the decoder stopped with an error.
+            pivot.flip();
+            CoderResult fromU = encoder.encode(pivot, dst, decoderFlushed);
+            if (fromU.isError() && !(encoder instanceof CharsetEncoderICU)) {
+                // ICU encoders consume the erroneous input; other encoders stop before it.
+                pivot.position(pivot.position() + fromU.length());
+            }
+            pivot.compact();
+            if (!fromU.isUnderflow()) {
+                return fromU;
+            }
+            if (decoderFlushed) {
+                fromU = encoder.flush(dst);
+                finished = fromU.isUnderflow();
+                return fromU;
+            }
+            if (toU.isError()) {
+                decoderError = null;
+                return toU;
+            } else if (toU.isUnderflow()) {
+                // More input is needed.
+                return toU;
+            }
+            // The pivot buffer was full and has been emptied: continue decoding.
+        }
+    }
+
+    /**
+     * Converts all of the input, as with one call to
+     * {@link #convert(ByteBuffer, ByteBuffer, boolean)} with endOfInput=true
+     * on a new transcoder whose decoder and encoder replace malformed input
+     * and unmappable characters.
+     * <p>
+     * If the result is {@link CoderResult#OVERFLOW}, then the buffer positions show
+     * how far the conversion got, but it cannot be continued.
+     * Use a CharsetTranscoder object to convert input in pieces, or into a series of output buffers.
+     *
+     * @param src the input bytes
+     * @param from the charset of the input
+     * @param dst the output buffer
+     * @param to the charset of the output
+     * @return {@link CoderResult#UNDERFLOW} if all of the input was converted,
+     *         or {@link CoderResult#OVERFLOW} if the output buffer is too small
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public static CoderResult convert(ByteBuffer src, Charset from, ByteBuffer dst, Charset to) {
+        CharsetTranscoder transcoder = new CharsetTranscoder(
+                from.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE),
+                to.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        return transcoder.convert(src, dst, true);
+    }
+}
@@ -194,6 +194,19 @@ class CharsetUTF8 extends CharsetICU {
                 CoderResult cr;
 
                 if (mode == 0) {
+                    /* convert leading ASCII in bulk */
+                    int count = decodeAsciiRun(source, sourceIndex, target, targetIndex,
+                            Math.min(sourceLimit - sourceIndex, targetLimit - targetIndex));
+                    if (count > 0) {
+                        sourceIndex += count;
+                        targetIndex += count;
+                        if (sourceIndex >= sourceLimit || targetIndex >= targetLimit) {
+                            source.position(sourceIndex);
+                            target.position(targetIndex);
+                            return sourceIndex >= sourceLimit ? CoderResult.UNDERFLOW : CoderResult.OVERFLOW;
+                        }
+                    }
+
                     /* nothing is stored in toUnicodeStatus, read a byte as input */
                     toUBytesArray[0] = ch = source.get(sourceIndex++);
                     bytesExpected = UTF8.countBytes(ch);
@@ -274,6 +287,22 @@ class CharsetUTF8 extends CharsetICU {
                             break;
                         }
 
+                        /* convert a following run of ASCII in bulk */
+                        int count = decodeAsciiRun(source, sourceIndex, target, targetIndex,
+                                Math.min(sourceLimit - sourceIndex, targetLimit - targetIndex));
+                        if (count > 0) {
+                            sourceIndex += count;
+                            targetIndex += count;
+                            if (sourceIndex >= sourceLimit) {
+                                cr = CoderResult.UNDERFLOW;
+                                break;
+                            }
+                            if (targetIndex >= targetLimit) {
+                                cr = CoderResult.OVERFLOW;
+                                break;
+                            }
+                        }
+
                         /* keep reading the next input (and writing it) while bytes == 1 */
                         while (UTF8.isSingle(ch = source.get(sourceIndex++))) {
                             target.put(targetIndex++, (char) ch);
@@ -310,6 +339,53 @@ class CharsetUTF8 extends CharsetICU {
             }
         }
 
+        /* scratch arrays for decodeAsciiRun() */
+        private byte[] bulkBytes;
+        private char[] bulkChars;
+
+        /**
+         * Converts a run of ASCII bytes starting at sourceIndex with bulk get() and put()
+         * via scratch arrays, which is much faster than single-byte absolute get() and put()
+         * on direct buffers.
+         * Sets the source and target positions as a side effect.
+         *
+         * @param count the maximum number of bytes to convert
+         * @return the number of bytes converted
+         */
+        private int decodeAsciiRun(ByteBuffer source, int sourceIndex, CharBuffer target, int targetIndex,
+                int count) {
+            if (count < UConverterConstants.BULK_MIN_WINDOW || !UTF8.isSingle(source.get(sourceIndex))) {
+                return 0;
+            }
+            if (bulkBytes == null) {
+                bulkBytes = new byte[UConverterConstants.BULK_MAX_WINDOW];
+                bulkChars = new char[UConverterConstants.BULK_MAX_WINDOW];
+            }
+            byte[] bytes = bulkBytes;
+            char[] chars = bulkChars;
+            source.position(sourceIndex);
+            target.position(targetIndex);
+            int total = 0;
+            int window = UConverterConstants.BULK_MIN_WINDOW;
+            while (total < count) {
+                int length = Math.min(count - total, window);
+                source.get(bytes, 0, length);
+                int i = 0;
+                while (i < length && bytes[i] >= 0) {
+                    chars[i] = (char) bytes[i];
+                    ++i;
+                }
+                target.put(chars, 0, i);
+                total += i;
+                if (i < length) {
+                    break;
+                }
+                if (window < UConverterConstants.BULK_MAX_WINDOW) {
+                    window <<= 1;
+                }
+            }
+            return total;
+        }
     }
 
     class CharsetEncoderUTF8 extends CharsetEncoderICU {
@@ -461,6 +537,11 @@ class CharsetUTF8 extends CharsetICU {
                         break;
                     }
 
+                    /* convert a run of ASCII in bulk */
+                    if (encodeAsciiRun(source, target) > 0) {
+                        continue;
+                    }
+
                     /* reach the next char into char32 */
                     char32 = source.get();
 
@@ -515,6 +596,51 @@ class CharsetUTF8 extends CharsetICU {
             }
         }
 
+        /* scratch arrays for encodeAsciiRun() */
+        private char[] bulkChars;
+        private byte[] bulkBytes;
+
+        /**
+         * Converts a run of ASCII characters with bulk get() and put() via scratch arrays,
+         * which is much faster than single-char get() and put() on direct buffers.
+         *
+         * @return the number of characters converted
+         */
+        private int encodeAsciiRun(CharBuffer source, ByteBuffer target) {
+            int count = Math.min(source.remaining(), target.remaining());
+            if (count < UConverterConstants.BULK_MIN_WINDOW || source.get(source.position()) > 0x7f) {
+                return 0;
+            }
+            if (bulkChars == null) {
+                bulkChars = new char[UConverterConstants.BULK_MAX_WINDOW];
+                bulkBytes = new byte[UConverterConstants.BULK_MAX_WINDOW];
+            }
+            char[] chars = bulkChars;
+            byte[] bytes = bulkBytes;
+            int total = 0;
+            int window = UConverterConstants.BULK_MIN_WINDOW;
+            while (total < count) {
+                int length = Math.min(count - total, window);
+                source.get(chars, 0, length);
+                int i = 0;
+                while (i < length && chars[i] <= 0x7f) {
+                    bytes[i] = (byte) chars[i];
+                    ++i;
+                }
+                target.put(bytes, 0, i);
+                total += i;
+                if (i < length) {
+                    /* unread the chars after the run */
+                    source.position(source.position() - (length - i));
+                    break;
+                }
+                if (window < UConverterConstants.BULK_MAX_WINDOW) {
+                    window <<= 1;
+                }
+            }
+            return total;
+        }
+
         private final CoderResult encodeFourBytes(char[] sourceArray, byte[] targetArray,
                 int sourceLimit, int targetLimit, int char32) {
 
@@ -0,0 +1,330 @@
+// © 2018 and later: Unicode, Inc. and others.
+// License & terms of use: http://www.unicode.org/copyright.html#License
+package com.ibm.icu.charset;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Converts a file from one charset to another, using multiple threads for large files.
+ * <p>
+ * The file is memory-mapped and split into chunks at positions where the conversion
+ * to Unicode is known to start over in its initial state: for UTF-8 before any byte
+ * that is not a trail byte, for single-byte charsets anywhere, and for multi-byte charsets
+ * after a byte that the conversion table only allows as a single-byte character
+ * (usually the ASCII controls and punctuation, for example a line feed).
+ * The chunks are converted concurrently on a ForkJoinPool, each worker thread with
+ * its own decoder and encoder, and the results are written in the original order.
+ * The output is the same as that of a single sequential conversion.
+ * <p>
+ * Charsets with state that carries across characters, such as ISO-2022, UTF-7, HZ
+ * or EBCDIC mixed single/double-byte (SI/SO) charsets, cannot be split like this;
+ * for them the conversion is done sequentially on the calling thread.
+ * So is CESU-8, where a split could fall between the two halves of a surrogate pair.
+ * <p>
+ * Malformed input and unmappable characters are replaced with the charsets'
+ * substitution characters.
+ * <p>
+ * A ParallelTranscoder may be used for several conversions, but not concurrently.
+ *
+ * @draft ICU 64
+ * @provisional This API might change or be removed in a future release.
+ */
+public final class ParallelTranscoder {
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    /** Size of the reads when looking for a split position, and of the buffers for the sequential conversion. */
+    private static final int WINDOW_SIZE = 4096;
+
+    private final Charset source;
+    private final Charset target;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    /**
+     * Null if the source must be converted sequentially;
+     * otherwise splitAfter[b] is true if a chunk may end with byte b.
+     */
+    private final boolean[] splitAfter;
+    /** splitBefore[b] is true if a chunk may start with byte b. */
+    private final boolean[] splitBefore;
+
+    private final ThreadLocal<CharsetDecoder> decoders = new ThreadLocal<CharsetDecoder>() {
+        @Override
+        protected CharsetDecoder initialValue() {
+            return newDecoder();
+        }
+    };
+    private final ThreadLocal<CharsetEncoder> encoders = new ThreadLocal<CharsetEncoder>() {
+        @Override
+        protected CharsetEncoder initialValue() {
+            return newEncoder();
+        }
+    };
+
+    /**
+     * Constructs a transcoder which uses a new ForkJoinPool with one thread per available processor
+     * for each conversion, and chunks of about 1MB.
+     * @param source the charset of the input
+     * @param target the charset of the output
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public ParallelTranscoder(Charset source, Charset target) {
+        this(source, target, null, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a transcoder.
+     * @param source the charset of the input
+     * @param target the charset of the output
+     * @param pool the pool on which the chunks are converted;
+     *        if null, then a new pool is created and shut down for each conversion
+     * @param chunkSize the minimum number of input bytes per chunk;
+     *        chunks are extended up to the next position where the input can be split
+     * @throws IllegalArgumentException if chunkSize is not positive
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public ParallelTranscoder(Charset source, Charset target, ForkJoinPool pool, int chunkSize) {
+        if (source == null || target == null) {
+            throw new NullPointerException();
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.source = source;
+        this.target = target;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+
+        boolean[] after = null;
+        boolean[] before = null;
+        if (isConcatenationSafe(target)) {
+            String name = source.name();
+            // CESU-8 is not split: a supplementary code point is a pair of 3-byte surrogate sequences,
+            // and the input must not be split between them.
+            if ((source instanceof CharsetUTF8 && !(source instanceof CharsetCESU8))
+                    || (!(source instanceof CharsetICU) && name.equals("UTF-8"))) {
+                // Split before any lead byte or single byte, but not before a trail byte.
+                after = new boolean[256];
+                Arrays.fill(after, true);
+                before = new boolean[256];
+                Arrays.fill(before, true);
+                Arrays.fill(before, 0x80, 0xc0, false);
+            } else if (source instanceof CharsetASCII
+                    || (!(source instanceof CharsetICU) && (name.equals("US-ASCII") || name.equals("ISO-8859-1")))) {
+                after = new boolean[256];
+                Arrays.fill(after, true);
+            } else if (source instanceof CharsetMBCS) {
+                after = ((CharsetMBCS)source).getResyncBytes();
+            }
+            if (after != null && before == null) {
+                before = new boolean[256];
+                Arrays.fill(before, true);
+            }
+        }
+        splitAfter = after;
+        splitBefore = before;
+    }
+
+    /**
+     * Returns true if the text converted from each of the pieces of a string that are
+     * split between code points can be concatenated to yield the conversion of the whole string.
+     */
+    private static boolean isConcatenationSafe(Charset target) {
+        if (target instanceof CharsetICU) {
+            if (target instanceof CharsetUTF8 || target instanceof CharsetASCII) {
+                return true;
+            }
+            return target instanceof CharsetMBCS && ((CharsetMBCS)target).isFromUnicodeStateless();
+        }
+        String name = target.name();
+        return name.equals("UTF-8") || name.equals("US-ASCII") || name.equals("ISO-8859-1");
+    }
+
+    /**
+     * Returns true if the conversion is split into chunks that are converted in parallel,
+     * false if it is done sequentially.
+     * @return true if the conversion can be done in parallel
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public boolean isParallelizable() {
+        return splitAfter != null;
+    }
+
+    /**
+     * Converts the whole content of a file and writes the result to a channel.
+     * The positions of the channels are not used for reading from the file,
+     * and the file position is not changed.
+     * @param in the input file
+     * @param out the output channel
+     * @return the number of bytes written
+     * @throws IOException if reading or writing fails
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public long transcode(FileChannel in, WritableByteChannel out) throws IOException {
+        long size = in.size();
+        if (splitAfter == null || size <= chunkSize) {
+            return transcodeSequentially(in, size, out);
+        }
+        ForkJoinPool p = pool != null ? pool : new ForkJoinPool();
+        try {
+            return transcodeInParallel(in, size, out, p);
+        } finally {
+            if (p != pool) {
+                p.shutdownNow();
+            }
+        }
+    }
+
+    private long transcodeInParallel(FileChannel in, long size, WritableByteChannel out, ForkJoinPool p)
+            throws IOException {
+        int maxPending = Math.max(2, p.getParallelism() * 2);
+        ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<Future<ByteBuffer>>(maxPending);
+        ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE);
+        long written = 0;
+        try {
+            long start = 0;
+            while (start < size) {
+                long limit = nextSplit(in, start + chunkSize, size, window);
+                final ByteBuffer chunk = in.map(FileChannel.MapMode.READ_ONLY, start, limit - start);
+                if (pending.size() == maxPending) {
+                    written += writeFully(out, getResult(pending.removeFirst()));
+                }
+                pending.addLast(p.submit(new Callable<ByteBuffer>() {
+                    @Override
+                    public ByteBuffer call() throws CharacterCodingException {
+                        CharBuffer chars = decoders.get().decode(chunk);
+                        return encoders.get().encode(chars);
+                    }
+                }));
+                start = limit;
+            }
+            while (!pending.isEmpty()) {
+                written += writeFully(out, getResult(pending.removeFirst()));
+            }
+        } finally {
+            for (Future<ByteBuffer> f : pending) {
+                f.cancel(true);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Returns the first position at or after the nominal one where the input can be split,
+     * or the size of the input if there is none.
+     */
+    private long nextSplit(FileChannel in, long nominal, long size, ByteBuffer window) throws IOException {
+        // Look at the byte before each candidate position, and the byte at it.
+        long windowStart = nominal - 1;
+        while (windowStart + 1 < size) {
+            window.clear();
+            if (size - windowStart < window.capacity()) {
+                window.limit((int)(size - windowStart));
+            }
+            while (window.hasRemaining()) {
+                if (in.read(window, windowStart + window.position()) < 0) {
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+            int length = window.position();
+            for (int i = 1; i < length; ++i) {
+                if (splitAfter[window.get(i - 1) & 0xff] && splitBefore[window.get(i) & 0xff]) {
+                    return windowStart + i;
+                }
+            }
+            // Overlap the windows by one byte.
+            windowStart += length - 1;
+        }
+        return size;
+    }
+
+    private static ByteBuffer getResult(Future<ByteBuffer> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static int writeFully(WritableByteChannel out, ByteBuffer bytes) throws IOException {
+        int length = bytes.remaining();
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+        return length;
+    }
+
+    private long transcodeSequentially(FileChannel in, long size, WritableByteChannel out) throws IOException {
+        CharsetTranscoder transcoder = new CharsetTranscoder(newDecoder(), newEncoder());
+        ByteBuffer bytesIn = ByteBuffer.allocate(WINDOW_SIZE);
+        ByteBuffer bytesOut = ByteBuffer.allocate(WINDOW_SIZE * 2);
+        long written = 0;
+        long position = 0;
+        for (;;) {
+            int count = in.read(bytesIn, position);
+            if (count > 0) {
+                position += count;
+            }
+            boolean endOfInput = count < 0 || position >= size;
+            bytesIn.flip();
+            // Convert all of the input that is complete before reading more.
+            for (;;) {
+                CoderResult cr = transcoder.convert(bytesIn, bytesOut, endOfInput);
+                bytesOut.flip();
+                written += writeFully(out, bytesOut);
+                bytesOut.clear();
+                if (cr.isUnderflow()) {
+                    break;
+                } else if (cr.isError()) {
+                    cr.throwException();
+                }
+            }
+            bytesIn.compact();
+            if (endOfInput) {
+                return written;
+            }
+        }
+    }
+
+    private CharsetDecoder newDecoder() {
+        return source.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    private CharsetEncoder newEncoder() {
+        return target.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+}
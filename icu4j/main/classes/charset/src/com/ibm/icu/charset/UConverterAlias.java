@@ -53,10 +53,6 @@ final class UConverterAlias {
         return extractString(gStringTable, 2 * idx);
     }
 
-    private static final String GET_NORMALIZED_STRING(int idx) {
-        return extractString(gNormalizedStringTable, 2 * idx);
-    }
-
     private static final String extractString(byte[] sArray, int sBegin) {
         char[] buf = new char[strlen(sArray, sBegin)];
         for (int i = 0; i < buf.length; i++) {
@@ -65,6 +61,26 @@ final class UConverterAlias {
         return new String(buf);
     }
 
+    /*
+     * Compares a string with the normalized string at idx, like String.compareTo()
+     * but without creating a String for the normalized string.
+     */
+    private static final int compareToNormalizedString(String s, int idx) {
+        int p = 2 * idx;
+        for (int i = 0;; ++i, ++p) {
+            int c = p < gNormalizedStringTable.length ? gNormalizedStringTable[p] & 0xff : 0;
+            if (i == s.length()) {
+                return c == 0 ? 0 : -1;
+            }
+            if (c == 0) {
+                return 1;
+            }
+            if (s.charAt(i) != c) {
+                return s.charAt(i) - c;
+            }
+        }
+    }
+
     private static final int strlen(byte[] sArray, int sBegin)
     {
         int i = sBegin;
@@ -105,7 +121,11 @@ final class UConverterAlias {
                                                                  * offsets[]
                                                                  */
 
-    static ByteBuffer gAliasData = null;
+    /*
+     * Set after all of the other alias data, so that threads that see it
+     * non-null also see the data without synchronization.
+     */
+    static volatile ByteBuffer gAliasData = null;
 
     private static final boolean isAlias(String alias) {
         if (alias == null) {
@@ -116,8 +136,14 @@ final class UConverterAlias {
 
     private static final String CNVALIAS_DATA_FILE_NAME = "cnvalias.icu";
 
-    private static final synchronized boolean haveAliasData() 
-                                               throws IOException{
+    private static final boolean haveAliasData() throws IOException {
+        if (gAliasData == null) {
+            loadAliasData();
+        }
+        return true;
+    }
+
+    private static final synchronized void loadAliasData() throws IOException {
         boolean needInit;
 
         needInit = gAliasData == null;
@@ -160,8 +186,6 @@ final class UConverterAlias {
                 data = null;
             }
         }
-
-        return true;
     }
 
     // U_CFUNC const char * io_getConverterName(const char *alias, UErrorCode
@@ -189,7 +213,6 @@ final class UConverterAlias {
         int lastMid;
         int result;
         StringBuilder strippedName = new StringBuilder();
-        String aliasToCompare;
 
         stripForCompare(strippedName, alias);
         alias = strippedName.toString();
@@ -206,8 +229,7 @@ final class UConverterAlias {
                 break; /* We haven't moved, and it wasn't found. */
             }
             lastMid = mid;
-            aliasToCompare = GET_NORMALIZED_STRING(gAliasList[mid]);
-            result = alias.compareTo(aliasToCompare);
+            result = compareToNormalizedString(alias, gAliasList[mid]);
 
             if (result < 0) {
                 limit = mid;
@@ -697,7 +719,7 @@ final class UConverterAlias {
     }
 
     // begin bld.c
-    static String[] gAvailableConverters = null;
+    static volatile String[] gAvailableConverters = null;
 
     static int gAvailableConverterCount = 0;
 
@@ -730,8 +752,9 @@ final class UConverterAlias {
 
             // agljport:todo umtx_lock(NULL);
             if (gAvailableConverters == null) {
-                gAvailableConverters = localConverterList;
+                // Set the count first: gAvailableConverters publishes it.
                 gAvailableConverterCount = localConverterCount;
+                gAvailableConverters = localConverterList;
                 /* haveData should have already registered the cleanup function */
             } else {
                 // agljport:todo free((char **)localConverterList);
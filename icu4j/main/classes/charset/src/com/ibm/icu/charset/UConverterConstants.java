@@ -59,6 +59,15 @@ interface UConverterConstants {
 
     //end ucnv.h
 
+    /**
+     * Window sizes for converting between buffers that are not backed by arrays (for example,
+     * direct buffers) via scratch arrays, with one bulk get() and put() per window.
+     * The window starts small so that short runs do not copy much more than they convert,
+     * and doubles up to the maximum for long runs.
+     */
+    static final int BULK_MIN_WINDOW = 16;
+    static final int BULK_MAX_WINDOW = 1024;
+
     // begin bld.h
     /* size of the overflow buffers in UConverter, enough for escaping callbacks */
     //#define ERROR_BUFFER_LENGTH 32
@@ -2,10 +2,210 @@
 // License & terms of use: http://www.unicode.org/copyright.html#License
 package com.ibm.icu.charset;
 
+import java.nio.ByteBuffer;
+
 /**
- * Partial Java port of ICU4C unicode/utf8.h and ustr_imp.h.
+ * UTF-8 utilities: validation of UTF-8 byte sequences, and counting of
+ * the UTF-16 code units that they decode to.
+ * <p>
+ * With {@link #getUTF16Length(byte[], int, int)}, ill-formed input can be rejected
+ * before anything is allocated for it, and a decoded text buffer can be allocated with
+ * exactly the right size. Validation skips runs of ASCII bytes several at a time
+ * and checks other bytes with a small state machine driven by lookup tables.
+ * <p>
+ * The rest of the class is a partial Java port of ICU4C unicode/utf8.h and ustr_imp.h
+ * for the UTF-8 converter.
+ *
+ * @draft ICU 64
+ * @provisional This API might change or be removed in a future release.
  */
-class UTF8 {
+public final class UTF8 {
+    private UTF8() {
+    }
+
+    /*
+     * Validation state machine.
+     * Each byte value belongs to one class of bytes which behave alike:
+     * Each state has one transition per class, and each class
+     * adds a number of UTF-16 code units for a well-formed sequence.
+     */
+    private static final int CLASS_ASCII = 0;       // 00..7F
+    private static final int CLASS_TRAIL_80 = 1;    // 80..8F
+    private static final int CLASS_TRAIL_90 = 2;    // 90..9F
+    private static final int CLASS_TRAIL_A0 = 3;    // A0..BF
+    private static final int CLASS_ILLEGAL = 4;     // C0, C1, F5..FF
+    private static final int CLASS_LEAD2 = 5;       // C2..DF
+    private static final int CLASS_E0 = 6;
+    private static final int CLASS_LEAD3 = 7;       // E1..EC, EE, EF
+    private static final int CLASS_ED = 8;
+    private static final int CLASS_F0 = 9;
+    private static final int CLASS_LEAD4 = 10;      // F1..F3
+    private static final int CLASS_F4 = 11;
+    private static final int CLASS_COUNT = 12;
+
+    /** Between sequences: The input so far is well-formed. */
+    private static final int STATE_ACCEPT = 0;
+    /** Ill-formed input. There are no transitions out of this state. */
+    private static final int STATE_REJECT = 1;
+    // 2: one more trail byte, 3: two more, 6: three more
+    // 4: after E0, 5: after ED, 7: after F0, 8: after F4
+
+    private static final byte[] BYTE_CLASSES = new byte[256];
+    static {
+        for (int b = 0; b < 256; ++b) {
+            int c;
+            if (b <= 0x7f) {
+                c = CLASS_ASCII;
+            } else if (b <= 0x8f) {
+                c = CLASS_TRAIL_80;
+            } else if (b <= 0x9f) {
+                c = CLASS_TRAIL_90;
+            } else if (b <= 0xbf) {
+                c = CLASS_TRAIL_A0;
+            } else if (b <= 0xc1) {
+                c = CLASS_ILLEGAL;
+            } else if (b <= 0xdf) {
+                c = CLASS_LEAD2;
+            } else if (b == 0xe0) {
+                c = CLASS_E0;
+            } else if (b == 0xed) {
+                c = CLASS_ED;
+            } else if (b <= 0xef) {
+                c = CLASS_LEAD3;
+            } else if (b == 0xf0) {
+                c = CLASS_F0;
+            } else if (b <= 0xf3) {
+                c = CLASS_LEAD4;
+            } else if (b == 0xf4) {
+                c = CLASS_F4;
+            } else {
+                c = CLASS_ILLEGAL;
+            }
+            BYTE_CLASSES[b] = (byte)c;
+        }
+    }
+
+    /**
+     * The next state is at TRANSITIONS[state * CLASS_COUNT + class].
+     * The columns are in the order of the CLASS_ constants.
+     */
+    private static final byte[] TRANSITIONS = {
+        0, 1, 1, 1, 1, 2, 4, 3, 5, 7, 6, 8,  // 0: accept
+        1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,  // 1: reject
+        1, 0, 0, 0, 1, 1, 1, 1, 1, 1, 1, 1,  // 2: one more trail byte
+        1, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1, 1,  // 3: two more trail bytes
+        1, 1, 1, 2, 1, 1, 1, 1, 1, 1, 1, 1,  // 4: after E0, A0..BF
+        1, 2, 2, 1, 1, 1, 1, 1, 1, 1, 1, 1,  // 5: after ED, 80..9F
+        1, 3, 3, 3, 1, 1, 1, 1, 1, 1, 1, 1,  // 6: three more trail bytes
+        1, 1, 3, 3, 1, 1, 1, 1, 1, 1, 1, 1,  // 7: after F0, 90..BF
+        1, 3, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,  // 8: after F4, 80..8F
+    };
+
+    /** Number of UTF-16 code units per class: 1 per ASCII or lead byte, 2 per supplementary code point. */
+    private static final byte[] UTF16_UNITS = {
+        1, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2
+    };
+
+    /**
+     * Returns the index of the first non-ASCII byte in s[start..limit[, or limit if there is none.
+     * Checks eight bytes at a time.
+     */
+    static int skipAscii(byte[] s, int start, int limit) {
+        int i = start;
+        // An OR of ASCII bytes is non-negative; any byte 80..FF makes it negative.
+        for (int wordLimit = limit - 7; i < wordLimit; i += 8) {
+            if ((s[i] | s[i + 1] | s[i + 2] | s[i + 3] | s[i + 4] | s[i + 5] | s[i + 6] | s[i + 7]) < 0) {
+                break;
+            }
+        }
+        while (i < limit && s[i] >= 0) {
+            ++i;
+        }
+        return i;
+    }
+
+    /**
+     * Returns true if the bytes are well-formed UTF-8:
+     * No illegal bytes, no non-shortest forms, no surrogate code points,
+     * no code points above U+10FFFF, and no sequence that is truncated at the end.
+     *
+     * @param s the array with the bytes
+     * @param start the index of the first byte
+     * @param limit the index after the last byte
+     * @return true if s[start..limit[ is well-formed UTF-8
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public static boolean isValid(byte[] s, int start, int limit) {
+        return getUTF16Length(s, start, limit) >= 0;
+    }
+
+    /**
+     * Validates UTF-8 bytes and counts the UTF-16 code units that they decode to.
+     * The bytes are validated as with {@link #isValid(byte[], int, int)}.
+     *
+     * @param s the array with the bytes
+     * @param start the index of the first byte
+     * @param limit the index after the last byte
+     * @return the number of UTF-16 code units for s[start..limit[,
+     *         or -1 if the bytes are not well-formed UTF-8
+     * @throws IndexOutOfBoundsException if start and limit are not valid indexes for s
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public static int getUTF16Length(byte[] s, int start, int limit) {
+        if (start < 0 || start > limit || limit > s.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        int length = 0;
+        int state = STATE_ACCEPT;
+        int i = start;
+        while (i < limit) {
+            if (state == STATE_ACCEPT && s[i] >= 0) {
+                int asciiLimit = skipAscii(s, i, limit);
+                length += asciiLimit - i;
+                if ((i = asciiLimit) == limit) {
+                    break;
+                }
+            }
+            int c = BYTE_CLASSES[s[i++] & 0xff];
+            state = TRANSITIONS[state * CLASS_COUNT + c];
+            if (state == STATE_REJECT) {
+                return -1;
+            }
+            length += UTF16_UNITS[c];
+        }
+        return state == STATE_ACCEPT ? length : -1;
+    }
+
+    /**
+     * Validates the remaining UTF-8 bytes in a buffer and counts the UTF-16 code units
+     * that they decode to. The buffer position is not changed.
+     * The bytes are validated as with {@link #isValid(byte[], int, int)}.
+     *
+     * @param src the buffer with the bytes
+     * @return the number of UTF-16 code units for the bytes from the position to the limit,
+     *         or -1 if the bytes are not well-formed UTF-8
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public static int getUTF16Length(ByteBuffer src) {
+        if (src.hasArray()) {
+            int offset = src.arrayOffset();
+            return getUTF16Length(src.array(), offset + src.position(), offset + src.limit());
+        }
+        int length = 0;
+        int state = STATE_ACCEPT;
+        for (int i = src.position(), limit = src.limit(); i < limit; ++i) {
+            int c = BYTE_CLASSES[src.get(i) & 0xff];
+            state = TRANSITIONS[state * CLASS_COUNT + c];
+            if (state == STATE_REJECT) {
+                return -1;
+            }
+            length += UTF16_UNITS[c];
+        }
+        return state == STATE_ACCEPT ? length : -1;
+    }
     /**
      * Counts the trail bytes for a UTF-8 lead byte.
      * Returns 0 for 0..0xc1 as well as for 0xf5..0xff.
@@ -390,6 +390,20 @@ public final class CaseMapImpl {
         }
     }
 
+    /**
+     * Appends a full case mapping result like appendResult(),
+     * except that a string mapping is taken from the mapping buffer, which is then emptied.
+     * @throws IOException
+     */
+    private static void appendMapping(int result, StringBuilder mapping, Appendable dest,
+            int cpLength, int options, Edits edits) throws IOException {
+        if (result <= UCaseProps.MAX_STRING_LENGTH) {
+            dest.append(mapping);
+            mapping.setLength(0);
+        }
+        appendResult(result, dest, cpLength, options, edits);
+    }
+
     private static final void appendUnchanged(CharSequence src, int start, int length,
             Appendable dest, int options, Edits edits) throws IOException {
         if (length > 0) {
@@ -438,8 +452,10 @@ public final class CaseMapImpl {
         } else {
             latinToLower = UCaseProps.LatinCase.TO_LOWER_TR_LT;
         }
+        StringBuilder mapping = null;
         int prev = srcStart;
-        int srcIndex = srcStart;
+        // ASCII other than A-Z maps to itself in every locale, for both lowercasing and folding.
+        int srcIndex = Utility.spanASCIINotIn(src, srcStart, srcLimit, 'A', 'Z');
         outerLoop:
         for (;;) {
             // fast path for simple cases
@@ -486,27 +502,36 @@ public final class CaseMapImpl {
             } else {
                 c = lead;
             }
+            // A string mapping goes into a separate buffer, so that it can be appended
+            // after the unchanged text before it, and unchanged runs stay whole.
+            if (mapping == null) {
+                mapping = new StringBuilder();
+            }
             if (caseLocale >= 0) {
                 if (iter == null) {
                     iter = new StringContextIterator(src, cpStart, srcIndex);
                 } else {
                     iter.setCPStartAndLimit(cpStart, srcIndex);
                 }
-                c = UCaseProps.INSTANCE.toFullLower(c, iter, dest, caseLocale);
+                c = UCaseProps.INSTANCE.toFullLower(c, iter, mapping, caseLocale);
             } else {
-                c = UCaseProps.INSTANCE.toFullFolding(c, dest, options);
+                c = UCaseProps.INSTANCE.toFullFolding(c, mapping, options);
             }
             if (c >= 0) {
                 appendUnchanged(src, prev, cpStart - prev, dest, options, edits);
-                appendResult(c, dest, srcIndex - cpStart, options, edits);
+                appendMapping(c, mapping, dest, srcIndex - cpStart, options, edits);
                 prev = srcIndex;
             }
         }
         appendUnchanged(src, prev, srcIndex - prev, dest, options, edits);
     }
 
+    /**
+     * Uppercases [srcStart..srcLimit[ but takes context [0..srcLength[ into account.
+     */
     private static void internalToUpper(int caseLocale, int options,
-            CharSequence src, Appendable dest, Edits edits) throws IOException {
+            CharSequence src, int srcStart, int srcLimit, Appendable dest, Edits edits)
+            throws IOException {
         StringContextIterator iter = null;
         byte[] latinToUpper;
         if (caseLocale == UCaseProps.LOC_TURKISH) {
@@ -514,15 +539,16 @@ public final class CaseMapImpl {
         } else {
             latinToUpper = UCaseProps.LatinCase.TO_UPPER_NORMAL;
         }
-        int prev = 0;
-        int srcIndex = 0;
-        int srcLength = src.length();
+        StringBuilder mapping = null;
+        int prev = srcStart;
+        // ASCII other than a-z maps to itself in every locale.
+        int srcIndex = Utility.spanASCIINotIn(src, srcStart, srcLimit, 'a', 'z');
         outerLoop:
         for (;;) {
             // fast path for simple cases
             char lead;
             for (;;) {
-                if (srcIndex >= srcLength) {
+                if (srcIndex >= srcLimit) {
                     break outerLoop;
                 }
                 lead = src.charAt(srcIndex);
@@ -556,7 +582,7 @@ public final class CaseMapImpl {
             int cpStart = srcIndex++;
             char trail;
             int c;
-            if (Character.isHighSurrogate(lead) && srcIndex < srcLength &&
+            if (Character.isHighSurrogate(lead) && srcIndex < srcLimit &&
                     Character.isLowSurrogate(trail = src.charAt(srcIndex))) {
                 c = Character.toCodePoint(lead, trail);
                 ++srcIndex;
@@ -568,10 +594,14 @@ public final class CaseMapImpl {
             } else {
                 iter.setCPStartAndLimit(cpStart, srcIndex);
             }
-            c = UCaseProps.INSTANCE.toFullUpper(c, iter, dest, caseLocale);
+            // A string mapping goes into a separate buffer, see internalToLower().
+            if (mapping == null) {
+                mapping = new StringBuilder();
+            }
+            c = UCaseProps.INSTANCE.toFullUpper(c, iter, mapping, caseLocale);
             if (c >= 0) {
                 appendUnchanged(src, prev, cpStart - prev, dest, options, edits);
-                appendResult(c, dest, srcIndex - cpStart, options, edits);
+                appendMapping(c, mapping, dest, srcIndex - cpStart, options, edits);
                 prev = srcIndex;
             }
         }
@@ -579,6 +609,10 @@ public final class CaseMapImpl {
     }
 
     public static String toLower(int caseLocale, int options, CharSequence src) {
+        if ((options & OMIT_UNCHANGED_TEXT) == 0 &&
+                Utility.spanASCIINotIn(src, 0, src.length(), 'A', 'Z') == src.length()) {
+            return src.toString();  // unchanged ASCII text
+        }
         if (src.length() <= 100 && (options & OMIT_UNCHANGED_TEXT) == 0) {
             if (src.length() == 0) {
                 return src.toString();
@@ -609,6 +643,10 @@ public final class CaseMapImpl {
     }
 
     public static String toUpper(int caseLocale, int options, CharSequence src) {
+        if ((options & OMIT_UNCHANGED_TEXT) == 0 &&
+                Utility.spanASCIINotIn(src, 0, src.length(), 'a', 'z') == src.length()) {
+            return src.toString();  // unchanged ASCII text
+        }
         if (src.length() <= 100 && (options & OMIT_UNCHANGED_TEXT) == 0) {
             if (src.length() == 0) {
                 return src.toString();
@@ -634,7 +672,7 @@ public final class CaseMapImpl {
             if (caseLocale == UCaseProps.LOC_GREEK) {
                 return GreekUpper.toUpper(options, src, dest, edits);
             }
-            internalToUpper(caseLocale, options, src, dest, edits);
+            internalToUpper(caseLocale, options, src, 0, src.length(), dest, edits);
             return dest;
         } catch (IOException e) {
             throw new ICUUncheckedIOException(e);
@@ -772,6 +810,10 @@ public final class CaseMapImpl {
     }
 
     public static String fold(int options, CharSequence src) {
+        if ((options & OMIT_UNCHANGED_TEXT) == 0 &&
+                Utility.spanASCIINotIn(src, 0, src.length(), 'A', 'Z') == src.length()) {
+            return src.toString();  // unchanged ASCII text
+        }
         if (src.length() <= 100 && (options & OMIT_UNCHANGED_TEXT) == 0) {
             if (src.length() == 0) {
                 return src.toString();
@@ -800,6 +842,144 @@ public final class CaseMapImpl {
         }
     }
 
+    /**
+     * Lowercases, uppercases or case-folds text that arrives in chunks.
+     * The result is the same as for mapping the concatenated text in one call.
+     *
+     * <p>Context-sensitive mappings (Final_Sigma, Greek uppercasing,
+     * Lithuanian and Turkic dots) look across case-ignorable and
+     * combining characters, but stop at a character that is neither.
+     * We call such a character stable. The mapper outputs text only up to the last
+     * stable character of the input so far, and keeps only text from the stable character
+     * before that one as context. A chunk without stable characters is held back
+     * up to MAX_HELD_LENGTH, beyond which it is mapped without waiting for more context,
+     * so that the memory use is bounded even for pathological input.
+     *
+     * <p>Not thread-safe.
+     */
+    public static final class ChunkMapper {
+        public static final int LOWER = 0;
+        public static final int UPPER = 1;
+        public static final int FOLD = 2;
+
+        /** Maximum number of pending or context characters. */
+        static final int MAX_HELD_LENGTH = 1024;
+
+        private final int caseLocale;
+        private final int options;
+        private final int mapping;
+        /**
+         * [0..mappedLength[ has been mapped and is context only,
+         * [mappedLength..length[ is pending.
+         */
+        private final StringBuilder buffer = new StringBuilder();
+        private int mappedLength;
+        /** For Greek uppercasing: The state at mappedLength. */
+        private int greekState;
+
+        /**
+         * @param caseLocale see UCaseProps.getCaseLocale(), ignored for FOLD
+         * @param options case mapping options; for FOLD, the case folding options
+         * @param mapping LOWER, UPPER or FOLD
+         */
+        public ChunkMapper(int caseLocale, int options, int mapping) {
+            this.caseLocale = mapping == FOLD ? -1 : caseLocale;
+            this.options = options;
+            this.mapping = mapping;
+        }
+
+        /**
+         * Maps as much of the text so far as is independent of following text.
+         * Does not reset the edits, which record the edits for the mapped text only.
+         */
+        public <A extends Appendable> A map(CharSequence chunk, A dest, Edits edits) {
+            buffer.append(chunk);
+            int length = buffer.length();
+            if (length == 0) {
+                return dest;
+            }
+            // A lead surrogate at the end may yet become part of a different character.
+            int end = length;
+            if (Character.isHighSurrogate(buffer.charAt(end - 1))) {
+                --end;
+            }
+            int limit = findLastStableStart(buffer, mappedLength, end);
+            if (limit <= mappedLength) {
+                if (length - mappedLength <= MAX_HELD_LENGTH) {
+                    return dest;
+                }
+                // Map all of it; just do not split a surrogate pair.
+                limit = end;
+            }
+            mapRange(limit, dest, edits);
+            // Keep the context needed for mapping from the new limit.
+            int contextStart = findLastStableStart(buffer, 0, limit);
+            if (contextStart < 0) {
+                contextStart = 0;
+            }
+            if (limit - contextStart > MAX_HELD_LENGTH) {
+                contextStart = limit - MAX_HELD_LENGTH;
+                if (Character.isLowSurrogate(buffer.charAt(contextStart))) {
+                    ++contextStart;
+                }
+            }
+            buffer.delete(0, contextStart);
+            mappedLength = limit - contextStart;
+            return dest;
+        }
+
+        /**
+         * Maps the remaining text at the end of the input, and resets this mapper.
+         * Does not reset the edits.
+         */
+        public <A extends Appendable> A finish(A dest, Edits edits) {
+            mapRange(buffer.length(), dest, edits);
+            reset();
+            return dest;
+        }
+
+        /**
+         * Discards any pending text and context.
+         */
+        public void reset() {
+            buffer.setLength(0);
+            mappedLength = 0;
+            greekState = 0;
+        }
+
+        private void mapRange(int limit, Appendable dest, Edits edits) {
+            try {
+                if (mapping == UPPER) {
+                    if (caseLocale == UCaseProps.LOC_GREEK) {
+                        greekState = GreekUpper.toUpper(
+                                options, buffer, mappedLength, limit, greekState, dest, edits);
+                    } else {
+                        internalToUpper(caseLocale, options, buffer, mappedLength, limit, dest, edits);
+                    }
+                } else {
+                    internalToLower(caseLocale, options, buffer, mappedLength, limit, null, dest, edits);
+                }
+            } catch (IOException e) {
+                throw new ICUUncheckedIOException(e);
+            }
+            mappedLength = limit;
+        }
+
+        /**
+         * @return the start index of the last stable code point in [start..limit[, or -1 if none
+         */
+        private static int findLastStableStart(CharSequence s, int start, int limit) {
+            while (limit > start) {
+                int c = Character.codePointBefore(s, limit);
+                limit -= Character.charCount(c);
+                if (UCaseProps.INSTANCE.isContextBoundary(c)) {
+                    return limit;
+                }
+            }
+            return -1;
+        }
+    }
+
     private static final class GreekUpper {
         // Data bits.
         private static final int UPPER_MASK = 0x3ff;
@@ -1306,8 +1486,18 @@ public final class CaseMapImpl {
          */
         private static <A extends Appendable> A toUpper(int options,
                 CharSequence src, A dest, Edits edits) throws IOException {
-            int state = 0;
-            for (int i = 0; i < src.length();) {
+            toUpper(options, src, 0, src.length(), 0, dest, edits);
+            return dest;
+        }
+
+        /**
+         * Uppercases [srcStart..srcLimit[ starting with the given state,
+         * and returns the state after srcLimit.
+         * srcLimit must not be in the middle of a letter and its diacritics.
+         */
+        private static int toUpper(int options, CharSequence src, int srcStart, int srcLimit,
+                int state, Appendable dest, Edits edits) throws IOException {
+            for (int i = srcStart; i < srcLimit;) {
                 int c = Character.codePointAt(src, i);
                 int nextIndex = i + Character.charCount(c);
                 int nextState = 0;
@@ -1428,7 +1618,7 @@ public final class CaseMapImpl {
                 i = nextIndex;
                 state = nextState;
             }
-            return dest;
+            return state;
         }
     }
 }
@@ -210,6 +210,9 @@ public final class Norm2AllModes {
 
         @Override
         public boolean isNormalized(CharSequence s) {
+            if (impl.spanASCIICompYes(s) == s.length()) {
+                return true;  // Avoid allocating the buffer for plain ASCII text.
+            }
             // 5: small destCapacity for substring normalization
             return impl.compose(s, 0, s.length(),
                                 onlyContiguous, false,
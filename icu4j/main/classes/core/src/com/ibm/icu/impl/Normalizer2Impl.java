@@ -990,6 +990,23 @@ public final class Normalizer2Impl {
         decompose(s, src, limit, buffer);
     }
 
+    /**
+     * Skips a run of ASCII text if all of ASCII is below minNoCP,
+     * the minimum code point that needs to be looked up.
+     * Most text is ASCII, and this checks 8 characters per step.
+     */
+    private static int skipASCII(CharSequence s, int src, int limit, int minNoCP) {
+        return minNoCP >= 0x80 ? Utility.spanASCII(s, src, limit) : src;
+    }
+
+    /**
+     * @return the length of the leading ASCII text in s
+     *         if all of ASCII is known to be composition-normalized, otherwise 0
+     */
+    public int spanASCIICompYes(CharSequence s) {
+        return skipASCII(s, 0, s.length(), minCompNoMaybeCP);
+    }
+
     // Dual functionality:
     // buffer!=NULL: normalize
     // buffer==NULL: isNormalized/quickCheck/spanQuickCheckYes
@@ -1007,7 +1024,7 @@ public final class Normalizer2Impl {
 
         for(;;) {
             // count code units below the minimum or with irrelevant data for the quick check
-            for(prevSrc=src; src!=limit;) {
+            for(prevSrc=src, src=skipASCII(s, src, limit, minNoCP); src!=limit;) {
                 if( (c=s.charAt(src))<minNoCP ||
                     isMostDecompYesAndZeroCC(norm16=normTrie.bmpGet(c))
                 ) {
@@ -1105,6 +1122,7 @@ public final class Normalizer2Impl {
             int prevSrc;
             int c = 0;
             int norm16 = 0;
+            src = skipASCII(s, src, limit, minNoMaybeCP);
             for (;;) {
                 if (src == limit) {
                     if (prevBoundary != limit && doCompose) {
@@ -1344,6 +1362,7 @@ public final class Normalizer2Impl {
             int prevSrc;
             int c = 0;
             int norm16 = 0;
+            src = skipASCII(s, src, limit, minNoMaybeCP);
             for (;;) {
                 if(src==limit) {
                     return (src<<1)|qcResult;  // "yes" or "maybe"
@@ -1478,7 +1497,12 @@ public final class Normalizer2Impl {
 
         for(;;) {
             // count code units with lccc==0
-            for(prevSrc=src; src!=limit;) {
+            prevSrc=src;
+            src=skipASCII(s, src, limit, minLcccCP);
+            if(src!=prevSrc) {
+                prevFCD16=~s.charAt(src-1);
+            }
+            for(; src!=limit;) {
                 if((c=s.charAt(src))<minLcccCP) {
                     prevFCD16=~c;
                     ++src;
@@ -684,56 +684,66 @@ public class OlsonTimeZone extends BasicTimeZone {
                 offsets[0] = initialRawOffset() * Grego.MILLIS_PER_SECOND;
                 offsets[1] = initialDstOffset() * Grego.MILLIS_PER_SECOND;
             } else {
-                // Linear search from the end is the fastest approach, since
-                // most lookups will happen at/near the end.
                 int transIdx;
-                for (transIdx = transitionCount - 1; transIdx >= 0; transIdx--) {
-                    long transition = transitionTimes64[transIdx];
-                    if (local && (sec >= (transition - MAX_OFFSET_SECONDS))) {
-                        int offsetBefore = zoneOffsetAt(transIdx - 1);
-                        boolean dstBefore = dstOffsetAt(transIdx - 1) != 0;
-
-                        int offsetAfter = zoneOffsetAt(transIdx);
-                        boolean dstAfter = dstOffsetAt(transIdx) != 0;
-
-                        boolean dstToStd = dstBefore && !dstAfter;
-                        boolean stdToDst = !dstBefore && dstAfter;
-
-                        if (offsetAfter - offsetBefore >= 0) {
-                            // Positive transition, which makes a non-existing local time range
-                            if (((NonExistingTimeOpt & STD_DST_MASK) == LOCAL_STD && dstToStd)
-                                    || ((NonExistingTimeOpt & STD_DST_MASK) == LOCAL_DST && stdToDst)) {
-                                transition += offsetBefore;
-                            } else if (((NonExistingTimeOpt & STD_DST_MASK) == LOCAL_STD && stdToDst)
-                                    || ((NonExistingTimeOpt & STD_DST_MASK) == LOCAL_DST && dstToStd)) {
-                                transition += offsetAfter;
-                            } else if ((NonExistingTimeOpt & FORMER_LATTER_MASK) == LOCAL_LATTER) {
-                                transition += offsetBefore;
-                            } else {
-                                // Interprets the time with rule before the transition,
-                                // default for non-existing time range
-                                transition += offsetAfter;
-                            }
-                        } else {
-                            // Negative transition, which makes a duplicated local time range
-                            if (((DuplicatedTimeOpt & STD_DST_MASK) == LOCAL_STD && dstToStd)
-                                    || ((DuplicatedTimeOpt & STD_DST_MASK) == LOCAL_DST && stdToDst)) {
-                                transition += offsetAfter;
-                            } else if (((DuplicatedTimeOpt & STD_DST_MASK) == LOCAL_STD && stdToDst)
-                                    || ((DuplicatedTimeOpt & STD_DST_MASK) == LOCAL_DST && dstToStd)) {
-                                transition += offsetBefore;
-                            } else if ((DuplicatedTimeOpt & FORMER_LATTER_MASK) == LOCAL_FORMER) {
-                                transition += offsetBefore;
+                OffsetInterval interval = offsetInterval;
+                if (interval != null && interval.contains(sec, local)) {
+                    transIdx = interval.transIdx;
+                } else {
+                    // Binary search for the last transition that can apply.
+                    // For local time, a transition more than a day after sec cannot apply,
+                    // and the linear search below it usually ends after one or two steps.
+                    for (transIdx = findTransition(local ? sec + MAX_OFFSET_SECONDS : sec);
+                            transIdx >= 0; transIdx--) {
+                        long transition = transitionTimes64[transIdx];
+                        if (local && (sec >= (transition - MAX_OFFSET_SECONDS))) {
+                            int offsetBefore = zoneOffsetAt(transIdx - 1);
+                            boolean dstBefore = dstOffsetAt(transIdx - 1) != 0;
+
+                            int offsetAfter = zoneOffsetAt(transIdx);
+                            boolean dstAfter = dstOffsetAt(transIdx) != 0;
+
+                            boolean dstToStd = dstBefore && !dstAfter;
+                            boolean stdToDst = !dstBefore && dstAfter;
+
+                            if (offsetAfter - offsetBefore >= 0) {
+                                // Positive transition, which makes a non-existing local time range
+                                if (((NonExistingTimeOpt & STD_DST_MASK) == LOCAL_STD && dstToStd)
+                                        || ((NonExistingTimeOpt & STD_DST_MASK) == LOCAL_DST && stdToDst)) {
+                                    transition += offsetBefore;
+                                } else if (((NonExistingTimeOpt & STD_DST_MASK) == LOCAL_STD && stdToDst)
+                                        || ((NonExistingTimeOpt & STD_DST_MASK) == LOCAL_DST && dstToStd)) {
+                                    transition += offsetAfter;
+                                } else if ((NonExistingTimeOpt & FORMER_LATTER_MASK) == LOCAL_LATTER) {
+                                    transition += offsetBefore;
+                                } else {
+                                    // Interprets the time with rule before the transition,
+                                    // default for non-existing time range
+                                    transition += offsetAfter;
+                                }
                             } else {
-                                // Interprets the time with rule after the transition,
-                                // default for duplicated local time range
-                                transition += offsetAfter;
+                                // Negative transition, which makes a duplicated local time range
+                                if (((DuplicatedTimeOpt & STD_DST_MASK) == LOCAL_STD && dstToStd)
+                                        || ((DuplicatedTimeOpt & STD_DST_MASK) == LOCAL_DST && stdToDst)) {
+                                    transition += offsetAfter;
+                                } else if (((DuplicatedTimeOpt & STD_DST_MASK) == LOCAL_STD && stdToDst)
+                                        || ((DuplicatedTimeOpt & STD_DST_MASK) == LOCAL_DST && dstToStd)) {
+                                    transition += offsetBefore;
+                                } else if ((DuplicatedTimeOpt & FORMER_LATTER_MASK) == LOCAL_FORMER) {
+                                    transition += offsetBefore;
+                                } else {
+                                    // Interprets the time with rule after the transition,
+                                    // default for duplicated local time range
+                                    transition += offsetAfter;
+                                }
                             }
                         }
+                        if (sec >= transition) {
+                            break;
+                        }
                     }
-                    if (sec >= transition) {
-                        break;
-                    }
+                    offsetInterval = new OffsetInterval(transIdx,
+                            transIdx >= 0 ? transitionTimes64[transIdx] : Long.MIN_VALUE,
+                            transIdx + 1 < transitionCount ? transitionTimes64[transIdx + 1] : Long.MAX_VALUE);
                 }
                 // transIdx could be -1 when local=true
                 offsets[0] = rawOffsetAt(transIdx) * Grego.MILLIS_PER_SECOND;
@@ -746,6 +756,54 @@ public class OlsonTimeZone extends BasicTimeZone {
         }
     }
 
+    /**
+     * Returns the index of the last transition at or before the given time,
+     * or -1 if the time is before the first transition.
+     */
+    private int findTransition(long sec) {
+        int start = 0;
+        int limit = transitionCount;
+        while (start < limit) {
+            int mid = (start + limit) >>> 1;
+            if (transitionTimes64[mid] <= sec) {
+                start = mid + 1;
+            } else {
+                limit = mid;
+            }
+        }
+        return start - 1;
+    }
+
+    /**
+     * The time between two adjacent transitions, in which the offsets
+     * of one transition apply. Immutable, so that it can be shared between threads.
+     */
+    private static final class OffsetInterval {
+        final int transIdx;
+        /** Time of the transition in seconds, or Long.MIN_VALUE before the first transition */
+        final long start;
+        /** Time of the next transition in seconds, or Long.MAX_VALUE after the last transition */
+        final long limit;
+
+        OffsetInterval(int transIdx, long start, long limit) {
+            this.transIdx = transIdx;
+            this.start = start;
+            this.limit = limit;
+        }
+
+        /**
+         * Returns true if the offsets of this interval apply to the given time.
+         * A local time is checked with a margin of a day around the transitions,
+         * which covers any zone offset and any local time options.
+         */
+        boolean contains(long sec, boolean local) {
+            if (local) {
+                return start + MAX_OFFSET_SECONDS <= sec && sec < limit - MAX_OFFSET_SECONDS;
+            }
+            return start <= sec && sec < limit;
+        }
+    }
+
     private int getInt(byte val){
         return val & 0xFF;
     }
@@ -1106,6 +1164,14 @@ public class OlsonTimeZone extends BasicTimeZone {
 
     private transient boolean transitionRulesInitialized;
 
+    /*
+     * The interval found by the last transition search in getHistoricalOffset(),
+     * so that lookups of nearby times need not search again.
+     * OffsetInterval has only final fields, so the field can be replaced by any thread
+     * without locking; the transition data never changes.
+     */
+    private transient OffsetInterval offsetInterval;
+
     private synchronized void initTransitionRules() {
         if (transitionRulesInitialized) {
             return;
@@ -21,6 +21,9 @@ package com.ibm.icu.impl;
 import java.util.Arrays;
 import java.util.Comparator;
 
+import com.ibm.icu.util.CodePointTrie;
+import com.ibm.icu.util.MutableCodePointTrie;
+
 /**
  * Unicode Properties Vectors associated with code point ranges.
  *
@@ -519,6 +522,50 @@ public class PropsVectors {
                 compactor.builder), new DefaultGetFoldingOffset());
     }
 
+    /*
+     * Call compact(), create a CodePointTrie of type FAST with indexes into the
+     * compacted vectors array. The trie has 16-bit values if the indexes fit.
+     */
+    public CodePointTrie.Fast compactToCodePointTrieWithRowIndexes() {
+        CodePointTrieCompactHandler compactor = new CodePointTrieCompactHandler();
+        compact(compactor);
+        CodePointTrie.ValueWidth valueWidth = compactor.rowIndexLimit <= 0x10000 ?
+                CodePointTrie.ValueWidth.BITS_16 : CodePointTrie.ValueWidth.BITS_32;
+        return (CodePointTrie.Fast) compactor.builder.buildImmutable(
+                CodePointTrie.Type.FAST, valueWidth);
+    }
+
+    // inner class implementation of CompactHandler for a MutableCodePointTrie
+    private static class CodePointTrieCompactHandler implements CompactHandler {
+        MutableCodePointTrie builder;
+        int initialValue;
+        int errorValue;
+        int rowIndexLimit;
+
+        @Override
+        public void setRowIndexForRange(int start, int end, int rowIndex) {
+            builder.setRange(start, end, rowIndex);
+        }
+
+        @Override
+        public void setRowIndexForInitialValue(int rowIndex) {
+            initialValue = rowIndex;
+        }
+
+        @Override
+        public void setRowIndexForErrorValue(int rowIndex) {
+            errorValue = rowIndex;
+        }
+
+        @Override
+        public void startRealValues(int rowIndex) {
+            // rowIndex is the length of the compacted array,
+            // so all of the row indexes are less than it.
+            rowIndexLimit = rowIndex;
+            builder = new MutableCodePointTrie(initialValue, errorValue);
+        }
+    }
+
     // inner class implementation of Trie.DataManipulate
     private static class DefaultGetFoldingOffset implements Trie.DataManipulate {
         @Override
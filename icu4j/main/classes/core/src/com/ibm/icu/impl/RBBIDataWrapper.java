@@ -16,6 +16,8 @@ import java.util.Arrays;
 
 import com.ibm.icu.impl.ICUBinary.Authenticate;
 import com.ibm.icu.text.RuleBasedBreakIterator;
+import com.ibm.icu.util.CodePointTrie;
+import com.ibm.icu.util.MutableCodePointTrie;
 
 /**
 * <p>Internal class used for Rule Based Break Iterators.</p>
@@ -36,7 +38,7 @@ public final class RBBIDataWrapper {
          */
         public int     fNumStates;
         /**
-         * Length of a table row in bytes. Note mismatch with table data, which is short[].
+         * Length of a table row in bytes, as stored. Note mismatch with table data, which is short[].
          */
         public int     fRowLen;
         /**
@@ -49,13 +51,25 @@ public final class RBBIDataWrapper {
         public int     fReserved;
         /**
          * Linear array of next state values, accessed as short[state, char_class]
+         * A table stored with 8 bit rows (RBBI_8BITS_ROWS in fFlags) is widened to short values
+         * when it is loaded, so that the break iterator always reads the same kind of array.
          */
         public short[] fTable;
 
         public RBBIStateTable() {
         }
 
-        static RBBIStateTable get(ByteBuffer bytes, int length) throws IOException {
+        /**
+         * @return the number of values in a row, 16 or 8 bits each as stored.
+         */
+        private int getRowValueCount() {
+            return (fFlags & RBBI_8BITS_ROWS) != 0 ? fRowLen : fRowLen / 2;
+        }
+
+        /**
+         * @param allow8BitRows true if the data format version supports tables with 8 bit rows.
+         */
+        static RBBIStateTable get(ByteBuffer bytes, int length, boolean allow8BitRows) throws IOException {
             if (length == 0) {
                 return null;
             }
@@ -67,8 +81,19 @@ public final class RBBIDataWrapper {
             This.fRowLen    = bytes.getInt();
             This.fFlags     = bytes.getInt();
             This.fReserved  = bytes.getInt();
-            int lengthOfShorts = length - 16;   // length in bytes.
-            This.fTable     = ICUBinary.getShorts(bytes, lengthOfShorts / 2, lengthOfShorts & 1);
+            if ((This.fFlags & RBBI_8BITS_ROWS) != 0) {
+                if (!allow8BitRows) {
+                    throw new IOException("Break iterator state table with 8 bit rows in format version 5.0 data.");
+                }
+                int lengthOfBytes = length - 16;
+                This.fTable = new short[lengthOfBytes];
+                for (int i = 0; i < lengthOfBytes; i++) {
+                    This.fTable[i] = bytes.get();
+                }
+            } else {
+                int lengthOfShorts = length - 16;   // length in bytes.
+                This.fTable     = ICUBinary.getShorts(bytes, lengthOfShorts / 2, lengthOfShorts & 1);
+            }
             return This;
         }
 
@@ -77,9 +102,16 @@ public final class RBBIDataWrapper {
             bytes.writeInt(fRowLen);
             bytes.writeInt(fFlags);
             bytes.writeInt(fReserved);
-            int tableLen = fRowLen * fNumStates / 2;  // fRowLen is bytes.
-            for (int i = 0; i < tableLen; i++) {
-                bytes.writeShort(fTable[i]);
+            if ((fFlags & RBBI_8BITS_ROWS) != 0) {
+                int tableLen = fRowLen * fNumStates;      // fRowLen is bytes, one per value.
+                for (int i = 0; i < tableLen; i++) {
+                    bytes.writeByte(fTable[i]);
+                }
+            } else {
+                int tableLen = fRowLen * fNumStates / 2;  // fRowLen is bytes.
+                for (int i = 0; i < tableLen; i++) {
+                    bytes.writeShort(fTable[i]);
+                }
             }
             int bytesWritten = 16 + fRowLen * fNumStates;   // total bytes written,
                                                             // including 16 for the header.
@@ -103,10 +135,21 @@ public final class RBBIDataWrapper {
             }
             RBBIStateTable otherST = (RBBIStateTable)other;
             if (fNumStates != otherST.fNumStates) return false;
-            if (fRowLen    != otherST.fRowLen)    return false;
-            if (fFlags     != otherST.fFlags)     return false;
             if (fReserved  != otherST.fReserved)  return false;
-            return Arrays.equals(fTable, otherST.fTable);
+            if ((fFlags & ~RBBI_8BITS_ROWS) != (otherST.fFlags & ~RBBI_8BITS_ROWS)) return false;
+            if (fFlags == otherST.fFlags) {
+                if (fRowLen != otherST.fRowLen) return false;
+                return Arrays.equals(fTable, otherST.fTable);
+            }
+            // The tables were stored with different row widths. They are equal if they have the same values.
+            int rowValueCount = getRowValueCount();
+            if (rowValueCount != otherST.getRowValueCount()) return false;
+            for (int i = 0; i < fNumStates * rowValueCount; i++) {
+                if (fTable[i] != otherST.fTable[i]) {
+                    return false;
+                }
+            }
+            return true;
         }
     }
 
@@ -138,14 +181,63 @@ public final class RBBIDataWrapper {
     public String  fRuleSource;
     public int     fStatusTable[];
 
+    /**
+     * The character categories from fTrie, rebuilt as a fast-type CodePointTrie.
+     * Built lazily on first use by the CharSequence based break iteration; see getFastTrie().
+     */
+    private volatile CodePointTrie.Fast16 fFastTrie;
+
+    /**
+     * Get the character category trie in CodePointTrie.Fast16 form, building it from fTrie if needed.
+     * The fast trie has the same code point to category mappings as fTrie, but
+     * lookups of BMP code points are a single array index with no surrogate handling.
+     * Racing threads may each build a trie; they are identical, and whichever one is
+     * stored last wins.
+     *
+     * @return the category trie.
+     */
+    public CodePointTrie.Fast16 getFastTrie() {
+        CodePointTrie.Fast16 trie = fFastTrie;
+        if (trie == null) {
+            MutableCodePointTrie mutableTrie = new MutableCodePointTrie(0, 0);
+            for (Trie2.Range range : fTrie) {
+                if (range.leadSurrogate) {
+                    break;
+                }
+                if (range.value != 0) {
+                    mutableTrie.setRange(range.startCodePoint, range.endCodePoint, range.value);
+                }
+            }
+            trie = (CodePointTrie.Fast16)mutableTrie.buildImmutable(
+                    CodePointTrie.Type.FAST, CodePointTrie.ValueWidth.BITS_16);
+            fFastTrie = trie;
+        }
+        return trie;
+    }
+
     public static final int DATA_FORMAT = 0x42726b20;     // "Brk "
-    public static final int FORMAT_VERSION = 0x05000000;  // 4.0.0.0
+    /**
+     * The format version of the break iterator data in the ICU data files, 5.0.
+     * Its state tables have only 16 bit rows.
+     */
+    public static final int FORMAT_VERSION = 0x05000000;  // 5.0.0.0
+    /**
+     * The format version of data in which state tables may have 8 bit rows, 6.0.
+     * The rule builder writes it only for data with an 8 bit table.
+     * The major version differs from 5, so that readers which check only the major version,
+     * such as ICU4C, reject such data rather than misread 8 bit rows as 16 bit rows.
+     */
+    public static final int FORMAT_VERSION_8BITS_ROWS = 0x06000000;  // 6.0.0.0
+
+    private static int getIntVersion(byte version[]) {
+        return (version[0] << 24) + (version[1] << 16) + (version[2] << 8) + version[3];
+    }
 
     private static final class IsAcceptable implements Authenticate {
         @Override
         public boolean isDataVersionAcceptable(byte version[]) {
-            int intVersion = (version[0] << 24) + (version[1] << 16) + (version[2] << 8) + version[3];
-            return intVersion == FORMAT_VERSION;
+            int intVersion = getIntVersion(version);
+            return intVersion == FORMAT_VERSION || intVersion == FORMAT_VERSION_8BITS_ROWS;
         }
     }
     private static final IsAcceptable IS_ACCEPTABLE = new IsAcceptable();
@@ -200,6 +292,12 @@ public final class RBBIDataWrapper {
     //
     public final static int      RBBI_LOOKAHEAD_HARD_BREAK = 1;
     public final static int      RBBI_BOF_REQUIRED         = 2;
+    /**
+     * The state table is stored with 8 bit rows, as signed bytes.
+     * The rule builder uses 8 bit rows when all of the table values fit;
+     * the tables in the ICU data files have 16 bit rows.
+     */
+    public final static int      RBBI_8BITS_ROWS           = 4;
 
     /**
      * Data Header.  A struct-like class with the fields from the RBBI data file header.
@@ -300,7 +398,8 @@ public final class RBBIDataWrapper {
         ICUBinary.skipBytes(bytes, This.fHeader.fFTable - pos);
         pos = This.fHeader.fFTable;
 
-        This.fFTable = RBBIStateTable.get(bytes, This.fHeader.fFTableLen);
+        boolean allow8BitRows = getIntVersion(This.fHeader.fFormatVersion) == FORMAT_VERSION_8BITS_ROWS;
+        This.fFTable = RBBIStateTable.get(bytes, This.fHeader.fFTableLen, allow8BitRows);
         pos += This.fHeader.fFTableLen;
 
         //
@@ -312,7 +411,7 @@ public final class RBBIDataWrapper {
         pos = This.fHeader.fRTable;
 
         // Create & fill the table itself.
-        This.fRTable = RBBIStateTable.get(bytes, This.fHeader.fRTableLen);
+        This.fRTable = RBBIStateTable.get(bytes, This.fHeader.fRTableLen, allow8BitRows);
         pos += This.fHeader.fRTableLen;
 
         //
@@ -408,7 +507,7 @@ public final class RBBIDataWrapper {
 
     /** Dump a state table.  (A full set of RBBI rules has 4 state tables.)  */
     private void dumpTable(java.io.PrintStream out, RBBIStateTable table) {
-        if (table == null || table.fTable.length == 0)   {
+        if (table == null || table.fNumStates == 0)   {
             out.println("  -- null -- ");
         } else {
             int n;
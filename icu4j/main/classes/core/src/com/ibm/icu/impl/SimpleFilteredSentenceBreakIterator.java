@@ -9,8 +9,10 @@
 package com.ibm.icu.impl;
 
 import java.text.CharacterIterator;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Locale;
+import java.util.Set;
 
 import com.ibm.icu.impl.ICUResourceBundle.OpenType;
 import com.ibm.icu.text.BreakIterator;
@@ -29,22 +31,42 @@ public class SimpleFilteredSentenceBreakIterator extends BreakIterator {
 
     private BreakIterator delegate;
     private UCharacterIterator text; // TODO(Tom): suffice to move into the local scope in next() ?
+    private CharSequence textChars; // The text, if it was set as a CharSequence; then text is not used.
+    private ExceptionTries tries; // shared, immutable trie data
     private CharsTrie backwardsTrie; // i.e. ".srM" for Mrs.
     private CharsTrie forwardsPartialTrie; // Has ".a" for "a.M."
 
+    /**
+     * The serialized exception tries.
+     * They are immutable, and shared by all of the iterators for the same set of exceptions;
+     * each iterator walks them with its own CharsTrie objects.
+     */
+    static final class ExceptionTries {
+        final CharSequence backwardsTrieChars; // null if there are no backward entries
+        final CharSequence forwardsPartialTrieChars; // null if there are no partial entries
+
+        ExceptionTries(CharSequence backwardsTrieChars, CharSequence forwardsPartialTrieChars) {
+            this.backwardsTrieChars = backwardsTrieChars;
+            this.forwardsPartialTrieChars = forwardsPartialTrieChars;
+        }
+    }
+
     /**
      * @param adoptBreakIterator
      *            break iterator to adopt
-     * @param forwardsPartialTrie
-     *            forward & partial char trie to adopt
-     * @param backwardsTrie
-     *            backward trie to adopt
+     * @param tries
+     *            exception trie data, shared
      */
-    public SimpleFilteredSentenceBreakIterator(BreakIterator adoptBreakIterator, CharsTrie forwardsPartialTrie,
-            CharsTrie backwardsTrie) {
+    SimpleFilteredSentenceBreakIterator(BreakIterator adoptBreakIterator, ExceptionTries tries) {
         this.delegate = adoptBreakIterator;
-        this.forwardsPartialTrie = forwardsPartialTrie;
-        this.backwardsTrie = backwardsTrie;
+        this.tries = tries;
+        createTries();
+    }
+
+    private void createTries() {
+        backwardsTrie = tries.backwardsTrieChars != null ? new CharsTrie(tries.backwardsTrieChars, 0) : null;
+        forwardsPartialTrie = tries.forwardsPartialTrieChars != null ?
+                new CharsTrie(tries.forwardsPartialTrieChars, 0) : null;
     }
 
 
@@ -52,7 +74,9 @@ public class SimpleFilteredSentenceBreakIterator extends BreakIterator {
      * Reset the filter from the delegate.
      */
     private final void resetState() {
-        text = UCharacterIterator.getInstance((CharacterIterator) delegate.getText().clone());
+        if (textChars == null) {
+            text = UCharacterIterator.getInstance((CharacterIterator) delegate.getText().clone());
+        }
     }
 
     /**
@@ -63,6 +87,9 @@ public class SimpleFilteredSentenceBreakIterator extends BreakIterator {
      */
     private final boolean breakExceptionAt(int n) {
         // Note: the C++ version of this function is SimpleFilteredSentenceBreakIterator::breakExceptionAt()
+        if (textChars != null) {
+            return breakExceptionAt(textChars, n);
+        }
 
         int bestPosn = -1;
         int bestValue = -1;
@@ -119,6 +146,68 @@ public class SimpleFilteredSentenceBreakIterator extends BreakIterator {
         return false; // No exception here.
     }
 
+    /**
+     * Same as breakExceptionAt(n), but indexes the text directly
+     * rather than going through a copy of the delegate's CharacterIterator.
+     */
+    private final boolean breakExceptionAt(CharSequence s, int n) {
+        int bestPosn = -1;
+        int bestValue = -1;
+
+        int i = n;
+        backwardsTrie.reset();
+
+        // Assume a space is following the '.' (so we handle the case: "Mr. /Brown")
+        if (i > 0 && s.charAt(i - 1) == ' ') {
+            --i;
+        }
+
+        BytesTrie.Result r = BytesTrie.Result.NO_MATCH;
+
+        while (i > 0) { // more to consume backwards
+            int uch = Character.codePointBefore(s, i);
+            i -= Character.charCount(uch);
+            if (!(r = backwardsTrie.nextForCodePoint(uch)).hasNext()) {
+                break; // no more in the trie
+            }
+            if (r.hasValue()) { // remember the best match so far
+                bestPosn = i;
+                bestValue = backwardsTrie.getValue();
+            }
+        }
+
+        if (r.matches()) { // exact match?
+            bestValue = backwardsTrie.getValue();
+            bestPosn = i;
+        }
+
+        if (bestPosn >= 0) {
+            if (bestValue == Builder.MATCH) { // exact match!
+                return true; // Exception here.
+            } else if (bestValue == Builder.PARTIAL && forwardsPartialTrie != null) {
+                // We matched the "Ph." in "Ph.D." - now we need to run everything through the forwards trie
+                // to see if it matches something going forward.
+                forwardsPartialTrie.reset();
+
+                BytesTrie.Result rfwd = BytesTrie.Result.INTERMEDIATE_VALUE;
+                int length = s.length();
+                i = bestPosn;
+                while (i < length) {
+                    int uch = Character.codePointAt(s, i);
+                    i += Character.charCount(uch);
+                    if (!(rfwd = forwardsPartialTrie.nextForCodePoint(uch)).hasNext()) {
+                        break;
+                    }
+                }
+                if (rfwd.matches()) {
+                    // Exception here
+                    return true;
+                } // else fall through
+            } // else fall through
+        } // else fall through
+        return false; // No exception here.
+    }
+
     /**
      * Given that the delegate has already given its "initial" answer,
      * find the NEXT actual (non-suppressed) break.
@@ -132,7 +221,7 @@ public class SimpleFilteredSentenceBreakIterator extends BreakIterator {
         }
         resetState();
 
-        final int textLen = text.getLength();
+        final int textLen = textChars != null ? textChars.length() : text.getLength();
 
         while (n != BreakIterator.DONE && n != textLen) {
             // outer loop runs once per underlying break (from fDelegate).
@@ -186,18 +275,21 @@ public class SimpleFilteredSentenceBreakIterator extends BreakIterator {
         if (getClass() != obj.getClass())
             return false;
         SimpleFilteredSentenceBreakIterator other = (SimpleFilteredSentenceBreakIterator) obj;
-        return delegate.equals(other.delegate) && text.equals(other.text) && backwardsTrie.equals(other.backwardsTrie)
-                && forwardsPartialTrie.equals(other.forwardsPartialTrie);
+        return delegate.equals(other.delegate) && tries == other.tries;
     }
 
     @Override
     public int hashCode() {
-        return (forwardsPartialTrie.hashCode() * 39) + (backwardsTrie.hashCode() * 11) + delegate.hashCode();
+        return (tries.hashCode() * 39) + delegate.hashCode();
     }
 
     @Override
     public Object clone() {
         SimpleFilteredSentenceBreakIterator other = (SimpleFilteredSentenceBreakIterator) super.clone();
+        // The clone gets its own delegate and trie iterators; only the trie data is shared.
+        other.delegate = (BreakIterator) delegate.clone();
+        other.text = null;
+        other.createTries();
         return other;
     }
 
@@ -267,6 +359,19 @@ public class SimpleFilteredSentenceBreakIterator extends BreakIterator {
     @Override
     public void setText(CharacterIterator newText) {
         delegate.setText(newText);
+        textChars = null;
+    }
+
+    @Override
+    public void setText(String newText) {
+        delegate.setText(newText);
+        textChars = newText;
+    }
+
+    @Override
+    public void setText(CharSequence newText) {
+        delegate.setText(newText);
+        textChars = newText;
     }
 
     public static class Builder extends FilteredBreakIteratorBuilder {
@@ -275,6 +380,12 @@ public class SimpleFilteredSentenceBreakIterator extends BreakIterator {
          */
         private HashSet<CharSequence> filterSet = new HashSet<CharSequence>();
 
+        /**
+         * The tries for the locale's exceptions, shared via the cache;
+         * null once the filter set has been modified.
+         */
+        private ExceptionTries localeTries;
+
         static final int PARTIAL = (1 << 0); // < partial - need to run through forward trie
         static final int MATCH = (1 << 1); // < exact match - skip this one.
         static final int SuppressInReverse = (1 << 0);
@@ -288,18 +399,9 @@ public class SimpleFilteredSentenceBreakIterator extends BreakIterator {
          * @param loc the locale to get filtered iterators
          */
         public Builder(ULocale loc) {
-            ICUResourceBundle rb = ICUResourceBundle.getBundleInstance(
-                    ICUData.ICU_BRKITR_BASE_NAME, loc, OpenType.LOCALE_ROOT);
-
-            ICUResourceBundle breaks = rb.findWithFallback("exceptions/SentenceBreak");
-
-            if (breaks != null) {
-                for (int index = 0, size = breaks.getSize(); index < size; ++index) {
-                    ICUResourceBundle b = (ICUResourceBundle) breaks.get(index);
-                    String br = b.getString();
-                    filterSet.add(br);
-                }
-            }
+            LocaleExceptions exceptions = LOCALE_CACHE.getInstance(loc.getBaseName(), loc);
+            filterSet.addAll(exceptions.exceptions);
+            localeTries = exceptions.tries;
         }
 
         /**
@@ -310,12 +412,20 @@ public class SimpleFilteredSentenceBreakIterator extends BreakIterator {
 
         @Override
         public boolean suppressBreakAfter(CharSequence str) {
-            return filterSet.add(str);
+            boolean added = filterSet.add(str);
+            if (added) {
+                localeTries = null;
+            }
+            return added;
         }
 
         @Override
         public boolean unsuppressBreakAfter(CharSequence str) {
-            return filterSet.remove(str);
+            boolean removed = filterSet.remove(str);
+            if (removed) {
+                localeTries = null;
+            }
+            return removed;
         }
 
         @Override
@@ -325,6 +435,51 @@ public class SimpleFilteredSentenceBreakIterator extends BreakIterator {
                 return adoptBreakIterator;
             }
 
+            ExceptionTries tries = localeTries != null ? localeTries : buildTries(filterSet);
+            return new SimpleFilteredSentenceBreakIterator(adoptBreakIterator, tries);
+        }
+
+        /**
+         * The sentence break exceptions of a locale, and the tries built from them.
+         */
+        private static final class LocaleExceptions {
+            final Set<String> exceptions;
+            final ExceptionTries tries; // null if there are no exceptions
+
+            LocaleExceptions(Set<String> exceptions, ExceptionTries tries) {
+                this.exceptions = exceptions;
+                this.tries = tries;
+            }
+        }
+
+        /**
+         * Locale exceptions by locale base name: they are loaded and compiled
+         * only once, for all builders and iterators of the same locale.
+         */
+        private static final CacheBase<String, LocaleExceptions, ULocale> LOCALE_CACHE =
+                new SoftCache<String, LocaleExceptions, ULocale>() {
+            @Override
+            protected LocaleExceptions createInstance(String key, ULocale loc) {
+                ICUResourceBundle rb = ICUResourceBundle.getBundleInstance(
+                        ICUData.ICU_BRKITR_BASE_NAME, loc, OpenType.LOCALE_ROOT);
+
+                ICUResourceBundle breaks = rb.findWithFallback("exceptions/SentenceBreak");
+
+                HashSet<String> exceptions = new HashSet<String>();
+                if (breaks != null) {
+                    for (int index = 0, size = breaks.getSize(); index < size; ++index) {
+                        ICUResourceBundle b = (ICUResourceBundle) breaks.get(index);
+                        String br = b.getString();
+                        exceptions.add(br);
+                    }
+                }
+                ExceptionTries tries = exceptions.isEmpty() ? null :
+                        buildTries(new HashSet<CharSequence>(exceptions));
+                return new LocaleExceptions(Collections.unmodifiableSet(exceptions), tries);
+            }
+        };
+
+        private static ExceptionTries buildTries(HashSet<CharSequence> filterSet) {
             CharsTrieBuilder builder = new CharsTrieBuilder();
             CharsTrieBuilder builder2 = new CharsTrieBuilder();
 
@@ -335,8 +490,8 @@ public class SimpleFilteredSentenceBreakIterator extends BreakIterator {
             CharSequence[] ustrs = new CharSequence[subCount];
             int[] partials = new int[subCount];
 
-            CharsTrie backwardsTrie = null; // i.e. ".srM" for Mrs.
-            CharsTrie forwardsPartialTrie = null; // Has ".a" for "a.M."
+            CharSequence backwardsTrie = null; // i.e. ".srM" for Mrs.
+            CharSequence forwardsPartialTrie = null; // Has ".a" for "a.M."
 
             int i = 0;
             for (CharSequence s : filterSet) {
@@ -393,13 +548,13 @@ public class SimpleFilteredSentenceBreakIterator extends BreakIterator {
             }
 
             if (revCount > 0) {
-                backwardsTrie = builder.build(StringTrieBuilder.Option.FAST);
+                backwardsTrie = builder.buildCharSequence(StringTrieBuilder.Option.FAST);
             }
 
             if (fwdCount > 0) {
-                forwardsPartialTrie = builder2.build(StringTrieBuilder.Option.FAST);
+                forwardsPartialTrie = builder2.buildCharSequence(StringTrieBuilder.Option.FAST);
             }
-            return new SimpleFilteredSentenceBreakIterator(adoptBreakIterator, forwardsPartialTrie, backwardsTrie);
+            return new ExceptionTries(backwardsTrie, forwardsPartialTrie);
         }
     }
 }
@@ -495,6 +495,14 @@ public final class UCaseProps {
         return getDotType(c)==SOFT_DOTTED;
     }
 
+    /**
+     * @return true if c is neither case-ignorable nor has a non-zero combining class;
+     *         context-sensitive case mappings do not look past such a character
+     */
+    public final boolean isContextBoundary(int c) {
+        return (getTypeOrIgnorable(c)&IGNORABLE)==0 && getDotType(c)<ABOVE;
+    }
+
     public final boolean isCaseSensitive(int c) {
         int props=trie.get(c);
         if(!propsHasException(props)) {
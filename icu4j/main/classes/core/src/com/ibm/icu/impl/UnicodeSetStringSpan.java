@@ -15,7 +15,11 @@ import java.util.ArrayList;
 
 import com.ibm.icu.text.UnicodeSet;
 import com.ibm.icu.text.UnicodeSet.SpanCondition;
+import com.ibm.icu.util.BytesTrie;
+import com.ibm.icu.util.CharsTrie;
+import com.ibm.icu.util.CharsTrieBuilder;
 import com.ibm.icu.util.OutputInt;
+import com.ibm.icu.util.StringTrieBuilder;
 
 /*
  * Implement span() etc. for a set with strings.
@@ -50,6 +54,12 @@ public class UnicodeSetStringSpan {
     /** The spanLength is >=0xfe. */
     static final short LONG_SPAN = ALL_CP_CONTAINED - 1;
 
+    /**
+     * A set built for all span() variants with at least this many strings
+     * matches them via CharsTrie automata rather than by trying each string in turn.
+     */
+    static final int MIN_STRINGS_FOR_TRIES = 32;
+
     /** Set for span(). Same as parent but without strings. */
     private UnicodeSet spanSet;
 
@@ -77,6 +87,25 @@ public class UnicodeSetStringSpan {
     /** Span helper */
     private OffsetList offsets;
 
+    /**
+     * CharsTrie mapping each string to its index in strings.
+     * Only for a set with at least MIN_STRINGS_FOR_TRIES strings, otherwise null.
+     */
+    private CharSequence fwdTrieChars;
+
+    /**
+     * CharsTrie mapping each string, with its code units reversed, to its index in strings.
+     * Null if and only if fwdTrieChars is null.
+     */
+    private CharSequence backTrieChars;
+
+    /**
+     * For the tries: Maximum overlap of each string with a code point span
+     * for span(while contained), forward lengths first, then backward lengths.
+     * -1 for irrelevant strings.
+     */
+    private int[] containedOverlaps;
+
     /**
      * Constructs for all variants of span(), or only for any one variant.
      * Initializes as little as possible, for single use.
@@ -200,7 +229,52 @@ public class UnicodeSetStringSpan {
         // Finish.
         if (all) {
             spanNotSet.freeze();
+            if (stringsLength >= MIN_STRINGS_FOR_TRIES) {
+                buildTries();
+            }
+        }
+    }
+
+    /**
+     * Builds the forward and backward tries of the strings,
+     * so that each span step walks the text once rather than comparing it with every string.
+     */
+    private void buildTries() {
+        int stringsLength = strings.size();
+        containedOverlaps = new int[2 * stringsLength];
+        CharsTrieBuilder builder = new CharsTrieBuilder();
+        for (int i = 0; i < stringsLength; ++i) {
+            String string = strings.get(i);
+            int length16 = string.length();
+            int fwdOverlap = spanLengths[i];
+            int backOverlap = spanLengths[stringsLength + i];
+            if (fwdOverlap == ALL_CP_CONTAINED) {
+                fwdOverlap = backOverlap = -1;
+            } else {
+                if (fwdOverlap >= LONG_SPAN) {
+                    fwdOverlap = string.offsetByCodePoints(length16, -1);
+                }
+                if (backOverlap >= LONG_SPAN) {
+                    backOverlap = length16 - string.offsetByCodePoints(0, 1);
+                }
+            }
+            containedOverlaps[i] = fwdOverlap;
+            containedOverlaps[stringsLength + i] = backOverlap;
+            builder.add(string, i);
+        }
+        fwdTrieChars = builder.buildCharSequence(StringTrieBuilder.Option.FAST);
+        builder.clear();
+        StringBuilder reversed = new StringBuilder(maxLength16);
+        for (int i = 0; i < stringsLength; ++i) {
+            String string = strings.get(i);
+            reversed.setLength(0);
+            // Reverse code units, not code points: The backward trie is walked one unit at a time.
+            for (int j = string.length(); j > 0;) {
+                reversed.append(string.charAt(--j));
+            }
+            builder.add(reversed, i);
         }
+        backTrieChars = builder.buildCharSequence(StringTrieBuilder.Option.FAST);
     }
 
     /**
@@ -222,6 +296,10 @@ public class UnicodeSetStringSpan {
         offsets = new OffsetList();
 
         spanLengths = otherStringSpan.spanLengths.clone();
+        // The tries and overlaps are immutable and only depend on the strings.
+        fwdTrieChars = otherStringSpan.fwdTrieChars;
+        backTrieChars = otherStringSpan.backTrieChars;
+        containedOverlaps = otherStringSpan.containedOverlaps;
     }
 
     /**
@@ -394,80 +472,133 @@ public class UnicodeSetStringSpan {
         int pos = spanLimit, rest = length - spanLimit;
         int spanLength = spanLimit - start;
         int i, stringsLength = strings.size();
+        CharsTrie trie = fwdTrieChars != null ? new CharsTrie(fwdTrieChars, 0) : null;
         for (;;) {
             if (spanCondition == SpanCondition.CONTAINED) {
-                for (i = 0; i < stringsLength; ++i) {
-                    int overlap = spanLengths[i];
-                    if (overlap == ALL_CP_CONTAINED) {
-                        continue; // Irrelevant string.
+                if (trie != null) {
+                    // Try to match the strings at each start in pos-overlap..pos.
+                    for (int matchStart = pos - Math.min(spanLength, maxLength16);
+                            matchStart <= pos; ++matchStart) {
+                        int overlap = pos - matchStart;
+                        trie.reset();
+                        for (int matchLimit = matchStart; matchLimit < length;) {
+                            BytesTrie.Result result = trie.next(s.charAt(matchLimit++));
+                            if (result.hasValue()) {
+                                i = trie.getValue();
+                                int inc = matchLimit - pos;
+                                if (inc > 0 && overlap <= containedOverlaps[i] &&
+                                        !offsets.containsOffset(inc) &&
+                                        isCodePointBoundaryMatch(s, matchStart, matchLimit, length)) {
+                                    if (inc == rest) {
+                                        return length; // Reached the end of the string.
+                                    }
+                                    offsets.addOffset(inc);
+                                }
+                            }
+                            if (!result.hasNext()) {
+                                break;
+                            }
+                        }
                     }
-                    String string = strings.get(i);
+                } else {
+                    for (i = 0; i < stringsLength; ++i) {
+                        int overlap = spanLengths[i];
+                        if (overlap == ALL_CP_CONTAINED) {
+                            continue; // Irrelevant string.
+                        }
+                        String string = strings.get(i);
 
-                    int length16 = string.length();
+                        int length16 = string.length();
 
-                    // Try to match this string at pos-overlap..pos.
-                    if (overlap >= LONG_SPAN) {
-                        overlap = length16;
-                        // While contained: No point matching fully inside the code point span.
-                        overlap = string.offsetByCodePoints(overlap, -1); // Length of the string minus the last code
-                                                                          // point.
-                    }
-                    if (overlap > spanLength) {
-                        overlap = spanLength;
-                    }
-                    int inc = length16 - overlap; // Keep overlap+inc==length16.
-                    for (;;) {
-                        if (inc > rest) {
-                            break;
+                        // Try to match this string at pos-overlap..pos.
+                        if (overlap >= LONG_SPAN) {
+                            overlap = length16;
+                            // While contained: No point matching fully inside the code point span.
+                            overlap = string.offsetByCodePoints(overlap, -1); // Length of the string minus the last code
+                                                                              // point.
                         }
-                        // Try to match if the increment is not listed already.
-                        if (!offsets.containsOffset(inc) && matches16CPB(s, pos - overlap, length, string, length16)) {
-                            if (inc == rest) {
-                                return length; // Reached the end of the string.
-                            }
-                            offsets.addOffset(inc);
+                        if (overlap > spanLength) {
+                            overlap = spanLength;
                         }
-                        if (overlap == 0) {
-                            break;
+                        int inc = length16 - overlap; // Keep overlap+inc==length16.
+                        for (;;) {
+                            if (inc > rest) {
+                                break;
+                            }
+                            // Try to match if the increment is not listed already.
+                            if (!offsets.containsOffset(inc) && matches16CPB(s, pos - overlap, length, string, length16)) {
+                                if (inc == rest) {
+                                    return length; // Reached the end of the string.
+                                }
+                                offsets.addOffset(inc);
+                            }
+                            if (overlap == 0) {
+                                break;
+                            }
+                            --overlap;
+                            ++inc;
                         }
-                        --overlap;
-                        ++inc;
                     }
                 }
             } else /* SIMPLE */{
                 int maxInc = 0, maxOverlap = 0;
-                for (i = 0; i < stringsLength; ++i) {
-                    int overlap = spanLengths[i];
-                    // For longest match, we do need to try to match even an all-contained string
-                    // to find the match from the earliest start.
+                if (trie != null) {
+                    // Longest match from the earliest start: Try the starts in pos-overlap..pos
+                    // in this order, and stop at the first one with any match.
+                    for (int matchStart = pos - Math.min(spanLength, maxLength16);
+                            matchStart <= pos && maxInc == 0 && maxOverlap == 0; ++matchStart) {
+                        int overlap = pos - matchStart;
+                        trie.reset();
+                        for (int matchLimit = matchStart; matchLimit < length;) {
+                            BytesTrie.Result result = trie.next(s.charAt(matchLimit++));
+                            if (result.hasValue()) {
+                                i = trie.getValue();
+                                int inc = matchLimit - pos;
+                                if (inc >= 0 && overlap <= simpleOverlap(spanLengths[i], strings.get(i)) &&
+                                        isCodePointBoundaryMatch(s, matchStart, matchLimit, length)) {
+                                    maxInc = inc; // Longer than any earlier match from this start.
+                                    maxOverlap = overlap;
+                                }
+                            }
+                            if (!result.hasNext()) {
+                                break;
+                            }
+                        }
+                    }
+                } else {
+                    for (i = 0; i < stringsLength; ++i) {
+                        int overlap = spanLengths[i];
+                        // For longest match, we do need to try to match even an all-contained string
+                        // to find the match from the earliest start.
 
-                    String string = strings.get(i);
+                        String string = strings.get(i);
 
-                    int length16 = string.length();
+                        int length16 = string.length();
 
-                    // Try to match this string at pos-overlap..pos.
-                    if (overlap >= LONG_SPAN) {
-                        overlap = length16;
-                        // Longest match: Need to match fully inside the code point span
-                        // to find the match from the earliest start.
-                    }
-                    if (overlap > spanLength) {
-                        overlap = spanLength;
-                    }
-                    int inc = length16 - overlap; // Keep overlap+inc==length16.
-                    for (;;) {
-                        if (inc > rest || overlap < maxOverlap) {
-                            break;
+                        // Try to match this string at pos-overlap..pos.
+                        if (overlap >= LONG_SPAN) {
+                            overlap = length16;
+                            // Longest match: Need to match fully inside the code point span
+                            // to find the match from the earliest start.
+                        }
+                        if (overlap > spanLength) {
+                            overlap = spanLength;
                         }
-                        // Try to match if the string is longer or starts earlier.
-                        if ((overlap > maxOverlap || /* redundant overlap==maxOverlap && */inc > maxInc)
-                                && matches16CPB(s, pos - overlap, length, string, length16)) {
-                            maxInc = inc; // Longest match from earliest start.
-                            maxOverlap = overlap;
-                            break;
+                        int inc = length16 - overlap; // Keep overlap+inc==length16.
+                        for (;;) {
+                            if (inc > rest || overlap < maxOverlap) {
+                                break;
+                            }
+                            // Try to match if the string is longer or starts earlier.
+                            if ((overlap > maxOverlap || /* redundant overlap==maxOverlap && */inc > maxInc)
+                                    && matches16CPB(s, pos - overlap, length, string, length16)) {
+                                maxInc = inc; // Longest match from earliest start.
+                                maxOverlap = overlap;
+                                break;
+                            }
+                            --overlap;
+                            ++inc;
                         }
-                        --overlap;
-                        ++inc;
                     }
                 }
 
@@ -568,17 +699,32 @@ public class UnicodeSetStringSpan {
         int pos = start;
         int rest = length - start;
         int count = 0;
+        CharsTrie trie = fwdTrieChars != null ? new CharsTrie(fwdTrieChars, 0) : null;
         while (rest != 0) {
             // Try to match the next code point.
             int cpLength = spanOne(spanSet, s, pos, rest);
             int maxInc = (cpLength > 0) ? cpLength : 0;
             // Try to match all of the strings.
-            for (int i = 0; i < stringsLength; ++i) {
-                String string = strings.get(i);
-                int length16 = string.length();
-                if (maxInc < length16 && length16 <= rest &&
-                        matches16CPB(s, pos, length, string, length16)) {
-                    maxInc = length16;
+            if (trie != null) {
+                trie.reset();
+                for (int matchLimit = pos; matchLimit < length;) {
+                    BytesTrie.Result result = trie.next(s.charAt(matchLimit++));
+                    if (result.hasValue() && maxInc < matchLimit - pos &&
+                            isCodePointBoundaryMatch(s, pos, matchLimit, length)) {
+                        maxInc = matchLimit - pos;
+                    }
+                    if (!result.hasNext()) {
+                        break;
+                    }
+                }
+            } else {
+                for (int i = 0; i < stringsLength; ++i) {
+                    String string = strings.get(i);
+                    int length16 = string.length();
+                    if (maxInc < length16 && length16 <= rest &&
+                            matches16CPB(s, pos, length, string, length16)) {
+                        maxInc = length16;
+                    }
                 }
             }
             // We are done if there is no match beyond pos.
@@ -603,6 +749,7 @@ public class UnicodeSetStringSpan {
         int pos = start;
         int rest = length - start;
         int count = 0;
+        CharsTrie trie = fwdTrieChars != null ? new CharsTrie(fwdTrieChars, 0) : null;
         while (rest != 0) {
             // Try to match the next code point.
             int cpLength = spanOne(spanSet, s, pos, rest);
@@ -610,14 +757,29 @@ public class UnicodeSetStringSpan {
                 offsets.addOffsetAndCount(cpLength, count + 1);
             }
             // Try to match all of the strings.
-            for (int i = 0; i < stringsLength; ++i) {
-                String string = strings.get(i);
-                int length16 = string.length();
-                // Note: If the strings were sorted by length, then we could also
-                // avoid trying to match if there is already a match of the same length.
-                if (length16 <= rest && !offsets.hasCountAtOffset(length16, count + 1) &&
-                        matches16CPB(s, pos, length, string, length16)) {
-                    offsets.addOffsetAndCount(length16, count + 1);
+            if (trie != null) {
+                trie.reset();
+                for (int matchLimit = pos; matchLimit < length;) {
+                    BytesTrie.Result result = trie.next(s.charAt(matchLimit++));
+                    int length16 = matchLimit - pos;
+                    if (result.hasValue() && !offsets.hasCountAtOffset(length16, count + 1) &&
+                            isCodePointBoundaryMatch(s, pos, matchLimit, length)) {
+                        offsets.addOffsetAndCount(length16, count + 1);
+                    }
+                    if (!result.hasNext()) {
+                        break;
+                    }
+                }
+            } else {
+                for (int i = 0; i < stringsLength; ++i) {
+                    String string = strings.get(i);
+                    int length16 = string.length();
+                    // Note: If the strings were sorted by length, then we could also
+                    // avoid trying to match if there is already a match of the same length.
+                    if (length16 <= rest && !offsets.hasCountAtOffset(length16, count + 1) &&
+                            matches16CPB(s, pos, length, string, length16)) {
+                        offsets.addOffsetAndCount(length16, count + 1);
+                    }
                 }
             }
             // We are done if there is no match beyond pos.
@@ -664,81 +826,136 @@ public class UnicodeSetStringSpan {
         if (all) {
             spanBackLengthsOffset = stringsLength;
         }
+        CharsTrie trie = backTrieChars != null ? new CharsTrie(backTrieChars, 0) : null;
         for (;;) {
             if (spanCondition == SpanCondition.CONTAINED) {
-                for (i = 0; i < stringsLength; ++i) {
-                    int overlap = spanLengths[spanBackLengthsOffset + i];
-                    if (overlap == ALL_CP_CONTAINED) {
-                        continue; // Irrelevant string.
+                if (trie != null) {
+                    // Try to match the strings at each limit in pos..pos+overlap.
+                    for (int matchLimit = pos + Math.min(spanLength, maxLength16);
+                            matchLimit >= pos; --matchLimit) {
+                        int overlap = matchLimit - pos;
+                        trie.reset();
+                        for (int matchStart = matchLimit; matchStart > 0;) {
+                            BytesTrie.Result result = trie.next(s.charAt(--matchStart));
+                            if (result.hasValue()) {
+                                i = trie.getValue();
+                                int dec = pos - matchStart;
+                                if (dec > 0 && overlap <= containedOverlaps[spanBackLengthsOffset + i] &&
+                                        !offsets.containsOffset(dec) &&
+                                        isCodePointBoundaryMatch(s, matchStart, matchLimit, length)) {
+                                    if (dec == pos) {
+                                        return 0; // Reached the start of the string.
+                                    }
+                                    offsets.addOffset(dec);
+                                }
+                            }
+                            if (!result.hasNext()) {
+                                break;
+                            }
+                        }
                     }
-                    String string = strings.get(i);
+                } else {
+                    for (i = 0; i < stringsLength; ++i) {
+                        int overlap = spanLengths[spanBackLengthsOffset + i];
+                        if (overlap == ALL_CP_CONTAINED) {
+                            continue; // Irrelevant string.
+                        }
+                        String string = strings.get(i);
 
-                    int length16 = string.length();
+                        int length16 = string.length();
 
-                    // Try to match this string at pos-(length16-overlap)..pos-length16.
-                    if (overlap >= LONG_SPAN) {
-                        overlap = length16;
-                        // While contained: No point matching fully inside the code point span.
-                        int len1 = 0;
-                        len1 = string.offsetByCodePoints(0, 1);
-                        overlap -= len1; // Length of the string minus the first code point.
-                    }
-                    if (overlap > spanLength) {
-                        overlap = spanLength;
-                    }
-                    int dec = length16 - overlap; // Keep dec+overlap==length16.
-                    for (;;) {
-                        if (dec > pos) {
-                            break;
+                        // Try to match this string at pos-(length16-overlap)..pos-length16.
+                        if (overlap >= LONG_SPAN) {
+                            overlap = length16;
+                            // While contained: No point matching fully inside the code point span.
+                            int len1 = 0;
+                            len1 = string.offsetByCodePoints(0, 1);
+                            overlap -= len1; // Length of the string minus the first code point.
                         }
-                        // Try to match if the decrement is not listed already.
-                        if (!offsets.containsOffset(dec) && matches16CPB(s, pos - dec, length, string, length16)) {
-                            if (dec == pos) {
-                                return 0; // Reached the start of the string.
-                            }
-                            offsets.addOffset(dec);
+                        if (overlap > spanLength) {
+                            overlap = spanLength;
                         }
-                        if (overlap == 0) {
-                            break;
+                        int dec = length16 - overlap; // Keep dec+overlap==length16.
+                        for (;;) {
+                            if (dec > pos) {
+                                break;
+                            }
+                            // Try to match if the decrement is not listed already.
+                            if (!offsets.containsOffset(dec) && matches16CPB(s, pos - dec, length, string, length16)) {
+                                if (dec == pos) {
+                                    return 0; // Reached the start of the string.
+                                }
+                                offsets.addOffset(dec);
+                            }
+                            if (overlap == 0) {
+                                break;
+                            }
+                            --overlap;
+                            ++dec;
                         }
-                        --overlap;
-                        ++dec;
                     }
                 }
             } else /* SIMPLE */{
                 int maxDec = 0, maxOverlap = 0;
-                for (i = 0; i < stringsLength; ++i) {
-                    int overlap = spanLengths[spanBackLengthsOffset + i];
-                    // For longest match, we do need to try to match even an all-contained string
-                    // to find the match from the latest end.
+                if (trie != null) {
+                    // Longest match from the latest end: Try the limits in pos+overlap..pos
+                    // in this order, and stop at the first one with any match.
+                    for (int matchLimit = pos + Math.min(spanLength, maxLength16);
+                            matchLimit >= pos && maxDec == 0 && maxOverlap == 0; --matchLimit) {
+                        int overlap = matchLimit - pos;
+                        trie.reset();
+                        for (int matchStart = matchLimit; matchStart > 0;) {
+                            BytesTrie.Result result = trie.next(s.charAt(--matchStart));
+                            if (result.hasValue()) {
+                                i = trie.getValue();
+                                int dec = pos - matchStart;
+                                if (dec >= 0 &&
+                                        overlap <= simpleOverlap(
+                                                spanLengths[spanBackLengthsOffset + i], strings.get(i)) &&
+                                        isCodePointBoundaryMatch(s, matchStart, matchLimit, length)) {
+                                    maxDec = dec; // Longer than any earlier match to this limit.
+                                    maxOverlap = overlap;
+                                }
+                            }
+                            if (!result.hasNext()) {
+                                break;
+                            }
+                        }
+                    }
+                } else {
+                    for (i = 0; i < stringsLength; ++i) {
+                        int overlap = spanLengths[spanBackLengthsOffset + i];
+                        // For longest match, we do need to try to match even an all-contained string
+                        // to find the match from the latest end.
 
-                    String string = strings.get(i);
+                        String string = strings.get(i);
 
-                    int length16 = string.length();
+                        int length16 = string.length();
 
-                    // Try to match this string at pos-(length16-overlap)..pos-length16.
-                    if (overlap >= LONG_SPAN) {
-                        overlap = length16;
-                        // Longest match: Need to match fully inside the code point span
-                        // to find the match from the latest end.
-                    }
-                    if (overlap > spanLength) {
-                        overlap = spanLength;
-                    }
-                    int dec = length16 - overlap; // Keep dec+overlap==length16.
-                    for (;;) {
-                        if (dec > pos || overlap < maxOverlap) {
-                            break;
+                        // Try to match this string at pos-(length16-overlap)..pos-length16.
+                        if (overlap >= LONG_SPAN) {
+                            overlap = length16;
+                            // Longest match: Need to match fully inside the code point span
+                            // to find the match from the latest end.
+                        }
+                        if (overlap > spanLength) {
+                            overlap = spanLength;
                         }
-                        // Try to match if the string is longer or ends later.
-                        if ((overlap > maxOverlap || /* redundant overlap==maxOverlap && */dec > maxDec)
-                                && matches16CPB(s, pos - dec, length, string, length16)) {
-                            maxDec = dec; // Longest match from latest end.
-                            maxOverlap = overlap;
-                            break;
+                        int dec = length16 - overlap; // Keep dec+overlap==length16.
+                        for (;;) {
+                            if (dec > pos || overlap < maxOverlap) {
+                                break;
+                            }
+                            // Try to match if the string is longer or ends later.
+                            if ((overlap > maxOverlap || /* redundant overlap==maxOverlap && */dec > maxDec)
+                                    && matches16CPB(s, pos - dec, length, string, length16)) {
+                                maxDec = dec; // Longest match from latest end.
+                                maxOverlap = overlap;
+                                break;
+                            }
+                            --overlap;
+                            ++dec;
                         }
-                        --overlap;
-                        ++dec;
                     }
                 }
 
@@ -840,6 +1057,7 @@ public class UnicodeSetStringSpan {
         int pos = start, rest = length - start;
         int stringsLength = strings.size();
         int count = 0;
+        CharsTrie trie = fwdTrieChars != null ? new CharsTrie(fwdTrieChars, 0) : null;
         do {
             // Span until we find a code point from the set,
             // or a code point that starts or ends some string.
@@ -864,15 +1082,29 @@ public class UnicodeSetStringSpan {
             }
 
             // Try to match the strings at pos.
-            for (int i = 0; i < stringsLength; ++i) {
-                if (spanLengths[i] == ALL_CP_CONTAINED) {
-                    continue; // Irrelevant string.
+            if (trie != null) {
+                trie.reset();
+                for (int matchLimit = pos; matchLimit < length;) {
+                    BytesTrie.Result result = trie.next(s.charAt(matchLimit++));
+                    if (result.hasValue() && spanLengths[trie.getValue()] != ALL_CP_CONTAINED &&
+                            isCodePointBoundaryMatch(s, pos, matchLimit, length)) {
+                        return pos; // There is a set element at pos.
+                    }
+                    if (!result.hasNext()) {
+                        break;
+                    }
                 }
-                String string = strings.get(i);
+            } else {
+                for (int i = 0; i < stringsLength; ++i) {
+                    if (spanLengths[i] == ALL_CP_CONTAINED) {
+                        continue; // Irrelevant string.
+                    }
+                    String string = strings.get(i);
 
-                int length16 = string.length();
-                if (length16 <= rest && matches16CPB(s, pos, length, string, length16)) {
-                    return pos; // There is a set element at pos.
+                    int length16 = string.length();
+                    if (length16 <= rest && matches16CPB(s, pos, length, string, length16)) {
+                        return pos; // There is a set element at pos.
+                    }
                 }
             }
 
@@ -892,6 +1124,7 @@ public class UnicodeSetStringSpan {
     private int spanNotBack(CharSequence s, int length) {
         int pos = length;
         int i, stringsLength = strings.size();
+        CharsTrie trie = backTrieChars != null ? new CharsTrie(backTrieChars, 0) : null;
         do {
             // Span until we find a code point from the set,
             // or a code point that starts or ends some string.
@@ -908,18 +1141,32 @@ public class UnicodeSetStringSpan {
             }
 
             // Try to match the strings at pos.
-            for (i = 0; i < stringsLength; ++i) {
-                // Use spanLengths rather than a spanLengths pointer because
-                // it is easier and we only need to know whether the string is irrelevant
-                // which is the same in either array.
-                if (spanLengths[i] == ALL_CP_CONTAINED) {
-                    continue; // Irrelevant string.
+            if (trie != null) {
+                trie.reset();
+                for (int matchStart = pos; matchStart > 0;) {
+                    BytesTrie.Result result = trie.next(s.charAt(--matchStart));
+                    if (result.hasValue() && spanLengths[trie.getValue()] != ALL_CP_CONTAINED &&
+                            isCodePointBoundaryMatch(s, matchStart, pos, length)) {
+                        return pos; // There is a set element at pos.
+                    }
+                    if (!result.hasNext()) {
+                        break;
+                    }
                 }
-                String string = strings.get(i);
+            } else {
+                for (i = 0; i < stringsLength; ++i) {
+                    // Use spanLengths rather than a spanLengths pointer because
+                    // it is easier and we only need to know whether the string is irrelevant
+                    // which is the same in either array.
+                    if (spanLengths[i] == ALL_CP_CONTAINED) {
+                        continue; // Irrelevant string.
+                    }
+                    String string = strings.get(i);
 
-                int length16 = string.length();
-                if (length16 <= pos && matches16CPB(s, pos - length16, length, string, length16)) {
-                    return pos; // There is a set element at pos.
+                    int length16 = string.length();
+                    if (length16 <= pos && matches16CPB(s, pos - length16, length, string, length16)) {
+                        return pos; // There is a set element at pos.
+                    }
                 }
             }
 
@@ -931,6 +1178,13 @@ public class UnicodeSetStringSpan {
         return 0; // Reached the start of the string.
     }
 
+    /**
+     * Maximum overlap of a string with a code point span for span(longest match).
+     */
+    private static int simpleOverlap(int spanLength, String string) {
+        return spanLength >= LONG_SPAN ? string.length() : spanLength;
+    }
+
     static short makeSpanLengthByte(int spanLength) {
         // 0xfe==UnicodeSetStringSpan::LONG_SPAN
         return spanLength < LONG_SPAN ? (short) spanLength : LONG_SPAN;
@@ -959,10 +1213,21 @@ public class UnicodeSetStringSpan {
      */
     static boolean matches16CPB(CharSequence s, int start, int limit, final String t, int tlength) {
         return matches16(s, start, t, tlength)
-                && !(0 < start && Character.isHighSurrogate(s.charAt(start - 1)) &&
+                && isCodePointBoundaryMatch(s, start, start + tlength, limit);
+    }
+
+    /**
+     * Are both edges of the match s[start, matchLimit[ outside of surrogate pairs?
+     * @param s          The string to match in.
+     * @param start      The start index of the match.
+     * @param matchLimit The limit index of the match.
+     * @param limit      The limit of the subsequence of s being spanned.
+     */
+    private static boolean isCodePointBoundaryMatch(CharSequence s, int start, int matchLimit, int limit) {
+        return !(0 < start && Character.isHighSurrogate(s.charAt(start - 1)) &&
                         Character.isLowSurrogate(s.charAt(start)))
-                && !((start + tlength) < limit && Character.isHighSurrogate(s.charAt(start + tlength - 1)) &&
-                        Character.isLowSurrogate(s.charAt(start + tlength)));
+                && !(matchLimit < limit && Character.isHighSurrogate(s.charAt(matchLimit - 1)) &&
+                        Character.isLowSurrogate(s.charAt(matchLimit)));
     }
 
     /**
@@ -1845,4 +1845,49 @@ public final class Utility {
         }
         return hash;
     }
+
+    /**
+     * Returns the index of the first non-ASCII char in s[start..limit[, or limit.
+     * Tests 8 chars per step, for long runs of ASCII text.
+     */
+    public static int spanASCII(CharSequence s, int start, int limit) {
+        for (int blockLimit = limit - 7; start < blockLimit; start += 8) {
+            if ((s.charAt(start) | s.charAt(start + 1) | s.charAt(start + 2) | s.charAt(start + 3) |
+                    s.charAt(start + 4) | s.charAt(start + 5) | s.charAt(start + 6) |
+                    s.charAt(start + 7)) >= 0x80) {
+                break;
+            }
+        }
+        while (start < limit && s.charAt(start) < 0x80) {
+            ++start;
+        }
+        return start;
+    }
+
+    /**
+     * Returns the index of the first char in s[start..limit[ that is non-ASCII
+     * or in the ASCII range [lo..hi], or limit.
+     * Tests 8 chars per step without branches, for long runs of ASCII text.
+     */
+    public static int spanASCIINotIn(CharSequence s, int start, int limit, char lo, char hi) {
+        for (int blockLimit = limit - 7; start < blockLimit; start += 8) {
+            int bits = 0;
+            for (int i = start; i < start + 8; ++i) {
+                int c = s.charAt(i);
+                // For c in [lo..hi], ((c - lo) | (hi - c)) >= 0 and its inverse is negative.
+                // For other ASCII c, it is in [-0x7f..-1] and its inverse in [0..0x7e].
+                bits |= c | ~((c - lo) | (hi - c));
+            }
+            if ((bits & ~0x7f) != 0) {
+                break;
+            }
+        }
+        for (; start < limit; ++start) {
+            char c = s.charAt(start);
+            if (c >= 0x80 || (lo <= c && c <= hi)) {
+                break;
+            }
+        }
+        return start;
+    }
 }
@@ -0,0 +1,289 @@
+// © 2018 and later: Unicode, Inc. and others.
+// License & terms of use: http://www.unicode.org/copyright.html#License
+package com.ibm.icu.text;
+
+import java.nio.ByteBuffer;
+
+import com.ibm.icu.util.BytesTrie;
+import com.ibm.icu.util.BytesTrie.Result;
+
+/**
+ * Reads a serialized BytesTrie directly from a ByteBuffer, such as memory-mapped ICU data,
+ * without copying the trie into a byte array.
+ * Only the forward matching that the dictionary matchers need is implemented;
+ * the results are the same as from {@link BytesTrie}.
+ * The buffer is read with absolute get methods, so its position is not used or changed,
+ * and several readers may share it.
+ */
+final class BufferBytesTrie {
+    /**
+     * Constructs a reader for the trie at the given byte offset in the buffer.
+     */
+    BufferBytesTrie(ByteBuffer bytes, int offset) {
+        bytes_=bytes;
+        pos_=root_=offset;
+        remainingMatchLength_=-1;
+    }
+
+    /**
+     * Traverses the trie from the initial state for this input byte.
+     * @see BytesTrie#first(int)
+     */
+    Result first(int inByte) {
+        remainingMatchLength_=-1;
+        if(inByte<0) {
+            inByte+=0x100;
+        }
+        return nextImpl(root_, inByte);
+    }
+
+    /**
+     * Traverses the trie from the current state for this input byte.
+     * @see BytesTrie#next(int)
+     */
+    Result next(int inByte) {
+        int pos=pos_;
+        if(pos<0) {
+            return Result.NO_MATCH;
+        }
+        if(inByte<0) {
+            inByte+=0x100;
+        }
+        int length=remainingMatchLength_;  // Actual remaining match length minus 1.
+        if(length>=0) {
+            // Remaining part of a linear-match node.
+            if(inByte==byteAt(pos++)) {
+                remainingMatchLength_=--length;
+                pos_=pos;
+                int node;
+                return (length<0 && (node=byteAt(pos))>=kMinValueLead) ?
+                        valueResults_[node&kValueIsFinal] : Result.NO_VALUE;
+            } else {
+                stop();
+                return Result.NO_MATCH;
+            }
+        }
+        return nextImpl(pos, inByte);
+    }
+
+    /**
+     * Returns a matching byte sequence's value if called immediately after
+     * first()/next() returned Result.INTERMEDIATE_VALUE or Result.FINAL_VALUE.
+     * @see BytesTrie#getValue()
+     */
+    int getValue() {
+        int pos=pos_;
+        int leadByte=byteAt(pos++);
+        assert(leadByte>=kMinValueLead);
+        return readValue(pos, leadByte>>1);
+    }
+
+    private int byteAt(int index) {
+        return bytes_.get(index)&0xff;
+    }
+
+    private void stop() {
+        pos_=-1;
+    }
+
+    // Reads a compact 32-bit integer.
+    // pos is already after the leadByte, and the lead byte is already shifted right by 1.
+    private int readValue(int pos, int leadByte) {
+        int value;
+        if(leadByte<kMinTwoByteValueLead) {
+            value=leadByte-kMinOneByteValueLead;
+        } else if(leadByte<kMinThreeByteValueLead) {
+            value=((leadByte-kMinTwoByteValueLead)<<8)|byteAt(pos);
+        } else if(leadByte<kFourByteValueLead) {
+            value=((leadByte-kMinThreeByteValueLead)<<16)|(byteAt(pos)<<8)|byteAt(pos+1);
+        } else if(leadByte==kFourByteValueLead) {
+            value=(byteAt(pos)<<16)|(byteAt(pos+1)<<8)|byteAt(pos+2);
+        } else {
+            value=(byteAt(pos)<<24)|(byteAt(pos+1)<<16)|(byteAt(pos+2)<<8)|byteAt(pos+3);
+        }
+        return value;
+    }
+    private static int skipValue(int pos, int leadByte) {
+        assert(leadByte>=kMinValueLead);
+        if(leadByte>=(kMinTwoByteValueLead<<1)) {
+            if(leadByte<(kMinThreeByteValueLead<<1)) {
+                ++pos;
+            } else if(leadByte<(kFourByteValueLead<<1)) {
+                pos+=2;
+            } else {
+                pos+=3+((leadByte>>1)&1);
+            }
+        }
+        return pos;
+    }
+    private int skipValue(int pos) {
+        int leadByte=byteAt(pos++);
+        return skipValue(pos, leadByte);
+    }
+
+    // Reads a jump delta and jumps.
+    private int jumpByDelta(int pos) {
+        int delta=byteAt(pos++);
+        if(delta<kMinTwoByteDeltaLead) {
+            // nothing to do
+        } else if(delta<kMinThreeByteDeltaLead) {
+            delta=((delta-kMinTwoByteDeltaLead)<<8)|byteAt(pos++);
+        } else if(delta<kFourByteDeltaLead) {
+            delta=((delta-kMinThreeByteDeltaLead)<<16)|(byteAt(pos)<<8)|byteAt(pos+1);
+            pos+=2;
+        } else if(delta==kFourByteDeltaLead) {
+            delta=(byteAt(pos)<<16)|(byteAt(pos+1)<<8)|byteAt(pos+2);
+            pos+=3;
+        } else {
+            delta=(byteAt(pos)<<24)|(byteAt(pos+1)<<16)|(byteAt(pos+2)<<8)|byteAt(pos+3);
+            pos+=4;
+        }
+        return pos+delta;
+    }
+
+    private int skipDelta(int pos) {
+        int delta=byteAt(pos++);
+        if(delta>=kMinTwoByteDeltaLead) {
+            if(delta<kMinThreeByteDeltaLead) {
+                ++pos;
+            } else if(delta<kFourByteDeltaLead) {
+                pos+=2;
+            } else {
+                pos+=3+(delta&1);
+            }
+        }
+        return pos;
+    }
+
+    private static Result[] valueResults_={ Result.INTERMEDIATE_VALUE, Result.FINAL_VALUE };
+
+    // Handles a branch node.
+    private Result branchNext(int pos, int length, int inByte) {
+        // Branch according to the current byte.
+        if(length==0) {
+            length=byteAt(pos++);
+        }
+        ++length;
+        // The length of the branch is the number of bytes to select from.
+        // The data structure encodes a binary search.
+        while(length>kMaxBranchLinearSubNodeLength) {
+            if(inByte<byteAt(pos++)) {
+                length>>=1;
+                pos=jumpByDelta(pos);
+            } else {
+                length=length-(length>>1);
+                pos=skipDelta(pos);
+            }
+        }
+        // Drop down to linear search for the last few bytes.
+        // length>=2 because the loop body above sees length>kMaxBranchLinearSubNodeLength>=3
+        // and divides length by 2.
+        do {
+            if(inByte==byteAt(pos++)) {
+                Result result;
+                int node=byteAt(pos);
+                assert(node>=kMinValueLead);
+                if((node&kValueIsFinal)!=0) {
+                    // Leave the final value for getValue() to read.
+                    result=Result.FINAL_VALUE;
+                } else {
+                    // Use the non-final value as the jump delta.
+                    ++pos;
+                    // int delta=readValue(pos, node>>1);
+                    node>>=1;
+                    int delta;
+                    if(node<kMinTwoByteValueLead) {
+                        delta=node-kMinOneByteValueLead;
+                    } else if(node<kMinThreeByteValueLead) {
+                        delta=((node-kMinTwoByteValueLead)<<8)|byteAt(pos++);
+                    } else if(node<kFourByteValueLead) {
+                        delta=((node-kMinThreeByteValueLead)<<16)|(byteAt(pos)<<8)|byteAt(pos+1);
+                        pos+=2;
+                    } else if(node==kFourByteValueLead) {
+                        delta=(byteAt(pos)<<16)|(byteAt(pos+1)<<8)|byteAt(pos+2);
+                        pos+=3;
+                    } else {
+                        delta=(byteAt(pos)<<24)|(byteAt(pos+1)<<16)|(byteAt(pos+2)<<8)|byteAt(pos+3);
+                        pos+=4;
+                    }
+                    // end readValue()
+                    pos+=delta;
+                    node=byteAt(pos);
+                    result= node>=kMinValueLead ? valueResults_[node&kValueIsFinal] : Result.NO_VALUE;
+                }
+                pos_=pos;
+                return result;
+            }
+            --length;
+            pos=skipValue(pos);
+        } while(length>1);
+        if(inByte==byteAt(pos++)) {
+            pos_=pos;
+            int node=byteAt(pos);
+            return node>=kMinValueLead ? valueResults_[node&kValueIsFinal] : Result.NO_VALUE;
+        } else {
+            stop();
+            return Result.NO_MATCH;
+        }
+    }
+
+    // Requires remainingLength_<0.
+    private Result nextImpl(int pos, int inByte) {
+        for(;;) {
+            int node=byteAt(pos++);
+            if(node<kMinLinearMatch) {
+                return branchNext(pos, node, inByte);
+            } else if(node<kMinValueLead) {
+                // Match the first of length+1 bytes.
+                int length=node-kMinLinearMatch;  // Actual match length minus 1.
+                if(inByte==byteAt(pos++)) {
+                    remainingMatchLength_=--length;
+                    pos_=pos;
+                    return (length<0 && (node=byteAt(pos))>=kMinValueLead) ?
+                            valueResults_[node&kValueIsFinal] : Result.NO_VALUE;
+                } else {
+                    // No match.
+                    break;
+                }
+            } else if((node&kValueIsFinal)!=0) {
+                // No further matching bytes.
+                break;
+            } else {
+                // Skip intermediate value.
+                pos=skipValue(pos, node);
+                // The next node must not also be a value node.
+                assert(byteAt(pos)<kMinValueLead);
+            }
+        }
+        stop();
+        return Result.NO_MATCH;
+    }
+
+    // The BytesTrie data structure constants; see BytesTrie for the data structure.
+    private static final int kMaxBranchLinearSubNodeLength=5;
+    private static final int kMinLinearMatch=0x10;
+    private static final int kMaxLinearMatchLength=0x10;
+    private static final int kMinValueLead=kMinLinearMatch+kMaxLinearMatchLength;  // 0x20
+    private static final int kValueIsFinal=1;
+    private static final int kMinOneByteValueLead=kMinValueLead/2;  // 0x10
+    private static final int kMaxOneByteValue=0x40;
+    private static final int kMinTwoByteValueLead=kMinOneByteValueLead+kMaxOneByteValue+1;  // 0x51
+    private static final int kMaxTwoByteValue=0x1aff;
+    private static final int kMinThreeByteValueLead=kMinTwoByteValueLead+(kMaxTwoByteValue>>8)+1;  // 0x6c
+    private static final int kFourByteValueLead=0x7e;
+    private static final int kMaxOneByteDelta=0xbf;
+    private static final int kMinTwoByteDeltaLead=kMaxOneByteDelta+1;  // 0xc0
+    private static final int kMinThreeByteDeltaLead=0xf0;
+    private static final int kFourByteDeltaLead=0xfe;
+
+    // The buffer with the serialized trie, and the byte offset of the trie's root in it.
+    private final ByteBuffer bytes_;
+    private final int root_;
+
+    // Iterator variables.
+
+    // Index of the next trie byte to read in the buffer. -1 if no more matches.
+    private int pos_;
+    // Remaining length of a linear-match node, minus 1. Negative if not in such a node.
+    private int remainingMatchLength_;
+}
@@ -0,0 +1,311 @@
+// © 2018 and later: Unicode, Inc. and others.
+// License & terms of use: http://www.unicode.org/copyright.html#License
+package com.ibm.icu.text;
+
+import java.nio.ByteBuffer;
+
+import com.ibm.icu.util.BytesTrie.Result;
+import com.ibm.icu.util.CharsTrie;
+
+/**
+ * Reads a serialized CharsTrie directly from a ByteBuffer, such as memory-mapped ICU data,
+ * without copying the trie into a String.
+ * Only the forward matching that the dictionary matchers need is implemented;
+ * the results are the same as from {@link CharsTrie}.
+ * The buffer is read with absolute get methods, so its position is not used or changed,
+ * and several readers may share it.
+ */
+final class BufferCharsTrie {
+    /**
+     * Constructs a reader for the trie at the given byte offset in the buffer.
+     * The trie's chars are read in the buffer's byte order.
+     */
+    BufferCharsTrie(ByteBuffer bytes, int offset) {
+        bytes_=bytes;
+        base_=offset;
+        pos_=0;
+        remainingMatchLength_=-1;
+    }
+
+    /**
+     * Traverses the trie from the initial state for this input char.
+     * @see CharsTrie#first(int)
+     */
+    Result first(int inUnit) {
+        remainingMatchLength_=-1;
+        return nextImpl(0, inUnit);
+    }
+
+    /**
+     * Traverses the trie from the initial state for the
+     * one or two UTF-16 code units for this input code point.
+     * @see CharsTrie#firstForCodePoint(int)
+     */
+    Result firstForCodePoint(int cp) {
+        return cp<=0xffff ?
+            first(cp) :
+            (first(UTF16.getLeadSurrogate(cp)).hasNext() ?
+                next(UTF16.getTrailSurrogate(cp)) :
+                Result.NO_MATCH);
+    }
+
+    /**
+     * Traverses the trie from the current state for this input char.
+     * @see CharsTrie#next(int)
+     */
+    Result next(int inUnit) {
+        int pos=pos_;
+        if(pos<0) {
+            return Result.NO_MATCH;
+        }
+        int length=remainingMatchLength_;  // Actual remaining match length minus 1.
+        if(length>=0) {
+            // Remaining part of a linear-match node.
+            if(inUnit==charAt(pos++)) {
+                remainingMatchLength_=--length;
+                pos_=pos;
+                int node;
+                return (length<0 && (node=charAt(pos))>=kMinValueLead) ?
+                        valueResults_[node>>15] : Result.NO_VALUE;
+            } else {
+                stop();
+                return Result.NO_MATCH;
+            }
+        }
+        return nextImpl(pos, inUnit);
+    }
+
+    /**
+     * Traverses the trie from the current state for the
+     * one or two UTF-16 code units for this input code point.
+     * @see CharsTrie#nextForCodePoint(int)
+     */
+    Result nextForCodePoint(int cp) {
+        return cp<=0xffff ?
+            next(cp) :
+            (next(UTF16.getLeadSurrogate(cp)).hasNext() ?
+                next(UTF16.getTrailSurrogate(cp)) :
+                Result.NO_MATCH);
+    }
+
+    /**
+     * Returns a matching string's value if called immediately after
+     * first()/next() returned Result.INTERMEDIATE_VALUE or Result.FINAL_VALUE.
+     * @see CharsTrie#getValue()
+     */
+    int getValue() {
+        int pos=pos_;
+        int leadUnit=charAt(pos++);
+        assert(leadUnit>=kMinValueLead);
+        return (leadUnit&kValueIsFinal)!=0 ?
+            readValue(pos, leadUnit&0x7fff) : readNodeValue(pos, leadUnit);
+    }
+
+    private int charAt(int index) {
+        return bytes_.getChar(base_+2*index);
+    }
+
+    private void stop() {
+        pos_=-1;
+    }
+
+    // Reads a compact 32-bit integer.
+    // pos is already after the leadUnit, and the lead unit has bit 15 reset.
+    private int readValue(int pos, int leadUnit) {
+        int value;
+        if(leadUnit<kMinTwoUnitValueLead) {
+            value=leadUnit;
+        } else if(leadUnit<kThreeUnitValueLead) {
+            value=((leadUnit-kMinTwoUnitValueLead)<<16)|charAt(pos);
+        } else {
+            value=(charAt(pos)<<16)|charAt(pos+1);
+        }
+        return value;
+    }
+    private static int skipValue(int pos, int leadUnit) {
+        if(leadUnit>=kMinTwoUnitValueLead) {
+            if(leadUnit<kThreeUnitValueLead) {
+                ++pos;
+            } else {
+                pos+=2;
+            }
+        }
+        return pos;
+    }
+    private int skipValue(int pos) {
+        int leadUnit=charAt(pos++);
+        return skipValue(pos, leadUnit&0x7fff);
+    }
+
+    private int readNodeValue(int pos, int leadUnit) {
+        assert(kMinValueLead<=leadUnit && leadUnit<kValueIsFinal);
+        int value;
+        if(leadUnit<kMinTwoUnitNodeValueLead) {
+            value=(leadUnit>>6)-1;
+        } else if(leadUnit<kThreeUnitNodeValueLead) {
+            value=(((leadUnit&0x7fc0)-kMinTwoUnitNodeValueLead)<<10)|charAt(pos);
+        } else {
+            value=(charAt(pos)<<16)|charAt(pos+1);
+        }
+        return value;
+    }
+    private static int skipNodeValue(int pos, int leadUnit) {
+        assert(kMinValueLead<=leadUnit && leadUnit<kValueIsFinal);
+        if(leadUnit>=kMinTwoUnitNodeValueLead) {
+            if(leadUnit<kThreeUnitNodeValueLead) {
+                ++pos;
+            } else {
+                pos+=2;
+            }
+        }
+        return pos;
+    }
+
+    private int jumpByDelta(int pos) {
+        int delta=charAt(pos++);
+        if(delta>=kMinTwoUnitDeltaLead) {
+            if(delta==kThreeUnitDeltaLead) {
+                delta=(charAt(pos)<<16)|charAt(pos+1);
+                pos+=2;
+            } else {
+                delta=((delta-kMinTwoUnitDeltaLead)<<16)|charAt(pos++);
+            }
+        }
+        return pos+delta;
+    }
+
+    private int skipDelta(int pos) {
+        int delta=charAt(pos++);
+        if(delta>=kMinTwoUnitDeltaLead) {
+            if(delta==kThreeUnitDeltaLead) {
+                pos+=2;
+            } else {
+                ++pos;
+            }
+        }
+        return pos;
+    }
+
+    private static Result[] valueResults_={ Result.INTERMEDIATE_VALUE, Result.FINAL_VALUE };
+
+    // Handles a branch node.
+    private Result branchNext(int pos, int length, int inUnit) {
+        // Branch according to the current unit.
+        if(length==0) {
+            length=charAt(pos++);
+        }
+        ++length;
+        // The length of the branch is the number of units to select from.
+        // The data structure encodes a binary search.
+        while(length>kMaxBranchLinearSubNodeLength) {
+            if(inUnit<charAt(pos++)) {
+                length>>=1;
+                pos=jumpByDelta(pos);
+            } else {
+                length=length-(length>>1);
+                pos=skipDelta(pos);
+            }
+        }
+        // Drop down to linear search for the last few units.
+        // length>=2 because the loop body above sees length>kMaxBranchLinearSubNodeLength>=3
+        // and divides length by 2.
+        do {
+            if(inUnit==charAt(pos++)) {
+                Result result;
+                int node=charAt(pos);
+                if((node&kValueIsFinal)!=0) {
+                    // Leave the final value for getValue() to read.
+                    result=Result.FINAL_VALUE;
+                } else {
+                    // Use the non-final value as the jump delta.
+                    ++pos;
+                    // int delta=readValue(pos, node);
+                    int delta;
+                    if(node<kMinTwoUnitValueLead) {
+                        delta=node;
+                    } else if(node<kThreeUnitValueLead) {
+                        delta=((node-kMinTwoUnitValueLead)<<16)|charAt(pos++);
+                    } else {
+                        delta=(charAt(pos)<<16)|charAt(pos+1);
+                        pos+=2;
+                    }
+                    // end readValue()
+                    pos+=delta;
+                    node=charAt(pos);
+                    result= node>=kMinValueLead ? valueResults_[node>>15] : Result.NO_VALUE;
+                }
+                pos_=pos;
+                return result;
+            }
+            --length;
+            pos=skipValue(pos);
+        } while(length>1);
+        if(inUnit==charAt(pos++)) {
+            pos_=pos;
+            int node=charAt(pos);
+            return node>=kMinValueLead ? valueResults_[node>>15] : Result.NO_VALUE;
+        } else {
+            stop();
+            return Result.NO_MATCH;
+        }
+    }
+
+    // Requires remainingLength_<0.
+    private Result nextImpl(int pos, int inUnit) {
+        int node=charAt(pos++);
+        for(;;) {
+            if(node<kMinLinearMatch) {
+                return branchNext(pos, node, inUnit);
+            } else if(node<kMinValueLead) {
+                // Match the first of length+1 units.
+                int length=node-kMinLinearMatch;  // Actual match length minus 1.
+                if(inUnit==charAt(pos++)) {
+                    remainingMatchLength_=--length;
+                    pos_=pos;
+                    return (length<0 && (node=charAt(pos))>=kMinValueLead) ?
+                            valueResults_[node>>15] : Result.NO_VALUE;
+                } else {
+                    // No match.
+                    break;
+                }
+            } else if((node&kValueIsFinal)!=0) {
+                // No further matching units.
+                break;
+            } else {
+                // Skip intermediate value.
+                pos=skipNodeValue(pos, node);
+                node&=kNodeTypeMask;
+            }
+        }
+        stop();
+        return Result.NO_MATCH;
+    }
+
+    // The CharsTrie data structure constants; see CharsTrie for the data structure.
+    private static final int kMaxBranchLinearSubNodeLength=5;
+    private static final int kMinLinearMatch=0x30;
+    private static final int kMaxLinearMatchLength=0x10;
+    private static final int kMinValueLead=kMinLinearMatch+kMaxLinearMatchLength;  // 0x0040
+    private static final int kNodeTypeMask=kMinValueLead-1;  // 0x003f
+    private static final int kValueIsFinal=0x8000;
+    private static final int kMaxOneUnitValue=0x3fff;
+    private static final int kMinTwoUnitValueLead=kMaxOneUnitValue+1;  // 0x4000
+    private static final int kThreeUnitValueLead=0x7fff;
+    private static final int kMaxOneUnitNodeValue=0xff;
+    private static final int kMinTwoUnitNodeValueLead=kMinValueLead+((kMaxOneUnitNodeValue+1)<<6);  // 0x4040
+    private static final int kThreeUnitNodeValueLead=0x7fc0;
+    private static final int kMaxOneUnitDelta=0xfbff;
+    private static final int kMinTwoUnitDeltaLead=kMaxOneUnitDelta+1;  // 0xfc00
+    private static final int kThreeUnitDeltaLead=0xffff;
+
+    // The buffer with the serialized trie, and the byte offset of the trie's root in it.
+    private final ByteBuffer bytes_;
+    private final int base_;
+
+    // Iterator variables.
+
+    // Index of the next trie unit to read, counted in chars from the root. -1 if no more matches.
+    private int pos_;
+    // Remaining length of a linear-match node, minus 1. Negative if not in such a node.
+    private int remainingMatchLength_;
+}
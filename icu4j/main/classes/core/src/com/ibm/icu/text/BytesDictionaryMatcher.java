@@ -8,6 +8,7 @@
  */
 package com.ibm.icu.text;
 
+import java.nio.ByteBuffer;
 import java.text.CharacterIterator;
 
 import com.ibm.icu.impl.Assert;
@@ -16,10 +17,27 @@ import com.ibm.icu.util.BytesTrie.Result;
 
 class BytesDictionaryMatcher extends DictionaryMatcher {
     private final byte[] characters;
+    /** The trie data when it is read from a ByteBuffer without a backing array; otherwise null. */
+    private final ByteBuffer buffer;
+    private final int offset;
     private final int transform;
 
-    public BytesDictionaryMatcher(byte[] chars, int transform) {
+    public BytesDictionaryMatcher(byte[] chars, int offset, int transform) {
+        this(chars, null, offset, transform);
+    }
+
+    /**
+     * Constructs a matcher that reads the trie directly from the buffer, such as mapped data,
+     * rather than from a byte array.
+     */
+    public BytesDictionaryMatcher(ByteBuffer bytes, int offset, int transform) {
+        this(null, bytes, offset, transform);
+    }
+
+    private BytesDictionaryMatcher(byte[] chars, ByteBuffer bytes, int offset, int transform) {
         characters = chars;
+        buffer = bytes;
+        this.offset = offset;
         Assert.assrt((transform & DictionaryData.TRANSFORM_TYPE_MASK) == DictionaryData.TRANSFORM_TYPE_OFFSET);
         // while there is only one transform type so far, save the entire transform constant so that
         // if we add any others, we need only change code in transform() and the assert above rather
@@ -43,8 +61,11 @@ class BytesDictionaryMatcher extends DictionaryMatcher {
 
     @Override
     public int matches(CharacterIterator text_, int maxLength, int[] lengths, int[] count_, int limit, int[] values) {
+        if (buffer != null) {
+            return matchesInBuffer(text_, maxLength, lengths, count_, limit, values);
+        }
         UCharacterIterator text = UCharacterIterator.getInstance(text_);
-        BytesTrie bt = new BytesTrie(characters, 0);
+        BytesTrie bt = new BytesTrie(characters, offset);
         int c = text.nextCodePoint();
         if (c == UCharacterIterator.DONE) {
             return 0;
@@ -84,6 +105,50 @@ class BytesDictionaryMatcher extends DictionaryMatcher {
         return numChars;
     }
 
+    /**
+     * Same as matches(), with the trie read from the buffer.
+     */
+    private int matchesInBuffer(CharacterIterator text_, int maxLength, int[] lengths, int[] count_, int limit, int[] values) {
+        UCharacterIterator text = UCharacterIterator.getInstance(text_);
+        BufferBytesTrie bt = new BufferBytesTrie(buffer, offset);
+        int c = text.nextCodePoint();
+        if (c == UCharacterIterator.DONE) {
+            return 0;
+        }
+        Result result = bt.first(transform(c));
+        int numChars = 1;
+        int count = 0;
+        for (;;) {
+            if (result.hasValue()) {
+                if (count < limit) {
+                    if (values != null) {
+                        values[count] = bt.getValue();
+                    }
+                    lengths[count] = numChars;
+                    count++;
+                }
+                if (result == Result.FINAL_VALUE) {
+                    break;
+                }
+            } else if (result == Result.NO_MATCH) {
+                break;
+            }
+
+            if (numChars >= maxLength) {
+                break;
+            }
+
+            c = text.nextCodePoint();
+            if (c == UCharacterIterator.DONE) {
+                break;
+            }
+            ++numChars;
+            result = bt.next(transform(c));
+        }
+        count_[0] = count;
+        return numChars;
+    }
+
     @Override
     public int getType() {
         return DictionaryData.TRIE_TYPE_BYTES;
@@ -122,6 +122,20 @@ public abstract class CaseMap {
                  Locale locale, CharSequence src, A dest, Edits edits) {
              return CaseMapImpl.toLower(getCaseLocale(locale), internalOptions, src, dest, edits);
          }
+
+        /**
+         * Returns a new object for lowercasing text that arrives in chunks.
+         *
+         * @param locale    The locale ID. Can be null for {@link Locale#getDefault}.
+         *                  (See {@link ULocale#toLocale}.)
+         * @return a new ChunkMapper with this object's options
+         * @draft ICU 64
+         * @provisional This API might change or be removed in a future release.
+         */
+        public ChunkMapper chunkMapper(Locale locale) {
+            return new ChunkMapper(new CaseMapImpl.ChunkMapper(
+                    getCaseLocale(locale), internalOptions, CaseMapImpl.ChunkMapper.LOWER));
+        }
     }
 
     /**
@@ -182,6 +196,20 @@ public abstract class CaseMap {
                  Locale locale, CharSequence src, A dest, Edits edits) {
              return CaseMapImpl.toUpper(getCaseLocale(locale), internalOptions, src, dest, edits);
          }
+
+        /**
+         * Returns a new object for uppercasing text that arrives in chunks.
+         *
+         * @param locale    The locale ID. Can be null for {@link Locale#getDefault}.
+         *                  (See {@link ULocale#toLocale}.)
+         * @return a new ChunkMapper with this object's options
+         * @draft ICU 64
+         * @provisional This API might change or be removed in a future release.
+         */
+        public ChunkMapper chunkMapper(Locale locale) {
+            return new ChunkMapper(new CaseMapImpl.ChunkMapper(
+                    getCaseLocale(locale), internalOptions, CaseMapImpl.ChunkMapper.UPPER));
+        }
     }
 
     /**
@@ -452,5 +480,94 @@ public abstract class CaseMap {
          public <A extends Appendable> A apply(CharSequence src, A dest, Edits edits) {
              return CaseMapImpl.fold(internalOptions, src, dest, edits);
          }
+
+        /**
+         * Returns a new object for case-folding text that arrives in chunks.
+         *
+         * @return a new ChunkMapper with this object's options
+         * @draft ICU 64
+         * @provisional This API might change or be removed in a future release.
+         */
+        public ChunkMapper chunkMapper() {
+            return new ChunkMapper(new CaseMapImpl.ChunkMapper(
+                    UCaseProps.LOC_ROOT, internalOptions, CaseMapImpl.ChunkMapper.FOLD));
+        }
+    }
+
+    /**
+     * Case-maps text that arrives in chunks, for example a large document read from a stream,
+     * with bounded memory.
+     * Context-sensitive mappings like Final_Sigma and Greek uppercasing work across chunk boundaries:
+     * The concatenated output is the same as for mapping the concatenated input in one call.
+     * For that, the mapper holds back the end of a chunk while it may still be affected by
+     * the following text.
+     *
+     * <p>Unlike the apply() methods, these methods do not reset the {@link Edits}.
+     * The edits appended by each call describe only the text that was output by that call,
+     * so a caller can pass the same Edits object for a whole document,
+     * or reset it after each chunk to keep its memory use bounded.
+     * For a whole document, the edits are the same as those from one apply() call:
+     * Each run of unchanged text is recorded once, even across chunk boundaries,
+     * and Edits stores runs of changes with the same lengths compactly.
+     * A coalesced view, with adjacent changes merged, is available from
+     * {@link Edits#getCoarseIterator()} and {@link Edits#getCoarseChangesIterator()}.
+     *
+     * <p>Not thread-safe. Use one instance per document at a time.
+     *
+     * @see Lower#chunkMapper(Locale)
+     * @see Upper#chunkMapper(Locale)
+     * @see Fold#chunkMapper()
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public static final class ChunkMapper {
+        private final CaseMapImpl.ChunkMapper impl;
+
+        private ChunkMapper(CaseMapImpl.ChunkMapper impl) {
+            this.impl = impl;
+        }
+
+        /**
+         * Case-maps the next chunk of text, appending as much of the result as possible.
+         * The rest is appended by later calls or by {@link #finish}.
+         *
+         * @param chunk     The next part of the original text.
+         * @param dest      A buffer for the result string, for example a CharBuffer
+         *                  wrapped around a reusable char array. Must not be null.
+         * @param edits     Records edits for index mapping, working with styled text,
+         *                  and getting only changes (if any).
+         *                  This function does not reset the edits. edits can be null.
+         * @return dest with (part of) the result string (or only changes) appended.
+         * @draft ICU 64
+         * @provisional This API might change or be removed in a future release.
+         */
+        public <A extends Appendable> A apply(CharSequence chunk, A dest, Edits edits) {
+            return impl.map(chunk, dest, edits);
+        }
+
+        /**
+         * Case-maps the remaining text at the end of the input,
+         * and resets this object for a new input text.
+         *
+         * @param dest      A buffer for the result string. Must not be null.
+         * @param edits     Records edits, see {@link #apply}.
+         *                  This function does not reset the edits. edits can be null.
+         * @return dest with the rest of the result string (or only changes) appended.
+         * @draft ICU 64
+         * @provisional This API might change or be removed in a future release.
+         */
+        public <A extends Appendable> A finish(A dest, Edits edits) {
+            return impl.finish(dest, edits);
+        }
+
+        /**
+         * Discards any pending input text, to start over with a new input text.
+         *
+         * @draft ICU 64
+         * @provisional This API might change or be removed in a future release.
+         */
+        public void reset() {
+            impl.reset();
+        }
     }
 }
@@ -8,20 +8,39 @@
  */
 package com.ibm.icu.text;
 
+import java.nio.ByteBuffer;
 import java.text.CharacterIterator;
 
 import com.ibm.icu.util.BytesTrie.Result;
 import com.ibm.icu.util.CharsTrie;
 
 class CharsDictionaryMatcher extends DictionaryMatcher {
-    private CharSequence characters;
+    private final CharSequence characters;
+    /** The trie data when it is read from a ByteBuffer; otherwise null. */
+    private final ByteBuffer buffer;
+    private final int offset;
 
     public CharsDictionaryMatcher(CharSequence chars) {
         characters = chars;
+        buffer = null;
+        offset = 0;
+    }
+
+    /**
+     * Constructs a matcher that reads the trie directly from the buffer, such as mapped data,
+     * starting at the given byte offset, rather than from a String.
+     */
+    public CharsDictionaryMatcher(ByteBuffer bytes, int offset) {
+        characters = null;
+        buffer = bytes;
+        this.offset = offset;
     }
 
     @Override
     public int matches(CharacterIterator text_, int maxLength, int[] lengths, int[] count_, int limit, int[] values) {
+        if (buffer != null) {
+            return matchesInBuffer(text_, maxLength, lengths, count_, limit, values);
+        }
         UCharacterIterator text = UCharacterIterator.getInstance(text_);
         CharsTrie uct = new CharsTrie(characters, 0);
         int c = text.nextCodePoint();
@@ -63,6 +82,50 @@ class CharsDictionaryMatcher extends DictionaryMatcher {
         return numChars;
     }
 
+    /**
+     * Same as matches(), with the trie read from the buffer.
+     */
+    private int matchesInBuffer(CharacterIterator text_, int maxLength, int[] lengths, int[] count_, int limit, int[] values) {
+        UCharacterIterator text = UCharacterIterator.getInstance(text_);
+        BufferCharsTrie uct = new BufferCharsTrie(buffer, offset);
+        int c = text.nextCodePoint();
+        if (c == UCharacterIterator.DONE) {
+            return 0;
+        }
+        Result result = uct.firstForCodePoint(c);
+        int numChars = 1;
+        int count = 0;
+        for (;;) {
+            if (result.hasValue()) {
+                if (count < limit) {
+                    if (values != null) {
+                        values[count] = uct.getValue();
+                    }
+                    lengths[count] = numChars;
+                    count++;
+                }
+
+                if (result == Result.FINAL_VALUE) {
+                    break;
+                }
+            } else if (result == Result.NO_MATCH) {
+                break;
+            }
+
+            if (numChars >= maxLength) {
+                break;
+            }
+            c = text.nextCodePoint();
+            if (c == UCharacterIterator.DONE) {
+                break;
+            }
+            ++numChars;
+            result = uct.nextForCodePoint(c);
+        }
+        count_[0] = count;
+        return numChars;
+    }
+
     @Override
     public int getType() {
         return DictionaryData.TRIE_TYPE_UCHARS;
@@ -513,6 +513,21 @@ public class CharsetDetector {
         ALL_CS_RECOGNIZERS = Collections.unmodifiableList(list);
     }
 
+    /*
+     * Get the recognizers that are enabled for this CharsetDetector instance.
+     */
+    List<CharsetRecognizer> getEnabledRecognizers() {
+        List<CharsetRecognizer> recognizers = new ArrayList<CharsetRecognizer>(ALL_CS_RECOGNIZERS.size());
+        for (int i = 0; i < ALL_CS_RECOGNIZERS.size(); i++) {
+            CSRecognizerInfo rcinfo = ALL_CS_RECOGNIZERS.get(i);
+            boolean active = (fEnabledRecognizers == null) ? rcinfo.isDefaultEnabled : fEnabledRecognizers[i];
+            if (active) {
+                recognizers.add(rcinfo.recognizer);
+            }
+        }
+        return recognizers;
+    }
+
     /**
      * Get the names of charsets that can be recognized by this CharsetDetector instance.
      *
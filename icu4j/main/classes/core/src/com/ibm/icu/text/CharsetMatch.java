@@ -41,10 +41,13 @@ public class CharsetMatch implements Comparable<CharsetMatch> {
      * the InputStream and create InputStreamReaders itself, based on the charset name.
      *
      * @return the Reader for the Unicode character data.
+     * @throws UnsupportedOperationException if the match is from a
+     *         {@link StreamingCharsetDetector}, which does not keep the input data.
      *
      * @stable ICU 3.4
      */
     public Reader getReader() {
+        checkInputKept();
         InputStream inputStream = fInputStream;
 
         if (inputStream == null) {
@@ -64,6 +67,8 @@ public class CharsetMatch implements Comparable<CharsetMatch> {
      * to the original byte data supplied to the Charset detect operation.
      *
      * @return a String created from the converted input data.
+     * @throws UnsupportedOperationException if the match is from a
+     *         {@link StreamingCharsetDetector}, which does not keep the input data.
      *
      * @stable ICU 3.4
      */
@@ -83,10 +88,13 @@ public class CharsetMatch implements Comparable<CharsetMatch> {
      *                  source of the data is an input stream, or -1 for
      *                  unlimited length.
      * @return a String created from the converted input data.
+     * @throws UnsupportedOperationException if the match is from a
+     *         {@link StreamingCharsetDetector}, which does not keep the input data.
      *
      * @stable ICU 3.4
      */
     public String getString(int maxLength) throws java.io.IOException {
+        checkInputKept();
         String result = null;
         if (fInputStream != null) {
             StringBuilder sb = new StringBuilder();
@@ -188,6 +196,13 @@ public class CharsetMatch implements Comparable<CharsetMatch> {
         return compareResult;
     }
 
+    private void checkInputKept() {
+        if (fStreaming) {
+            throw new UnsupportedOperationException(
+                    "Streaming charset detection does not keep the input data");
+        }
+    }
+
     /*
      *  Constructor.  Implementation internal
      */
@@ -197,13 +212,15 @@ public class CharsetMatch implements Comparable<CharsetMatch> {
         // The references to the original application input data must be copied out
         //   of the charset recognizer to here, in case the application resets the
         //   recognizer before using this CharsetMatch.
-        if (det.fInputStream == null) {
+        //   The detector is null for streaming detection, which does not keep the input data.
+        if (det != null && det.fInputStream == null) {
             // We only want the existing input byte data if it came straight from the user,
             //   not if is just the head of a stream.
             fRawInput    = det.fRawInput;
             fRawLength   = det.fRawLength;
         }
-        fInputStream = det.fInputStream;
+        fInputStream = det != null ? det.fInputStream : null;
+        fStreaming = det == null;
         fCharsetName = rec.getName();
         fLang = rec.getLanguage();
     }
@@ -217,13 +234,15 @@ public class CharsetMatch implements Comparable<CharsetMatch> {
         // The references to the original application input data must be copied out
         //   of the charset recognizer to here, in case the application resets the
         //   recognizer before using this CharsetMatch.
-        if (det.fInputStream == null) {
+        //   The detector is null for streaming detection, which does not keep the input data.
+        if (det != null && det.fInputStream == null) {
             // We only want the existing input byte data if it came straight from the user,
             //   not if is just the head of a stream.
             fRawInput    = det.fRawInput;
             fRawLength   = det.fRawLength;
         }
-        fInputStream = det.fInputStream;
+        fInputStream = det != null ? det.fInputStream : null;
+        fStreaming = det == null;
         fCharsetName = csName;
         fLang = lang;
     }
@@ -240,6 +259,9 @@ public class CharsetMatch implements Comparable<CharsetMatch> {
     private InputStream         fInputStream = null;  // User's input stream, or null if the user
                                                       //   gave us a byte array.
 
+    private boolean             fStreaming;           // True if the match is from streaming
+                                                      //   detection, which keeps no input data.
+
     private String              fCharsetName;         // The name of the charset this CharsetMatch
                                                       //   represents.  Filled in by the recognizer.
     private String              fLang;                // The language, if one was determined by
@@ -20,78 +20,150 @@ abstract class CharsetRecog_2022 extends CharsetRecognizer {
 
 
     /**
-     * Matching function shared among the 2022 detectors JP, CN and KR
+     * Get the escape sequences of this charset.
+     * @return the escape sequences, each starting with 0x1b.
+     */
+    abstract byte[][] getEscapeSequences();
+
+    @Override
+    boolean usesFilteredInput() {
+        return true;
+    }
+
+    @Override
+    Scanner newScanner() {
+        return new EscapeScanner(getEscapeSequences());
+    }
+
+    /**
+     * Scanner shared among the 2022 detectors JP, CN and KR.
      * Counts up the number of legal an unrecognized escape sequences in
      * the sample of text, and computes a score based on the total number &
      * the proportion that fit the encoding.
-     *
-     *
-     * @param text the byte buffer containing text to analyse
-     * @param textLen  the size of the text in the byte.
-     * @param escapeSequences the byte escape sequences to test for.
-     * @return match quality, in the range of 0-100.
      */
-    int   match(byte [] text, int textLen, byte [][] escapeSequences) {
-        int     i, j;
-        int     escN;
-        int     hits   = 0;
-        int     misses = 0;
-        int     shifts = 0;
-        int     quality;
-        scanInput:
-            for (i=0; i<textLen; i++) {
-                if (text[i] == 0x1b) {
-                    checkEscapes:
-                        for (escN=0; escN<escapeSequences.length; escN++) {
-                            byte [] seq = escapeSequences[escN];
-
-                            if ((textLen - i) < seq.length) {
-                                continue checkEscapes;
-                            }
+    class EscapeScanner extends Scanner {
+        private final byte[][] escapeSequences;
+        private final int maxEscapeLength;
+        private int hits   = 0;
+        private int misses = 0;
+        private int shifts = 0;
+
+        // An escape sequence which may be split between pieces of the input.
+        private byte[] partialEscape = null;
+
+        EscapeScanner(byte[][] escapeSequences) {
+            this.escapeSequences = escapeSequences;
+            int max = 0;
+            for (byte[] seq : escapeSequences) {
+                max = Math.max(max, seq.length);
+            }
+            maxEscapeLength = max;
+        }
+
+        @Override
+        void scan(byte[] input, int start, int limit) {
+            if (partialEscape != null) {
+                byte[] text = new byte[partialEscape.length + limit - start];
+                System.arraycopy(partialEscape, 0, text, 0, partialEscape.length);
+                System.arraycopy(input, start, text, partialEscape.length, limit - start);
+                partialEscape = null;
+                input = text;
+                start = 0;
+                limit = text.length;
+            }
+            int i = scan(input, start, limit, false);
+            if (i < limit) {
+                partialEscape = new byte[limit - i];
+                System.arraycopy(input, i, partialEscape, 0, limit - i);
+            }
+        }
 
-                            for (j=1; j<seq.length; j++) {
-                                if (seq[j] != text[i+j])  {
+        /**
+         * Count the escape sequences and shifts in text[start..limit[.
+         * Unless isLast, stops at an escape character that might be the start of
+         * an escape sequence which continues after limit.
+         * @return the index where the scan stopped.
+         */
+        private int scan(byte[] text, int start, int limit, boolean isLast) {
+            int     i, j;
+            int     escN;
+            scanInput:
+                for (i=start; i<limit; i++) {
+                    if (text[i] == 0x1b) {
+                        if (!isLast && (limit - i) < maxEscapeLength) {
+                            return i;
+                        }
+                        checkEscapes:
+                            for (escN=0; escN<escapeSequences.length; escN++) {
+                                byte [] seq = escapeSequences[escN];
+
+                                if ((limit - i) < seq.length) {
                                     continue checkEscapes;
                                 }
+
+                                for (j=1; j<seq.length; j++) {
+                                    if (seq[j] != text[i+j])  {
+                                        continue checkEscapes;
+                                    }
+                                }
+
+                                hits++;
+                                i += seq.length-1;
+                                continue scanInput;
                             }
 
-                            hits++;
-                            i += seq.length-1;
-                            continue scanInput;
-                        }
+                            misses++;
+                    }
 
-                        misses++;
+                    if (text[i] == 0x0e || text[i] == 0x0f) {
+                        // Shift in/out
+                        shifts++;
+                    }
                 }
+            return i;
+        }
 
-                if (text[i] == 0x0e || text[i] == 0x0f) {
-                    // Shift in/out
-                    shifts++;
-                }
+        /**
+         * @return match quality, in the range of 0-100.
+         */
+        @Override
+        int getConfidence() {
+            int     quality;
+
+            if (hits == 0) {
+                return 0;
             }
 
-        if (hits == 0) {
-            return 0;
-        }
+            //
+            // Initial quality is based on relative proportion of recongized vs.
+            //   unrecognized escape sequences.
+            //   All good:  quality = 100;
+            //   half or less good: quality = 0;
+            //   linear inbetween.
+            quality = (100*hits - 100*misses) / (hits + misses);
+
+            // Back off quality if there were too few escape sequences seen.
+            //   Include shifts in this computation, so that KR does not get penalized
+            //   for having only a single Escape sequence, but many shifts.
+            if (hits+shifts < 5) {
+                quality -= (5-(hits+shifts))*10;
+            }
 
-        //
-        // Initial quality is based on relative proportion of recongized vs.
-        //   unrecognized escape sequences.
-        //   All good:  quality = 100;
-        //   half or less good: quality = 0;
-        //   linear inbetween.
-        quality = (100*hits - 100*misses) / (hits + misses);
-
-        // Back off quality if there were too few escape sequences seen.
-        //   Include shifts in this computation, so that KR does not get penalized
-        //   for having only a single Escape sequence, but many shifts.
-        if (hits+shifts < 5) {
-            quality -= (5-(hits+shifts))*10;
+            if (quality < 0) {
+                quality = 0;
+            }
+            return quality;
         }
 
-        if (quality < 0) {
-            quality = 0;
+        @Override
+        CharsetMatch finish(CharsetDetector det) {
+            if (partialEscape != null) {
+                scan(partialEscape, 0, partialEscape.length, true);
+                partialEscape = null;
+            }
+            int confidence = getConfidence();
+            return confidence == 0 ? null : new CharsetMatch(det, CharsetRecog_2022.this, confidence);
         }
-        return quality;
     }
 
 
@@ -119,9 +191,8 @@ abstract class CharsetRecog_2022 extends CharsetRecognizer {
         }
 
         @Override
-        CharsetMatch   match(CharsetDetector det) {
-            int confidence = match(det.fInputBytes, det.fInputLen, escapeSequences);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+        byte[][] getEscapeSequences() {
+            return escapeSequences;
         }
     }
 
@@ -136,9 +207,8 @@ abstract class CharsetRecog_2022 extends CharsetRecognizer {
         }
 
         @Override
-        CharsetMatch   match(CharsetDetector det) {
-            int confidence =  match(det.fInputBytes, det.fInputLen, escapeSequences);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+        byte[][] getEscapeSequences() {
+            return escapeSequences;
         }
     }
 
@@ -163,9 +233,8 @@ abstract class CharsetRecog_2022 extends CharsetRecognizer {
         }
 
         @Override
-        CharsetMatch   match(CharsetDetector det) {
-            int confidence = match(det.fInputBytes, det.fInputLen, escapeSequences);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+        byte[][] getEscapeSequences() {
+            return escapeSequences;
         }
     }
 
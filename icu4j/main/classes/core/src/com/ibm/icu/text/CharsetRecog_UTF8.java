@@ -18,82 +18,92 @@ class CharsetRecog_UTF8 extends CharsetRecognizer {
         return "UTF-8";
     }
 
-    /* (non-Javadoc)
-     * @see com.ibm.icu.text.CharsetRecognizer#match(com.ibm.icu.text.CharsetDetector)
-     */
     @Override
-    CharsetMatch match(CharsetDetector det) {
-        boolean     hasBOM = false;
-        int         numValid = 0;
-        int         numInvalid = 0;
-        byte        input[] = det.fRawInput;
-        int         i;
-        int         trailBytes = 0;
-        int         confidence;
+    Scanner newScanner() {
+        return new UTF8Scanner();
+    }
 
-        if (det.fRawLength >= 3 &&
-                (input[0] & 0xFF) == 0xef && (input[1] & 0xFF) == 0xbb && (input[2] & 0xFF) == 0xbf) {
-            hasBOM = true;
-        }
+    private static final byte[] BOM = { (byte)0xef, (byte)0xbb, (byte)0xbf };
 
-        // Scan for multi-byte sequences
-        for (i=0; i<det.fRawLength; i++) {
-            int b = input[i];
-            if ((b & 0x80) == 0) {
-                continue;   // ASCII
-            }
+    class UTF8Scanner extends Scanner {
+        private int         bytesSeen = 0;
+        private boolean     hasBOM = true;      // Until a byte differs from the BOM
+        private int         numValid = 0;
+        private int         numInvalid = 0;
+        private int         trailBytes = 0;     // Trail bytes still expected in the current sequence
+
+        @Override
+        void scan(byte[] input, int start, int limit) {
+            int i = start;
 
-            // Hi bit on char found.  Figure out how long the sequence should be
-            if ((b & 0x0e0) == 0x0c0) {
-                trailBytes = 1;
-            } else if ((b & 0x0f0) == 0x0e0) {
-                trailBytes = 2;
-            } else if ((b & 0x0f8) == 0xf0) {
-                trailBytes = 3;
-            } else {
-                numInvalid++;
-                continue;
+            // Check for a BOM in the first three bytes of the whole input.
+            for (; bytesSeen < 3 && i < limit; ++i) {
+                if (input[i] != BOM[bytesSeen++]) {
+                    hasBOM = false;
+                }
             }
 
-            // Verify that we've got the right number of trail bytes in the sequence
-            for (;;) {
-                i++;
-                if (i>=det.fRawLength) {
-                    break;
+            // Scan for multi-byte sequences
+            for (i = start; i < limit; i++) {
+                int b = input[i];
+                if (trailBytes > 0) {
+                    // Verify that we've got the right number of trail bytes in the sequence
+                    if ((b & 0xc0) != 0x080) {
+                        numInvalid++;
+                        trailBytes = 0;
+                    } else if (--trailBytes == 0) {
+                        numValid++;
+                    }
+                    continue;
                 }
-                b = input[i];
-                if ((b & 0xc0) != 0x080) {
-                    numInvalid++;
-                    break;
+                if ((b & 0x80) == 0) {
+                    continue;   // ASCII
                 }
-                if (--trailBytes == 0) {
-                    numValid++;
-                    break;
+
+                // Hi bit on char found.  Figure out how long the sequence should be
+                if ((b & 0x0e0) == 0x0c0) {
+                    trailBytes = 1;
+                } else if ((b & 0x0f0) == 0x0e0) {
+                    trailBytes = 2;
+                } else if ((b & 0x0f8) == 0xf0) {
+                    trailBytes = 3;
+                } else {
+                    numInvalid++;
                 }
             }
         }
 
-        // Cook up some sort of confidence score, based on presense of a BOM
-        //    and the existence of valid and/or invalid multi-byte sequences.
-        confidence = 0;
-        if (hasBOM && numInvalid==0) {
-            confidence = 100;
-        } else if (hasBOM && numValid > numInvalid*10) {
-            confidence = 80;
-        } else if (numValid > 3 && numInvalid == 0) {
-            confidence = 100;
-        } else if (numValid > 0 && numInvalid == 0) {
-            confidence = 80;
-        } else if (numValid == 0 && numInvalid == 0) {
-            // Plain ASCII. Confidence must be > 10, it's more likely than UTF-16, which
-            //              accepts ASCII with confidence = 10.
-            // TODO: add plain ASCII as an explicitly detected type.
-            confidence = 15;
-        } else if (numValid > numInvalid*10) {
-            // Probably corruput utf-8 data.  Valid sequences aren't likely by chance.
-            confidence = 25;
+        @Override
+        int getConfidence() {
+            boolean hasBOM = this.hasBOM && bytesSeen == 3;
+
+            // Cook up some sort of confidence score, based on presense of a BOM
+            //    and the existence of valid and/or invalid multi-byte sequences.
+            int confidence = 0;
+            if (hasBOM && numInvalid==0) {
+                confidence = 100;
+            } else if (hasBOM && numValid > numInvalid*10) {
+                confidence = 80;
+            } else if (numValid > 3 && numInvalid == 0) {
+                confidence = 100;
+            } else if (numValid > 0 && numInvalid == 0) {
+                confidence = 80;
+            } else if (numValid == 0 && numInvalid == 0) {
+                // Plain ASCII. Confidence must be > 10, it's more likely than UTF-16, which
+                //              accepts ASCII with confidence = 10.
+                // TODO: add plain ASCII as an explicitly detected type.
+                confidence = 15;
+            } else if (numValid > numInvalid*10) {
+                // Probably corruput utf-8 data.  Valid sequences aren't likely by chance.
+                confidence = 25;
+            }
+            return confidence;
+        }
+
+        @Override
+        CharsetMatch finish(CharsetDetector det) {
+            int confidence = getConfidence();
+            return confidence == 0 ? null : new CharsetMatch(det, CharsetRecog_UTF8.this, confidence);
         }
-        return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
     }
-
 }
@@ -22,12 +22,6 @@ abstract class CharsetRecog_Unicode extends CharsetRecognizer {
     @Override
     abstract String getName();
 
-    /* (non-Javadoc)
-     * @see com.ibm.icu.text.CharsetRecognizer#match(com.ibm.icu.text.CharsetDetector)
-     */
-    @Override
-    abstract CharsetMatch match(CharsetDetector det);
-
     static int codeUnit16FromBytes(byte hi, byte lo) {
         return ((hi & 0xff) << 8) | (lo & 0xff);
     }
@@ -51,75 +45,103 @@ abstract class CharsetRecog_Unicode extends CharsetRecognizer {
         return confidence;
     }
 
-    static class CharsetRecog_UTF_16_BE extends CharsetRecog_Unicode
+    /**
+     * UTF-16 is recognized from the first 30 bytes of the input.
+     */
+    static abstract class CharsetRecog_UTF_16 extends CharsetRecog_Unicode
     {
+        abstract int getCodeUnit(byte[] input, int index);
+
         @Override
-        String getName()
+        CharsetMatch match(CharsetDetector det)
         {
-            return "UTF-16BE";
+            // Looks at the whole input array, not just fRawLength bytes of it.
+            Scanner scanner = newScanner();
+            scanner.scan(det.fRawInput, 0, det.fRawInput.length);
+            return scanner.finish(det);
         }
 
         @Override
-        CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            byte[] input = det.fRawInput;
-            int confidence = 10;
+            return new UTF16Scanner();
+        }
 
-            int bytesToCheck = Math.min(input.length, 30);
-            for (int charIndex=0; charIndex<bytesToCheck-1; charIndex+=2) {
-                int codeUnit = codeUnit16FromBytes(input[charIndex], input[charIndex + 1]);
-                if (charIndex == 0 && codeUnit == 0xFEFF) {
-                    confidence = 100;
-                    break;
+        class UTF16Scanner extends Scanner
+        {
+            private byte[] prefix = new byte[30];
+            private int prefixLength = 0;
+
+            @Override
+            void scan(byte[] input, int start, int limit)
+            {
+                int length = Math.min(limit - start, prefix.length - prefixLength);
+                System.arraycopy(input, start, prefix, prefixLength, length);
+                prefixLength += length;
+            }
+
+            @Override
+            int getConfidence()
+            {
+                int confidence = 10;
+
+                int bytesToCheck = prefixLength;
+                for (int charIndex=0; charIndex<bytesToCheck-1; charIndex+=2) {
+                    int codeUnit = getCodeUnit(prefix, charIndex);
+                    if (charIndex == 0 && codeUnit == 0xFEFF) {
+                        confidence = 100;
+                        break;
+                    }
+                    confidence = adjustConfidence(codeUnit, confidence);
+                    if (confidence == 0 || confidence == 100) {
+                        break;
+                    }
                 }
-                confidence = adjustConfidence(codeUnit, confidence);
-                if (confidence == 0 || confidence == 100) {
-                    break;
+                if (bytesToCheck < 4 && confidence < 100) {
+                    confidence = 0;
                 }
+                return confidence;
             }
-            if (bytesToCheck < 4 && confidence < 100) {
-                confidence = 0;
-            }
-            if (confidence > 0) {
-                return new CharsetMatch(det, this, confidence);
+
+            @Override
+            CharsetMatch finish(CharsetDetector det)
+            {
+                int confidence = getConfidence();
+                if (confidence > 0) {
+                    return new CharsetMatch(det, CharsetRecog_UTF_16.this, confidence);
+                }
+                return null;
             }
-            return null;
         }
     }
 
-    static class CharsetRecog_UTF_16_LE extends CharsetRecog_Unicode
+    static class CharsetRecog_UTF_16_BE extends CharsetRecog_UTF_16
     {
+        @Override
+        int getCodeUnit(byte[] input, int index)
+        {
+            return codeUnit16FromBytes(input[index], input[index + 1]);
+        }
+
         @Override
         String getName()
         {
-            return "UTF-16LE";
+            return "UTF-16BE";
         }
+    }
 
+    static class CharsetRecog_UTF_16_LE extends CharsetRecog_UTF_16
+    {
         @Override
-        CharsetMatch match(CharsetDetector det)
+        int getCodeUnit(byte[] input, int index)
         {
-            byte[] input = det.fRawInput;
-            int confidence = 10;
+            return codeUnit16FromBytes(input[index+1], input[index]);
+        }
 
-            int bytesToCheck = Math.min(input.length, 30);
-            for (int charIndex=0; charIndex<bytesToCheck-1; charIndex+=2) {
-                int codeUnit = codeUnit16FromBytes(input[charIndex+1], input[charIndex]);
-                if (charIndex == 0 && codeUnit == 0xFEFF) {
-                    confidence = 100;
-                    break;
-                }
-                confidence = adjustConfidence(codeUnit, confidence);
-                if (confidence == 0 || confidence == 100) {
-                    break;
-                }
-            }
-            if (bytesToCheck < 4 && confidence < 100) {
-                confidence = 0;
-            }
-            if (confidence > 0) {
-                return new CharsetMatch(det, this, confidence);
-            }
-            return null;
+        @Override
+        String getName()
+        {
+            return "UTF-16LE";
         }
     }
 
@@ -131,25 +153,28 @@ abstract class CharsetRecog_Unicode extends CharsetRecognizer {
         abstract String getName();
 
         @Override
-        CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            byte[] input   = det.fRawInput;
-            int limit      = (det.fRawLength / 4) * 4;
-            int numValid   = 0;
-            int numInvalid = 0;
-            boolean hasBOM = false;
-            int confidence = 0;
-
-            if (limit==0) {
-                return null;
-            }
-            if (getChar(input, 0) == 0x0000FEFF) {
-                hasBOM = true;
-            }
+            return new UTF32Scanner();
+        }
 
-            for(int i = 0; i < limit; i += 4) {
-                int ch = getChar(input, i);
+        class UTF32Scanner extends Scanner
+        {
+            private byte[] unit = new byte[4];  // Bytes of a code unit split between pieces of input
+            private int unitLength = 0;
+            private int numValid   = 0;
+            private int numInvalid = 0;
+            private boolean hasBOM = false;
+            private boolean sawFirstChar = false;
 
+            private void addChar(int ch)
+            {
+                if (!sawFirstChar) {
+                    sawFirstChar = true;
+                    if (ch == 0x0000FEFF) {
+                        hasBOM = true;
+                    }
+                }
                 if (ch < 0 || ch >= 0x10FFFF || (ch >= 0xD800 && ch <= 0xDFFF)) {
                     numInvalid += 1;
                 } else {
@@ -157,23 +182,56 @@ abstract class CharsetRecog_Unicode extends CharsetRecognizer {
                 }
             }
 
+            @Override
+            void scan(byte[] input, int start, int limit)
+            {
+                int i = start;
+                if (unitLength > 0) {
+                    while (unitLength < 4 && i < limit) {
+                        unit[unitLength++] = input[i++];
+                    }
+                    if (unitLength < 4) {
+                        return;
+                    }
+                    addChar(getChar(unit, 0));
+                    unitLength = 0;
+                }
+                for(; i + 4 <= limit; i += 4) {
+                    addChar(getChar(input, i));
+                }
+                while (i < limit) {
+                    unit[unitLength++] = input[i++];
+                }
+            }
+
+            @Override
+            int getConfidence()
+            {
+                int confidence = 0;
 
-            // Cook up some sort of confidence score, based on presence of a BOM
-            //    and the existence of valid and/or invalid multi-byte sequences.
-            if (hasBOM && numInvalid==0) {
-                confidence = 100;
-            } else if (hasBOM && numValid > numInvalid*10) {
-                confidence = 80;
-            } else if (numValid > 3 && numInvalid == 0) {
-                confidence = 100;
-            } else if (numValid > 0 && numInvalid == 0) {
-                confidence = 80;
-            } else if (numValid > numInvalid*10) {
-                // Probably corrupt UTF-32BE data.  Valid sequences aren't likely by chance.
-                confidence = 25;
+                // Cook up some sort of confidence score, based on presence of a BOM
+                //    and the existence of valid and/or invalid multi-byte sequences.
+                if (hasBOM && numInvalid==0) {
+                    confidence = 100;
+                } else if (hasBOM && numValid > numInvalid*10) {
+                    confidence = 80;
+                } else if (numValid > 3 && numInvalid == 0) {
+                    confidence = 100;
+                } else if (numValid > 0 && numInvalid == 0) {
+                    confidence = 80;
+                } else if (numValid > numInvalid*10) {
+                    // Probably corrupt UTF-32BE data.  Valid sequences aren't likely by chance.
+                    confidence = 25;
+                }
+                return confidence;
             }
 
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+            @Override
+            CharsetMatch finish(CharsetDetector det)
+            {
+                int confidence = getConfidence();
+                return confidence == 0 ? null : new CharsetMatch(det, CharsetRecog_UTF_32.this, confidence);
+            }
         }
     }
 
@@ -34,101 +34,182 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
 
 
     /**
-     * Test the match of this charset with the input text data
-     *      which is obtained via the CharsetDetector object.
-     *
-     * @param det  The CharsetDetector, which contains the input text
-     *             to be checked for being in this charset.
-     * @return     Two values packed into one int  (Damn java, anyhow)
-     *             <br/>
-     *             bits 0-7:  the match confidence, ranging from 0-100
-     *             <br/>
-     *             bits 8-15: The match reason, an enum-like value.
+     * Scanner for the double or multi-byte charsets.
+     * The statistics are based on the characters of the encoding scheme,
+     * and optionally on frequently occurring characters.
      */
-    int match(CharsetDetector det, int [] commonChars) {
+    class MBCSScanner extends Scanner {
+        private final int[] commonChars;  // Frequently occuring multi-byte chars, or null.
+
         @SuppressWarnings("unused")
-        int   singleByteCharCount = 0;  //TODO Do we really need this?
-        int   doubleByteCharCount = 0;
-        int   commonCharCount     = 0;
-        int   badCharCount        = 0;
-        int   totalCharCount      = 0;
-        int   confidence          = 0;
-        iteratedChar   iter       = new iteratedChar();
-
-        detectBlock: {
-            for (iter.reset(); nextChar(iter, det);) {
-                totalCharCount++;
-                if (iter.error) {
-                    badCharCount++;
-                } else {
-                    long cv = iter.charValue & 0xFFFFFFFFL;
-
-                    if (cv <= 0xff) {
-                        singleByteCharCount++;
-                    } else {
-                        doubleByteCharCount++;
-                        if (commonChars != null) {
-                            // NOTE: This assumes that there are no 4-byte common chars.
-                            if (Arrays.binarySearch(commonChars, (int) cv) >= 0) {
-                                commonCharCount++;
-                            }
-                        }
+        private int   singleByteCharCount = 0;  //TODO Do we really need this?
+        private int   doubleByteCharCount = 0;
+        private int   commonCharCount     = 0;
+        private int   badCharCount        = 0;
+        private int   totalCharCount      = 0;
+        private boolean bailedOut         = false;
+        private iteratedChar iter         = new iteratedChar();
+
+        // The bytes of a character that is split between pieces of the input.
+        private byte[] partialChar        = new byte[8];
+        private int   partialCharLength   = 0;
+
+        MBCSScanner(int[] commonChars) {
+            this.commonChars = commonChars;
+        }
+
+        @Override
+        void scan(byte[] input, int start, int limit) {
+            if (bailedOut) {
+                return;
+            }
+            if (partialCharLength > 0) {
+                // Complete the character with at most four more bytes.
+                int length = Math.min(limit - start, 4);
+                System.arraycopy(input, start, partialChar, partialCharLength, length);
+                int partialLimit = partialCharLength + length;
+                iter.reset(partialChar, 0, partialLimit);
+                if (!nextChar(iter)) {
+                    if (iter.done) {
+                        // Still incomplete.
+                        partialCharLength = partialLimit;
                     }
+                    return;
                 }
-                if (badCharCount >= 2 && badCharCount*5 >= doubleByteCharCount) {
-                    // Bail out early if the byte data is not matching the encoding scheme.
-                    break detectBlock;
+                start += iter.nextIndex - partialCharLength;
+                partialCharLength = 0;
+                if (!addChar()) {
+                    return;
                 }
             }
 
-            if (doubleByteCharCount <= 10 && badCharCount== 0) {
-                // Not many multi-byte chars.
-                if (doubleByteCharCount == 0 && totalCharCount < 10) {
-                    // There weren't any multibyte sequences, and there was a low density of non-ASCII single bytes.
-                    // We don't have enough data to have any confidence.
-                    // Statistical analysis of single byte non-ASCII charcters would probably help here.
-                    confidence = 0;
+            iter.reset(input, start, limit);
+            for (;;) {
+                int charStart = iter.nextIndex;
+                if (!nextChar(iter)) {
+                    if (iter.done && limit > charStart) {
+                        // Keep the bytes of the incomplete character for the next piece.
+                        partialCharLength = limit - charStart;
+                        System.arraycopy(input, charStart, partialChar, 0, partialCharLength);
+                    }
+                    break;
                 }
-                else {
-                    //   ASCII or ISO file?  It's probably not our encoding,
-                    //   but is not incompatible with our encoding, so don't give it a zero.
-                    confidence = 10;
+                if (!addChar()) {
+                    break;
                 }
-
-                break detectBlock;
             }
-
-            //
-            //  No match if there are too many characters that don't fit the encoding scheme.
-            //    (should we have zero tolerance for these?)
-            //
-            if (doubleByteCharCount < 20*badCharCount) {
-                confidence = 0;
-                break detectBlock;
+        }
+
+        /**
+         * Add the character in iter to the statistics.
+         * @return false if the byte data is not matching the encoding scheme.
+         */
+        private boolean addChar() {
+            totalCharCount++;
+            if (iter.error) {
+                badCharCount++;
+            } else {
+                long cv = iter.charValue & 0xFFFFFFFFL;
+
+                if (cv <= 0xff) {
+                    singleByteCharCount++;
+                } else {
+                    doubleByteCharCount++;
+                    if (commonChars != null) {
+                        // NOTE: This assumes that there are no 4-byte common chars.
+                        if (Arrays.binarySearch(commonChars, (int) cv) >= 0) {
+                            commonCharCount++;
+                        }
+                    }
+                }
+            }
+            if (badCharCount >= 2 && badCharCount*5 >= doubleByteCharCount) {
+                // Bail out early if the byte data is not matching the encoding scheme.
+                bailedOut = true;
+                return false;
             }
+            return true;
+        }
+
+        /**
+         * @return the match confidence, ranging from 0-100.
+         */
+        @Override
+        int getConfidence() {
+            int confidence = 0;
+
+            detectBlock: {
+                if (bailedOut) {
+                    break detectBlock;
+                }
 
-            if (commonChars == null) {
-                // We have no statistics on frequently occuring characters.
-                //  Assess confidence purely on having a reasonable number of
-                //  multi-byte characters (the more the better
-                confidence = 30 + doubleByteCharCount - 20*badCharCount;
-                if (confidence > 100) {
-                    confidence = 100;
+                if (doubleByteCharCount <= 10 && badCharCount== 0) {
+                    // Not many multi-byte chars.
+                    if (doubleByteCharCount == 0 && totalCharCount < 10) {
+                        // There weren't any multibyte sequences, and there was a low density of non-ASCII single bytes.
+                        // We don't have enough data to have any confidence.
+                        // Statistical analysis of single byte non-ASCII charcters would probably help here.
+                        confidence = 0;
+                    }
+                    else {
+                        //   ASCII or ISO file?  It's probably not our encoding,
+                        //   but is not incompatible with our encoding, so don't give it a zero.
+                        confidence = 10;
+                    }
+
+                    break detectBlock;
                 }
-            }else {
+
                 //
-                // Frequency of occurence statistics exist.
+                //  No match if there are too many characters that don't fit the encoding scheme.
+                //    (should we have zero tolerance for these?)
                 //
-                double maxVal = Math.log((float)doubleByteCharCount / 4);
-                double scaleFactor = 90.0 / maxVal;
-                confidence = (int)(Math.log(commonCharCount+1) * scaleFactor + 10);
-                confidence = Math.min(confidence, 100);
-            }
-        }   // end of detectBlock:
+                if (doubleByteCharCount < 20*badCharCount) {
+                    confidence = 0;
+                    break detectBlock;
+                }
 
-        return confidence;
+                if (commonChars == null) {
+                    // We have no statistics on frequently occuring characters.
+                    //  Assess confidence purely on having a reasonable number of
+                    //  multi-byte characters (the more the better
+                    confidence = 30 + doubleByteCharCount - 20*badCharCount;
+                    if (confidence > 100) {
+                        confidence = 100;
+                    }
+                }else {
+                    //
+                    // Frequency of occurence statistics exist.
+                    //
+                    double maxVal = Math.log((float)doubleByteCharCount / 4);
+                    double scaleFactor = 90.0 / maxVal;
+                    confidence = (int)(Math.log(commonCharCount+1) * scaleFactor + 10);
+                    confidence = Math.min(confidence, 100);
+                }
+            }   // end of detectBlock:
+
+            return confidence;
+        }
+
+        @Override
+        CharsetMatch finish(CharsetDetector det) {
+            // An incomplete character at the end of the input is ignored.
+            int confidence = getConfidence();
+            return confidence == 0 ? null : new CharsetMatch(det, CharsetRecog_mbcs.this, confidence);
+        }
+    }
+
+    @Override
+    Scanner newScanner() {
+        return new MBCSScanner(getCommonChars());
     }
 
+    /**
+     * Get the frequently occurring multi-byte characters of this charset.
+     * @return the sorted character values, or null if there are no statistics.
+     */
+    abstract int[] getCommonChars();
+
      // "Character"  iterated character class.
      //    Recognizers for specific mbcs encodings make their "characters" available
      //    by providing a nextChar() function that fills in an instance of iteratedChar
@@ -145,20 +226,24 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
          int             nextIndex = 0;
          boolean         error     = false;
          boolean         done      = false;
+         byte[]          input;
+         int             limit     = 0;
 
-         void reset() {
+         void reset(byte[] input, int start, int limit) {
              charValue = 0;
-             nextIndex = 0;
+             nextIndex = start;
              error     = false;
              done      = false;
+             this.input = input;
+             this.limit = limit;
          }
 
-         int nextByte(CharsetDetector det) {
-             if (nextIndex >= det.fRawLength) {
+         int nextByte() {
+             if (nextIndex >= limit) {
                  done = true;
                  return -1;
              }
-             int byteValue = det.fRawInput[nextIndex++] & 0x00ff;
+             int byteValue = input[nextIndex++] & 0x00ff;
              return byteValue;
          }
      }
@@ -171,11 +256,9 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
       *  This function is not a method of class iteratedChar only because
       *   that would require a lot of extra derived classes, which is awkward.
       * @param it  The iteratedChar "struct" into which the returned char is placed.
-      * @param det The charset detector, which is needed to get at the input byte data
-      *            being iterated over.
       * @return    True if a character was returned, false at end of input.
       */
-     abstract boolean nextChar(iteratedChar it, CharsetDetector det);
+     abstract boolean nextChar(iteratedChar it);
 
 
 
@@ -198,10 +281,10 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
              0x838a, 0x838b, 0x838d, 0x8393, 0x8e96, 0x93fa, 0x95aa};
 
          @Override
-        boolean nextChar(iteratedChar it, CharsetDetector det) {
+        boolean nextChar(iteratedChar it) {
              it.error = false;
              int firstByte;
-             firstByte = it.charValue = it.nextByte(det);
+             firstByte = it.charValue = it.nextByte();
              if (firstByte < 0) {
                  return false;
              }
@@ -210,7 +293,7 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
                  return true;
              }
 
-             int secondByte = it.nextByte(det);
+             int secondByte = it.nextByte();
              if (secondByte < 0)  {
                  return false;
              }
@@ -223,9 +306,8 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
          }
 
          @Override
-        CharsetMatch match(CharsetDetector det) {
-             int confidence = match(det, commonChars);
-             return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+         int[] getCommonChars() {
+             return commonChars;
          }
 
          @Override
@@ -264,10 +346,10 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
              0xbba1, 0xbdd1, 0xc2c4, 0xc3b9, 0xc440, 0xc45f};
 
          @Override
-        boolean nextChar(iteratedChar it, CharsetDetector det) {
+        boolean nextChar(iteratedChar it) {
              it.error = false;
              int firstByte;
-             firstByte = it.charValue = it.nextByte(det);
+             firstByte = it.charValue = it.nextByte();
              if (firstByte < 0) {
                  return false;
              }
@@ -277,7 +359,7 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
                  return true;
              }
 
-             int secondByte = it.nextByte(det);
+             int secondByte = it.nextByte();
              if (secondByte < 0)  {
                  return false;
              }
@@ -292,9 +374,8 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
          }
 
          @Override
-        CharsetMatch match(CharsetDetector det) {
-             int confidence = match(det, commonChars);
-             return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+         int[] getCommonChars() {
+             return commonChars;
          }
 
          @Override
@@ -326,7 +407,7 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
           *     packed into an int.
           */
          @Override
-        boolean nextChar(iteratedChar it, CharsetDetector det) {
+        boolean nextChar(iteratedChar it) {
              it.error = false;
              int firstByte  = 0;
              int secondByte = 0;
@@ -334,7 +415,7 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
              //int fourthByte = 0;
 
              buildChar: {
-                 firstByte = it.charValue = it.nextByte(det);
+                 firstByte = it.charValue = it.nextByte();
                  if (firstByte < 0) {
                      // Ran off the end of the input data
                      it.done = true;
@@ -345,7 +426,7 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
                      break buildChar;
                  }
 
-                 secondByte = it.nextByte(det);
+                 secondByte = it.nextByte();
                  it.charValue = (it.charValue << 8) | secondByte;
 
                  if (firstByte >= 0xA1 && firstByte <= 0xfe) {
@@ -371,7 +452,7 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
                  if (firstByte == 0x8f) {
                      // Code set 3.
                      // Three byte total char size, two bytes of actual char value.
-                     thirdByte    = it.nextByte(det);
+                     thirdByte    = it.nextByte();
                      it.charValue = (it.charValue << 8) | thirdByte;
                      if (thirdByte < 0xa1) {
                          it.error = true;
@@ -407,9 +488,8 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
              }
 
              @Override
-            CharsetMatch match(CharsetDetector det) {
-                 int confidence = match(det, commonChars);
-                 return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+             int[] getCommonChars() {
+                 return commonChars;
              }
 
              @Override
@@ -445,9 +525,8 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
              }
 
              @Override
-            CharsetMatch match(CharsetDetector det) {
-                 int confidence = match(det, commonChars);
-                 return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+             int[] getCommonChars() {
+                 return commonChars;
              }
 
              @Override
@@ -472,7 +551,7 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
           *     packed into an int.
           */
          @Override
-        boolean nextChar(iteratedChar it, CharsetDetector det) {
+        boolean nextChar(iteratedChar it) {
              it.error = false;
              int firstByte  = 0;
              int secondByte = 0;
@@ -480,7 +559,7 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
              int fourthByte = 0;
 
              buildChar: {
-                 firstByte = it.charValue = it.nextByte(det);
+                 firstByte = it.charValue = it.nextByte();
 
                  if (firstByte < 0) {
                      // Ran off the end of the input data
@@ -493,7 +572,7 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
                      break buildChar;
                  }
 
-                 secondByte = it.nextByte(det);
+                 secondByte = it.nextByte();
                  it.charValue = (it.charValue << 8) | secondByte;
 
                  if (firstByte >= 0x81 && firstByte <= 0xFE) {
@@ -504,10 +583,10 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
 
                      // Four byte char
                      if (secondByte >= 0x30 && secondByte <= 0x39) {
-                         thirdByte = it.nextByte(det);
+                         thirdByte = it.nextByte();
 
                          if (thirdByte >= 0x81 && thirdByte <= 0xFE) {
-                             fourthByte = it.nextByte(det);
+                             fourthByte = it.nextByte();
 
                              if (fourthByte >= 0x30 && fourthByte <= 0x39) {
                                  it.charValue = (it.charValue << 16) | (thirdByte << 8) | fourthByte;
@@ -546,9 +625,8 @@ abstract class CharsetRecog_mbcs extends CharsetRecognizer {
          }
 
          @Override
-        CharsetMatch match(CharsetDetector det) {
-             int confidence = match(det, commonChars);
-             return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+         int[] getCommonChars() {
+             return commonChars;
          }
 
          @Override
@@ -10,6 +10,8 @@
 
 package com.ibm.icu.text;
 
+import java.util.Arrays;
+
 /**
  * This class recognizes single-byte encodings. Because the encoding scheme is so
  * simple, language statistics are used to do the matching.
@@ -22,82 +24,111 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
     @Override
     abstract String getName();
 
-    static class NGramParser
+    /**
+     * The n-gram lists of one or more languages, combined into one open-addressing hash table.
+     * Looking up an n-gram yields the set of the lists that contain it, as a bit mask,
+     * so that each n-gram of the input is looked up only once for all of the languages.
+     */
+    static final class NGramTable
     {
-//        private static final int N_GRAM_SIZE = 3;
-        private static final int N_GRAM_MASK = 0xFFFFFF;
-
-        protected int byteIndex = 0;
-        private int ngram = 0;
-
-        private int[] ngramList;
-        protected byte[] byteMap;
+        private static final int EMPTY = -1;    // Not an n-gram, which has only 24 bits.
 
-        private int ngramCount;
-        private int hitCount;
-
-        protected byte spaceChar;
+        private final int[] keys;
+        private final int[] lists;              // For each n-gram in keys, the bit set of its lists.
+        private final int shift;
+        private final int listCount;
 
-        public NGramParser(int[] theNgramList, byte[] theByteMap)
+        NGramTable(int[][] ngramLists)
         {
-            ngramList = theNgramList;
-            byteMap   = theByteMap;
-
-            ngram = 0;
-
-            ngramCount = hitCount = 0;
+            if (ngramLists.length > 32) {
+                throw new IllegalArgumentException("too many n-gram lists: " + ngramLists.length);
+            }
+            int total = 0;
+            for (int[] list : ngramLists) {
+                total += list.length;
+            }
+            // Keep the table at most one quarter full, for short probe sequences.
+            int bits = 32 - Integer.numberOfLeadingZeros(Math.max(total, 1) * 4 - 1);
+            keys = new int[1 << bits];
+            lists = new int[1 << bits];
+            shift = 32 - bits;
+            listCount = ngramLists.length;
+            Arrays.fill(keys, EMPTY);
+            for (int i = 0; i < ngramLists.length; ++i) {
+                for (int ngram : ngramLists[i]) {
+                    int index = indexOf(ngram);
+                    keys[index] = ngram;
+                    lists[index] |= 1 << i;
+                }
+            }
         }
 
         /*
-         * Binary search for value in table, which must have exactly 64 entries.
+         * Returns the index of the n-gram in the table,
+         * or the index of the empty slot where it would be inserted.
          */
-        private static int search(int[] table, int value)
+        private int indexOf(int ngram)
         {
-            int index = 0;
-
-            if (table[index + 32] <= value) {
-                index += 32;
+            int index = (ngram * 0x9E3779B1) >>> shift;
+            int key;
+            while ((key = keys[index]) != ngram && key != EMPTY) {
+                index = (index + 1) & (keys.length - 1);
             }
+            return index;
+        }
 
-            if (table[index + 16] <= value) {
-                index += 16;
-            }
+        /**
+         * Returns a bit set with bit i set if the n-gram is in list i.
+         */
+        int lookup(int ngram)
+        {
+            return lists[indexOf(ngram)];
+        }
 
-            if (table[index + 8] <= value) {
-                index += 8;
-            }
+        int getListCount()
+        {
+            return listCount;
+        }
+    }
 
-            if (table[index + 4] <= value) {
-                index += 4;
-            }
+    /**
+     * Parses the input into n-grams and counts how many of them are in each list of an NGramTable.
+     */
+    static class NGramParser
+    {
+//        private static final int N_GRAM_SIZE = 3;
+        private static final int N_GRAM_MASK = 0xFFFFFF;
 
-            if (table[index + 2] <= value) {
-                index += 2;
-            }
+        private int ngram = 0;
 
-            if (table[index + 1] <= value) {
-                index += 1;
-            }
+        private final NGramTable ngramTable;
+        protected byte[] byteMap;
 
-            if (table[index] > value) {
-                index -= 1;
-            }
+        private int ngramCount;
+        private final int[] hitCounts;
 
-            if (index < 0 || table[index] != value) {
-                return -1;
-            }
+        protected byte spaceChar;
+        protected boolean ignoreSpace = false;
 
-            return index;
+        public NGramParser(NGramTable theNgramTable, byte[] theByteMap, byte theSpaceChar)
+        {
+            ngramTable = theNgramTable;
+            byteMap   = theByteMap;
+            spaceChar = theSpaceChar;
+
+            ngram = 0;
+
+            ngramCount = 0;
+            hitCounts = new int[theNgramTable.getListCount()];
         }
 
         private void lookup(int thisNgram)
         {
             ngramCount += 1;
 
-            if (search(ngramList, thisNgram) >= 0) {
-                hitCount += 1;
+            for (int lists = ngramTable.lookup(thisNgram); lists != 0; lists &= lists - 1) {
+                hitCounts[Integer.numberOfTrailingZeros(lists)] += 1;
             }
-
         }
 
         protected void addByte(int b)
@@ -106,50 +137,35 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
             lookup(ngram);
         }
 
-        private int nextByte(CharsetDetector det)
+        protected void addMappedByte(byte mb)
         {
-            if (byteIndex >= det.fInputLen) {
-                return -1;
-            }
+            // TODO: 0x20 might not be a space in all character sets...
+            if (mb != 0) {
+                if (!(mb == spaceChar && ignoreSpace)) {
+                    addByte(mb);
+                }
 
-            return det.fInputBytes[byteIndex++] & 0xFF;
+                ignoreSpace = (mb == spaceChar);
+            }
         }
 
-        protected void parseCharacters(CharsetDetector det)
+        protected void parseCharacters(byte[] input, int start, int limit)
         {
-            int b;
-            boolean ignoreSpace = false;
-
-            while ((b = nextByte(det)) >= 0) {
-                byte mb = byteMap[b];
-
-                // TODO: 0x20 might not be a space in all character sets...
-                if (mb != 0) {
-                    if (!(mb == spaceChar && ignoreSpace)) {
-                        addByte(mb);
-                    }
-
-                    ignoreSpace = (mb == spaceChar);
-                }
+            for (int i = start; i < limit; ++i) {
+                addMappedByte(byteMap[input[i] & 0xFF]);
             }
-
         }
 
-        public int parse(CharsetDetector det)
-        {
-            return parse (det, (byte)0x20);
-        }
-        public int parse(CharsetDetector det, byte spaceCh)
+        /**
+         * Returns the confidence for the language of the n-gram list with the given index.
+         */
+        public int getConfidence(int list)
         {
+            if (ngramCount == 0) {
+                return 0;
+            }
 
-            this.spaceChar = spaceCh;
-
-            parseCharacters(det);
-
-            // TODO: Is this OK? The buffer could have ended in the middle of a word...
-            addByte(spaceChar);
-
-            double rawPercent = (double) hitCount / (double) ngramCount;
+            double rawPercent = (double) hitCounts[list] / (double) ngramCount;
 
 //                if (rawPercent <= 2.0) {
 //                    return 0;
@@ -163,6 +179,24 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
 
             return (int) (rawPercent * 300.0);
         }
+
+        /**
+         * Returns the highest confidence of all of the languages.
+         */
+        public int getConfidence()
+        {
+            int confidence = 0;
+            for (int i = 0; i < hitCounts.length; ++i) {
+                confidence = Math.max(confidence, getConfidence(i));
+            }
+            return confidence;
+        }
+
+        public void finish()
+        {
+            // TODO: Is this OK? The buffer could have ended in the middle of a word...
+            addByte(spaceChar);
+        }
     }
 
     static class NGramParser_IBM420 extends NGramParser
@@ -190,9 +224,11 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
         };
 
 
-        public NGramParser_IBM420(int[] theNgramList, byte[] theByteMap)
+        private boolean stopped = false;
+
+        public NGramParser_IBM420(NGramTable theNgramTable, byte[] theByteMap, byte theSpaceChar)
         {
-           super(theNgramList, theByteMap);
+           super(theNgramTable, theByteMap, theSpaceChar);
         }
 
         private byte isLamAlef(byte b) {
@@ -213,73 +249,130 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
          * on CharsetICU which we try to avoid. IBM420 converter amongst different versions
          * of JDK can produce different results and therefore is also avoided.
          */
-         private int nextByte(CharsetDetector det)
-         {
-             if (byteIndex >= det.fInputLen || det.fInputBytes[byteIndex] == 0) {
-                 return -1;
-             }
-            int next;
-
-            alef = isLamAlef(det.fInputBytes[byteIndex]);
-            if(alef != (byte)0x00)
-                next = 0xB1 & 0xFF;
-            else
-                next = unshapeMap[det.fInputBytes[byteIndex]& 0xFF] & 0xFF;
-
-            byteIndex++;
-
-            return next;
-         }
-
          @Override
-         protected void parseCharacters(CharsetDetector det)
+         protected void parseCharacters(byte[] input, int start, int limit)
          {
-             int b;
-             boolean ignoreSpace = false;
-
-             while ((b = nextByte(det)) >= 0) {
-                 byte mb = byteMap[b];
-
-                 // TODO: 0x20 might not be a space in all character sets...
-                 if (mb != 0) {
-                     if (!(mb == spaceChar && ignoreSpace)) {
-                         addByte(mb);
-                     }
-
-                     ignoreSpace = (mb == spaceChar);
+             // A NUL byte ends the text.
+             for (int i = start; i < limit && !stopped; ++i) {
+                 if (input[i] == 0) {
+                     stopped = true;
+                     break;
                  }
+                 int b;
+                 alef = isLamAlef(input[i]);
+                 if(alef != (byte)0x00)
+                     b = 0xB1 & 0xFF;
+                 else
+                     b = unshapeMap[input[i]& 0xFF] & 0xFF;
+
+                 addMappedByte(byteMap[b]);
                  if(alef != (byte)0x00){
-                     mb = byteMap[alef & 0xFF];
-
-                     // TODO: 0x20 might not be a space in all character sets...
-                     if (mb != 0) {
-                         if (!(mb == spaceChar && ignoreSpace)) {
-                             addByte(mb);
-                         }
-
-                         ignoreSpace = (mb == spaceChar);
-                     }
-
+                     addMappedByte(byteMap[alef & 0xFF]);
                  }
              }
         }
     }
 
 
-    int match(CharsetDetector det, int[] ngrams,  byte[] byteMap)
+    // The n-gram table of this recognizer, built on first use.
+    private volatile NGramTable ngramTable;
+
+    /*
+     * Returns the table with this recognizer's n-gram lists.
+     * Every call on one recognizer must pass the same lists.
+     */
+    NGramTable getNGramTable(int[]... ngramLists)
     {
-        return match (det, ngrams, byteMap, (byte)0x20);
+        NGramTable table = ngramTable;
+        if (table == null) {
+            ngramTable = table = new NGramTable(ngramLists);
+        }
+        return table;
     }
 
-    int match(CharsetDetector det, int[] ngrams,  byte[] byteMap, byte spaceChar)
+    NGramTable getNGramTable(NGramsPlusLang[] ngrams)
     {
-        NGramParser parser = new NGramParser(ngrams, byteMap);
-        return parser.parse(det, spaceChar);
+        NGramTable table = ngramTable;
+        if (table == null) {
+            int[][] ngramLists = new int[ngrams.length][];
+            for (int i = 0; i < ngrams.length; ++i) {
+                ngramLists[i] = ngrams[i].fNGrams;
+            }
+            ngramTable = table = new NGramTable(ngramLists);
+        }
+        return table;
+    }
+
+    @Override
+    boolean usesFilteredInput() {
+        return true;
     }
 
-    int matchIBM420(CharsetDetector det, int[] ngrams,  byte[] byteMap, byte spaceChar){
-        NGramParser_IBM420 parser = new NGramParser_IBM420(ngrams, byteMap);
-        return parser.parse(det, spaceChar);
+    /**
+     * Scanner for the languages of one or more n-gram lists.
+     * The input is parsed into n-grams once, and each n-gram is looked up once for all of the languages.
+     * The match is for the language with the highest n-gram hit rate.
+     */
+    class NGramScanner extends Scanner {
+        private final NGramParser parser;
+        private final String[] languages;   // The languages of the n-gram lists, or null for getLanguage().
+        private final String c1Name;        // The charset name if there are C1 bytes, or null.
+        private boolean c1Bytes = false;    // True if any bytes in the range 0x80 - 0x9F are in the input.
+
+        NGramScanner(NGramsPlusLang[] ngrams, byte[] byteMap, String c1Name) {
+            parser = new NGramParser(getNGramTable(ngrams), byteMap, (byte)0x20);
+            languages = new String[ngrams.length];
+            for (int i = 0; i < ngrams.length; ++i) {
+                languages[i] = ngrams[i].fLang;
+            }
+            this.c1Name = c1Name;
+        }
+
+        NGramScanner(int[] ngrams, byte[] byteMap, String c1Name) {
+            this(new NGramParser(getNGramTable(ngrams), byteMap, (byte)0x20), c1Name);
+        }
+
+        NGramScanner(NGramParser parser, String c1Name) {
+            this.parser = parser;
+            languages = null;
+            this.c1Name = c1Name;
+        }
+
+        @Override
+        void scan(byte[] input, int start, int limit) {
+            if (c1Name != null && !c1Bytes) {
+                for (int i = start; i < limit; ++i) {
+                    int b = input[i] & 0xff;
+                    if (0x80 <= b && b <= 0x9F) {
+                        c1Bytes = true;
+                        break;
+                    }
+                }
+            }
+            parser.parseCharacters(input, start, limit);
+        }
+
+        @Override
+        int getConfidence() {
+            return parser.getConfidence();
+        }
+
+        @Override
+        CharsetMatch finish(CharsetDetector det) {
+            parser.finish();
+            int bestConfidenceSoFar = -1;
+            String lang = null;
+            int listCount = languages != null ? languages.length : 1;
+            for (int i = 0; i < listCount; ++i) {
+                int confidence = parser.getConfidence(i);
+                if (confidence > bestConfidenceSoFar) {
+                    bestConfidenceSoFar = confidence;
+                    lang = languages != null ? languages[i] : getLanguage();
+                }
+            }
+            String name = c1Bytes ? c1Name : getName();
+            return bestConfidenceSoFar <= 0 ? null : new CharsetMatch(det, CharsetRecog_sbcs.this, bestConfidenceSoFar, name, lang);
+        }
     }
 
     static class NGramsPlusLang {
@@ -423,19 +516,9 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
 
 
         @Override
-        public CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            String name = det.fC1Bytes ? "windows-1252" : "ISO-8859-1";
-            int bestConfidenceSoFar = -1;
-            String lang = null;
-            for (NGramsPlusLang ngl: ngrams_8859_1) {
-                int confidence = match(det, ngl.fNGrams, byteMap);
-                if (confidence > bestConfidenceSoFar) {
-                    bestConfidenceSoFar = confidence;
-                    lang = ngl.fLang;
-                }
-            }
-            return bestConfidenceSoFar <= 0 ? null : new CharsetMatch(det, this, bestConfidenceSoFar, name, lang);
+            return new NGramScanner(ngrams_8859_1, byteMap, "windows-1252");
         }
 
 
@@ -520,19 +603,9 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
         };
 
         @Override
-        public CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            String name = det.fC1Bytes ? "windows-1250" : "ISO-8859-2";
-            int bestConfidenceSoFar = -1;
-            String lang = null;
-            for (NGramsPlusLang ngl: ngrams_8859_2) {
-                int confidence = match(det, ngl.fNGrams, byteMap);
-                if (confidence > bestConfidenceSoFar) {
-                    bestConfidenceSoFar = confidence;
-                    lang = ngl.fLang;
-                }
-            }
-            return bestConfidenceSoFar <= 0 ? null : new CharsetMatch(det, this, bestConfidenceSoFar, name, lang);
+            return new NGramScanner(ngrams_8859_2, byteMap, "windows-1250");
         }
 
         @Override
@@ -604,10 +677,9 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
         }
 
         @Override
-        public CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            int confidence = match(det, ngrams, byteMap);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+            return new NGramScanner(ngrams, byteMap, null);
         }
     }
 
@@ -671,10 +743,9 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
         }
 
         @Override
-        public CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            int confidence = match(det, ngrams, byteMap);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+            return new NGramScanner(ngrams, byteMap, null);
         }
     }
 
@@ -738,11 +809,9 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
         }
 
         @Override
-        public CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            String name = det.fC1Bytes ?  "windows-1253" : "ISO-8859-7";
-            int confidence = match(det, ngrams, byteMap);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence, name, "el");
+            return new NGramScanner(ngrams, byteMap, "windows-1253");
         }
     }
 
@@ -812,11 +881,9 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
         }
 
         @Override
-        public CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            String name = det.fC1Bytes ? "windows-1255" : "ISO-8859-8-I";
-            int confidence = match(det, ngrams, byteMap);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence, name, "he");
+            return new NGramScanner(ngrams, byteMap, "windows-1255");
         }
     }
 
@@ -836,12 +903,9 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
         }
 
         @Override
-        public CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            String name = det.fC1Bytes ? "windows-1255" : "ISO-8859-8";
-            int confidence = match(det, ngrams, byteMap);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence, name, "he");
-
+            return new NGramScanner(ngrams, byteMap, "windows-1255");
         }
     }
 
@@ -905,11 +969,9 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
         }
 
         @Override
-        public CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            String name = det.fC1Bytes ? "windows-1254" : "ISO-8859-9";
-            int confidence = match(det, ngrams, byteMap);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence, name, "tr");
+            return new NGramScanner(ngrams, byteMap, "windows-1254");
         }
     }
 
@@ -970,10 +1032,9 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
         }
 
         @Override
-        public CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            int confidence = match(det, ngrams, byteMap);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+            return new NGramScanner(ngrams, byteMap, null);
         }
     }
 
@@ -1034,10 +1095,9 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
         }
 
         @Override
-        public CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            int confidence = match(det, ngrams, byteMap);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+            return new NGramScanner(ngrams, byteMap, null);
         }
     }
 
@@ -1098,10 +1158,9 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
         }
 
         @Override
-        public CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            int confidence = match(det, ngrams, byteMap);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+            return new NGramScanner(ngrams, byteMap, null);
         }
     }
 
@@ -1147,10 +1206,9 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
             0x554069, 0x564540, 0x574045, 0x584540, 0x585140, 0x585155, 0x625440, 0x684045, 0x685155, 0x695440, 0x714041, 0x714042, 0x714045, 0x714054, 0x714056, 0x714069,
         };
         @Override
-        public CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            int confidence = match(det, ngrams, byteMap, (byte)0x40);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+            return new NGramScanner(new NGramParser(getNGramTable(ngrams), byteMap, (byte)0x40), null);
         }
     }
     static class CharsetRecog_IBM424_he_ltr extends CharsetRecog_IBM424_he
@@ -1168,10 +1226,9 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
 
         };
         @Override
-        public CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            int confidence = match(det, ngrams, byteMap, (byte)0x40);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+            return new NGramScanner(new NGramParser(getNGramTable(ngrams), byteMap, (byte)0x40), null);
         }
     }
 
@@ -1221,10 +1278,9 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
             return "IBM420_rtl";
         }
         @Override
-        public CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            int confidence =  matchIBM420(det, ngrams, byteMap, (byte)0x40);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+            return new NGramScanner(new NGramParser_IBM420(getNGramTable(ngrams), byteMap, (byte)0x40), null);
         }
 
     }
@@ -1243,10 +1299,9 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
             return "IBM420_ltr";
         }
         @Override
-        public CharsetMatch match(CharsetDetector det)
+        Scanner newScanner()
         {
-            int confidence = matchIBM420(det, ngrams, byteMap, (byte)0x40);
-            return confidence == 0 ? null : new CharsetMatch(det, this, confidence);
+            return new NGramScanner(new NGramParser_IBM420(getNGramTable(ngrams), byteMap, (byte)0x40), null);
         }
 
     }
@@ -47,6 +47,59 @@ abstract class CharsetRecognizer {
      * @return     A CharsetMatch object containing details of match
      *             with this charset, or null if there was no match.
      */
-    abstract CharsetMatch  match(CharsetDetector det);
+    CharsetMatch  match(CharsetDetector det) {
+        Scanner scanner = newScanner();
+        if (usesFilteredInput()) {
+            scanner.scan(det.fInputBytes, 0, det.fInputLen);
+        } else {
+            scanner.scan(det.fRawInput, 0, det.fRawLength);
+        }
+        return scanner.finish(det);
+    }
 
+    /**
+     * Does this recognizer look at the input text with markup removed
+     * (if input filtering is enabled), or at the raw input?
+     * @return true for the filtered input.
+     */
+    boolean usesFilteredInput() {
+        return false;
+    }
+
+    /**
+     * Create a Scanner, which collects the statistics of this recognizer
+     * for one input text.
+     * @return a new Scanner.
+     */
+    abstract Scanner newScanner();
+
+    /**
+     * The statistics of one recognizer about one input text.
+     * The text can be supplied all at once, or in pieces for streaming detection:
+     * the result is the same.
+     * Unlike the recognizers, Scanners are not shared.
+     */
+    abstract static class Scanner {
+        /**
+         * Add the next piece of the input text to the statistics.
+         * @param input the bytes.
+         * @param start the index of the first byte of the piece.
+         * @param limit the index after the last byte of the piece.
+         */
+        abstract void scan(byte[] input, int start, int limit);
+
+        /**
+         * Get the confidence based on the input seen so far.
+         * @return the match confidence, ranging from 0-100.
+         */
+        abstract int getConfidence();
+
+        /**
+         * Called at the end of the input text.
+         * Must be called only once, and no more input may be scanned afterwards.
+         * @param det the CharsetDetector for the input text, or null for streaming detection.
+         * @return a CharsetMatch, or null if there was no match.
+         */
+        abstract CharsetMatch finish(CharsetDetector det);
+    }
 }
@@ -70,8 +70,8 @@ class CjkBreakEngine extends DictionaryBreakEngine {
     private static final int kMaxKatakanaGroupLength = 20;
     private static final int maxSnlp = 255;
     private static final int kint32max = Integer.MAX_VALUE;
+    private static final int[] katakanaCost = { 8192, 984, 408, 240, 204, 252, 300, 372, 480 };
     private static int getKatakanaCost(int wordlength) {
-        int katakanaCost[] =  new int[] { 8192, 984, 408, 240, 204, 252, 300, 372, 480 };
         return (wordlength > kMaxKatakanaLength) ? 8192 : katakanaCost[wordlength];
     }
 
@@ -80,18 +80,87 @@ class CjkBreakEngine extends DictionaryBreakEngine {
                 (value >= 0xFF66 && value <= 0xFF9F);
     }
 
+    /**
+     * Longest run of code points that is segmented in one piece.
+     * Longer runs are segmented in windows of this size; see divideUpDictionaryRange().
+     */
+    private static final int kMaxWindowLength = 2048;
+    /**
+     * Boundaries within this many code points of the end of a window are not committed;
+     * the next window starts at the last boundary before them, so that the best path
+     * near a window's end is chosen with enough of the following text in view.
+     */
+    private static final int kWindowOverlap = 64;
+    /**
+     * Scratch storage that grew beyond this many elements for a long run is
+     * released afterwards, so that a thread does not hold on to it indefinitely.
+     */
+    private static final int kMaxRetainedLength = 4 * kMaxWindowLength;
+    private static final int maxWordSize = 20;
+
+    /**
+     * Working storage for divideUpDictionaryRange().
+     * An engine is shared by all break iterators, so each thread gets its own Scratch,
+     * and the arrays are reused from one dictionary run to the next.
+     */
+    private static final class Scratch {
+        StringBuilder text = new StringBuilder();
+        int[] charPositions = new int[64];
+        // Lattice arrays, indexed by code point offset from the start of the window.
+        int[] bestSnlp = new int[64];
+        int[] prev = new int[64];
+        // Word ends found in the current window, in descending order.
+        int[] path = new int[64];
+        // Boundaries (code point indexes) found in the whole run, in ascending order.
+        int[] breaks = new int[64];
+        final int[] values = new int[maxWordSize + 1];
+        final int[] lengths = new int[maxWordSize + 1];
+        final int[] count = new int[1];
+
+        void ensureWindowCapacity(int length) {
+            if (bestSnlp.length <= length) {
+                int capacity = Math.max(length + 1, bestSnlp.length * 2);
+                bestSnlp = new int[capacity];
+                prev = new int[capacity];
+                path = new int[capacity];
+            }
+        }
+
+        /**
+         * Releases storage that was sized for an unusually long run.
+         * The lattice arrays are bounded by the window length and are kept.
+         */
+        void trim() {
+            if (text.capacity() > kMaxRetainedLength) {
+                text = new StringBuilder();
+            }
+            if (charPositions.length > kMaxRetainedLength) {
+                charPositions = new int[64];
+            }
+            if (breaks.length > kMaxRetainedLength) {
+                breaks = new int[64];
+            }
+        }
+    }
+
+    private static final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
     @Override
     public int divideUpDictionaryRange(CharacterIterator inText, int startPos, int endPos,
             DequeI foundBreaks) {
         if (startPos >= endPos) {
             return 0;
         }
-
-        inText.setIndex(startPos);
+        Scratch sc = scratch.get();
 
         int inputLength = endPos - startPos;
-        int[] charPositions = new int[inputLength + 1];
-        StringBuffer s = new StringBuffer("");
+        StringBuilder s = sc.text;
+        s.setLength(0);
         inText.setIndex(startPos);
         while (inText.getIndex() < endPos) {
             s.append(inText.current());
@@ -100,10 +169,13 @@ class CjkBreakEngine extends DictionaryBreakEngine {
         String prenormstr = s.toString();
         boolean isNormalized = Normalizer.quickCheck(prenormstr, Normalizer.NFKC) == Normalizer.YES ||
                                Normalizer.isNormalized(prenormstr, Normalizer.NFKC, 0);
-        CharacterIterator text;
+        String normstr;
+        int[] charPositions;
         int numCodePts = 0;
         if (isNormalized) {
-            text = new java.text.StringCharacterIterator(prenormstr);
+            normstr = prenormstr;
+            charPositions = sc.charPositions.length > inputLength ?
+                    sc.charPositions : (sc.charPositions = new int[inputLength + 1]);
             int index = 0;
             charPositions[0] = 0;
             while (index < prenormstr.length()) {
@@ -113,9 +185,9 @@ class CjkBreakEngine extends DictionaryBreakEngine {
                 charPositions[numCodePts] = index;
             }
         } else {
-            String normStr = Normalizer.normalize(prenormstr, Normalizer.NFKC);
-            text = new java.text.StringCharacterIterator(normStr);
-            charPositions = new int[normStr.length() + 1];
+            normstr = Normalizer.normalize(prenormstr, Normalizer.NFKC);
+            charPositions = sc.charPositions.length > normstr.length() ?
+                    sc.charPositions : (sc.charPositions = new int[normstr.length() + 1]);
             Normalizer normalizer = new Normalizer(prenormstr, Normalizer.NFKC, 0);
             int index = 0;
             charPositions[0] = 0;
@@ -126,39 +198,111 @@ class CjkBreakEngine extends DictionaryBreakEngine {
                 charPositions[numCodePts] = index;
             }
         }
+        CharacterIterator text = new java.text.StringCharacterIterator(normstr);
 
         // From here on out, do the algorithm. Note that our indices
         // refer to indices within the normalized string.
-        int[] bestSnlp = new int[numCodePts + 1];
-        bestSnlp[0] = 0;
-        for (int i = 1; i <= numCodePts; i++) {
-            bestSnlp[i] = kint32max;
+        //
+        // A run longer than kMaxWindowLength is segmented in windows, each one like a
+        // separate run. Only the boundaries that are at least kWindowOverlap before the
+        // end of a window are kept, and the next window starts at the last of them.
+        int numBreaks = 0;
+        int windowStart = 0;      // code point index
+        int windowStartIx = 0;    // corresponding code unit index
+        for (;;) {
+            int windowLimit = numCodePts - windowStart <= kMaxWindowLength ?
+                    numCodePts : windowStart + kMaxWindowLength;
+            int numWordEnds = findBestPath(sc, text, windowStart, windowStartIx, windowLimit);
+            if (sc.breaks.length < numBreaks + numWordEnds + 1) {
+                int[] newBreaks = new int[Math.max(numBreaks + numWordEnds + 1, sc.breaks.length * 2)];
+                System.arraycopy(sc.breaks, 0, newBreaks, 0, numBreaks);
+                sc.breaks = newBreaks;
+            }
+            int[] path = sc.path;
+            if (windowLimit == numCodePts) {
+                for (int i = numWordEnds - 1; i >= 0; i--) {
+                    sc.breaks[numBreaks++] = path[i];
+                }
+                break;
+            }
+            int commitLimit = windowLimit - kWindowOverlap;
+            int i = numWordEnds - 1;
+            for (; i >= 0 && path[i] <= commitLimit; i--) {
+                sc.breaks[numBreaks++] = path[i];
+            }
+            // If no word ends by commitLimit, the start of the window cannot be segmented,
+            // as with Hangul that is not in the dictionary. Such text is kept together,
+            // as in a run without windows: no boundary is added, and the next window
+            // continues from commitLimit.
+            int nextStart = i < numWordEnds - 1 ? path[i + 1] : commitLimit;
+            windowStartIx = normstr.offsetByCodePoints(windowStartIx, nextStart - windowStart);
+            windowStart = nextStart;
         }
+        int[] breaks = sc.breaks;
 
-        int[] prev = new int[numCodePts + 1];
-        for (int i = 0; i <= numCodePts; i++) {
+        int correctedNumBreaks = 0;
+        for (int i = 0; i < numBreaks; i++) {
+            int pos = charPositions[breaks[i]] + startPos;
+            if (!(foundBreaks.contains(pos) || pos == startPos)) {
+                foundBreaks.push(pos);
+                correctedNumBreaks++;
+            }
+        }
+
+        if (!foundBreaks.isEmpty() && foundBreaks.peek() == endPos) {
+            foundBreaks.pop();
+            correctedNumBreaks--;
+        }
+        if (!foundBreaks.isEmpty())
+            inText.setIndex(foundBreaks.peek());
+        sc.trim();
+        return correctedNumBreaks;
+    }
+
+    /**
+     * Find the lowest cost segmentation of the code points [windowStart, windowLimit) of the text,
+     * treating them as a separate run.
+     * The ends of the words on the best path, as code point indexes, are left in
+     * sc.path in descending order. If there is no segmentation, the only word end is windowLimit.
+     *
+     * @return the number of word ends in sc.path
+     */
+    private int findBestPath(Scratch sc, CharacterIterator text,
+            int windowStart, int windowStartIx, int windowLimit) {
+        int windowLength = windowLimit - windowStart;
+        sc.ensureWindowCapacity(windowLength);
+        int[] bestSnlp = sc.bestSnlp;
+        int[] prev = sc.prev;
+        int[] values = sc.values;
+        int[] lengths = sc.lengths;
+        int[] count_ = sc.count;
+        bestSnlp[0] = 0;
+        prev[0] = -1;
+        for (int i = 1; i <= windowLength; i++) {
+            bestSnlp[i] = kint32max;
             prev[i] = -1;
         }
 
-        final int maxWordSize = 20;
-        int values[] = new int[numCodePts];
-        int lengths[] = new int[numCodePts];
         // dynamic programming to find the best segmentation
 
-        // In outer loop, i  is the code point index,
-        //                ix is the corresponding code unit index.
+        // In outer loop, i  is the code point index relative to the window start,
+        //                ix is the corresponding code unit index in the text.
         //    They differ when the string contains supplementary characters.
-        int ix = 0;
+        int ix = windowStartIx;
         text.setIndex(ix);
         boolean is_prev_katakana = false;
-        for (int i = 0; i < numCodePts; i++, text.setIndex(ix), next32(text)) {
+        if (ix > 0) {
+            text.previous();
+            is_prev_katakana = isKatakana(current32(text));
+            text.setIndex(ix);
+        }
+        for (int i = 0; i < windowLength; i++, text.setIndex(ix), next32(text)) {
             ix = text.getIndex();
             if (bestSnlp[i] == kint32max) {
                 continue;
             }
 
-            int maxSearchLength = (i + maxWordSize < numCodePts) ? maxWordSize : (numCodePts - i);
-            int[] count_ = new int[1];
+            int maxSearchLength = (i + maxWordSize < windowLength) ? maxWordSize : (windowLength - i);
             fDictionary.matches(text, maxSearchLength, lengths, count_, maxSearchLength, values);
             int count = count_[0];
 
@@ -191,7 +335,7 @@ class CjkBreakEngine extends DictionaryBreakEngine {
             if (!is_prev_katakana && is_katakana) {
                 int j = i + 1;
                 next32(text);
-                while (j < numCodePts && (j - i) < kMaxKatakanaGroupLength && isKatakana(current32(text))) {
+                while (j < windowLength && (j - i) < kMaxKatakanaGroupLength && isKatakana(current32(text))) {
                     next32(text);
                     ++j;
                 }
@@ -207,38 +351,16 @@ class CjkBreakEngine extends DictionaryBreakEngine {
             is_prev_katakana = is_katakana;
         }
 
-        int t_boundary[] = new int[numCodePts + 1];
-        int numBreaks = 0;
-        if (bestSnlp[numCodePts] == kint32max) {
-            t_boundary[numBreaks] = numCodePts;
-            numBreaks++;
+        int[] path = sc.path;
+        int numWordEnds = 0;
+        if (bestSnlp[windowLength] == kint32max) {
+            path[numWordEnds++] = windowLimit;
         } else {
-            for (int i = numCodePts; i > 0; i = prev[i]) {
-                t_boundary[numBreaks] = i;
-                numBreaks++;
-            }
-            Assert.assrt(prev[t_boundary[numBreaks - 1]] == 0);
-        }
-
-        if (foundBreaks.size() == 0 || foundBreaks.peek() < startPos) {
-            t_boundary[numBreaks++] = 0;
-        }
-
-        int correctedNumBreaks = 0;
-        for (int i = numBreaks - 1; i >= 0; i--) {
-            int pos = charPositions[t_boundary[i]] + startPos;
-            if (!(foundBreaks.contains(pos) || pos == startPos)) {
-                foundBreaks.push(charPositions[t_boundary[i]] + startPos);
-                correctedNumBreaks++;
+            for (int i = windowLength; i > 0; i = prev[i]) {
+                path[numWordEnds++] = windowStart + i;
             }
+            Assert.assrt(prev[path[numWordEnds - 1] - windowStart] == 0);
         }
-
-        if (!foundBreaks.isEmpty() && foundBreaks.peek() == endPos) {
-            foundBreaks.pop();
-            correctedNumBreaks--;
-        }
-        if (!foundBreaks.isEmpty())
-            inText.setIndex(foundBreaks.peek());
-        return correctedNumBreaks;
+        return numWordEnds;
     }
 }
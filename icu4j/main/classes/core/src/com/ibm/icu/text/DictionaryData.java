@@ -11,6 +11,7 @@ package com.ibm.icu.text;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ibm.icu.impl.Assert;
 import com.ibm.icu.impl.ICUBinary;
@@ -43,11 +44,43 @@ final class DictionaryData {
 
     private static final int DATA_FORMAT_ID = 0x44696374;
 
+    /**
+     * Loaded dictionaries, keyed by data file name.
+     * The matchers are immutable, and several break engines may use the same dictionary file.
+     */
+    private static final ConcurrentHashMap<String, DictionaryMatcher> dictionaryCache =
+            new ConcurrentHashMap<String, DictionaryMatcher>();
+
     public static DictionaryMatcher loadDictionaryFor(String dictType) throws IOException {
         ICUResourceBundle rb = (ICUResourceBundle)UResourceBundle.getBundleInstance(ICUData.ICU_BRKITR_BASE_NAME);
         String dictFileName = rb.getStringWithFallback("dictionaries/" + dictType);
         dictFileName = ICUData.ICU_BRKITR_NAME + '/' + dictFileName;
-        ByteBuffer bytes = ICUBinary.getRequiredData(dictFileName);
+        DictionaryMatcher m = dictionaryCache.get(dictFileName);
+        if (m == null) {
+            m = loadDictionary(dictFileName);
+            if (m != null) {
+                DictionaryMatcher cached = dictionaryCache.putIfAbsent(dictFileName, m);
+                if (cached != null) {
+                    m = cached;
+                }
+            }
+        }
+        return m;
+    }
+
+    private static DictionaryMatcher loadDictionary(String dictFileName) throws IOException {
+        return loadDictionary(ICUBinary.getRequiredData(dictFileName));
+    }
+
+    /**
+     * Loads a dictionary from its data, starting with the ICU data header.
+     * If the data buffer has no backing array, as for memory-mapped data, the matcher reads
+     * the trie directly from the buffer, so the data is neither copied nor moved onto the heap.
+     * Otherwise a bytes trie uses the backing array, and a UChars trie is copied into a String:
+     * the matchers index the trie in their inner loop, and String.charAt() is much faster there
+     * than a view of a heap buffer.
+     */
+    static DictionaryMatcher loadDictionary(ByteBuffer bytes) throws IOException {
         ICUBinary.readHeader(bytes, DATA_FORMAT_ID, null);
         int[] indexes = new int[IX_COUNT];
         // TODO: read indexes[IX_STRING_TRIE_OFFSET] first, then read a variable-length indexes[]
@@ -65,13 +98,19 @@ final class DictionaryData {
         DictionaryMatcher m = null;
         if (trieType == TRIE_TYPE_BYTES) {
             int transform = indexes[IX_TRANSFORM];
-            byte[] data = new byte[totalSize];
-            bytes.get(data);
-            m = new BytesDictionaryMatcher(data, transform);
+            if (bytes.hasArray()) {
+                m = new BytesDictionaryMatcher(bytes.array(), bytes.arrayOffset() + bytes.position(), transform);
+            } else {
+                m = new BytesDictionaryMatcher(bytes, bytes.position(), transform);
+            }
         } else if (trieType == TRIE_TYPE_UCHARS) {
             Assert.assrt(totalSize % 2 == 0);
-            String data = ICUBinary.getString(bytes, totalSize / 2, totalSize & 1);
-            m = new CharsDictionaryMatcher(data);
+            if (bytes.hasArray()) {
+                String data = ICUBinary.getString(bytes, totalSize / 2, totalSize & 1);
+                m = new CharsDictionaryMatcher(data);
+            } else {
+                m = new CharsDictionaryMatcher(bytes, bytes.position());
+            }
         } else {
             m = null;
         }
@@ -0,0 +1,436 @@
+// © 2018 and later: Unicode, Inc. and others.
+// License & terms of use: http://www.unicode.org/copyright.html#License
+package com.ibm.icu.text;
+
+import java.util.Date;
+
+import com.ibm.icu.impl.Grego;
+import com.ibm.icu.text.SimpleDateFormat.PatternItem;
+import com.ibm.icu.util.Calendar;
+import com.ibm.icu.util.GregorianCalendar;
+import com.ibm.icu.util.TimeZone;
+import com.ibm.icu.util.ULocale;
+
+/**
+ * Immutable, thread-safe date formatting with the settings of a {@link DateFormat}.
+ * <p>
+ * A SimpleDateFormat keeps its Calendar, symbols and number formats in mutable fields,
+ * and it uses its Calendar for each call, so each thread needs its own clone.
+ * An ImmutableDateFormat is created once from a DateFormat and then shared:
+ * any number of threads may format with the same instance at the same time.
+ * The results are the same as those of the DateFormat it was created from.
+ * Later changes to that DateFormat do not affect the ImmutableDateFormat.
+ * <p>
+ * For a SimpleDateFormat with a Gregorian calendar, the date and time fields are computed
+ * directly from the epoch milliseconds and the time zone offsets, and the pattern is formatted
+ * with the SimpleDateFormat's parsed pattern and symbols, without a Calendar.
+ * Dates before the Gregorian change date, patterns with week-based fields (Y, w, W)
+ * or day periods (b, B), and number format overrides, other calendars, capitalization
+ * contexts or DateFormat subclasses are formatted with the DateFormat itself:
+ * Each thread that needs that lazily gets one working copy of it,
+ * which is then reused for all of that thread's calls.
+ *
+ * @see SimpleDateFormat
+ * @draft ICU 64
+ * @provisional This API might change or be removed in a future release.
+ */
+public final class ImmutableDateFormat {
+    // Julian day number of January 1, 1970 CE Gregorian
+    private static final int EPOCH_JULIAN_DAY = 2440588;
+    // Dates from 10000 CE on are formatted with the DateFormat.
+    private static final long MAX_FAST_MILLIS = 253402300800000L;
+    // Dates before 0001-01-02 CE UTC are formatted with the DateFormat, so that the
+    // extended year and the Julian day, which the fast path appends as digits, are never negative.
+    // The local date can be up to a day before the UTC date.
+    private static final long MIN_FAST_MILLIS = -62135596800000L + Grego.MILLIS_PER_DAY;
+
+    private final DateFormat prototype;
+    private final TimeZone zone;
+    private final ThreadLocal<DateFormat> formats = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return (DateFormat)prototype.clone();
+        }
+    };
+
+    // The following are only set if dates can be formatted without the DateFormat.
+    /** Pattern items of the SimpleDateFormat, each either a String or a PatternItem. */
+    private final Object[] items;
+    private final DateFormatSymbols symbols;
+    private final TimeZoneFormat tzFormat;
+    private final char[] digitPairs;
+    private final int firstDayOfWeek;
+    /** Dates from here on are formatted without the DateFormat. */
+    private final long minFastMillis;
+
+    private ImmutableDateFormat(DateFormat format) {
+        prototype = (DateFormat)format.clone();
+        zone = prototype.getTimeZone().cloneAsThawed().freeze();
+        prototype.setTimeZone(zone);
+
+        Object[] fastItems = null;
+        char[] fastDigitPairs = null;
+        Calendar cal = prototype.getCalendar();
+        if (prototype.getClass() == SimpleDateFormat.class &&
+                cal.getClass() == GregorianCalendar.class &&
+                isFastCapitalization(prototype.getContext(DisplayContext.Type.CAPITALIZATION))) {
+            SimpleDateFormat sdf = (SimpleDateFormat)prototype;
+            fastDigitPairs = sdf.getZeroPaddingDigitPairs();
+            fastItems = sdf.getPatternItems();
+            for (Object o : fastItems) {
+                if (o instanceof PatternItem) {
+                    PatternItem item = (PatternItem)o;
+                    if (!isFastField(item.type, item.length) ||
+                            sdf.getNumberFormat(item.type) != sdf.getNumberFormat()) {
+                        fastItems = null;
+                        break;
+                    }
+                }
+            }
+        }
+        if (fastItems != null && fastDigitPairs != null) {
+            SimpleDateFormat sdf = (SimpleDateFormat)prototype;
+            items = fastItems;
+            symbols = sdf.getDateFormatSymbols();
+            tzFormat = sdf.getTimeZoneFormat();
+            digitPairs = fastDigitPairs;
+            firstDayOfWeek = cal.getFirstDayOfWeek();
+            // The local date can be up to a day before the UTC date.
+            // A pure Julian calendar has its change date at or near Long.MAX_VALUE; do not overflow.
+            // A proleptic Gregorian calendar has it at or near Long.MIN_VALUE; MIN_FAST_MILLIS still applies.
+            long gregorianChange = ((GregorianCalendar)cal).getGregorianChange().getTime();
+            minFastMillis = gregorianChange < MAX_FAST_MILLIS ?
+                    Math.max(gregorianChange + Grego.MILLIS_PER_DAY, MIN_FAST_MILLIS) : Long.MAX_VALUE;
+        } else {
+            items = null;
+            symbols = null;
+            tzFormat = null;
+            digitPairs = null;
+            firstDayOfWeek = Calendar.SUNDAY;
+            minFastMillis = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Returns an ImmutableDateFormat with the settings of the given DateFormat,
+     * including its pattern, locale, calendar and time zone.
+     * @param format the DateFormat whose settings are to be used
+     * @return an ImmutableDateFormat
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public static ImmutableDateFormat getInstance(DateFormat format) {
+        if (format == null) {
+            throw new NullPointerException("Specified format is null");
+        }
+        return new ImmutableDateFormat(format);
+    }
+
+    /**
+     * Returns an ImmutableDateFormat for the given pattern and locale,
+     * with the default time zone.
+     * @param pattern the pattern, as for {@link SimpleDateFormat}
+     * @param locale the locale
+     * @return an ImmutableDateFormat
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public static ImmutableDateFormat getPatternInstance(String pattern, ULocale locale) {
+        return new ImmutableDateFormat(new SimpleDateFormat(pattern, locale));
+    }
+
+    /**
+     * Returns the time zone used for formatting. It is frozen.
+     * @return the time zone
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public TimeZone getTimeZone() {
+        return zone;
+    }
+
+    /**
+     * Returns a new DateFormat with the settings of this ImmutableDateFormat,
+     * for example for parsing or for changing some settings.
+     * @return a new DateFormat
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public DateFormat toDateFormat() {
+        return (DateFormat)prototype.clone();
+    }
+
+    /**
+     * Formats the date.
+     * @param date the date to be formatted
+     * @return the formatted date
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public String format(Date date) {
+        return format(date.getTime());
+    }
+
+    /**
+     * Formats the date given in milliseconds since January 1, 1970, 00:00:00 GMT.
+     * @param millis the date to be formatted
+     * @return the formatted date
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public String format(long millis) {
+        return format(millis, new StringBuilder()).toString();
+    }
+
+    /**
+     * Formats the date given in milliseconds since January 1, 1970, 00:00:00 GMT,
+     * and appends the result to the StringBuilder.
+     * @param millis the date to be formatted
+     * @param toAppendTo where the formatted date is to be appended
+     * @return toAppendTo
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public StringBuilder format(long millis, StringBuilder toAppendTo) {
+        if (millis < minFastMillis || millis >= MAX_FAST_MILLIS) {
+            DateFormat format = formats.get();
+            if (format instanceof SimpleDateFormat) {
+                return ((SimpleDateFormat)format).formatTo(millis, toAppendTo);
+            }
+            return toAppendTo.append(format.format(new Date(millis)));
+        }
+
+        // The local time fields, as GregorianCalendar computes them.
+        int[] offsets = new int[2];
+        zone.getOffset(millis, false, offsets);
+        long local = millis + offsets[0] + offsets[1];
+        long day = Grego.floorDivide(local, Grego.MILLIS_PER_DAY);
+        int millisInDay = (int)(local - day * Grego.MILLIS_PER_DAY);
+        int[] fields = Grego.dayToFields(day, new int[5]);
+        int year = fields[0];
+        int month = fields[1];
+        int dayOfMonth = fields[2];
+        int dayOfWeek = fields[3];
+        int hour = millisInDay / Grego.MILLIS_PER_HOUR;
+
+        for (Object o : items) {
+            if (o instanceof String) {
+                toAppendTo.append((String)o);
+                continue;
+            }
+            PatternItem item = (PatternItem)o;
+            int count = item.length;
+            switch (item.type) {
+            case 'G':
+                int era = year > 0 ? GregorianCalendar.AD : GregorianCalendar.BC;
+                if (count == 5) {
+                    safeAppend(symbols.narrowEras, era, toAppendTo);
+                } else if (count == 4) {
+                    safeAppend(symbols.eraNames, era, toAppendTo);
+                } else {
+                    safeAppend(symbols.eras, era, toAppendTo);
+                }
+                break;
+            case 'y':
+                int eraYear = year > 0 ? year : 1 - year;
+                if (count == 2) {
+                    appendNumber(toAppendTo, eraYear, 2, 2); // clip 1996 to 96
+                } else {
+                    appendNumber(toAppendTo, eraYear, count, Integer.MAX_VALUE);
+                }
+                break;
+            case 'u':
+                appendNumber(toAppendTo, year, count, Integer.MAX_VALUE);
+                break;
+            case 'M':
+                if (count == 5) {
+                    safeAppend(symbols.narrowMonths, month, toAppendTo);
+                } else if (count == 4) {
+                    safeAppend(symbols.months, month, toAppendTo);
+                } else if (count == 3) {
+                    safeAppend(symbols.shortMonths, month, toAppendTo);
+                } else {
+                    appendNumber(toAppendTo, month + 1, count, Integer.MAX_VALUE);
+                }
+                break;
+            case 'L':
+                if (count == 5) {
+                    safeAppend(symbols.standaloneNarrowMonths, month, toAppendTo);
+                } else if (count == 4) {
+                    safeAppend(symbols.standaloneMonths, month, toAppendTo);
+                } else if (count == 3) {
+                    safeAppend(symbols.standaloneShortMonths, month, toAppendTo);
+                } else {
+                    appendNumber(toAppendTo, month + 1, count, Integer.MAX_VALUE);
+                }
+                break;
+            case 'Q':
+                if (count >= 4) {
+                    safeAppend(symbols.quarters, month / 3, toAppendTo);
+                } else if (count == 3) {
+                    safeAppend(symbols.shortQuarters, month / 3, toAppendTo);
+                } else {
+                    appendNumber(toAppendTo, month / 3 + 1, count, Integer.MAX_VALUE);
+                }
+                break;
+            case 'q':
+                if (count >= 4) {
+                    safeAppend(symbols.standaloneQuarters, month / 3, toAppendTo);
+                } else if (count == 3) {
+                    safeAppend(symbols.standaloneShortQuarters, month / 3, toAppendTo);
+                } else {
+                    appendNumber(toAppendTo, month / 3 + 1, count, Integer.MAX_VALUE);
+                }
+                break;
+            case 'd':
+                appendNumber(toAppendTo, dayOfMonth, count, Integer.MAX_VALUE);
+                break;
+            case 'D':
+                appendNumber(toAppendTo, fields[4], count, Integer.MAX_VALUE);
+                break;
+            case 'F':
+                appendNumber(toAppendTo, (dayOfMonth - 1) / 7 + 1, count, Integer.MAX_VALUE);
+                break;
+            case 'g':
+                appendNumber(toAppendTo, (int)(day + EPOCH_JULIAN_DAY), count, Integer.MAX_VALUE);
+                break;
+            case 'A':
+                appendNumber(toAppendTo, millisInDay, count, Integer.MAX_VALUE);
+                break;
+            case 'E':
+                appendWeekday(toAppendTo, dayOfWeek, count, false);
+                break;
+            case 'e':
+                if (count < 3) {
+                    appendNumber(toAppendTo, getLocalDayOfWeek(dayOfWeek), count, Integer.MAX_VALUE);
+                } else {
+                    appendWeekday(toAppendTo, dayOfWeek, count, false);
+                }
+                break;
+            case 'c':
+                if (count < 3) {
+                    appendNumber(toAppendTo, getLocalDayOfWeek(dayOfWeek), 1, Integer.MAX_VALUE);
+                } else {
+                    appendWeekday(toAppendTo, dayOfWeek, count, true);
+                }
+                break;
+            case 'a':
+                // symbols.ampmsNarrow may be null when deserializing DateFormatSymbols from old version
+                if (count < 5 || symbols.ampmsNarrow == null) {
+                    safeAppend(symbols.ampms, hour / 12, toAppendTo);
+                } else {
+                    safeAppend(symbols.ampmsNarrow, hour / 12, toAppendTo);
+                }
+                break;
+            case 'H':
+                appendNumber(toAppendTo, hour, count, Integer.MAX_VALUE);
+                break;
+            case 'k':
+                appendNumber(toAppendTo, hour == 0 ? 24 : hour, count, Integer.MAX_VALUE);
+                break;
+            case 'K':
+                appendNumber(toAppendTo, hour % 12, count, Integer.MAX_VALUE);
+                break;
+            case 'h':
+                appendNumber(toAppendTo, hour % 12 == 0 ? 12 : hour % 12, count, Integer.MAX_VALUE);
+                break;
+            case 'm':
+                appendNumber(toAppendTo, (millisInDay / Grego.MILLIS_PER_MINUTE) % 60, count, Integer.MAX_VALUE);
+                break;
+            case 's':
+                appendNumber(toAppendTo, (millisInDay / Grego.MILLIS_PER_SECOND) % 60, count, Integer.MAX_VALUE);
+                break;
+            case 'S':
+                // Fractional seconds left-justify
+                int fraction = millisInDay % Grego.MILLIS_PER_SECOND;
+                if (count == 1) {
+                    fraction /= 100;
+                } else if (count == 2) {
+                    fraction /= 10;
+                }
+                appendNumber(toAppendTo, fraction, Math.min(3, count), Integer.MAX_VALUE);
+                if (count > 3) {
+                    appendNumber(toAppendTo, 0, count - 3, Integer.MAX_VALUE);
+                }
+                break;
+            default:
+                // Time zone fields
+                toAppendTo.append(tzFormat.format(
+                        SimpleDateFormat.getTimeZoneStyle(item.type, count), zone, millis));
+                break;
+            }
+        }
+        return toAppendTo;
+    }
+
+    /**
+     * Formats the date given in milliseconds since January 1, 1970, 00:00:00 GMT,
+     * and appends the result to the Appendable.
+     * <p>Any {@link java.io.IOException} is wrapped into a {@link com.ibm.icu.util.ICUUncheckedIOException}.
+     * @param millis the date to be formatted
+     * @param appendable where the formatted date is to be appended
+     * @return appendable
+     * @see SimpleDateFormat#formatTo(long, Appendable)
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public <A extends Appendable> A formatTo(long millis, A appendable) {
+        return SimpleDateFormat.formatToAppendable(FORMAT_STEP, this, millis, appendable);
+    }
+
+    private static final SimpleDateFormat.StringBuilderStep<ImmutableDateFormat> FORMAT_STEP =
+            new SimpleDateFormat.StringBuilderStep<ImmutableDateFormat>() {
+        @Override
+        public void format(ImmutableDateFormat formatter, long millis, StringBuilder toAppendTo) {
+            formatter.format(millis, toAppendTo);
+        }
+    };
+
+    private static boolean isFastCapitalization(DisplayContext capitalization) {
+        return capitalization == DisplayContext.CAPITALIZATION_NONE ||
+                capitalization == DisplayContext.CAPITALIZATION_FOR_MIDDLE_OF_SENTENCE;
+    }
+
+    /*
+     * Returns true if the field is formatted by format(long, StringBuilder),
+     * the same way as by SimpleDateFormat.subFormat() with a Gregorian calendar.
+     */
+    private static boolean isFastField(char type, int count) {
+        if ("GyuMLQqdDFgAEecaHkKhmsS".indexOf(type) >= 0) {
+            return true;
+        }
+        return SimpleDateFormat.getTimeZoneStyle(type, count) != null;
+    }
+
+    private int getLocalDayOfWeek(int dayOfWeek) {
+        int dowLocal = dayOfWeek - firstDayOfWeek + 1;
+        return dowLocal < 1 ? dowLocal + 7 : dowLocal;
+    }
+
+    private void appendWeekday(StringBuilder buf, int dayOfWeek, int count, boolean standalone) {
+        if (count == 5) {
+            safeAppend(standalone ? symbols.standaloneNarrowWeekdays : symbols.narrowWeekdays,
+                    dayOfWeek, buf);
+        } else if (count == 4) {
+            safeAppend(standalone ? symbols.standaloneWeekdays : symbols.weekdays, dayOfWeek, buf);
+        } else {
+            String[] shorter = standalone ? symbols.standaloneShorterWeekdays : symbols.shorterWeekdays;
+            if (count == 6 && shorter != null) {
+                safeAppend(shorter, dayOfWeek, buf);
+            } else {
+                safeAppend(standalone ? symbols.standaloneShortWeekdays : symbols.shortWeekdays,
+                        dayOfWeek, buf);
+            }
+        }
+    }
+
+    private static void safeAppend(String[] array, int value, StringBuilder appendTo) {
+        if (array != null && value >= 0 && value < array.length) {
+            appendTo.append(array[value]);
+        }
+    }
+
+    private void appendNumber(StringBuilder buf, int value, int minDigits, int maxDigits) {
+        SimpleDateFormat.appendZeroPadded(buf, digitPairs, value, minDigits, maxDigits);
+    }
+}
@@ -177,6 +177,12 @@ class RBBIRuleBuilder {
         //   Sections sizes actually stored in the header are for the actual data
         //     without the padding.
         //
+        // Export the state tables first: whether they have 8 bit rows determines the format version.
+        RBBIDataWrapper.RBBIStateTable forwardTable = fForwardTable.exportTable();
+        RBBIDataWrapper.RBBIStateTable safeTable = fForwardTable.exportSafeTable();
+        int formatVersion = ((forwardTable.fFlags | safeTable.fFlags) & RBBIDataWrapper.RBBI_8BITS_ROWS) != 0 ?
+                RBBIDataWrapper.FORMAT_VERSION_8BITS_ROWS : RBBIDataWrapper.FORMAT_VERSION;
+
         int headerSize       = RBBIDataWrapper.DH_SIZE * 4;     // align8(sizeof(RBBIDataHeader));
         int forwardTableSize = align8(fForwardTable.getTableSize());
         int reverseTableSize = align8(fForwardTable.getSafeTableSize());
@@ -193,14 +199,14 @@ class RBBIRuleBuilder {
         //
         // Write out an ICU Data Header
         //
-        ICUBinary.writeHeader(RBBIDataWrapper.DATA_FORMAT, RBBIDataWrapper.FORMAT_VERSION, 0, dos);
+        ICUBinary.writeHeader(RBBIDataWrapper.DATA_FORMAT, formatVersion, 0, dos);
 
         //
         // Write out the RBBIDataHeader
         //
         int[] header = new int[RBBIDataWrapper.DH_SIZE];                 // sizeof struct RBBIDataHeader
         header[RBBIDataWrapper.DH_MAGIC]         = 0xb1a0;
-        header[RBBIDataWrapper.DH_FORMATVERSION] = RBBIDataWrapper.FORMAT_VERSION;
+        header[RBBIDataWrapper.DH_FORMATVERSION] = formatVersion;
         header[RBBIDataWrapper.DH_LENGTH]        = totalSize;            // fLength, the total size of all rule sections.
         header[RBBIDataWrapper.DH_CATCOUNT]      = fSetBuilder.getNumCharCategories(); // fCatCount.
 
@@ -225,13 +231,11 @@ class RBBIRuleBuilder {
         }
 
         // Write out the actual state tables.
-        RBBIDataWrapper.RBBIStateTable table = fForwardTable.exportTable();
         assert(outputPos == header[RBBIDataWrapper.DH_FTABLE]);
-        outputPos += table.put(dos);
+        outputPos += forwardTable.put(dos);
 
-        table = fForwardTable.exportSafeTable();
         Assert.assrt(outputPos == header[RBBIDataWrapper.DH_RTABLE]);
-        outputPos += table.put(dos);
+        outputPos += safeTable.put(dos);
 
         // write out the Trie table
         Assert.assrt(outputPos == header[RBBIDataWrapper.DH_TRIE]);
@@ -1061,7 +1061,7 @@ class RBBITableBuilder {
            int size    = 16;    // The header of 4 ints, with no rows to the table.
            int numRows = fDStates.size();
            int numCols = fRB.fSetBuilder.getNumCharCategories();
-           int rowSize = 8 + 2*numCols;
+           int rowSize = use8BitsForTable() ? 4 + numCols : 8 + 2*numCols;
            size   += numRows * rowSize;
            size = (size + 7) & ~7;   // round up to a multiple of 8 bytes
            return size;
@@ -1090,9 +1090,9 @@ class RBBITableBuilder {
            // Size of table size in shorts.
            //  the "4" is the size of struct RBBIStateTableRow, the row header part only.
            int rowLen = 4 + fRB.fSetBuilder.getNumCharCategories();   // Row Length in shorts.
-           int tableSize = (getTableSize() - 16) / 2;       // fTable length in shorts.
-           table.fTable = new short[tableSize];
-           table.fRowLen = rowLen * 2;                      // Row length in bytes.
+           boolean use8Bits = use8BitsForTable();
+           int tableSize = use8Bits ? getTableSize() - 16 : (getTableSize() - 16) / 2;  // fTable length in values.
+           short[] values = new short[tableSize];
 
            if (fRB.fLookAheadHardBreak) {
                table.fFlags  |= RBBIDataWrapper.RBBI_LOOKAHEAD_HARD_BREAK;
@@ -1107,13 +1107,14 @@ class RBBITableBuilder {
                int row = state*rowLen;
                Assert.assrt (-32768 < sd.fAccepting && sd.fAccepting <= 32767);
                Assert.assrt (-32768 < sd.fLookAhead && sd.fLookAhead <= 32767);
-               table.fTable[row + RBBIDataWrapper.ACCEPTING] = (short)sd.fAccepting;
-               table.fTable[row + RBBIDataWrapper.LOOKAHEAD] = (short)sd.fLookAhead;
-               table.fTable[row + RBBIDataWrapper.TAGIDX]    = (short)sd.fTagsIdx;
+               values[row + RBBIDataWrapper.ACCEPTING] = (short)sd.fAccepting;
+               values[row + RBBIDataWrapper.LOOKAHEAD] = (short)sd.fLookAhead;
+               values[row + RBBIDataWrapper.TAGIDX]    = (short)sd.fTagsIdx;
                for (col=0; col<numCharCategories; col++) {
-                   table.fTable[row + RBBIDataWrapper.NEXTSTATES + col] = (short)sd.fDtran[col];
+                   values[row + RBBIDataWrapper.NEXTSTATES + col] = (short)sd.fDtran[col];
                }
            }
+           setTableValues(table, values, rowLen, use8Bits);
            return table;
        }
 
@@ -1214,7 +1215,7 @@ class RBBITableBuilder {
            int size    = 16;    // The header of 4 ints, with no rows to the table.
            int numRows = fSafeTable.size();
            int numCols = fSafeTable.get(0).length;
-           int rowSize = 8 + 2*numCols;
+           int rowSize = use8BitsForSafeTable() ? 4 + numCols : 8 + 2*numCols;
            size += numRows * rowSize;
            // TODO: there are redundant round-up. Figure out best place, get rid of the rest.
            size = (size + 7) & ~7;   // round up to a multiple of 8 bytes
@@ -1237,21 +1238,65 @@ class RBBITableBuilder {
            int rowLen = 4 + numCharCategories;
            // TODO: tableSize is basically numStates * numCharCategories,
            //       except for alignment padding. Clean up here, and in main exportTable().
-           int tableSize = (getSafeTableSize() - 16) / 2;   // fTable length in shorts.
-           table.fTable = new short[tableSize];
-           table.fRowLen = rowLen * 2;                      // Row length in bytes.
+           boolean use8Bits = use8BitsForSafeTable();
+           int tableSize = use8Bits ? getSafeTableSize() - 16 : (getSafeTableSize() - 16) / 2;  // fTable length in values.
+           short[] values = new short[tableSize];
 
            for (int state=0; state<table.fNumStates; state++) {
                short[] rowArray = fSafeTable.get(state);
                int row = state * rowLen;
 
                for (int col=0; col<numCharCategories; col++) {
-                   table.fTable[row + RBBIDataWrapper.NEXTSTATES + col] = rowArray[col];
+                   values[row + RBBIDataWrapper.NEXTSTATES + col] = rowArray[col];
                }
            }
+           setTableValues(table, values, rowLen, use8Bits);
            return table;
        }
 
+       /**
+        * Test whether the forward state table can be stored with 8 bit rows:
+        * the state numbers and the accepting, look-ahead and tag index values
+        * must all fit in a signed byte.
+        * This makes the compiled rule data smaller.
+        */
+       boolean use8BitsForTable() {
+           if (fDStates.size() > 128) {
+               return false;
+           }
+           for (RBBIStateDescriptor sd : fDStates) {
+               if (sd.fAccepting < -1 || sd.fAccepting > 127 ||
+                       sd.fLookAhead < 0 || sd.fLookAhead > 127 ||
+                       sd.fTagsIdx < 0 || sd.fTagsIdx > 127) {
+                   return false;
+               }
+           }
+           return true;
+       }
+
+       /**
+        * Test whether the safe reverse state table can be stored with 8 bit rows.
+        * It holds only next-state numbers.
+        */
+       boolean use8BitsForSafeTable() {
+           return fSafeTable.size() <= 128;
+       }
+
+       /**
+        * Store the values of an exported table, as 8 or 16 bit rows.
+        * @param rowLen the number of values in a row.
+        */
+       private static void setTableValues(RBBIDataWrapper.RBBIStateTable table, short[] values,
+               int rowLen, boolean use8Bits) {
+           table.fTable = values;
+           if (use8Bits) {
+               table.fRowLen = rowLen;                      // Row length in bytes.
+               table.fFlags |= RBBIDataWrapper.RBBI_8BITS_ROWS;
+           } else {
+               table.fRowLen = rowLen * 2;                  // Row length in bytes.
+           }
+       }
+
 
        //-----------------------------------------------------------------------------
        //
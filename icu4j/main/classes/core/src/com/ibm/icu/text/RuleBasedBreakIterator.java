@@ -14,14 +14,27 @@ import static com.ibm.icu.impl.CharacterIteration.next32;
 import static com.ibm.icu.impl.CharacterIteration.nextTrail32;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.CharacterIterator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
+import com.ibm.icu.impl.CSCharacterIterator;
 import com.ibm.icu.impl.CharacterIteration;
 import com.ibm.icu.impl.ICUBinary;
 import com.ibm.icu.impl.ICUDebug;
@@ -30,6 +43,8 @@ import com.ibm.icu.impl.Trie2;
 import com.ibm.icu.lang.UCharacter;
 import com.ibm.icu.lang.UProperty;
 import com.ibm.icu.lang.UScript;
+import com.ibm.icu.util.CodePointTrie;
+import com.ibm.icu.util.VersionInfo;
 
 /**
  * Rule Based Break Iterator
@@ -47,9 +62,8 @@ public class RuleBasedBreakIterator extends BreakIterator {
      */
     private RuleBasedBreakIterator() {
         fDictionaryCharCount  = 0;
-        synchronized(gAllBreakEngines) {
-            fBreakEngines = new ArrayList<>(gAllBreakEngines);
-        }
+        fBreakEngines = new ArrayList<>();
+        fBreakEngines.add(gUnhandledBreakEngine);
     }
 
     /**
@@ -96,6 +110,150 @@ public class RuleBasedBreakIterator extends BreakIterator {
         return This;
     }
 
+    /**
+     * Create a break iterator from a set of source rules, keeping the compiled
+     * rules in a directory for reuse.
+     * <p>
+     * The compiled form of the rules is stored in the cache directory in a file named
+     * after a hash of the rules and the ICU version, with the extension ".brkcache". When a later call, possibly
+     * in another process, asks for the same rules, the compiled rules are loaded
+     * from that file, which is much faster than compiling them again.
+     * The file starts with the same hash, which is checked before the compiled rules are used,
+     * so that a file for other rules or another data format version is never loaded,
+     * followed by a hash of the compiled rules, which is checked so that a damaged file is never loaded.
+     * Because of that prefix, the file is not in the .brk format of
+     * {@link #getInstanceFromCompiledRules(InputStream)}.
+     * <p>
+     * The cache is only an optimization. If the directory cannot be read or written,
+     * or a cached file is unreadable or does not match the rules, the rules are compiled,
+     * the file is rewritten, and the break iterator is returned as usual.
+     *
+     * @param rules The break rules to be used.
+     * @param cacheDirectory The directory for compiled rules. It is created if it does not exist.
+     * @return a break iterator for the rules.
+     * @throws IllegalArgumentException if the rules contain a syntax error.
+     * @see #compileRules(String, OutputStream)
+     * @see #getInstanceFromCompiledRules(InputStream)
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public static RuleBasedBreakIterator getInstanceFromRules(String rules, File cacheDirectory) {
+        byte[] digest = compiledRulesDigest(rules);
+        File cacheFile = new File(cacheDirectory, compiledRulesFileName(digest));
+        if (cacheFile.isFile()) {
+            try {
+                byte[] data = Files.readAllBytes(cacheFile.toPath());
+                int dataStart = digest.length * 2;
+                if (data.length > dataStart &&
+                        MessageDigest.isEqual(digest, Arrays.copyOf(data, digest.length))) {
+                    MessageDigest dataDigest = sha256();
+                    dataDigest.update(data, dataStart, data.length - dataStart);
+                    if (MessageDigest.isEqual(dataDigest.digest(),
+                            Arrays.copyOfRange(data, digest.length, dataStart))) {
+                        return getInstanceFromCompiledRules(
+                                ByteBuffer.wrap(data, dataStart, data.length - dataStart).slice());
+                    }
+                }
+                // The file is for other rules, or damaged; compile the rules and replace it.
+            } catch (IOException e) {
+                // Unreadable or damaged cache file; compile the rules and replace it.
+            } catch (RuntimeException e) {
+                // Same as above, for data that passed the checks but still fails to load.
+            }
+        }
+
+        ByteArrayOutputStream ruleOS = new ByteArrayOutputStream();
+        byte[] ruleData;
+        RuleBasedBreakIterator result;
+        try {
+            compileRules(rules, ruleOS);
+            ruleData = ruleOS.toByteArray();
+            result = getInstanceFromCompiledRules(ByteBuffer.wrap(ruleData));
+        } catch (IOException e) {
+            ///CLOVER:OFF
+            throw new RuntimeException("RuleBasedBreakIterator rule compilation internal error: "
+                    + e.getMessage());
+            ///CLOVER:ON
+        }
+
+        // Write to a temporary file, then rename it, so that concurrent readers
+        // never see a partially written file.
+        File tempFile = null;
+        try {
+            if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs() && !cacheDirectory.isDirectory()) {
+                return result;
+            }
+            tempFile = File.createTempFile("rbbi", ".tmp", cacheDirectory);
+            OutputStream os = new FileOutputStream(tempFile);
+            try {
+                os.write(digest);
+                os.write(sha256().digest(ruleData));
+                os.write(ruleData);
+            } finally {
+                os.close();
+            }
+            try {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // Not supported, or an existing target file that cannot be replaced atomically.
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            tempFile = null;
+        } catch (IOException e) {
+            // The cache could not be written; the compiled rules are still usable.
+        } catch (SecurityException e) {
+            // Same as above.
+        } finally {
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the SHA-256 hash of the ICU version, the binary data format version, and a set of
+     * source rules. It names the rules' cache file, and is stored at the start of the file.
+     */
+    private static byte[] compiledRulesDigest(String rules) {
+        MessageDigest digest = sha256();
+        Charset utf8 = Charset.forName("UTF-8");
+        digest.update(VersionInfo.ICU_VERSION.toString().getBytes(utf8));
+        digest.update((byte)0);
+        digest.update(Integer.toHexString(RBBIDataWrapper.FORMAT_VERSION_8BITS_ROWS).getBytes(utf8));
+        digest.update((byte)0);
+        // Hash the UTF-16 code units so that unpaired surrogates are not lost.
+        for (int i = 0; i < rules.length(); ++i) {
+            char c = rules.charAt(i);
+            digest.update((byte)(c >> 8));
+            digest.update((byte)c);
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            ///CLOVER:OFF
+            // Every Java platform implementation is required to support SHA-256.
+            throw new IllegalStateException(e);
+            ///CLOVER:ON
+        }
+    }
+
+    /**
+     * Returns the cache file name for the hash of a set of source rules.
+     */
+    private static String compiledRulesFileName(byte[] hash) {
+        StringBuilder name = new StringBuilder("rbbi-");
+        for (byte b : hash) {
+            name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        // Not ".brk": the file starts with the hash, so it is not plain compiled rules.
+        return name.append(".brkcache").toString();
+    }
+
     /**
      * Construct a RuleBasedBreakIterator from a set of rules supplied as a string.
      * @param rules The break rules to be used.
@@ -135,9 +293,7 @@ public class RuleBasedBreakIterator extends BreakIterator {
         if (fText != null) {
             result.fText = (CharacterIterator)(fText.clone());
         }
-        synchronized (gAllBreakEngines)  {
-            result.fBreakEngines = new ArrayList<>(gAllBreakEngines);
-        }
+        result.fBreakEngines = new ArrayList<>(fBreakEngines);
         result.fLookAheadMatches = new LookAheadResults();
         result.fBreakCache = result.new BreakCache(fBreakCache);
         result.fDictionaryCache = result.new DictionaryCache(fDictionaryCache);
@@ -221,6 +377,13 @@ public class RuleBasedBreakIterator extends BreakIterator {
      */
     private CharacterIterator   fText = new java.text.StringCharacterIterator("");
 
+    /**
+     * The text being iterated, when it was set as a String or CharSequence; null otherwise.
+     * When non-null, it holds the same text as fText, and the forward and safe-reverse
+     * state machines index it directly rather than going through the CharacterIterator.
+     */
+    private CharSequence        fTextChars;
+
     /**
      * The rule data for this BreakIterator instance.
      * Not intended for public use. Declared public for testing purposes only.
@@ -289,24 +452,25 @@ public class RuleBasedBreakIterator extends BreakIterator {
     private static final UnhandledBreakEngine gUnhandledBreakEngine;
 
     /**
-     * List of all known break engines, common for all break iterators.
-     * Lazily updated as break engines are needed, because instantiation of
-     * break engines is expensive.
+     * All known dictionary break engines, common for all break iterators, keyed by script code.
+     * Lazily populated as break engines are needed, because instantiation of
+     * break engines (loading of the dictionaries) is expensive.
      *
-     * Because gAllBreakEngines can be referenced concurrently from different
-     * BreakIterator instances, all access is synchronized.
+     * Each script has a single FutureTask. The first thread to need an engine for a script
+     * builds it; other threads needing the same script wait for that future,
+     * while lookups of other scripts proceed without blocking.
      */
-    private static final List<LanguageBreakEngine> gAllBreakEngines;
+    private static final ConcurrentHashMap<Integer, FutureTask<LanguageBreakEngine>> gBreakEnginesByScript;
 
     static {
         gUnhandledBreakEngine = new UnhandledBreakEngine();
-        gAllBreakEngines = new ArrayList<>();
-        gAllBreakEngines.add(gUnhandledBreakEngine);
+        gBreakEnginesByScript = new ConcurrentHashMap<>();
     }
 
     /**
-     * List of all known break engines. Similar to gAllBreakEngines, but local to a
-     * break iterator, allowing it to be used without synchronization.
+     * Break engines used by this break iterator. A cache of engines from
+     * gBreakEnginesByScript, local to a break iterator, allowing it to be used
+     * without synchronization.
      */
     private List<LanguageBreakEngine> fBreakEngines;
 
@@ -653,6 +817,7 @@ public class RuleBasedBreakIterator extends BreakIterator {
      */
     @Override
     public void setText(CharacterIterator newText) {
+        fTextChars = null;
         if (newText != null) {
             fBreakCache.reset(newText.getBeginIndex(), 0);
         } else {
@@ -663,6 +828,59 @@ public class RuleBasedBreakIterator extends BreakIterator {
         this.first();
     }
 
+    /**
+     * Set the iterator to analyze a new piece of text.  This function resets
+     * the current iteration position to the beginning of the text.
+     * (The old text is dropped.)
+     * <p>
+     * The boundaries are located by indexing the String directly, which is
+     * faster than going through a CharacterIterator.
+     * The text is set by way of {@link #setText(CharacterIterator)}, so subclasses
+     * that override that method see this text too.
+     *
+     * @param newText A String containing the text to analyze.
+     * @stable ICU 2.0
+     */
+    @Override
+    public void setText(String newText) {
+        CharacterIterator ci = new java.text.StringCharacterIterator(newText);
+        setText(ci);
+        setTextChars(ci, newText);
+    }
+
+    /**
+     * Set the iterator to analyze a new piece of text.  This function resets
+     * the current iteration position to the beginning of the text.
+     * (The old text is dropped.)
+     * <p>
+     * The boundaries are located by indexing the CharSequence directly, which is
+     * faster than going through a CharacterIterator.
+     * The text underlying the CharSequence must not be be modified while
+     * the BreakIterator holds a references to it.
+     * The text is set by way of {@link #setText(CharacterIterator)}, so subclasses
+     * that override that method see this text too.
+     *
+     * @param newText A CharSequence containing the text to analyze.
+     * @stable ICU 60
+     */
+    @Override
+    public void setText(CharSequence newText) {
+        CharacterIterator ci = new CSCharacterIterator(newText);
+        setText(ci);
+        setTextChars(ci, newText);
+    }
+
+    /**
+     * Index the text directly from now on, unless an overriding
+     * setText(CharacterIterator) installed a different iterator.
+     * Boundaries already cached index the same text, so they remain valid.
+     */
+    private void setTextChars(CharacterIterator ci, CharSequence newTextChars) {
+        if (fText == ci) {
+            fTextChars = newTextChars;
+        }
+    }
+
      /**
      * Control debug, trace and dump options.
      * @internal
@@ -683,61 +901,147 @@ public class RuleBasedBreakIterator extends BreakIterator {
             }
         }
 
-        synchronized (gAllBreakEngines) {
-            // This break iterator's list of break engines didn't handle the character.
-            // Check the global list, another break iterator may have instantiated the
-            // desired engine.
-            for (LanguageBreakEngine candidate : gAllBreakEngines) {
-                if (candidate.handles(c)) {
+        // This break iterator's list of break engines didn't handle the character.
+        // Check the engines that are already built, another break iterator may have
+        // instantiated the desired engine.
+        for (FutureTask<LanguageBreakEngine> future : gBreakEnginesByScript.values()) {
+            if (future.isDone()) {
+                LanguageBreakEngine candidate = getLoadedBreakEngine(future);
+                if (candidate != null && candidate.handles(c)) {
                     fBreakEngines.add(candidate);
                     return candidate;
                 }
             }
+        }
+
+        int script = UCharacter.getIntPropertyValue(c, UProperty.SCRIPT);
+        if (script == UScript.KATAKANA || script == UScript.HIRAGANA) {
+            // Katakana, Hiragana and Han are handled by the same dictionary engine.
+            // Fold them together for mapping from script -> engine.
+            script = UScript.HAN;
+        }
+        switch (script) {
+        case UScript.THAI:
+        case UScript.LAO:
+        case UScript.MYANMAR:
+        case UScript.KHMER:
+        case UScript.HAN:
+        case UScript.HANGUL:
+            break;
+        default:
+            gUnhandledBreakEngine.handleChar(c);
+            return gUnhandledBreakEngine;
+        }
 
-            // The global list doesn't have an existing engine, build one.
-            int script = UCharacter.getIntPropertyValue(c, UProperty.SCRIPT);
-            if (script == UScript.KATAKANA || script == UScript.HIRAGANA) {
-                // Katakana, Hiragana and Han are handled by the same dictionary engine.
-                // Fold them together for mapping from script -> engine.
-                script = UScript.HAN;
+        // Find or build the engine for the script.
+        // Only the thread that registers the future builds the engine.
+        FutureTask<LanguageBreakEngine> future = gBreakEnginesByScript.get(script);
+        if (future == null) {
+            FutureTask<LanguageBreakEngine> newFuture =
+                    new FutureTask<>(new BreakEngineLoader(script));
+            future = gBreakEnginesByScript.putIfAbsent(script, newFuture);
+            if (future == null) {
+                future = newFuture;
+                future.run();
             }
+        }
+        LanguageBreakEngine eng = getBreakEngine(script, future);
+        if (eng != null) {
+            fBreakEngines.add(eng);
+        }
+        return eng;
+    }
 
-            LanguageBreakEngine eng;
+    /**
+     * Wait for and return the result of a break engine future.
+     * If the engine could not be built, the future is removed from gBreakEnginesByScript
+     * so that a later lookup tries again. An exception thrown while building the engine
+     * is rethrown to the threads that were waiting for it.
+     * @return the engine, or null if its dictionary could not be loaded.
+     */
+    private static LanguageBreakEngine getBreakEngine(int script, FutureTask<LanguageBreakEngine> future) {
+        boolean interrupted = false;
+        try {
+            for (;;) {
+                try {
+                    LanguageBreakEngine eng = future.get();
+                    if (eng == null) {
+                        gBreakEnginesByScript.remove(script, future);
+                    }
+                    return eng;
+                } catch (InterruptedException e) {
+                    // Keep waiting; the loading thread does not observe interrupts.
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    gBreakEnginesByScript.remove(script, future);
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException)cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error)cause;
+                    }
+                    return null;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Return the result of a completed break engine future, without waiting.
+     * @return the engine, or null if it could not be built.
+     */
+    private static LanguageBreakEngine getLoadedBreakEngine(FutureTask<LanguageBreakEngine> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // Not reached for a completed future.
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // Left for the thread looking up that script to report and remove.
+            return null;
+        }
+    }
+
+    /**
+     * Builds the dictionary break engine for one script.
+     * The result is null if the engine's dictionary could not be loaded.
+     */
+    private static final class BreakEngineLoader implements Callable<LanguageBreakEngine> {
+        private final int script;
+
+        BreakEngineLoader(int script) {
+            this.script = script;
+        }
+
+        @Override
+        public LanguageBreakEngine call() {
             try {
                 switch (script) {
                 case UScript.THAI:
-                    eng = new ThaiBreakEngine();
-                    break;
+                    return new ThaiBreakEngine();
                 case UScript.LAO:
-                    eng = new LaoBreakEngine();
-                    break;
+                    return new LaoBreakEngine();
                 case UScript.MYANMAR:
-                    eng = new BurmeseBreakEngine();
-                    break;
+                    return new BurmeseBreakEngine();
                 case UScript.KHMER:
-                    eng = new KhmerBreakEngine();
-                    break;
+                    return new KhmerBreakEngine();
                 case UScript.HAN:
-                    eng = new CjkBreakEngine(false);
-                     break;
+                    return new CjkBreakEngine(false);
                 case UScript.HANGUL:
-                    eng = new CjkBreakEngine(true);
-                    break;
+                    return new CjkBreakEngine(true);
                 default:
-                    gUnhandledBreakEngine.handleChar(c);
-                    eng = gUnhandledBreakEngine;
-                    break;
+                    throw new IllegalArgumentException("No dictionary break engine for script " + script);
                 }
             } catch (IOException e) {
-                eng = null;
+                return null;
             }
-
-            if (eng != null && eng != gUnhandledBreakEngine) {
-                gAllBreakEngines.add(eng);
-                fBreakEngines.add(eng);
-            }
-            return eng;
-        }   // end synchronized(gAllBreakEngines)
+        }
     }
 
     private static final int kMaxLookaheads = 8;
@@ -810,6 +1114,9 @@ public class RuleBasedBreakIterator extends BreakIterator {
      * points at the lead surrogate of a supplementary.
      */
     private int handleNext() {
+        if (fTextChars != null && !TRACE) {
+            return handleNext(fTextChars);
+        }
         if (TRACE) {
             System.out.println("Handle Next   pos      char  state category");
         }
@@ -991,6 +1298,9 @@ public class RuleBasedBreakIterator extends BreakIterator {
      * @internal
      */
     private int handleSafePrevious(int fromPosition) {
+        if (fTextChars != null && !TRACE) {
+            return handleSafePrevious(fTextChars, fromPosition);
+        }
         int             state;
         short           category = 0;
         int             result = 0;
@@ -1052,6 +1362,179 @@ public class RuleBasedBreakIterator extends BreakIterator {
         return result;
     }
 
+    /**
+     * Variant of handleNext() for text set as a String or CharSequence.
+     * The state machine is identical; the text is indexed directly,
+     * and character categories come from the fast CodePointTrie.
+     *
+     * @param text the text being iterated, the same text as fText.
+     * @return the new iterator position
+     */
+    private int handleNext(CharSequence text) {
+        fRuleStatusIndex  = 0;
+        fDictionaryCharCount = 0;
+
+        CodePointTrie.Fast16 trie = fRData.getFastTrie();
+        short[] stateTable  = fRData.fFTable.fTable;
+        int textLimit       = text.length();
+        int initialPosition = fPosition;
+        int result          = initialPosition;
+
+        // index is the start of the current character c, nextIndex is its limit.
+        int index = initialPosition;
+        if (index >= textLimit) {
+            fDone = true;
+            return BreakIterator.DONE;
+        }
+        int c = text.charAt(index);
+        int nextIndex = index + 1;
+        if (Character.isHighSurrogate((char)c) && nextIndex < textLimit) {
+            char trail = text.charAt(nextIndex);
+            if (Character.isLowSurrogate(trail)) {
+                c = Character.toCodePoint((char)c, trail);
+                ++nextIndex;
+            }
+        }
+
+        // Set the initial state for the state machine
+        int state           = START_STATE;
+        int row             = fRData.getRowIndex(state);
+        short category      = 3;
+        int mode            = RBBI_RUN;
+        if ((fRData.fFTable.fFlags & RBBIDataWrapper.RBBI_BOF_REQUIRED) != 0) {
+            category = 2;
+            mode     = RBBI_START;
+        }
+        fLookAheadMatches.reset();
+
+        // loop until we reach the end of the text or transition to state 0
+        while (state != STOP_STATE) {
+            if (c == DONE32) {
+                // Reached end of input string.
+                if (mode == RBBI_END) {
+                    break;
+                }
+                // Run the loop one last time with the fake end-of-input character category
+                mode = RBBI_END;
+                category = 1;
+            }
+            else if (mode == RBBI_RUN) {
+                category = (short) (c <= 0xffff ? trie.bmpGet(c) : trie.suppGet(c));
+                if ((category & 0x4000) != 0)  {
+                    fDictionaryCharCount++;
+                    category &= ~0x4000;
+                }
+
+                // Advance to the next character.
+                index = nextIndex;
+                if (index < textLimit) {
+                    c = text.charAt(index);
+                    ++nextIndex;
+                    if (Character.isHighSurrogate((char)c) && nextIndex < textLimit) {
+                        char trail = text.charAt(nextIndex);
+                        if (Character.isLowSurrogate(trail)) {
+                            c = Character.toCodePoint((char)c, trail);
+                            ++nextIndex;
+                        }
+                    }
+                } else {
+                    c = DONE32;
+                }
+            }
+            else {
+                mode = RBBI_RUN;
+            }
+
+            // look up a state transition in the state table
+            state = stateTable[row + RBBIDataWrapper.NEXTSTATES + category];
+            row   = fRData.getRowIndex(state);
+
+            if (stateTable[row + RBBIDataWrapper.ACCEPTING] == -1) {
+                // Match found, common case
+                result = index;
+                fRuleStatusIndex = stateTable[row + RBBIDataWrapper.TAGIDX];
+            }
+
+            int completedRule = stateTable[row + RBBIDataWrapper.ACCEPTING];
+            if (completedRule > 0) {
+                // Lookahead match is completed
+                int lookaheadResult = fLookAheadMatches.getPosition(completedRule);
+                if (lookaheadResult >= 0) {
+                    fRuleStatusIndex = stateTable[row + RBBIDataWrapper.TAGIDX];
+                    fPosition = lookaheadResult;
+                    return lookaheadResult;
+                }
+            }
+
+            int rule =  stateTable[row + RBBIDataWrapper.LOOKAHEAD];
+            if (rule != 0) {
+                // At the position of a '/' in a look-ahead match. Record it.
+                fLookAheadMatches.setPosition(rule, index);
+            }
+        }        // End of state machine main loop
+
+        // If the iterator failed to advance in the match engine force it ahead by one.
+        if (result == initialPosition) {
+            result = initialPosition + Character.charCount(Character.codePointAt(text, initialPosition));
+            fRuleStatusIndex = 0;
+        }
+        fPosition = result;
+        return result;
+    }
+
+    /**
+     * Variant of handleSafePrevious() for text set as a String or CharSequence.
+     *
+     * @param text the text being iterated, the same text as fText.
+     * @param fromPosition the position in the input text to begin the iteration.
+     */
+    private int handleSafePrevious(CharSequence text, int fromPosition) {
+        CodePointTrie.Fast16 trie = fRData.getFastTrie();
+        short[] stateTable  = fRData.fRTable.fTable;
+
+        // Pin the starting index, and back it up to the start of a supplementary.
+        int index = fromPosition;
+        int textLimit = text.length();
+        if (index <= 0) {
+            return BreakIterator.DONE;
+        } else if (index >= textLimit) {
+            index = textLimit;
+        } else if (Character.isLowSurrogate(text.charAt(index)) &&
+                Character.isHighSurrogate(text.charAt(index - 1))) {
+            --index;
+        }
+        if (index == 0) {
+            return BreakIterator.DONE;
+        }
+
+        int state = START_STATE;
+        int row = fRData.getRowIndex(state);
+
+        // loop until we reach the start of the text or transition to state 0
+        while (index > 0) {
+            int c = text.charAt(--index);
+            if (Character.isLowSurrogate((char)c) && index > 0) {
+                char lead = text.charAt(index - 1);
+                if (Character.isHighSurrogate(lead)) {
+                    c = Character.toCodePoint(lead, (char)c);
+                    --index;
+                }
+            }
+            // And off the dictionary flag bit. For reverse iteration it is not used.
+            short category = (short) (c <= 0xffff ? trie.bmpGet(c) : trie.suppGet(c));
+            category &= ~0x4000;
+
+            state = stateTable[row + RBBIDataWrapper.NEXTSTATES + category];
+            row   = fRData.getRowIndex(state);
+            if (state == STOP_STATE) {
+                // Transition to state zero means we have found a safe point.
+                break;
+            }
+        }
+        return index;
+    }
+
+
     /**
      * Set the index of a CharacterIterator.
      * Pin the index to the valid range range of BeginIndex <= index <= EndIndex.
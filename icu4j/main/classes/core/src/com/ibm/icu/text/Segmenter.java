@@ -0,0 +1,287 @@
+// © 2018 and later: Unicode, Inc. and others.
+// License & terms of use: http://www.unicode.org/copyright.html#License
+package com.ibm.icu.text;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.ibm.icu.lang.UCharacter;
+import com.ibm.icu.lang.UProperty;
+import com.ibm.icu.util.ULocale;
+
+/**
+ * Immutable, thread-safe text segmentation for one locale and one kind of boundary.
+ * <p>
+ * A BreakIterator holds the iteration position and caches of boundaries for one text,
+ * so each thread needs its own instance.
+ * A Segmenter is created once and then shared: any number of threads may call
+ * {@link #getBoundaries(CharSequence)} on the same instance at the same time.
+ * It finds the same boundaries as the BreakIterator for the same locale and kind.
+ * <p>
+ * The BreakIterator is instantiated (rule data loaded, locale resolved) only once,
+ * when the Segmenter is created. Each call works on a copy of it. Idle copies are
+ * kept in a small lock-free pool, with room for one copy per available processor,
+ * and reused by later calls. A Segmenter used by as many threads as there are processors
+ * therefore copies the iterator about once per thread, and never holds more idle copies
+ * than the pool has room for, however many threads have used it.
+ * <p>
+ * A character (grapheme cluster) Segmenter with the standard rules does not run the
+ * break rules over simple text: between two adjacent code points that are neither
+ * combining nor otherwise part of a complex cluster (Grapheme_Cluster_Break=Other,
+ * Control or LF, but not CR) there is always a boundary. The break iterator is only
+ * used around complex clusters, such as combining sequences, emoji ZWJ sequences and Hangul.
+ *
+ * @see BreakIterator
+ * @draft ICU 64
+ * @provisional This API might change or be removed in a future release.
+ */
+public final class Segmenter {
+    private final BreakIterator prototype;
+    private final int kind;
+    private final ULocale locale;
+    /** true if boundaries can be found with GraphemeData, without the break iterator. */
+    private final boolean graphemeFastPath;
+    /**
+     * Idle copies of the prototype. A null slot is empty.
+     * A copy is taken by swapping null into its slot, so that only one thread can take it.
+     */
+    private final AtomicReferenceArray<BreakIterator> spares =
+            new AtomicReferenceArray<BreakIterator>(POOL_SIZE);
+    /** The number of copies made of the prototype, for testing. */
+    private final AtomicInteger copyCount = new AtomicInteger();
+
+    /** The number of idle copies kept, one per processor. */
+    private static final int POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private Segmenter(ULocale locale, int kind) {
+        this.prototype = createBreakIterator(locale, kind);
+        this.kind = kind;
+        this.locale = locale;
+        this.graphemeFastPath = kind == BreakIterator.KIND_CHARACTER &&
+                prototype instanceof RuleBasedBreakIterator &&
+                prototype.toString().equals(GraphemeData.ROOT_RULES);
+    }
+
+    private static BreakIterator createBreakIterator(ULocale locale, int kind) {
+        switch (kind) {
+        case BreakIterator.KIND_CHARACTER:
+            return BreakIterator.getCharacterInstance(locale);
+        case BreakIterator.KIND_WORD:
+            return BreakIterator.getWordInstance(locale);
+        case BreakIterator.KIND_LINE:
+            return BreakIterator.getLineInstance(locale);
+        case BreakIterator.KIND_SENTENCE:
+            return BreakIterator.getSentenceInstance(locale);
+        default:
+            return BreakIterator.getTitleInstance(locale);
+        }
+    }
+
+    /**
+     * Returns a copy of the prototype for one call, reusing an idle one if available.
+     */
+    private BreakIterator acquire(CharSequence text) {
+        // Start the search at a slot that depends on the thread, so that
+        // threads tend to find different copies instead of all trying the first slot.
+        int start = startSlot();
+        BreakIterator bi = null;
+        for (int i = 0; i < POOL_SIZE && bi == null; ++i) {
+            int slot = (start + i) % POOL_SIZE;
+            if (spares.get(slot) != null) {
+                bi = spares.getAndSet(slot, null);
+            }
+        }
+        if (bi == null) {
+            bi = (BreakIterator)prototype.clone();
+            copyCount.incrementAndGet();
+        }
+        bi.setText(text);
+        return bi;
+    }
+
+    private void release(BreakIterator bi) {
+        // Do not keep a reference to the caller's text in the idle iterator.
+        bi.setText("");
+        int start = startSlot();
+        for (int i = 0; i < POOL_SIZE; ++i) {
+            if (spares.compareAndSet((start + i) % POOL_SIZE, null, bi)) {
+                return;
+            }
+        }
+        // The pool is full; drop this copy.
+    }
+
+    private static int startSlot() {
+        return (int)((Thread.currentThread().getId() & 0x7fffffff) % POOL_SIZE);
+    }
+
+    /**
+     * Returns the number of copies this Segmenter has made of its break iterator.
+     * For testing the reuse of copies.
+     * @internal
+     * @deprecated This API is ICU internal only.
+     */
+    @Deprecated
+    public int getCopyCount() {
+        return copyCount.get();
+    }
+
+    /**
+     * Returns a Segmenter for the given locale and kind of boundary.
+     * @param locale the locale whose boundary rules are to be used
+     * @param kind the kind of boundary, one of BreakIterator.KIND_CHARACTER,
+     *        KIND_WORD, KIND_LINE, KIND_SENTENCE or KIND_TITLE
+     * @return a Segmenter
+     * @throws IllegalArgumentException if kind is not one of the BreakIterator kinds
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public static Segmenter getInstance(ULocale locale, int kind) {
+        if (locale == null) {
+            throw new NullPointerException("Specified locale is null");
+        }
+        if (kind < BreakIterator.KIND_CHARACTER || kind > BreakIterator.KIND_TITLE) {
+            throw new IllegalArgumentException("Illegal break iterator kind " + kind);
+        }
+        return new Segmenter(locale, kind);
+    }
+
+    /**
+     * Returns a Segmenter for the given locale and kind of boundary.
+     * @param locale the locale whose boundary rules are to be used
+     * @param kind the kind of boundary, one of BreakIterator.KIND_CHARACTER,
+     *        KIND_WORD, KIND_LINE, KIND_SENTENCE or KIND_TITLE
+     * @return a Segmenter
+     * @throws IllegalArgumentException if kind is not one of the BreakIterator kinds
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public static Segmenter getInstance(Locale locale, int kind) {
+        return getInstance(ULocale.forLocale(locale), kind);
+    }
+
+    /**
+     * Returns the locale that was requested for this Segmenter.
+     * @return the locale
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public ULocale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Returns the kind of boundary located by this Segmenter.
+     * @return one of the BreakIterator.KIND_ constants
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public int getKind() {
+        return kind;
+    }
+
+    /**
+     * Finds all of the boundaries in the text, in ascending order.
+     * The start of the text (0) and the end of the text (text.length())
+     * are always boundaries, so the result has at least one element.
+     * <p>
+     * The text is not retained after the call returns, but it must not be modified
+     * while the call is in progress.
+     *
+     * @param text the text to be segmented
+     * @return the boundary offsets
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public int[] getBoundaries(CharSequence text) {
+        if (graphemeFastPath) {
+            return getGraphemeBoundaries(text);
+        }
+        BreakIterator bi = acquire(text);
+        try {
+            int[] boundaries = new int[Math.min(text.length() + 1, 16)];
+            int count = 0;
+            for (int b = bi.first(); b != BreakIterator.DONE; b = bi.next()) {
+                if (count == boundaries.length) {
+                    boundaries = Arrays.copyOf(boundaries, Math.min(count * 2, text.length() + 1));
+                }
+                boundaries[count++] = b;
+            }
+            return count == boundaries.length ? boundaries : Arrays.copyOf(boundaries, count);
+        } finally {
+            release(bi);
+        }
+    }
+
+    private int[] getGraphemeBoundaries(CharSequence text) {
+        int length = text.length();
+        int[] boundaries = new int[length + 1];
+        int count = 0;
+        BreakIterator bi = null;
+        try {
+            // Each loop iteration starts at a boundary.
+            int i = 0;
+            boundaries[count++] = 0;
+            while (i < length) {
+                char c = text.charAt(i);
+                if (GraphemeData.isSimple(c)) {
+                    if (i + 1 == length) {
+                        boundaries[count++] = length;
+                        break;
+                    }
+                    char next = text.charAt(i + 1);
+                    if (GraphemeData.isSimple(next)) {
+                        boundaries[count++] = ++i;
+                        continue;
+                    }
+                }
+                // A complex cluster, or CR: let the break rules find its end.
+                if (bi == null) {
+                    bi = acquire(text);
+                }
+                i = bi.following(i);
+                boundaries[count++] = i;
+            }
+        } finally {
+            if (bi != null) {
+                release(bi);
+            }
+        }
+        return count == boundaries.length ? boundaries : Arrays.copyOf(boundaries, count);
+    }
+
+    /**
+     * Data for the character (grapheme cluster) fast path, loaded on first use.
+     */
+    private static final class GraphemeData {
+        /** The rules of the standard (root) character break iterator. */
+        static final String ROOT_RULES = BreakIterator.getCharacterInstance(ULocale.ROOT).toString();
+
+        /**
+         * Bit set of the BMP code points with Grapheme_Cluster_Break=Other, Control or LF;
+         * not CR, and not surrogates.
+         * There is always a boundary between any two of them.
+         */
+        private static final long[] SIMPLE = new long[0x10000 >> 6];
+
+        static {
+            for (int c = 0; c < 0x10000; ++c) {
+                if (Character.isSurrogate((char)c)) {
+                    continue;
+                }
+                int gcb = UCharacter.getIntPropertyValue(c, UProperty.GRAPHEME_CLUSTER_BREAK);
+                if (gcb == UCharacter.GraphemeClusterBreak.OTHER ||
+                        gcb == UCharacter.GraphemeClusterBreak.CONTROL ||
+                        gcb == UCharacter.GraphemeClusterBreak.LF) {
+                    SIMPLE[c >> 6] |= 1L << c;
+                }
+            }
+        }
+
+        static boolean isSimple(char c) {
+            return (SIMPLE[c >> 6] & (1L << c)) != 0;
+        }
+    }
+}
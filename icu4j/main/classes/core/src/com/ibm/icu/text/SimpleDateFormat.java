@@ -18,6 +18,7 @@ import java.text.FieldPosition;
 import java.text.Format;
 import java.text.ParsePosition;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -39,6 +40,7 @@ import com.ibm.icu.text.TimeZoneFormat.TimeType;
 import com.ibm.icu.util.BasicTimeZone;
 import com.ibm.icu.util.Calendar;
 import com.ibm.icu.util.HebrewCalendar;
+import com.ibm.icu.util.ICUUncheckedIOException;
 import com.ibm.icu.util.Output;
 import com.ibm.icu.util.TimeZone;
 import com.ibm.icu.util.TimeZoneTransition;
@@ -1351,6 +1353,327 @@ public class SimpleDateFormat extends DateFormat {
         return result;
     }
 
+    /**
+     * {@icu} Formats a date or time, which is the standard millis since January 1, 1970, 00:00:00 GMT,
+     * and appends it to the Appendable. The result is the same as that of
+     * {@link DateFormat#format(Date)}.
+     * <p>
+     * This method does not create a Date, StringBuffer or FieldPosition.
+     * Numeric fields are written directly with the digits of this formatter,
+     * and name and time zone fields directly from its symbols, without synchronization.
+     * Other fields, such as day periods, and a first field that is capitalized for the
+     * capitalization context, go through a StringBuffer that this formatter reuses.
+     * The text is appended to the Appendable if it is a StringBuilder,
+     * otherwise to a new StringBuilder whose contents are then appended to the Appendable.
+     * <p>Any {@link java.io.IOException} is wrapped into a {@link com.ibm.icu.util.ICUUncheckedIOException}.
+     *
+     * @param epochMillis the date-time value to be formatted
+     * @param appendable where the formatted date-time text is to be appended
+     * @return appendable
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public <A extends Appendable> A formatTo(long epochMillis, A appendable) {
+        return formatToAppendable(FORMAT_TO_STEP, this, epochMillis, appendable);
+    }
+
+    /**
+     * Formats a date with a formatter, appending the text to a StringBuilder.
+     * A step for formatToAppendable().
+     */
+    interface StringBuilderStep<F> {
+        void format(F formatter, long epochMillis, StringBuilder toAppendTo);
+    }
+
+    private static final StringBuilderStep<SimpleDateFormat> FORMAT_TO_STEP =
+            new StringBuilderStep<SimpleDateFormat>() {
+        @Override
+        public void format(SimpleDateFormat formatter, long epochMillis, StringBuilder toAppendTo) {
+            formatter.calendar.setTimeInMillis(epochMillis);
+            formatter.formatTo(formatter.calendar, toAppendTo);
+        }
+    };
+
+    /**
+     * Implements formatTo(long, Appendable) for this class and for ImmutableDateFormat.
+     * Runs the step on the appendable if it is a StringBuilder, otherwise on a new StringBuilder
+     * whose contents are then appended to the appendable.
+     * Any IOException is wrapped into an ICUUncheckedIOException.
+     */
+    static <F, A extends Appendable> A formatToAppendable(StringBuilderStep<F> step, F formatter,
+            long epochMillis, A appendable) {
+        if (appendable instanceof StringBuilder) {
+            step.format(formatter, epochMillis, (StringBuilder)appendable);
+        } else {
+            StringBuilder sb = new StringBuilder();
+            step.format(formatter, epochMillis, sb);
+            try {
+                appendable.append(sb);
+            } catch (IOException e) {
+                throw new ICUUncheckedIOException(e);
+            }
+        }
+        return appendable;
+    }
+
+    // Never matches a field, so subFormat does not modify it.
+    private static final FieldPosition NO_FIELD_POSITION = new FieldPosition(-1);
+
+    // Formats like format(Calendar, DisplayContext, StringBuffer, FieldPosition, List),
+    // but to a StringBuilder.
+    private void formatTo(Calendar cal, StringBuilder toAppendTo) {
+        if (getClass() != SimpleDateFormat.class || !useFastFormat) {
+            // A subclass may override the format and subFormat methods.
+            toAppendTo.append(format(cal, new StringBuffer(), new FieldPosition(0)));
+            return;
+        }
+        DisplayContext capitalizationContext = getContext(DisplayContext.Type.CAPITALIZATION);
+        Object[] items = getPatternItems();
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] instanceof String) {
+                toAppendTo.append((String)items[i]);
+            } else {
+                PatternItem item = (PatternItem)items[i];
+                // subFormat may capitalize the first field; leave that to it.
+                boolean capitalize = i == 0 &&
+                        capitalizationContext != DisplayContext.CAPITALIZATION_NONE &&
+                        capitalizationContext != DisplayContext.CAPITALIZATION_FOR_MIDDLE_OF_SENTENCE;
+                if (!appendNumericField(toAppendTo, item.type, item.length, cal) &&
+                        (capitalize || !appendTextField(toAppendTo, item.type, item.length, cal))) {
+                    if (fieldBuffer == null) {
+                        fieldBuffer = new StringBuffer();
+                    } else {
+                        fieldBuffer.setLength(0);
+                    }
+                    subFormat(fieldBuffer, item.type, item.length, toAppendTo.length(),
+                              i, capitalizationContext, NO_FIELD_POSITION, cal);
+                    toAppendTo.append(fieldBuffer);
+                }
+            }
+        }
+    }
+
+    /*
+     * Appends a numeric field the same way as subFormat, for the fields that
+     * subFormat formats with zeroPaddingNumber and the fractional seconds.
+     * Returns false if the field is not one of those, or if zeroPaddingNumber
+     * would use the NumberFormat.
+     */
+    private boolean appendNumericField(StringBuilder buf, char ch, int count, Calendar cal) {
+        if (!useLocalZeroPaddingNumberFormat) {
+            return false;
+        }
+        int value;
+        int minDigits = count;
+        int maxDigits = Integer.MAX_VALUE;
+        switch (ch) {
+        case 'd': case 'H': case 'm': case 's': case 'D': case 'F':
+        case 'w': case 'W': case 'K': case 'u': case 'g': case 'A':
+            value = cal.get(PATTERN_INDEX_TO_CALENDAR_FIELD[getIndexFromChar(ch)]);
+            break;
+        case 'y':
+        case 'Y':
+            if (override != null) {
+                return false;
+            }
+            value = cal.get(ch == 'y' ? Calendar.YEAR : Calendar.YEAR_WOY);
+            if (count == 2) {
+                maxDigits = 2; // clip 1996 to 96
+            }
+            break;
+        case 'k':
+            value = cal.get(Calendar.HOUR_OF_DAY);
+            if (value == 0) {
+                value = cal.getMaximum(Calendar.HOUR_OF_DAY) + 1;
+            }
+            break;
+        case 'h':
+            value = cal.get(Calendar.HOUR);
+            if (value == 0) {
+                value = cal.getLeastMaximum(Calendar.HOUR) + 1;
+            }
+            break;
+        case 'e':
+        case 'c':
+            if (count >= 3) {
+                return false;
+            }
+            value = cal.get(Calendar.DOW_LOCAL);
+            if (ch == 'c') {
+                minDigits = 1;
+            }
+            break;
+        case 'S':
+            // Fractional seconds left-justify
+            value = cal.get(Calendar.MILLISECOND);
+            if (count == 1) {
+                value /= 100;
+            } else if (count == 2) {
+                value /= 10;
+            }
+            appendZeroPadded(buf, decDigitPairs, value, Math.min(3, count), maxDigits);
+            if (count > 3) {
+                appendZeroPadded(buf, decDigitPairs, 0, count - 3, maxDigits);
+            }
+            return true;
+        default:
+            return false;
+        }
+        if (value < 0) {
+            return false;
+        }
+        appendZeroPadded(buf, decDigitPairs, value, minDigits, maxDigits);
+        return true;
+    }
+
+    /*
+     * Appends a text field the same way as subFormat, without capitalization:
+     * the era, month, quarter, day of week and AM/PM names, and the time zone fields.
+     * Returns false if the field is not one of those, or if subFormat would
+     * format it differently for the calendar, such as a leap month or a Hebrew month.
+     */
+    private boolean appendTextField(StringBuilder buf, char ch, int count, Calendar cal) {
+        String[] names;
+        int value;
+        switch (ch) {
+        case 'G':
+            if (cal.getType().equals("chinese") || cal.getType().equals("dangi")) {
+                return false;
+            }
+            names = count == 5 ? formatData.narrowEras : count == 4 ? formatData.eraNames : formatData.eras;
+            value = cal.get(Calendar.ERA);
+            break;
+        case 'M':
+        case 'L':
+            if (count < 3 || count > 5 || cal.getType().equals("hebrew") ||
+                    (formatData.leapMonthPatterns != null &&
+                     formatData.leapMonthPatterns.length >= DateFormatSymbols.DT_MONTH_PATTERN_COUNT &&
+                     cal.get(Calendar.IS_LEAP_MONTH) != 0)) {
+                return false;
+            }
+            if (ch == 'M') {
+                names = count == 5 ? formatData.narrowMonths : count == 4 ? formatData.months : formatData.shortMonths;
+            } else {
+                names = count == 5 ? formatData.standaloneNarrowMonths :
+                        count == 4 ? formatData.standaloneMonths : formatData.standaloneShortMonths;
+            }
+            value = cal.get(Calendar.MONTH);
+            break;
+        case 'Q':
+        case 'q':
+            if (count < 3) {
+                return false;
+            }
+            if (ch == 'Q') {
+                names = count >= 4 ? formatData.quarters : formatData.shortQuarters;
+            } else {
+                names = count >= 4 ? formatData.standaloneQuarters : formatData.standaloneShortQuarters;
+            }
+            value = cal.get(Calendar.MONTH) / 3;
+            break;
+        case 'e':
+        case 'E':
+            if (ch == 'e' && count < 3) {
+                return false;
+            }
+            if (count == 5) {
+                names = formatData.narrowWeekdays;
+            } else if (count == 4) {
+                names = formatData.weekdays;
+            } else if (count == 6 && formatData.shorterWeekdays != null) {
+                names = formatData.shorterWeekdays;
+            } else {
+                names = formatData.shortWeekdays;
+            }
+            value = cal.get(Calendar.DAY_OF_WEEK);
+            break;
+        case 'c':
+            if (count < 3) {
+                return false;
+            }
+            if (count == 5) {
+                names = formatData.standaloneNarrowWeekdays;
+            } else if (count == 4) {
+                names = formatData.standaloneWeekdays;
+            } else if (count == 6 && formatData.standaloneShorterWeekdays != null) {
+                names = formatData.standaloneShorterWeekdays;
+            } else {
+                names = formatData.standaloneShortWeekdays;
+            }
+            value = cal.get(Calendar.DAY_OF_WEEK);
+            break;
+        case 'a':
+            // formatData.ampmsNarrow may be null when deserializing DateFormatSymbols from old version
+            names = count < 5 || formatData.ampmsNarrow == null ? formatData.ampms : formatData.ampmsNarrow;
+            value = cal.get(Calendar.AM_PM);
+            break;
+        default:
+            Style style = getTimeZoneStyle(ch, count);
+            if (style == null) {
+                return false;
+            }
+            buf.append(tzFormat().format(style, cal.getTimeZone(), cal.getTimeInMillis()));
+            return true;
+        }
+        if (names != null && value >= 0 && value < names.length) {
+            buf.append(names[value]);
+        }
+        return true;
+    }
+
+    /*
+     * Returns the TimeZoneFormat style for a time zone field,
+     * or null if the field is not a time zone field, or if subFormat
+     * does not format it with a style.
+     * Also used by ImmutableDateFormat.
+     */
+    static Style getTimeZoneStyle(char type, int count) {
+        switch (type) {
+        case 'z':
+            return count < 4 ? Style.SPECIFIC_SHORT : Style.SPECIFIC_LONG;
+        case 'Z':
+            if (count < 4) {
+                return Style.ISO_BASIC_LOCAL_FULL;
+            } else if (count == 5) {
+                return Style.ISO_EXTENDED_FULL;
+            } else {
+                return Style.LOCALIZED_GMT;
+            }
+        case 'v':
+            return count == 1 ? Style.GENERIC_SHORT : count == 4 ? Style.GENERIC_LONG : null;
+        case 'V':
+            switch (count) {
+            case 1: return Style.ZONE_ID_SHORT;
+            case 2: return Style.ZONE_ID;
+            case 3: return Style.EXEMPLAR_LOCATION;
+            case 4: return Style.GENERIC_LOCATION;
+            default: return null;
+            }
+        case 'O':
+            return count == 1 ? Style.LOCALIZED_GMT_SHORT : count == 4 ? Style.LOCALIZED_GMT : null;
+        case 'X':
+            switch (count) {
+            case 1: return Style.ISO_BASIC_SHORT;
+            case 2: return Style.ISO_BASIC_FIXED;
+            case 3: return Style.ISO_EXTENDED_FIXED;
+            case 4: return Style.ISO_BASIC_FULL;
+            case 5: return Style.ISO_EXTENDED_FULL;
+            default: return null;
+            }
+        case 'x':
+            switch (count) {
+            case 1: return Style.ISO_BASIC_LOCAL_SHORT;
+            case 2: return Style.ISO_BASIC_LOCAL_FIXED;
+            case 3: return Style.ISO_EXTENDED_LOCAL_FIXED;
+            case 4: return Style.ISO_BASIC_LOCAL_FULL;
+            case 5: return Style.ISO_EXTENDED_LOCAL_FULL;
+            default: return null;
+            }
+        default:
+            return null;
+        }
+    }
+
     // The actual method to format date. If List attributes is not null,
     // then attribute information will be recorded.
     private StringBuffer format(Calendar cal, DisplayContext capitalizationContext,
@@ -2098,7 +2421,7 @@ public class SimpleDateFormat extends DateFormat {
     /*
      * PatternItem store parsed date/time field pattern information.
      */
-    private static class PatternItem {
+    static class PatternItem {
         final char type;
         final int length;
         final boolean isNumeric;
@@ -2116,9 +2439,10 @@ public class SimpleDateFormat extends DateFormat {
 
     /*
      * Returns parsed pattern items.  Each item is either String or
-     * PatternItem.
+     * PatternItem.  The array may be shared with other instances and
+     * must not be modified.
      */
-    private Object[] getPatternItems() {
+    Object[] getPatternItems() {
         if (patternItems != null) {
             return patternItems;
         }
@@ -2268,13 +2592,47 @@ public class SimpleDateFormat extends DateFormat {
 
         if (useLocalZeroPaddingNumberFormat) {
             decimalBuf = new char[DECIMAL_BUF_SIZE];
+            decDigitPairs = getDigitPairs(decDigits);
+        }
+    }
+
+    /*
+     * Returns a table with the two digits of each number from 00 to 99,
+     * shared for the ASCII digits.
+     */
+    private static char[] getDigitPairs(char[] digits) {
+        if (Arrays.equals(digits, ASCII_DIGITS)) {
+            return ASCII_DIGIT_PAIRS;
         }
+        return makeDigitPairs(digits);
+    }
+
+    private static char[] makeDigitPairs(char[] digits) {
+        char[] pairs = new char[200];
+        for (int i = 0; i < 100; i++) {
+            pairs[2 * i] = digits[i / 10];
+            pairs[2 * i + 1] = digits[i % 10];
+        }
+        return pairs;
+    }
+
+    private static final char[] ASCII_DIGITS = "0123456789".toCharArray();
+    private static final char[] ASCII_DIGIT_PAIRS = makeDigitPairs(ASCII_DIGITS);
+
+    /*
+     * Returns the digit pairs for appendZeroPadded, or null if numeric fields
+     * must be formatted with the NumberFormat.  Used by ImmutableDateFormat.
+     */
+    char[] getZeroPaddingDigitPairs() {
+        return useLocalZeroPaddingNumberFormat ? decDigitPairs : null;
     }
 
     // If true, use local version of zero padding number format
     private transient boolean useLocalZeroPaddingNumberFormat;
     private transient char[] decDigits;     // read-only - can be shared by multiple instances
     private transient char[] decimalBuf;    // mutable - one per instance
+    private transient char[] decDigitPairs; // read-only - can be shared by multiple instances
+    private transient StringBuffer fieldBuffer; // mutable - one per instance, used by formatTo
     private static final int DECIMAL_BUF_SIZE = 10; // sufficient for int numbers
 
     /*
@@ -2313,6 +2671,43 @@ public class SimpleDateFormat extends DateFormat {
         buf.append(decimalBuf, index, limit - index);
     }
 
+    private static final int[] POW10 = {
+        1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000, 1000000000
+    };
+
+    /*
+     * Appends a non-negative number like fastZeroPaddingNumber: at least minDigits digits,
+     * and only the last min(maxDigits, 10) digits. The digits are taken from
+     * a table of digit pairs, so there is one division per two digits,
+     * and they are appended directly without a work buffer.
+     */
+    static void appendZeroPadded(StringBuilder buf, char[] digitPairs, int value,
+                                 int minDigits, int maxDigits) {
+        int limit = maxDigits < POW10.length ? maxDigits : POW10.length;
+        int length = 1;
+        while (length < limit && value >= POW10[length]) {
+            length++;
+        }
+        if (length == limit && limit < POW10.length) {
+            // Truncated to the last limit digits, including any leading zeros of those.
+            value %= POW10[limit];
+        }
+        for (int i = length; i < minDigits; i++) {
+            buf.append(digitPairs[0]);
+        }
+        if ((length & 1) != 0) {
+            int digit = value / POW10[--length];
+            value -= digit * POW10[length];
+            buf.append(digitPairs[2 * digit + 1]);
+        }
+        while (length > 0) {
+            length -= 2;
+            int pair = value / POW10[length];
+            value -= pair * POW10[length];
+            buf.append(digitPairs[2 * pair]).append(digitPairs[2 * pair + 1]);
+        }
+    }
+
     /**
      * Formats a number with the specified minimum and maximum number of digits.
      * @stable ICU 2.0
@@ -3979,6 +4374,7 @@ public class SimpleDateFormat extends DateFormat {
         if (this.decimalBuf != null) {
             other.decimalBuf = new char[DECIMAL_BUF_SIZE];
         }
+        other.fieldBuffer = null;
         return other;
     }
 
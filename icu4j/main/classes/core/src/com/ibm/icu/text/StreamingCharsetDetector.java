@@ -0,0 +1,273 @@
+// © 2018 and later: Unicode, Inc. and others.
+// License & terms of use: http://www.unicode.org/copyright.html#License
+package com.ibm.icu.text;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <code>StreamingCharsetDetector</code> detects the charset of byte data
+ * that is supplied in pieces, for example as it is read from the network.
+ * <p>
+ * It uses the same charset recognizers as {@link CharsetDetector}, but it does not keep
+ * the input data: Each piece of the input is passed once to all of the recognizers,
+ * which update their statistics, and can then be discarded.
+ * Memory use does not depend on the length of the input.
+ * Unless detection stops early, the results are the same as those of a CharsetDetector
+ * with the whole input; CharsetDetector, however, looks at only the beginning of long input.
+ * <p>
+ * Detection can stop before the end of the input: once one charset matches the input
+ * so far with a high confidence, and clearly better than all others,
+ * {@link #isDone()} returns true, and further input is ignored.
+ * <p>
+ * Because the input data is not kept, the {@link CharsetMatch} objects returned by
+ * this class throw an UnsupportedOperationException from <code>getReader()</code>
+ * and <code>getString()</code>.
+ * <p>
+ * A StreamingCharsetDetector is used for one input text. It is not thread-safe.
+ *
+ * @see CharsetDetector
+ * @draft ICU 64
+ * @provisional This API might change or be removed in a future release.
+ */
+public final class StreamingCharsetDetector {
+    // Detection stops early if one charset has at least this confidence...
+    private static final int DOMINANT_CONFIDENCE = 80;
+    // ...and its confidence is at least this much higher than that of any other charset...
+    private static final int DOMINANT_MARGIN = 30;
+    // ...after at least this many bytes of input.
+    private static final int MIN_EARLY_LENGTH = 1024;
+    // The confidences are checked for early termination after about this many more bytes.
+    private static final int CHECK_INTERVAL = 256;
+
+    private final CharsetRecognizer[] recognizers;
+    // One per recognizer. For input filtering, the ones that use filtered input get filtered input.
+    private final CharsetRecognizer.Scanner[] scanners;
+    // Only with input filtering: for the recognizers that use filtered input,
+    // the scanners that get the raw input, in case the input turns out not to be marked up.
+    private final CharsetRecognizer.Scanner[] unfilteredScanners;
+    private final boolean stripTags;
+
+    private byte[] filtered = new byte[0];
+    private boolean inMarkup = false;
+    private int openTags = 0;
+    private int badTags = 0;
+    private long filteredLength = 0;
+    private long length = 0;
+    private long nextCheck = MIN_EARLY_LENGTH;
+    private boolean done = false;
+    private CharsetMatch[] matches = null;
+
+    /**
+     * Constructor, for detecting all of the charsets that a new {@link CharsetDetector}
+     * detects, and without input filtering.
+     *
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public StreamingCharsetDetector() {
+        this(new CharsetDetector());
+    }
+
+    /**
+     * Constructor, for detecting the same charsets as the given CharsetDetector,
+     * with the same input filtering setting.
+     * Later changes to the CharsetDetector do not affect this object.
+     *
+     * @param detector the CharsetDetector whose settings are to be used.
+     *
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public StreamingCharsetDetector(CharsetDetector detector) {
+        List<CharsetRecognizer> list = detector.getEnabledRecognizers();
+        recognizers = list.toArray(new CharsetRecognizer[list.size()]);
+        stripTags = detector.inputFilterEnabled();
+        scanners = new CharsetRecognizer.Scanner[recognizers.length];
+        unfilteredScanners = stripTags ? new CharsetRecognizer.Scanner[recognizers.length] : null;
+        for (int i = 0; i < recognizers.length; i++) {
+            scanners[i] = recognizers[i].newScanner();
+            if (stripTags && recognizers[i].usesFilteredInput()) {
+                unfilteredScanners[i] = recognizers[i].newScanner();
+            }
+        }
+    }
+
+    /**
+     * Add the next piece of the input data.
+     * Input is ignored once detection is done.
+     *
+     * @param input the array with the input bytes.
+     * @param start the index of the first byte of this piece.
+     * @param limit the index after the last byte of this piece.
+     * @return true if detection is done; see {@link #isDone()}.
+     * @throws IllegalStateException if called after {@link #detect()} or {@link #detectAll()}.
+     *
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public boolean update(byte[] input, int start, int limit) {
+        if (matches != null) {
+            throw new IllegalStateException("Detection has finished");
+        }
+        if (start < 0 || start > limit || limit > input.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (done) {
+            return true;
+        }
+        int filteredLimit = stripTags ? stripTags(input, start, limit) : 0;
+        for (int i = 0; i < recognizers.length; i++) {
+            if (stripTags && recognizers[i].usesFilteredInput()) {
+                scanners[i].scan(filtered, 0, filteredLimit);
+                unfilteredScanners[i].scan(input, start, limit);
+            } else {
+                scanners[i].scan(input, start, limit);
+            }
+        }
+        length += limit - start;
+        if (length >= nextCheck) {
+            checkDone();
+            nextCheck = length + CHECK_INTERVAL;
+        }
+        return done;
+    }
+
+    /**
+     * Add the next piece of the input data.
+     * Input is ignored once detection is done.
+     *
+     * @param input the input bytes.
+     * @return true if detection is done; see {@link #isDone()}.
+     * @throws IllegalStateException if called after {@link #detect()} or {@link #detectAll()}.
+     *
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public boolean update(byte[] input) {
+        return update(input, 0, input.length);
+    }
+
+    /**
+     * Returns true if one charset matches the input so far so well that
+     * more input is not expected to change the result.
+     * The application should call {@link #detect()} or {@link #detectAll()}
+     * instead of reading and passing in more input.
+     *
+     * @return true if detection is done.
+     *
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Return the charset that best matches the input data that was supplied.
+     * This ends detection: no more input can be added.
+     *
+     * @return a CharsetMatch object representing the best matching charset, or
+     *         <code>null</code> if there are no matches.
+     *
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public CharsetMatch detect() {
+        CharsetMatch[] all = detectAll();
+        return all.length == 0 ? null : all[0];
+    }
+
+    /**
+     * Return an array of all charsets that appear to be plausible
+     * matches with the input data that was supplied.
+     * The array is ordered with the best quality match first.
+     * This ends detection: no more input can be added.
+     *
+     * @return An array of CharsetMatch objects representing possibly matching charsets.
+     *
+     * @draft ICU 64
+     * @provisional This API might change or be removed in a future release.
+     */
+    public CharsetMatch[] detectAll() {
+        if (matches == null) {
+            boolean useUnfiltered = useUnfilteredInput();
+            ArrayList<CharsetMatch> list = new ArrayList<CharsetMatch>();
+            for (int i = 0; i < recognizers.length; i++) {
+                CharsetMatch m = getScanner(i, useUnfiltered).finish(null);
+                if (m != null) {
+                    list.add(m);
+                }
+            }
+            Collections.sort(list);      // CharsetMatch compares on confidence
+            Collections.reverse(list);   //  Put best match first.
+            matches = list.toArray(new CharsetMatch[list.size()]);
+        }
+        return matches.clone();
+    }
+
+    /*
+     * Remove what appears to be html markup, as CharsetDetector does.
+     * The filtered bytes are written to the filtered array.
+     * Returns the number of filtered bytes.
+     */
+    private int stripTags(byte[] input, int start, int limit) {
+        if (filtered.length < limit - start) {
+            filtered = new byte[limit - start];
+        }
+        int dsti = 0;
+        for (int srci = start; srci < limit; srci++) {
+            byte b = input[srci];
+            if (b == (byte)'<') {
+                if (inMarkup) {
+                    badTags++;
+                }
+                inMarkup = true;
+                openTags++;
+            }
+
+            if (! inMarkup) {
+                filtered[dsti++] = b;
+            }
+
+            if (b == (byte)'>') {
+                inMarkup = false;
+            }
+        }
+        filteredLength += dsti;
+        return dsti;
+    }
+
+    /*
+     * If it looks like the input wasn't marked up, or if it looks like it's
+     * essentially nothing but markup, then the recognizers use the raw input.
+     */
+    private boolean useUnfilteredInput() {
+        return stripTags &&
+                (openTags<5 || openTags/5 < badTags || (filteredLength < 100 && length>600));
+    }
+
+    private CharsetRecognizer.Scanner getScanner(int i, boolean useUnfiltered) {
+        if (useUnfiltered && unfilteredScanners[i] != null) {
+            return unfilteredScanners[i];
+        }
+        return scanners[i];
+    }
+
+    private void checkDone() {
+        boolean useUnfiltered = useUnfilteredInput();
+        int best = 0;
+        int second = 0;
+        for (int i = 0; i < recognizers.length; i++) {
+            int confidence = getScanner(i, useUnfiltered).getConfidence();
+            if (confidence > best) {
+                second = best;
+                best = confidence;
+            } else if (confidence > second) {
+                second = confidence;
+            }
+        }
+        done = best >= DOMINANT_CONFIDENCE && best - second >= DOMINANT_MARGIN;
+    }
+}
@@ -58,9 +58,9 @@ final class UnhandledBreakEngine implements LanguageBreakEngine {
      * Update the set of unhandled characters to include
      * all that have the same script as c.
      * May be called concurrently with handles() or findBreaks().
-     * Must not be called concurrently with itself.
+     * Calls are serialized with each other so that no update is lost.
      */
-    public void handleChar(int c) {
+    public synchronized void handleChar(int c) {
         UnicodeSet originalSet = fHandled;
         if (!originalSet.contains(c)) {
             int script = UCharacter.getIntPropertyValue(c, UProperty.SCRIPT);
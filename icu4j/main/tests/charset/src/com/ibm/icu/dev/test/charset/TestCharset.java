@@ -9,9 +9,17 @@
 
 package com.ibm.icu.dev.test.charset;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.Channels;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
@@ -21,10 +29,13 @@ import java.nio.charset.CodingErrorAction;
 import java.nio.charset.UnsupportedCharsetException;
 import java.nio.charset.spi.CharsetProvider;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.MissingResourceException;
+import java.util.Random;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -35,6 +46,9 @@ import com.ibm.icu.charset.CharsetDecoderICU;
 import com.ibm.icu.charset.CharsetEncoderICU;
 import com.ibm.icu.charset.CharsetICU;
 import com.ibm.icu.charset.CharsetProviderICU;
+import com.ibm.icu.charset.CharsetTranscoder;
+import com.ibm.icu.charset.UTF8;
+import com.ibm.icu.charset.ParallelTranscoder;
 import com.ibm.icu.dev.test.TestFmwk;
 import com.ibm.icu.text.UTF16;
 import com.ibm.icu.text.UnicodeSet;
@@ -2673,6 +2687,109 @@ public class TestCharset extends TestFmwk {
         }
     }
 
+    @Test
+    public void TestAliasSpellings() {
+        // Spellings of an alias that differ only in case and punctuation resolve alike.
+        String[][] spellings = {
+            { "UTF-8", "utf8", "Utf_8", " utf-8 " },
+            { "ISO-8859-1", "iso88591", "ISO_8859_1", "iso-8859_1" },
+            { "Shift_JIS", "shift-jis", "SHIFTJIS" },
+            { "windows-1252", "Windows_1252", "WINDOWS1252" },
+        };
+        CharsetProviderICU provider = new CharsetProviderICU();
+        for (String[] names : spellings) {
+            String canonical = CharsetProviderICU.getICUCanonicalName(names[0]);
+            Charset cs = provider.charsetForName(names[0]);
+            if (canonical == null || canonical.length() == 0 || cs == null) {
+                errln("Could not resolve " + names[0]);
+                continue;
+            }
+            for (int i = 1; i < names.length; ++i) {
+                String other = CharsetProviderICU.getICUCanonicalName(names[i]);
+                if (!canonical.equals(other)) {
+                    errln("getICUCanonicalName(\"" + names[i] + "\") = " + other + " but expected " + canonical);
+                }
+                Charset otherCs = provider.charsetForName(names[i]);
+                if (otherCs == null || !cs.name().equals(otherCs.name())) {
+                    errln("charsetForName(\"" + names[i] + "\") = " + otherCs + " but expected " + cs);
+                }
+            }
+        }
+        String unknown = CharsetProviderICU.getICUCanonicalName("no-such-charset-name");
+        if (unknown == null || unknown.length() != 0) {
+            errln("getICUCanonicalName resolved an unknown name to " + unknown);
+        }
+    }
+
+    @Test
+    public void TestAliasSpellingsCacheBounded() throws Exception {
+        // Any number of spellings of a name resolve, but they share one entry in the name cache.
+        // The size of the name cache is package-private.
+        Method getCacheSize = CharsetProviderICU.class.getDeclaredMethod("getCanonicalNameCacheSize");
+        getCacheSize.setAccessible(true);
+        String canonical = CharsetProviderICU.getICUCanonicalName("UTF-8");
+        int cacheSize = (Integer)getCacheSize.invoke(null);
+        String letters = "utf8";
+        String separators = "-_. ";
+        Random random = new Random(20181019);
+        for (int i = 0; i < 1000; ++i) {
+            StringBuilder name = new StringBuilder();
+            for (int j = 0; j < letters.length(); ++j) {
+                char c = letters.charAt(j);
+                name.append(random.nextBoolean() ? Character.toUpperCase(c) : c);
+                for (int k = random.nextInt(3); k > 0; --k) {
+                    name.append(separators.charAt(random.nextInt(separators.length())));
+                }
+            }
+            String other = CharsetProviderICU.getICUCanonicalName(name.toString());
+            if (!canonical.equals(other)) {
+                errln("getICUCanonicalName(\"" + name + "\") = " + other + " but expected " + canonical);
+            }
+        }
+        int newCacheSize = (Integer)getCacheSize.invoke(null);
+        if (newCacheSize != cacheSize) {
+            errln("Spellings of UTF-8 added " + (newCacheSize - cacheSize) +
+                    " entries to the name cache");
+        }
+    }
+
+    @Test
+    public void TestConcurrentNameResolution() throws Exception {
+        final String[] names = CharsetProviderICU.getAllNames();
+        final String[] expected = new String[names.length];
+        for (int i = 0; i < names.length; ++i) {
+            expected[i] = CharsetProviderICU.getICUCanonicalName(names[i]);
+        }
+        final String[] errors = new String[4];
+        Thread[] threads = new Thread[errors.length];
+        for (int t = 0; t < threads.length; ++t) {
+            final int index = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    // Each thread walks the names in a different order.
+                    for (int j = 0; j < names.length; ++j) {
+                        int i = (j * (index + 1) * 7 + index) % names.length;
+                        String name = CharsetProviderICU.getICUCanonicalName(names[i]);
+                        if (expected[i] == null ? name != null : !expected[i].equals(name)) {
+                            errors[index] = names[i] + " resolved to " + name + " instead of " + expected[i];
+                            return;
+                        }
+                    }
+                }
+            };
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (int t = 0; t < threads.length; ++t) {
+            threads[t].join();
+            if (errors[t] != null) {
+                errln("Thread " + t + ": " + errors[t]);
+            }
+        }
+    }
+
     @Test
     public void TestGetAllNames() {
         String[] names = null;
@@ -5735,6 +5852,518 @@ public class TestCharset extends TestFmwk {
         }
     }
 
+    /*
+     * Charsets for the same conversion table share the loaded table data.
+     */
+    @Test
+    public void TestSharedConverterTables() throws Exception {
+        CharsetProviderICU provider = new CharsetProviderICU();
+        String name = "ibm-1047_P100-1995";
+
+        Charset first = provider.charsetForName(name);
+        long loads = CharsetProviderICU.getConverterTableLoadCount();
+        long hits = CharsetProviderICU.getConverterTableCacheHitCount();
+        Charset second = provider.charsetForName(name);
+        assertEquals("no table load for a cached converter", loads, CharsetProviderICU.getConverterTableLoadCount());
+        assertEquals("one cache hit for a cached converter", hits + 1, CharsetProviderICU.getConverterTableCacheHitCount());
+        // The first Charset keeps its table loaded, so the second one must get the same table,
+        // whether or not it has converter options. The table is in a package-private field.
+        Field sharedData = Class.forName("com.ibm.icu.charset.CharsetMBCS").getDeclaredField("sharedData");
+        sharedData.setAccessible(true);
+        assertTrue("one table for a converter", sharedData.get(first) == sharedData.get(second));
+        assertTrue("one table with and without options",
+                sharedData.get(first) == sharedData.get(provider.charsetForName(name + ",swaplfnl")));
+        // Both Charsets convert the same way.
+        String text = "Hello, EBCDIC! [0123456789] \u00e4\u00f6\u00fc\u00df";
+        ByteBuffer firstBytes = first.newEncoder().encode(CharBuffer.wrap(text));
+        ByteBuffer secondBytes = second.newEncoder().encode(CharBuffer.wrap(text));
+        assertEquals("same encoding", firstBytes, secondBytes);
+        assertEquals("round trip", text, second.newDecoder().decode(firstBytes).toString());
+
+        // The swaplfnl option must not leak into the shared table data.
+        Charset swapped = provider.charsetForName(name + ",swaplfnl");
+        assertEquals("LF", 0x25, first.newEncoder().encode(CharBuffer.wrap("\n")).get(0));
+        assertEquals("LF swaplfnl", 0x15, swapped.newEncoder().encode(CharBuffer.wrap("\n")).get(0));
+        assertEquals("LF after swaplfnl", 0x25, second.newEncoder().encode(CharBuffer.wrap("\n")).get(0));
+        assertEquals("decode 0x25 swaplfnl", "\u0085", swapped.newDecoder().decode(ByteBuffer.wrap(new byte[] { 0x25 })).toString());
+        assertEquals("decode 0x25", "\n", second.newDecoder().decode(ByteBuffer.wrap(new byte[] { 0x25 })).toString());
+        Charset third = provider.charsetForName(name);
+        assertEquals("LF in a Charset created after swaplfnl", 0x25, third.newEncoder().encode(CharBuffer.wrap("\n")).get(0));
+
+        // Changing the replacement of one Charset's encoder must not affect another Charset.
+        CharsetEncoder encoder = first.newEncoder();
+        encoder.replaceWith(new byte[] { 0x5c });
+        encoder = second.newEncoder();
+        encoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+        assertEquals("substitution", 0x3f, encoder.encode(CharBuffer.wrap("\u4e00")).get(0));
+    }
+
+    /*
+     * Direct buffers take a different code path than array-backed ones.
+     * Conversion results must be the same, for any buffer sizes.
+     */
+    @Test
+    public void TestDirectBuffers() throws CharacterCodingException {
+        CharsetProviderICU provider = new CharsetProviderICU();
+        String[] charsets = { "UTF-8", "CESU-8", "windows-1252", "ibm-1047_P100-1995" };
+        String[] pieces = {
+                "a", "Hello, world! ", "0123456789abcdefghijklmnopqrstuvwxyz0123456789", "\n", "\u00e9", "\u20ac",
+                "\u4e00", "\ud83d\ude00", "\u0080", "\u00ff",
+        };
+        Random random = new Random(39);
+        for (String name : charsets) {
+            Charset cs = provider.charsetForName(name);
+            for (int iteration = 0; iteration < 50; ++iteration) {
+                StringBuilder sb = new StringBuilder();
+                int numPieces = random.nextInt(200);
+                for (int i = 0; i < numPieces; ++i) {
+                    String piece = pieces[random.nextInt(pieces.length)];
+                    for (int repeat = random.nextInt(4); repeat >= 0; --repeat) {
+                        sb.append(piece);
+                    }
+                }
+                String text = sb.toString();
+
+                CharsetEncoder encoder = cs.newEncoder().onUnmappableCharacter(CodingErrorAction.REPLACE);
+                ByteBuffer expectedBytes = encoder.encode(CharBuffer.wrap(text));
+                byte[] bytes = new byte[expectedBytes.remaining()];
+                expectedBytes.get(bytes);
+                // Add some malformed input for the decoder.
+                if (name.startsWith("UTF") && iteration % 5 == 0) {
+                    bytes = Arrays.copyOf(bytes, bytes.length + 2);
+                    bytes[bytes.length - 2] = (byte) 0xe4;
+                    bytes[bytes.length - 1] = (byte) 0x41;
+                }
+                CharsetDecoder decoder = cs.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                String expectedText = decoder.decode(ByteBuffer.wrap(bytes)).toString();
+
+                int bufferSize = 1 + random.nextInt(3000);
+                ByteBuffer directText = ByteBuffer.allocateDirect(text.length() * 2);
+                CharBuffer directChars = directText.asCharBuffer();
+                directChars.put(text).flip();
+                encoder.reset();
+                byte[] actualBytes = encodeInChunks(encoder, directChars, bufferSize, true);
+                assertTrue(name + " direct encode, buffer size " + bufferSize,
+                        Arrays.equals(Arrays.copyOf(expectedBytes.array(), expectedBytes.limit()), actualBytes));
+
+                ByteBuffer directBytes = ByteBuffer.allocateDirect(bytes.length);
+                directBytes.put(bytes).flip();
+                decoder.reset();
+                assertEquals(name + " direct decode, buffer size " + bufferSize,
+                        expectedText, decodeInChunks(decoder, directBytes, bufferSize, true));
+            }
+        }
+    }
+
+    /*
+     * ASCII runs in MBCS charsets are converted without the state and fromUnicode tables.
+     * Mixed ASCII/CJK text must round-trip, also when converted in small pieces.
+     */
+    @Test
+    public void TestMBCSAsciiRuns() throws CharacterCodingException {
+        CharsetProviderICU provider = new CharsetProviderICU();
+        String[] charsets = { "Shift_JIS", "GBK", "EUC-KR", "EUC-JP", "windows-1252", "ibm-1047_P100-1995" };
+        String[] texts = {
+                "<html><head><title>\u65e5\u672c\u8a9e</title></head>\n<body>ASCII text, \u6f22\u5b57 and more ASCII.</body>",
+                "\ud55c\uad6d\uc5b4 text with ASCII 0123456789 !\"#$%&'()*+,-./:;<=>?@[]^_`{|}~ \ud55c",
+                "\u4e2d\u6587 text, \u4e2d\u6587\u4e2d\u6587 ASCII a b c",
+                "Caf\u00e9 na\u00efve r\u00e9sum\u00e9 \u00a9 2018",
+        };
+        for (String name : charsets) {
+            Charset cs = provider.charsetForName(name);
+            for (String text : texts) {
+                StringBuilder sb = new StringBuilder();
+                for (int repeat = 0; repeat < 20; ++repeat) {
+                    sb.append(text).append("\r\n");
+                }
+                String input = sb.toString();
+                CharsetEncoder encoder = cs.newEncoder().onUnmappableCharacter(CodingErrorAction.REPLACE);
+                ByteBuffer bytes = encoder.encode(CharBuffer.wrap(input));
+                CharsetDecoder decoder = cs.newDecoder().onUnmappableCharacter(CodingErrorAction.REPLACE);
+                String output = decoder.decode(bytes.duplicate()).toString();
+                if (encoder.canEncode(input)) {
+                    assertEquals(name + " round trip", input, output);
+                }
+
+                // Convert in tiny pieces: ASCII runs end at buffer boundaries, and in the middle of multi-byte sequences.
+                // Array-backed buffers take the ASCII run fast path, direct buffers the bulk get/put path.
+                byte[] expectedBytes = new byte[bytes.remaining()];
+                bytes.duplicate().get(expectedBytes);
+                int[] bufferSizes = { 1, 2, 3, 4, 5, 64 };
+                for (int bufferSize : bufferSizes) {
+                    for (boolean direct : new boolean[] { false, true }) {
+                        String kind = (direct ? " direct" : " heap") + ", buffer size " + bufferSize;
+                        CharBuffer source;
+                        if (direct) {
+                            source = ByteBuffer.allocateDirect(input.length() * 2).asCharBuffer();
+                            source.put(input).flip();
+                        } else {
+                            source = CharBuffer.wrap(input.toCharArray());
+                        }
+                        encoder.reset();
+                        assertTrue(name + " encode" + kind, Arrays.equals(expectedBytes,
+                                encodeInChunks(encoder, source, bufferSize, direct)));
+                        ByteBuffer byteSource;
+                        if (direct) {
+                            byteSource = ByteBuffer.allocateDirect(expectedBytes.length);
+                            byteSource.put(expectedBytes).flip();
+                        } else {
+                            byteSource = ByteBuffer.wrap(expectedBytes.clone());
+                        }
+                        decoder.reset();
+                        assertEquals(name + " decode" + kind, output,
+                                decodeInChunks(decoder, byteSource, bufferSize, direct));
+                    }
+                }
+            }
+        }
+    }
+
+    private static byte[] encodeInChunks(CharsetEncoder encoder, CharBuffer source, int bufferSize,
+            boolean direct) throws CharacterCodingException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        ByteBuffer target = direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+        boolean flushing = false;
+        while (true) {
+            CoderResult cr = flushing ? encoder.flush(target) : encoder.encode(source, target, true);
+            target.flip();
+            while (target.hasRemaining()) {
+                result.write(target.get());
+            }
+            target.clear();
+            if (cr.isUnderflow()) {
+                if (flushing) {
+                    break;
+                }
+                flushing = true;
+            } else if (!cr.isOverflow()) {
+                cr.throwException();
+            }
+        }
+        return result.toByteArray();
+    }
+
+    private static String decodeInChunks(CharsetDecoder decoder, ByteBuffer source, int bufferSize,
+            boolean direct) throws CharacterCodingException {
+        StringBuilder result = new StringBuilder();
+        CharBuffer target = direct ?
+                ByteBuffer.allocateDirect(bufferSize * 2).asCharBuffer() : CharBuffer.allocate(bufferSize);
+        boolean flushing = false;
+        while (true) {
+            CoderResult cr = flushing ? decoder.flush(target) : decoder.decode(source, target, true);
+            target.flip();
+            result.append(target);
+            target.clear();
+            if (cr.isUnderflow()) {
+                if (flushing) {
+                    break;
+                }
+                flushing = true;
+            } else if (!cr.isOverflow()) {
+                cr.throwException();
+            }
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void TestParallelTranscoder() throws IOException {
+        CharsetProviderICU provider = new CharsetProviderICU();
+        Charset utf8 = provider.charsetForName("UTF-8");
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(20181018);
+        String[] pieces = {
+                "ASCII text 0123456789", "\u65e5\u672c\u8a9e", "\u4e2d\u6587", "\ud55c\uad6d\uc5b4",
+                "\u00e9\u00ef\u00a9", "\ud840\udc0b", " ", "\n", "\r\n", "+-", "~\\",
+        };
+        for (int i = 0; i < 3000; ++i) {
+            sb.append(pieces[random.nextInt(pieces.length)]);
+        }
+        String text = sb.toString();
+        // name, and whether the input can be split
+        Object[][] cases = {
+                { "UTF-8", true },
+                { "GB18030", true },
+                { "Shift_JIS", true },
+                { "EUC-KR", true },
+                { "windows-1252", true },
+                { "ibm-930_P120-1999", false },
+                { "UTF-7", false },
+                // Supplementary code points are pairs of surrogate sequences, which must not be split.
+                { "CESU-8", false },
+        };
+        File file = File.createTempFile("TestParallelTranscoder", ".txt");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (Object[] c : cases) {
+                String name = (String) c[0];
+                Charset cs = provider.charsetForName(name);
+                CharsetEncoder encoder = cs.newEncoder().onUnmappableCharacter(CodingErrorAction.REPLACE);
+                ByteBuffer input = encoder.encode(CharBuffer.wrap(text));
+                // Malformed input at the end.
+                ByteBuffer withError = ByteBuffer.allocate(input.remaining() + 1);
+                withError.put(input).put((byte) 0xff).flip();
+                FileOutputStream fos = new FileOutputStream(file);
+                try {
+                    fos.getChannel().write(withError.duplicate());
+                } finally {
+                    fos.close();
+                }
+                String expected = cs.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE).decode(withError).toString();
+                byte[] expectedBytes = expected.getBytes("UTF-8");
+
+                for (int chunkSize : new int[] { 1, 7, 19, 100, 4096, 1 << 20 }) {
+                    ParallelTranscoder transcoder = new ParallelTranscoder(cs, utf8, pool, chunkSize);
+                    assertEquals(name + " isParallelizable", c[1], transcoder.isParallelizable());
+                    ByteArrayOutputStream result = new ByteArrayOutputStream();
+                    FileInputStream fis = new FileInputStream(file);
+                    long length;
+                    try {
+                        length = transcoder.transcode(fis.getChannel(), Channels.newChannel(result));
+                    } finally {
+                        fis.close();
+                    }
+                    assertEquals(name + " length, chunk size " + chunkSize, expectedBytes.length, length);
+                    assertTrue(name + " output, chunk size " + chunkSize,
+                            Arrays.equals(expectedBytes, result.toByteArray()));
+                }
+            }
+        } finally {
+            pool.shutdown();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void TestCharsetTranscoder() throws CharacterCodingException {
+        CharsetProviderICU provider = new CharsetProviderICU();
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(20181019);
+        String[] pieces = {
+                "ASCII text 0123456789", "\u65e5\u672c\u8a9e", "\u4e2d\u6587", "\ud55c\uad6d\uc5b4",
+                "\u00e9\u00ef\u00a9", "\ud840\udc0b", " ", "\n", "\r\n", "+-", "~\\",
+        };
+        for (int i = 0; i < 2000; ++i) {
+            sb.append(pieces[random.nextInt(pieces.length)]);
+        }
+        String text = sb.toString();
+        String[][] pairs = {
+                { "UTF-8", "Shift_JIS" },
+                { "GB18030", "UTF-8" },
+                { "UTF-8", "ibm-930_P120-1999" },
+                { "ibm-930_P120-1999", "EUC-KR" },
+                { "UTF-7", "UTF-16BE" },
+                { "UTF-8", "ISO-2022-JP" },
+        };
+        for (String[] pair : pairs) {
+            Charset from = provider.charsetForName(pair[0]);
+            Charset to = provider.charsetForName(pair[1]);
+            byte[] input = toBytes(from.newEncoder()
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE).encode(CharBuffer.wrap(text)));
+            String decoded = from.newDecoder()
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE).decode(ByteBuffer.wrap(input)).toString();
+            byte[] expected = toBytes(to.newEncoder()
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE).encode(CharBuffer.wrap(decoded)));
+            String name = pair[0] + " to " + pair[1];
+
+            // All at once.
+            ByteBuffer dst = ByteBuffer.allocate(expected.length + 10);
+            CoderResult cr = CharsetTranscoder.convert(ByteBuffer.wrap(input), from, dst, to);
+            assertTrue(name + " result", cr.isUnderflow());
+            dst.flip();
+            assertTrue(name + " output", Arrays.equals(expected, toBytes(dst)));
+
+            // In small pieces of input and output.
+            CharsetTranscoder transcoder = new CharsetTranscoder(from, to);
+            transcoder.getDecoder().onUnmappableCharacter(CodingErrorAction.REPLACE);
+            transcoder.getEncoder().onUnmappableCharacter(CodingErrorAction.REPLACE);
+            for (int pass = 0; pass < 2; ++pass) {
+                ByteArrayOutputStream result = new ByteArrayOutputStream();
+                ByteBuffer src = ByteBuffer.allocate(16);
+                ByteBuffer out = ByteBuffer.allocate(1 + pass * 6);
+                int start = 0;
+                for (;;) {
+                    int length = Math.min(random.nextInt(src.remaining()) + 1, input.length - start);
+                    src.put(input, start, length);
+                    start += length;
+                    boolean endOfInput = start == input.length;
+                    src.flip();
+                    do {
+                        cr = transcoder.convert(src, out, endOfInput);
+                        assertFalse(name + " error " + cr, cr.isError());
+                        out.flip();
+                        while (out.hasRemaining()) {
+                            result.write(out.get());
+                        }
+                        out.clear();
+                    } while (cr.isOverflow());
+                    src.compact();
+                    if (endOfInput) {
+                        break;
+                    }
+                }
+                assertTrue(name + " output in pieces, pass " + pass, Arrays.equals(expected, result.toByteArray()));
+                transcoder.reset();
+            }
+        }
+
+        // Errors are reported by default.
+        Charset utf8 = provider.charsetForName("UTF-8");
+        Charset latin1 = provider.charsetForName("ISO-8859-1");
+        CharsetTranscoder transcoder = new CharsetTranscoder(utf8, latin1);
+        ByteBuffer src = ByteBuffer.wrap(new byte[] { 0x61, (byte)0xe2, (byte)0x82, (byte)0xac, 0x62, (byte)0xff, 0x63 });
+        ByteBuffer dst = ByteBuffer.allocate(10);
+        CoderResult cr = transcoder.convert(src, dst, true);
+        assertTrue("unmappable euro sign", cr.isUnmappable() && cr.length() == 1);
+        cr = transcoder.convert(src, dst, true);
+        assertTrue("malformed 0xff", cr.isMalformed() && cr.length() == 1);
+        // The ICU decoder has consumed the malformed byte.
+        assertEquals("position after the malformed byte", 6, src.position());
+        cr = transcoder.convert(src, dst, true);
+        assertTrue("end of input", cr.isUnderflow());
+        dst.flip();
+        assertTrue("output without the errors", Arrays.equals(new byte[] { 0x61, 0x62, 0x63 }, toBytes(dst)));
+
+        // A JDK encoder stops before an unmappable character; the transcoder skips it.
+        // a U+20AC b U+1F600 c in UTF-8
+        byte[] unmappable = {
+                0x61, (byte)0xe2, (byte)0x82, (byte)0xac, 0x62, (byte)0xf0, (byte)0x9f, (byte)0x98, (byte)0x80, 0x63
+        };
+        Charset jdkASCII = Charset.forName("US-ASCII");
+        transcoder = new CharsetTranscoder(utf8, jdkASCII);
+        assertFalse("JDK encoder", transcoder.getEncoder() instanceof CharsetEncoderICU);
+        src = ByteBuffer.wrap(unmappable);
+        dst = ByteBuffer.allocate(10);
+        cr = transcoder.convert(src, dst, true);
+        assertTrue("JDK encoder: unmappable euro sign", cr.isUnmappable() && cr.length() == 1);
+        cr = transcoder.convert(src, dst, true);
+        assertTrue("JDK encoder: unmappable supplementary code point", cr.isUnmappable() && cr.length() == 2);
+        cr = transcoder.convert(src, dst, true);
+        assertTrue("JDK encoder: end of input", cr.isUnderflow());
+        dst.flip();
+        assertTrue("JDK encoder: output without the errors",
+                Arrays.equals(new byte[] { 0x61, 0x62, 0x63 }, toBytes(dst)));
+
+        // With error actions, the JDK encoder handles the unmappable characters itself.
+        transcoder.reset();
+        transcoder.getEncoder().onUnmappableCharacter(CodingErrorAction.IGNORE);
+        src = ByteBuffer.wrap(unmappable);
+        dst = ByteBuffer.allocate(10);
+        cr = transcoder.convert(src, dst, true);
+        assertTrue("JDK encoder, IGNORE: end of input", cr.isUnderflow());
+        dst.flip();
+        assertTrue("JDK encoder, IGNORE: output", Arrays.equals(new byte[] { 0x61, 0x62, 0x63 }, toBytes(dst)));
+        src = ByteBuffer.wrap(unmappable);
+        dst = ByteBuffer.allocate(10);
+        cr = CharsetTranscoder.convert(src, utf8, dst, jdkASCII);
+        assertTrue("JDK encoder, REPLACE: end of input", cr.isUnderflow());
+        dst.flip();
+        assertTrue("JDK encoder, REPLACE: output",
+                Arrays.equals(new byte[] { 0x61, 0x3f, 0x62, 0x3f, 0x63 }, toBytes(dst)));
+
+        // Output buffer too small.
+        dst = ByteBuffer.allocate(2);
+        src = ByteBuffer.wrap(new byte[] { 0x61, 0x62, 0x63 });
+        cr = CharsetTranscoder.convert(src, utf8, dst, latin1);
+        assertTrue("overflow", cr.isOverflow());
+    }
+
+    @Test
+    public void TestUTF8Validation() throws CharacterCodingException {
+        Charset jdkUTF8 = Charset.forName("UTF-8");
+        Charset icuUTF8 = new CharsetProviderICU().charsetForName("UTF-8");
+        byte[][] illFormed = {
+                { (byte)0xc0, (byte)0x80 },                          // non-shortest form
+                { (byte)0xe0, (byte)0x9f, (byte)0xbf },              // non-shortest form
+                { (byte)0xed, (byte)0xa0, (byte)0x80 },              // surrogate
+                { (byte)0xf0, (byte)0x8f, (byte)0xbf, (byte)0xbf },  // non-shortest form
+                { (byte)0xf4, (byte)0x90, (byte)0x80, (byte)0x80 },  // above U+10FFFF
+                { (byte)0xf5, (byte)0x80, (byte)0x80, (byte)0x80 },
+                { (byte)0xff },
+                { (byte)0x80 },                                      // lone trail byte
+                { (byte)0xe2, (byte)0x82 },                          // truncated
+                { (byte)0xf0, (byte)0x9f, (byte)0x98 },              // truncated
+        };
+        Random random = new Random(20181019);
+        for (int i = 0; i < 2000; ++i) {
+            StringBuilder sb = new StringBuilder();
+            int pieces = random.nextInt(12);
+            for (int j = 0; j < pieces; ++j) {
+                if (random.nextBoolean()) {
+                    for (int k = random.nextInt(40); k > 0; --k) {
+                        sb.append((char)random.nextInt(0x80));
+                    }
+                } else {
+                    int c;
+                    do {
+                        c = random.nextInt(0x110000);
+                    } while (0xd800 <= c && c <= 0xdfff);
+                    sb.appendCodePoint(c);
+                }
+            }
+            String text = sb.toString();
+            byte[] bytes = text.getBytes(jdkUTF8);
+            byte[] input = bytes;
+            boolean valid = true;
+            if (i % 3 == 0) {
+                // Insert an ill-formed sequence at a code point boundary.
+                byte[] bad = illFormed[random.nextInt(illFormed.length)];
+                int index = text.offsetByCodePoints(0, random.nextInt(text.codePointCount(0, text.length()) + 1));
+                int byteIndex = text.substring(0, index).getBytes(jdkUTF8).length;
+                input = new byte[bytes.length + bad.length];
+                System.arraycopy(bytes, 0, input, 0, byteIndex);
+                System.arraycopy(bad, 0, input, byteIndex, bad.length);
+                System.arraycopy(bytes, byteIndex, input, byteIndex + bad.length, bytes.length - byteIndex);
+                valid = false;
+            }
+            int expected = valid ? text.length() : -1;
+            // Surround the input with other bytes, which must be ignored.
+            byte[] padded = new byte[input.length + 4];
+            System.arraycopy(input, 0, padded, 2, input.length);
+            padded[0] = padded[padded.length - 1] = (byte)0xff;
+            padded[1] = padded[padded.length - 2] = (byte)0xe2;
+            assertEquals("getUTF16Length(byte[]) of input " + i, expected, UTF8.getUTF16Length(padded, 2, 2 + input.length));
+            assertEquals("isValid() of input " + i, valid, UTF8.isValid(padded, 2, 2 + input.length));
+            ByteBuffer direct = ByteBuffer.allocateDirect(input.length);
+            direct.put(input).flip();
+            assertEquals("getUTF16Length(direct ByteBuffer) of input " + i, expected, UTF8.getUTF16Length(direct));
+            assertEquals("position unchanged", 0, direct.position());
+
+            if (valid) {
+                // Decode into output buffers of various sizes, and into one of exactly the counted size.
+                CharsetDecoder decoder = icuUTF8.newDecoder();
+                CharBuffer out = CharBuffer.allocate(expected);
+                ByteBuffer src = ByteBuffer.wrap(input);
+                StringBuilder result = new StringBuilder();
+                CharBuffer piece = CharBuffer.allocate(1 + random.nextInt(20));
+                CoderResult cr;
+                do {
+                    cr = decoder.decode(src, piece, true);
+                    assertFalse("decoder error " + cr + " for input " + i, cr.isError());
+                    piece.flip();
+                    result.append(piece);
+                    piece.clear();
+                } while (cr.isOverflow());
+                decoder.flush(piece);
+                piece.flip();
+                result.append(piece);
+                assertEquals("decoded input " + i, text, result.toString());
+                decoder.reset();
+                cr = decoder.decode(ByteBuffer.wrap(input), out, true);
+                assertTrue("decoding into an exactly sized buffer", cr.isUnderflow() && !out.hasRemaining());
+            }
+        }
+        assertEquals("empty input", 0, UTF8.getUTF16Length(new byte[0], 0, 0));
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
     /*
      * When converting slices of a larger CharBuffer, Charset88591 and CharsetASCII does not handle the buffer correctly when
      * an unmappable character occurs.
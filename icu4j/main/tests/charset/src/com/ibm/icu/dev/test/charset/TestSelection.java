@@ -24,6 +24,7 @@ package com.ibm.icu.dev.test.charset;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 import org.junit.Test;
@@ -124,6 +125,61 @@ public class TestSelection extends TestFmwk {
         }
     }
 
+    @Test
+    public void TestSelectionMasks() {
+        // More than 32 charsets, for bit sets with two words of bits per code point.
+        List<String> testEncodings = Arrays.asList(
+                "Big5", "EUC-JP", "EUC-KR", "GB2312", "ISO-2022-JP", "ISO-2022-KR",
+                "ISO-8859-1", "ISO-8859-10", "ISO-8859-13", "ISO-8859-14", "ISO-8859-15",
+                "ISO-8859-2", "ISO-8859-3", "ISO-8859-4", "ISO-8859-5", "ISO-8859-6",
+                "ISO-8859-7", "ISO-8859-8", "ISO-8859-9", "KOI8-R", "Shift_JIS", "TIS-620",
+                "UTF-16", "UTF-32", "UTF-8", "windows-1250", "windows-1251", "windows-1252",
+                "windows-1253", "windows-1254", "windows-1255", "windows-1256", "windows-1257",
+                "windows-1258");
+        String[] strings = {
+                "", "abc", "caf\u00E9", "\u0427\u0442\u043E", "\u05E9\u05DC\u05D5\u05DD",
+                "\u65E5\u672C\u8A9E", "\uD840\uDC0B", "x\uD800y", "\u20AC 5", texts[0], texts[1]
+        };
+        for (int n : new int[] { 5, 32, testEncodings.size() }) {
+            List<String> encodings = testEncodings.subList(0, n);
+            CharsetSelector sel = new CharsetSelector(encodings, new UnicodeSet(0x20AC, 0x20AC), CharsetICU.ROUNDTRIP_SET);
+            assertEquals("getCharsets()", encodings, sel.getCharsets());
+            long[] masks = new long[strings.length];
+            sel.selectMasks(strings, masks);
+            long allMask = -1L;
+            BitSet allBits = sel.selectBits("");
+            StringBuilder all = new StringBuilder();
+            for (int i = 0; i < strings.length; ++i) {
+                List<String> expected = sel.selectForString(strings[i]);
+                assertEquals("selectMask() for string " + i, expected, namesFor(encodings, masks[i]));
+                assertEquals("selectMasks() for string " + i, sel.selectMask(strings[i]), masks[i]);
+                assertEquals("selectBits() for string " + i, BitSet.valueOf(new long[] { masks[i] }), sel.selectBits(strings[i]));
+
+                // Combine the results incrementally.
+                all.append(strings[i]);
+                allMask = sel.intersectMask(strings[i], allMask);
+                sel.intersectBits(strings[i], allBits);
+                expected = sel.selectForString(all);
+                assertEquals("intersectMask() through string " + i, expected, namesFor(encodings, allMask));
+                assertEquals("intersectBits() through string " + i, BitSet.valueOf(new long[] { allMask }), allBits);
+            }
+        }
+
+        CharsetSelector sel = new CharsetSelector(testEncodings, UnicodeSet.EMPTY, CharsetICU.ROUNDTRIP_SET);
+        assertEquals("intersectMask() with some charsets",
+                sel.selectMask("caf\u00E9") & 0x55, sel.intersectMask("caf\u00E9", 0x55));
+    }
+
+    private static List<String> namesFor(List<String> encodings, long mask) {
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < encodings.size(); ++i) {
+            if ((mask & (1L << i)) != 0) {
+                names.add(encodings.get(i));
+            }
+        }
+        return names;
+    }
+
     /* This test is to provide better code coverage for CharsetSelector */
     @Test
     public void TestCharsetSelectorCodeCoverage() {
@@ -35,6 +35,7 @@ import com.ibm.icu.dev.test.TestUtil.JavaVendor;
 import com.ibm.icu.impl.Utility;
 import com.ibm.icu.text.CharsetDetector;
 import com.ibm.icu.text.CharsetMatch;
+import com.ibm.icu.text.StreamingCharsetDetector;
 
 
 /**
@@ -1202,6 +1203,79 @@ public class TestCharsetDetector extends TestFmwk
         }
     }
 
+    @Test
+    public void TestStreamingDetector() throws Exception {
+        String[][] cases = {
+                { "UTF-8", "Stra\u00dfe, \u0391\u0392\u0393 and \u65e5\u672c\u8a9e text in UTF-8." },
+                { "Shift_JIS", "\u3053\u308c\u306f\u65e5\u672c\u8a9e\u306e\u30c6\u30ad\u30b9\u30c8\u3067\u3059\u3002" +
+                        "\u79c1\u306f\u5b66\u751f\u3067\u3059\u3002\u3042\u308a\u304c\u3068\u3046\u3002" },
+                { "ISO-2022-JP", "\u3053\u308c\u306f\u65e5\u672c\u8a9e\u306e\u30c6\u30ad\u30b9\u30c8\u3067\u3059\u3002" +
+                        "ASCII \u79c1\u306f\u5b66\u751f\u3067\u3059\u3002" },
+                { "windows-1252", "<html><body><p>Le fran\u00e7ais est une langue \u00ab romane \u00bb parl\u00e9e " +
+                        "en France, et c'est aussi la langue de nombreux pays.</p><p>Il y a des \u0153uvres.</p>" +
+                        "<p>La phrase suivante est \u00e9crite en fran\u00e7ais.</p></body></html>" },
+                { "KOI8-R", "\u042d\u0442\u043e \u0442\u0435\u043a\u0441\u0442 \u043d\u0430 " +
+                        "\u0440\u0443\u0441\u0441\u043a\u043e\u043c \u044f\u0437\u044b\u043a\u0435." },
+                { "UTF-16LE", "\ufeffText with a byte order mark." },
+        };
+        for (String[] c : cases) {
+            byte[] bytes = c[1].getBytes(c[0]);
+            for (int filter = 0; filter < 2; filter++) {
+                CharsetDetector det = new CharsetDetector();
+                det.enableInputFilter(filter != 0);
+                det.setText(bytes);
+                CharsetMatch[] expected = det.detectAll();
+                for (int chunkSize = 1; chunkSize <= 7; chunkSize++) {
+                    StreamingCharsetDetector sd = new StreamingCharsetDetector(det);
+                    for (int start = 0; start < bytes.length; start += chunkSize) {
+                        sd.update(bytes, start, Math.min(start + chunkSize, bytes.length));
+                    }
+                    assertFalse(c[0] + " short input is not done early", sd.isDone());
+                    CharsetMatch[] actual = sd.detectAll();
+                    String label = c[0] + " filter=" + filter + " chunk size " + chunkSize;
+                    assertEquals(label + " number of matches", expected.length, actual.length);
+                    for (int i = 0; i < expected.length && i < actual.length; i++) {
+                        assertEquals(label + " name", expected[i].getName(), actual[i].getName());
+                        assertEquals(label + " confidence", expected[i].getConfidence(), actual[i].getConfidence());
+                        assertEquals(label + " language", expected[i].getLanguage(), actual[i].getLanguage());
+                    }
+                }
+            }
+        }
+
+        // Long input: Detection ends early.
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("Line ").append(i).append(": \u65e5\u672c\u8a9e \u00e9t\u00e9\n");
+        }
+        byte[] bytes = sb.toString().getBytes("UTF-8");
+        StreamingCharsetDetector sd = new StreamingCharsetDetector();
+        int length = 0;
+        while (length < bytes.length && !sd.update(bytes, length, Math.min(length + 100, bytes.length))) {
+            length += 100;
+        }
+        assertTrue("long input is done early", sd.isDone() && length < bytes.length / 2);
+        assertTrue("more input is ignored", sd.update(bytes));
+        CharsetMatch m = sd.detect();
+        assertEquals("long input name", "UTF-8", m.getName());
+        assertEquals("long input confidence", 100, m.getConfidence());
+        try {
+            m.getString();
+            errln("getString() of a streaming match should throw an exception");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            m.getReader();
+            errln("getReader() of a streaming match should throw an exception");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            sd.update(bytes);
+            errln("update() after detect() should throw an exception");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
     @Test
     public void TestMultithreaded() {
         String  s = "This is some random plain text to run charset detection on.";
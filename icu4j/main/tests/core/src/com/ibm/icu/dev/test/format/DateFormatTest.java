@@ -19,6 +19,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.text.AttributedCharacterIterator;
 import java.text.CharacterIterator;
 import java.text.FieldPosition;
@@ -33,6 +35,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Random;
 import java.util.ResourceBundle;
 import java.util.Set;
 
@@ -50,6 +53,7 @@ import com.ibm.icu.text.DateFormat;
 import com.ibm.icu.text.DateFormat.BooleanAttribute;
 import com.ibm.icu.text.DateFormatSymbols;
 import com.ibm.icu.text.DisplayContext;
+import com.ibm.icu.text.ImmutableDateFormat;
 import com.ibm.icu.text.NumberFormat;
 import com.ibm.icu.text.SimpleDateFormat;
 import com.ibm.icu.text.TimeZoneFormat;
@@ -59,6 +63,7 @@ import com.ibm.icu.util.Calendar;
 import com.ibm.icu.util.ChineseCalendar;
 import com.ibm.icu.util.GregorianCalendar;
 import com.ibm.icu.util.HebrewCalendar;
+import com.ibm.icu.util.ICUUncheckedIOException;
 import com.ibm.icu.util.IslamicCalendar;
 import com.ibm.icu.util.JapaneseCalendar;
 import com.ibm.icu.util.TimeZone;
@@ -5431,4 +5436,205 @@ public class DateFormatTest extends TestFmwk {
         dfmt.parse(inDate, pos);
         assertEquals("Error index", inDate.length(), pos.getErrorIndex());
     }
+
+    @Test
+    public void TestImmutableDateFormat() throws InterruptedException {
+        final String[] patterns = {
+            "yyyy-MM-dd'T'HH:mm:ss.SSSXXX",
+            "G y yy yyyyy u MMMMM MMMM MMM MM L LLLL Q QQQ QQQQ q qqqq",
+            "d D F g A E EEEE EEEEE EEEEEE e eee c cccc",
+            "h hh H K k kk m s S SS SSSS a aaaaa",
+            "z zzzz Z ZZZZ ZZZZZ v vvvv V VV VVV VVVV O OOOO X XX XXXX x xxx xxxxx",
+            "EEEE, MMMM d, y 'at' h:mm:ss a zzzz",
+            "''yy'' 'o''clock' w W Y",   // week fields are formatted by the SimpleDateFormat
+            "yyyy-MM-dd B",             // so are day periods
+        };
+        final String[] locales = { "en_US", "de", "fr_CA", "ar_EG", "ja", "ru", "th_TH", "en@calendar=hebrew" };
+        final String[] zones = { "America/Los_Angeles", "Europe/Berlin", "Asia/Kolkata", "Etc/GMT-14", "UTC" };
+
+        // Random dates from 1500 to 2500, spanning the Gregorian change.
+        Random random = new Random(20181019);
+        final long[] times = new long[200];
+        for (int i = 0; i < times.length; ++i) {
+            times[i] = -14831769600000L + (long)(random.nextDouble() * 31556889600000L);
+        }
+        times[0] = -12219292800000L;  // 1582-10-15 00:00 UTC, the Gregorian change
+        times[1] = 0;
+        times[2] = 253402300799999L;  // 9999-12-31 23:59:59.999 UTC
+
+        for (String pattern : patterns) {
+            for (String localeID : locales) {
+                ULocale locale = new ULocale(localeID);
+                for (String zoneID : zones) {
+                    SimpleDateFormat sdf = new SimpleDateFormat(pattern, locale);
+                    sdf.setTimeZone(TimeZone.getTimeZone(zoneID));
+                    ImmutableDateFormat idf = ImmutableDateFormat.getInstance(sdf);
+                    for (long time : times) {
+                        String expected = sdf.format(new Date(time));
+                        String actual = idf.format(time);
+                        if (!expected.equals(actual)) {
+                            errln("ImmutableDateFormat " + pattern + " " + localeID + " " + zoneID +
+                                    " " + time + ": \"" + actual + "\" but SimpleDateFormat: \"" + expected + "\"");
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        // A pure Julian calendar has its Gregorian change at the end of time. All of its dates are Julian.
+        GregorianCalendar julian = new GregorianCalendar(TimeZone.getTimeZone("UTC"), ULocale.US);
+        julian.setGregorianChange(new Date(Long.MAX_VALUE));
+        SimpleDateFormat julianFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", ULocale.US);
+        julianFormat.setCalendar(julian);
+        ImmutableDateFormat julianIdf = ImmutableDateFormat.getInstance(julianFormat);
+        assertEquals("pure Julian calendar", "1969-12-19 00:00", julianIdf.format(0));
+        for (long time : times) {
+            assertEquals("pure Julian calendar " + time,
+                    julianFormat.format(new Date(time)), julianIdf.format(time));
+        }
+
+        // A proleptic Gregorian calendar has its Gregorian change at the beginning of time.
+        // Its BCE dates have a negative extended year and Julian day.
+        GregorianCalendar proleptic = new GregorianCalendar(TimeZone.getTimeZone("UTC"), ULocale.US);
+        proleptic.setGregorianChange(new Date(Long.MIN_VALUE));
+        SimpleDateFormat prolepticFormat = new SimpleDateFormat("G yyyy u MM-dd g HH:mm", ULocale.US);
+        prolepticFormat.setCalendar(proleptic);
+        ImmutableDateFormat prolepticIdf = ImmutableDateFormat.getInstance(prolepticFormat);
+        final long[] bceTimes = {
+            -62135596800001L,   // 0000-12-31 23:59:59.999 UTC, 1 BCE
+            -62135596800000L,   // 0001-01-01 UTC
+            -62135596800000L + 86400000L,
+            -63587289600000L,   // -0045-01-01 UTC
+            -210866803200000L,  // Julian day 0
+            -210866803200000L - 86400000L,
+        };
+        for (long time : bceTimes) {
+            assertEquals("proleptic Gregorian calendar " + time,
+                    prolepticFormat.format(new Date(time)), prolepticIdf.format(time));
+        }
+
+        // Later changes to the DateFormat do not affect the ImmutableDateFormat.
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm zzzz", ULocale.US);
+        sdf.setTimeZone(TimeZone.getTimeZone("America/New_York"));
+        final ImmutableDateFormat idf = ImmutableDateFormat.getInstance(sdf);
+        sdf.setTimeZone(TimeZone.getTimeZone("Asia/Tokyo"));
+        sdf.applyPattern("HH:mm");
+        assertEquals("format after changing the SimpleDateFormat",
+                "1970-01-01 00:00 Eastern Standard Time", idf.format(5 * 60 * 60 * 1000L));
+        assertEquals("format(Date)", "1970-01-01 00:00 Eastern Standard Time",
+                idf.format(new Date(5 * 60 * 60 * 1000L)));
+        assertEquals("format(long, StringBuilder)", "x:1970-01-01 00:00 Eastern Standard Time",
+                idf.format(5 * 60 * 60 * 1000L, new StringBuilder("x:")).toString());
+        assertTrue("frozen time zone", idf.getTimeZone().isFrozen());
+        assertEquals("toDateFormat", "America/New_York", idf.toDateFormat().getTimeZone().getID());
+
+        // Several threads share one instance.
+        final String[] expected = new String[times.length];
+        SimpleDateFormat reference = (SimpleDateFormat)idf.toDateFormat();
+        for (int i = 0; i < times.length; ++i) {
+            expected[i] = reference.format(new Date(times[i]));
+        }
+        final String[] failures = new String[4];
+        Thread[] threads = new Thread[failures.length];
+        for (int t = 0; t < threads.length; ++t) {
+            final int id = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int n = 0; n < 50 && failures[id] == null; ++n) {
+                        for (int i = 0; i < times.length; ++i) {
+                            String actual = idf.format(times[(i + id * 17) % times.length]);
+                            if (!actual.equals(expected[(i + id * 17) % times.length])) {
+                                failures[id] = actual;
+                                break;
+                            }
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < threads.length; ++t) {
+            threads[t].join();
+            assertNull("thread " + t + " formatted the same as the SimpleDateFormat", failures[t]);
+        }
+    }
+
+    @Test
+    public void TestFormatTo() {
+        final String[] patterns = {
+            "yyyy-MM-dd'T'HH:mm:ss.SSSXXX",
+            "[dd/MMM/yyyy:HH:mm:ss Z]",
+            "G y yy yyyyy u U r MMMMM MMMM MMM MM L Q q",
+            "d D F g A E EEEE e ee eee c cccc w ww W Y YY",
+            "h hh H K KK k kk m mm s ss S SS SSSS a b B",
+            "EEEE, MMMM d, y 'at' h:mm:ss a zzzz",
+            "GGGG GGGGG LLL LLLL LLLLL QQQ QQQQ qqq qqqq EEEEE EEEEEE ccc ccccc cccccc aaaaa",
+            "z zzzz Z ZZZZ ZZZZZ v vvvv V VV VVV VVVV O OOOO X XX XXX XXXX XXXXX x xx xxx xxxx xxxxx",
+        };
+        final String[] locales = {
+            "en_US", "de", "ar_EG", "fa", "th_TH", "zh@calendar=chinese", "he@calendar=hebrew",
+            "hi@calendar=indian", "en@numbers=hanidec", "ja@calendar=japanese",
+        };
+        final long[] times = {
+            -62135769600000L,   // 0001-01-01 UTC
+            -12219292800000L,   // 1582-10-15 UTC
+            0, 1, 999, 1000, 43200000L, 951782400000L, 1539950400123L, 1540000000000L,
+            253402300799999L,   // 9999-12-31 23:59:59.999 UTC
+        };
+        for (String pattern : patterns) {
+            for (String localeID : locales) {
+                SimpleDateFormat sdf = new SimpleDateFormat(pattern, new ULocale(localeID));
+                sdf.setTimeZone(TimeZone.getTimeZone("Europe/Paris"));
+                for (long time : times) {
+                    String expected = sdf.format(new Date(time));
+                    assertEquals("formatTo(StringBuilder) " + pattern + " " + localeID + " " + time,
+                            "<" + expected, sdf.formatTo(time, new StringBuilder("<")).toString());
+                    assertEquals("formatTo(Writer) " + pattern + " " + localeID + " " + time,
+                            expected, sdf.formatTo(time, new StringWriter()).toString());
+                }
+            }
+        }
+
+        // A first field that is capitalized for the context
+        SimpleDateFormat capitalized = new SimpleDateFormat("EEEE d MMMM", ULocale.FRENCH);
+        capitalized.setTimeZone(TimeZone.GMT_ZONE);
+        capitalized.setContext(DisplayContext.CAPITALIZATION_FOR_BEGINNING_OF_SENTENCE);
+        assertEquals("formatTo with capitalization", "Jeudi 1 janvier",
+                capitalized.formatTo(0, new StringBuilder()).toString());
+
+        // Partial number format override, and a subclass of SimpleDateFormat
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", "d=hanidec", ULocale.ENGLISH);
+        sdf.setTimeZone(TimeZone.GMT_ZONE);
+        assertEquals("formatTo with number format override", "1970-01-\u3007\u4e00 00:00",
+                sdf.formatTo(0, new StringBuilder()).toString());
+        ChineseDateFormat cdf = new ChineseDateFormat("y-Ml-d", ULocale.CHINESE);
+        assertEquals("formatTo with a subclass", cdf.format(new Date(1540000000000L)),
+                cdf.formatTo(1540000000000L, new StringBuilder()).toString());
+
+        // IOException from the Appendable
+        try {
+            sdf.formatTo(0, new Writer() {
+                @Override
+                public void write(char[] cbuf, int off, int len) throws IOException {
+                    throw new IOException("test");
+                }
+                @Override
+                public void flush() {}
+                @Override
+                public void close() {}
+            });
+            errln("formatTo() did not throw ICUUncheckedIOException");
+        } catch (ICUUncheckedIOException expected) {
+        }
+
+        // ImmutableDateFormat.formatTo()
+        ImmutableDateFormat idf = ImmutableDateFormat.getPatternInstance("yyyy-MM-dd HH:mm:ss.SSS", ULocale.US);
+        SimpleDateFormat reference = (SimpleDateFormat)idf.toDateFormat();
+        for (long time : times) {
+            assertEquals("ImmutableDateFormat.formatTo() " + time,
+                    reference.format(new Date(time)), idf.formatTo(time, new StringWriter()).toString());
+        }
+    }
 }
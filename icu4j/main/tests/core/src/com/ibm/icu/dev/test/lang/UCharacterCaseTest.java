@@ -12,6 +12,7 @@ package com.ibm.icu.dev.test.lang;
 
 
 import java.io.BufferedReader;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -1503,6 +1504,163 @@ public final class UCharacterCaseTest extends TestFmwk
         assertEquals("title", "\u1F88\u1F80\u1FF3", result);
     }
 
+    @Test
+    public void TestCaseMapAppendableOrder() {
+        // A string mapping must be appended after the preceding unchanged text.
+        assertEquals("toUpper(ab \u00DF)", "AB SS",
+                CaseMap.toUpper().apply(Locale.ROOT, "ab \u00DF", new StringBuilder(), null).toString());
+        assertEquals("toLower(AB \u0130)", "ab i\u0307",
+                CaseMap.toLower().apply(Locale.ROOT, "AB \u0130", new StringBuilder(), null).toString());
+        assertEquals("fold(ab \u00DF)", "ab ss",
+                CaseMap.fold().apply("ab \u00DF", new StringBuilder(), null).toString());
+    }
+
+    @Test
+    public void TestASCIIFastPaths() {
+        // Mapped characters anywhere in long ASCII strings.
+        String lower = "abcdefghijklmnopqrstuvwxyz 0123456789-[]{}@`";
+        for (int i = 0; i < lower.length(); ++i) {
+            String s = lower.substring(0, i) + 'I' + lower.substring(i + 1);
+            String name = "at " + i;
+            assertEquals("toLower " + name, lower.substring(0, i) + 'i' + lower.substring(i + 1),
+                    UCharacter.toLowerCase(Locale.ROOT, s));
+            assertEquals("toLower(tr) " + name, lower.substring(0, i) + '\u0131' + lower.substring(i + 1),
+                    UCharacter.toLowerCase(TURKISH_LOCALE_, s));
+            assertEquals("foldCase " + name, lower.substring(0, i) + 'i' + lower.substring(i + 1),
+                    UCharacter.foldCase(s, UCharacter.FOLD_CASE_DEFAULT));
+            String t = lower.substring(0, i) + '\u00E9' + lower.substring(i + 1);
+            assertEquals("toUpper " + name, t.toUpperCase(Locale.ROOT),
+                    UCharacter.toUpperCase(Locale.ROOT, t));
+        }
+        // Unchanged ASCII text is returned as is.
+        String upper = "HELLO, WORLD! 0123456789";
+        assertSame("toUpper(upper)", upper, UCharacter.toUpperCase(Locale.ROOT, upper));
+        assertSame("toLower(lower)", lower, UCharacter.toLowerCase(Locale.ROOT, lower));
+        assertSame("foldCase(lower)", lower, UCharacter.foldCase(lower, true));
+        assertEquals("omit unchanged", "",
+                CaseMap.toLower().omitUnchangedText().apply(Locale.ROOT, lower));
+    }
+
+    @Test
+    public void TestCaseMapChunks() {
+        // Context-sensitive mappings across chunk boundaries.
+        String[][] cases = {
+            // locale, input
+            { "", "\u038C\u03A3\u039F\u03A3 \u03A3\u0391\u03A3' \u03A3.\\U00010400\u03A3\\U00010400 a\u00DF" },
+            { "el", "\u03A0\u03B1\u03C4\u03AC\u03C4\u03B1, \u0391\u03AD\u03C1\u03B1\u03C2, \u039C\u03C5\u03C3\u03C4\u03AE\u03C1\u03B9\u03BF \u03AE \u0389 \u03AC\u0301\u0308 \u0390" },
+            { "tr", "IstanBul \u0130i I\u0307 i\u0307\u0301" },
+            { "lt", "I\u0300 J\u0307\u0301 i\u0307\u0301 \u012E\u0301" },
+        };
+        for (String[] c : cases) {
+            Locale locale = new Locale(c[0]);
+            String s = Utility.unescape(c[1]);
+            for (int step = 1; step <= 5; ++step) {
+                String name = c[0] + " in chunks of " + step + ": " + c[1];
+
+                Edits wholeEdits = new Edits();
+                String lower = CaseMap.toLower().apply(
+                        locale, s, new StringBuilder(), wholeEdits).toString();
+                Edits edits = new Edits();
+                CaseMap.ChunkMapper mapper = CaseMap.toLower().chunkMapper(locale);
+                assertEquals("toLower " + name, lower, mapChunks(mapper, s, step, edits));
+                assertEquals("toLower edits " + name, wholeEdits.lengthDelta(), edits.lengthDelta());
+                assertEquals("toLower changes " + name,
+                        wholeEdits.numberOfChanges(), edits.numberOfChanges());
+                checkSameEdits("toLower " + name, wholeEdits, edits);
+
+                wholeEdits.reset();
+                String upper = CaseMap.toUpper().apply(
+                        locale, s, new StringBuilder(), wholeEdits).toString();
+                mapper = CaseMap.toUpper().chunkMapper(locale);
+                edits.reset();
+                assertEquals("toUpper " + name, upper, mapChunks(mapper, s, step, edits));
+                checkSameEdits("toUpper " + name, wholeEdits, edits);
+
+                wholeEdits.reset();
+                String folded = CaseMap.fold().apply(s, new StringBuilder(), wholeEdits).toString();
+                mapper = CaseMap.fold().chunkMapper();
+                edits.reset();
+                assertEquals("fold " + name, folded, mapChunks(mapper, s, step, edits));
+                checkSameEdits("fold " + name, wholeEdits, edits);
+
+                // The mapper can be reused after finish().
+                mapper = CaseMap.toUpper().omitUnchangedText().chunkMapper(locale);
+                String changes = CaseMap.toUpper().omitUnchangedText().apply(
+                        locale, s, new StringBuilder(), null).toString();
+                assertEquals("toUpper changes " + name, changes, mapChunks(mapper, s, step, null));
+                assertEquals("toUpper changes again " + name, changes, mapChunks(mapper, s, step, null));
+            }
+        }
+    }
+
+    @Test
+    public void TestCaseMapChunksEdits() {
+        // Unchanged runs are recorded once even when they span chunks,
+        // and each change is recorded with its own lengths.
+        Edits edits = new Edits();
+        CaseMap.ChunkMapper mapper = CaseMap.toUpper().chunkMapper(Locale.ROOT);
+        assertEquals("toUpper", "01234SS56 ABC", mapChunks(mapper, "01234\u00DF56 abc", 1, edits));
+        EditChange[] fineExpected = new EditChange[] {
+                new EditChange(false, 5, 5),
+                new EditChange(true, 1, 2),
+                new EditChange(false, 3, 3),
+                new EditChange(true, 1, 1),
+                new EditChange(true, 1, 1),
+                new EditChange(true, 1, 1)
+        };
+        checkEditsIter("toUpper fine",
+                edits.getFineIterator(), edits.getFineIterator(),
+                fineExpected, true);
+        EditChange[] coarseExpected = new EditChange[] {
+                new EditChange(false, 5, 5),
+                new EditChange(true, 1, 2),
+                new EditChange(false, 3, 3),
+                new EditChange(true, 3, 3)
+        };
+        checkEditsIter("toUpper coarse",
+                edits.getCoarseIterator(), edits.getCoarseIterator(),
+                coarseExpected, true);
+        checkEditsIter("toUpper coarse changes",
+                edits.getCoarseChangesIterator(), edits.getCoarseChangesIterator(),
+                coarseExpected, false);
+    }
+
+    private static void checkSameEdits(String name, Edits expected, Edits actual) {
+        checkSameEditsIter(name + " fine", expected.getFineIterator(), actual.getFineIterator());
+        checkSameEditsIter(name + " coarse",
+                expected.getCoarseIterator(), actual.getCoarseIterator());
+    }
+
+    private static void checkSameEditsIter(String name, Edits.Iterator expected, Edits.Iterator actual) {
+        for (int i = 0;; ++i) {
+            String msg = name + " [" + i + "]";
+            boolean hasNext = expected.next();
+            assertEquals(msg + " next()", hasNext, actual.next());
+            if (!hasNext) {
+                break;
+            }
+            assertEquals(msg + " hasChange()", expected.hasChange(), actual.hasChange());
+            assertEquals(msg + " oldLength()", expected.oldLength(), actual.oldLength());
+            assertEquals(msg + " newLength()", expected.newLength(), actual.newLength());
+            assertEquals(msg + " sourceIndex()", expected.sourceIndex(), actual.sourceIndex());
+            assertEquals(msg + " destinationIndex()",
+                    expected.destinationIndex(), actual.destinationIndex());
+            assertEquals(msg + " replacementIndex()",
+                    expected.replacementIndex(), actual.replacementIndex());
+        }
+    }
+
+    private static String mapChunks(CaseMap.ChunkMapper mapper, String s, int step, Edits edits) {
+        // Use a CharBuffer over a char array like a streaming caller would.
+        CharBuffer dest = CharBuffer.allocate(3 * s.length() + 10);
+        for (int start = 0; start < s.length(); start += step) {
+            mapper.apply(s.subSequence(start, Math.min(start + step, s.length())), dest, edits);
+        }
+        mapper.finish(dest, edits);
+        dest.flip();
+        return dest.toString();
+    }
+
     // private data members - test data --------------------------------------
 
     private static final Locale TURKISH_LOCALE_ = new Locale("tr", "TR");
@@ -1135,4 +1135,49 @@ public class UnicodeSetStringSpanTest extends TestFmwk {
                 ab_cd.spanAndCount(s, 8, SpanCondition.SIMPLE, count));
         assertEquals("1x abc count=1 (frozen)", 1, count.value);
     }
+
+    @Test
+    public void TestSpanManyStrings() {
+        // A frozen set with many strings matches them with tries.
+        // Compare its spans with those of the equivalent unfrozen set.
+        UnicodeSet set = new UnicodeSet().add('a').add(0x50000);
+        String units = "ab\ud800\udc00c";
+        for (int i = 0; i < units.length(); ++i) {
+            for (int j = 0; j < units.length(); ++j) {
+                for (int k = 0; k < units.length(); ++k) {
+                    set.add("" + units.charAt(i) + units.charAt(j) + units.charAt(k));
+                }
+            }
+        }
+        set.add("ba").add("cc");
+        UnicodeSet frozen = set.cloneAsThawed().freeze();
+        String[] strings = {
+            "aabcabcccabaa",
+            "cbaac\ud800\udc00\ud800bca\udc00",
+            "\ud900\udc00bab\ud800\udc00\ud800\udc00a",
+            "xyzabcbbbccaa",
+            "aaaa\\U00050000aabbccab"
+        };
+        SpanCondition[] conditions = {
+            SpanCondition.NOT_CONTAINED, SpanCondition.CONTAINED, SpanCondition.SIMPLE
+        };
+        OutputInt count = new OutputInt();
+        OutputInt frozenCount = new OutputInt();
+        for (String escaped : strings) {
+            String s = Utility.unescape(escaped);
+            for (SpanCondition condition : conditions) {
+                for (int start = 0; start <= s.length(); ++start) {
+                    String name = condition + " " + escaped + " at " + start;
+                    assertEquals("span " + name,
+                            set.span(s, start, condition), frozen.span(s, start, condition));
+                    assertEquals("spanBack " + name,
+                            set.spanBack(s, start, condition), frozen.spanBack(s, start, condition));
+                    assertEquals("spanAndCount " + name,
+                            set.spanAndCount(s, start, condition, count),
+                            frozen.spanAndCount(s, start, condition, frozenCount));
+                    assertEquals("count " + name, count.value, frozenCount.value);
+                }
+            }
+        }
+    }
 }
@@ -2997,4 +2997,33 @@ public class BasicTest extends TestFmwk {
         assertEquals("Unexpected value returned from Normalizer2.getCombiningClass()",
                      0, tnorm2.getCombiningClass(c));
     }
+
+    @Test
+    public void TestASCIIQuickCheck() {
+        // Long ASCII runs are skipped in blocks; the character after them must still be checked.
+        String ascii = "abcdefghijklmnopqrstuvwxyz0123456789";
+        Normalizer2 nfc = Normalizer2.getNFCInstance();
+        Normalizer2 nfd = Normalizer2.getNFDInstance();
+        Normalizer2 nfkcCf = Normalizer2.getNFKCCasefoldInstance();
+        Normalizer2 fcd = Norm2AllModes.getFCDNormalizer2();
+        assertTrue("NFC ascii", nfc.isNormalized(ascii));
+        assertTrue("NFD ascii", nfd.isNormalized(ascii));
+        assertTrue("FCD ascii", fcd.isNormalized(ascii));
+        assertFalse("NFKC_CF ASCII", nfkcCf.isNormalized("ABCDEFGHIJ"));
+        for (int i = 1; i <= ascii.length(); ++i) {
+            String s = ascii.substring(0, i) + "\u0301\u0327";
+            String name = "acute+cedilla after " + i;
+            assertFalse("NFC " + name, nfc.isNormalized(s));
+            assertEquals("NFC quickCheck " + name, Normalizer.NO, nfc.quickCheck(s));
+            // The span ends before or after the last letter, depending on whether it combines.
+            int span = nfc.spanQuickCheckYes(s);
+            assertTrue("NFC span " + name, i - 1 <= span && span <= i);
+            assertFalse("NFD " + name, nfd.isNormalized(s));
+            assertEquals("NFD span " + name, i, nfd.spanQuickCheckYes(s));
+            assertFalse("FCD " + name, fcd.isNormalized(s));
+            assertEquals("NFC normalize " + name,
+                    nfc.normalize(ascii.substring(0, i - 1)) + nfc.normalize(s.substring(i - 1)),
+                    nfc.normalize(s));
+        }
+    }
 }
@@ -9,6 +9,8 @@
 package com.ibm.icu.dev.test.rbbi;
 
 import java.text.StringCharacterIterator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import org.junit.Test;
@@ -449,6 +451,66 @@ public class BreakIteratorTest extends TestFmwk
         }
     }
 
+    /**
+     * The filtered iterator must find the same boundaries whether its text is a String,
+     * a CharSequence or a CharacterIterator, and clones must be independent.
+     */
+    @Test
+    public void TestFilteredBreakIteratorText() {
+        String text = "The U.S. economy grew. Mr. Smith has a Ph.D. in physics. He got a Ph.X. too. " +
+                "Capt. Gorges came from the U.S.A. last year.  Mr. \uD835\uDC00. Mr. Jones? Yes. Mr.";
+        BreakIterator filteredBI = BreakIterator.getSentenceInstance(ULocale.forLanguageTag("en-u-ss-standard"));
+
+        filteredBI.setText(new StringCharacterIterator(text));
+        List<Integer> expected = getForwardBoundaries(filteredBI);
+        List<Integer> expectedReverse = getReverseBoundaries(filteredBI);
+        assertEquals("reverse boundaries", expected, expectedReverse);
+        assertEquals("boundaries", "[0, 23, 57, 77, 123, 131, 142, 147, 150]", expected.toString());
+
+        filteredBI.setText(text);
+        assertEquals("String boundaries", expected, getForwardBoundaries(filteredBI));
+        assertEquals("String reverse boundaries", expected, getReverseBoundaries(filteredBI));
+        filteredBI.setText(new StringBuilder(text));
+        assertEquals("CharSequence boundaries", expected, getForwardBoundaries(filteredBI));
+        BreakIterator iterBI = (BreakIterator) filteredBI.clone();
+        iterBI.setText(new StringCharacterIterator(text));
+        for (int i = 0; i <= text.length(); ++i) {
+            assertEquals("isBoundary(" + i + ")", iterBI.isBoundary(i), filteredBI.isBoundary(i));
+        }
+
+        BreakIterator clone = (BreakIterator) filteredBI.clone();
+        clone.setText("Mr. Smith. No.");
+        assertEquals("CharSequence boundaries after clone", expected, getForwardBoundaries(filteredBI));
+        assertEquals("clone boundaries", "[0, 11, 14]", getForwardBoundaries(clone).toString());
+
+        // Builders for the same locale share their exception data until it is modified.
+        FilteredBreakIteratorBuilder builder = FilteredBreakIteratorBuilder.getInstance(ULocale.ENGLISH);
+        assertEquals("unsuppressBreakAfter", true, builder.unsuppressBreakAfter("Mr."));
+        BreakIterator modifiedBI = builder.wrapIteratorWithFilter(BreakIterator.getSentenceInstance(ULocale.ENGLISH));
+        modifiedBI.setText("Mr. Smith. No.");
+        assertEquals("modified boundaries", "[0, 4, 11, 14]", getForwardBoundaries(modifiedBI).toString());
+        builder = FilteredBreakIteratorBuilder.getInstance(ULocale.ENGLISH);
+        BreakIterator englishBI = builder.wrapIteratorWithFilter(BreakIterator.getSentenceInstance(ULocale.ENGLISH));
+        englishBI.setText("Mr. Smith. No.");
+        assertEquals("English boundaries", "[0, 11, 14]", getForwardBoundaries(englishBI).toString());
+    }
+
+    private static List<Integer> getForwardBoundaries(BreakIterator bi) {
+        List<Integer> boundaries = new ArrayList<Integer>();
+        for (int b = bi.first(); b != BreakIterator.DONE; b = bi.next()) {
+            boundaries.add(b);
+        }
+        return boundaries;
+    }
+
+    private static List<Integer> getReverseBoundaries(BreakIterator bi) {
+        List<Integer> boundaries = new ArrayList<Integer>();
+        for (int b = bi.last(); b != BreakIterator.DONE; b = bi.previous()) {
+            boundaries.add(0, b);
+        }
+        return boundaries;
+    }
+
     /**
      * @param filteredBI
      * @param text
@@ -15,20 +15,32 @@
 package com.ibm.icu.dev.test.rbbi;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.CharacterIterator;
 import java.text.StringCharacterIterator;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import com.ibm.icu.dev.test.TestFmwk;
+import com.ibm.icu.impl.Utility;
 import com.ibm.icu.text.BreakIterator;
 import com.ibm.icu.text.RuleBasedBreakIterator;
+import com.ibm.icu.text.Segmenter;
 import com.ibm.icu.util.ULocale;
 
 /**
@@ -484,4 +496,370 @@ public class RBBIAPITest extends TestFmwk {
         bi.setText("Here is some Text");
         TestFmwk.assertEquals("Title instance break iterator not correctly instantiated", bi.first(), 0);
     }
+
+    /*
+     * Iterating over text set as a String or CharSequence indexes the text directly.
+     * Check that it finds the same boundaries and rule status values as iterating
+     * over a CharacterIterator on the same text, including across surrogates and dictionary text.
+     */
+    @Test
+    public void TestCharSequenceText() {
+        String text = "Hello, world! \uD83D\uDE00 Don't stop.\r\n12.5% \uD800x\uDC00 " +
+                "\u0E01\u0E32\u0E23\u0E17\u0E14\u0E2A\u0E2D\u0E1A \u4E2D\u6587\u5B57 " +
+                "e\u0301\u0327 \uD83C\uDDE6\uD83C\uDDE8 Mr. Smith? Yes.";
+        text = Utility.unescape(text);
+        int[] types = { BreakIterator.KIND_CHARACTER, BreakIterator.KIND_WORD,
+                BreakIterator.KIND_LINE, BreakIterator.KIND_SENTENCE };
+        for (int type : types) {
+            BreakIterator ciBI = BreakIterator.getBreakInstance(ULocale.ENGLISH, type);
+            ciBI.setText(new StringCharacterIterator(text));
+            BreakIterator strBI = BreakIterator.getBreakInstance(ULocale.ENGLISH, type);
+            strBI.setText(text);
+            BreakIterator csBI = BreakIterator.getBreakInstance(ULocale.ENGLISH, type);
+            csBI.setText(new StringBuilder(text));
+
+            List<Integer> expected = new ArrayList<>();
+            List<Integer> strResult = new ArrayList<>();
+            List<Integer> csResult = new ArrayList<>();
+            for (int b = ciBI.first(); b != BreakIterator.DONE; b = ciBI.next()) {
+                expected.add(b);
+                expected.add(ciBI.getRuleStatus());
+            }
+            for (int b = strBI.first(); b != BreakIterator.DONE; b = strBI.next()) {
+                strResult.add(b);
+                strResult.add(strBI.getRuleStatus());
+            }
+            for (int b = csBI.first(); b != BreakIterator.DONE; b = csBI.next()) {
+                csResult.add(b);
+                csResult.add(csBI.getRuleStatus());
+            }
+            assertEquals("String boundaries and status, type " + type, expected, strResult);
+            assertEquals("CharSequence boundaries and status, type " + type, expected, csResult);
+            for (int i = 0; i <= text.length(); i++) {
+                assertEquals("String following(" + i + "), type " + type, ciBI.following(i), strBI.following(i));
+                assertEquals("String preceding(" + i + "), type " + type, ciBI.preceding(i), strBI.preceding(i));
+                assertEquals("String isBoundary(" + i + "), type " + type, ciBI.isBoundary(i), strBI.isBoundary(i));
+                assertEquals("CharSequence following(" + i + "), type " + type, ciBI.following(i), csBI.following(i));
+                assertEquals("CharSequence preceding(" + i + "), type " + type, ciBI.preceding(i), csBI.preceding(i));
+            }
+            for (int b = ciBI.last(), s = strBI.last(); b != BreakIterator.DONE; b = ciBI.previous(), s = strBI.previous()) {
+                assertEquals("String previous(), type " + type, b, s);
+            }
+        }
+    }
+
+    /*
+     * A subclass that overrides setText(CharacterIterator) sees text set as a String
+     * or CharSequence, and iteration follows whatever iterator it installs.
+     */
+    static class RecordingBreakIterator extends RuleBasedBreakIterator {
+        List<String> texts = new ArrayList<>();
+        String replacement;
+
+        RecordingBreakIterator(String rules) {
+            super(rules);
+        }
+
+        @Override
+        public void setText(CharacterIterator newText) {
+            StringBuilder sb = new StringBuilder();
+            for (char c = newText.first(); c != CharacterIterator.DONE; c = newText.next()) {
+                sb.append(c);
+            }
+            texts.add(sb.toString());
+            if (replacement != null) {
+                newText = new StringCharacterIterator(replacement);
+            }
+            super.setText(newText);
+        }
+    }
+
+    @Test
+    public void TestSetTextSubclass() {
+        RecordingBreakIterator bi = new RecordingBreakIterator("!!chain; [a-z]+; [^a-z];");
+        bi.setText("ab cd");
+        bi.setText(new StringBuilder("xyz"));
+        assertEquals("texts seen by setText(CharacterIterator)",
+                Arrays.asList("ab cd", "xyz"), bi.texts);
+
+        List<Integer> boundaries = new ArrayList<>();
+        bi.replacement = "a bc d";
+        bi.setText("abcdef");
+        for (int b = bi.first(); b != BreakIterator.DONE; b = bi.next()) {
+            boundaries.add(b);
+        }
+        assertEquals("boundaries of the replacement text",
+                Arrays.asList(0, 1, 2, 4, 5, 6), boundaries);
+        assertEquals("following(2)", 4, bi.following(2));
+        assertEquals("preceding(4)", 2, bi.preceding(4));
+    }
+
+    @Test
+    public void TestSegmenter() throws InterruptedException {
+        final String[] texts = {
+                "",
+                "a",
+                "Hello, world! Don't stop. Mr. Smith? Yes.",
+                Utility.unescape("\\U0001F600 \u0E01\u0E32\u0E23\u0E17\u0E14\u0E2A\u0E2D\u0E1A \u4E2D\u6587 e\u0301"),
+        };
+        final int[] types = { BreakIterator.KIND_CHARACTER, BreakIterator.KIND_WORD,
+                BreakIterator.KIND_LINE, BreakIterator.KIND_SENTENCE };
+        final Segmenter[] segmenters = new Segmenter[types.length];
+        final int[][][] expected = new int[types.length][texts.length][];
+        for (int t = 0; t < types.length; ++t) {
+            segmenters[t] = Segmenter.getInstance(ULocale.ENGLISH, types[t]);
+            assertEquals("getKind()", types[t], segmenters[t].getKind());
+            BreakIterator bi = BreakIterator.getBreakInstance(ULocale.ENGLISH, types[t]);
+            for (int i = 0; i < texts.length; ++i) {
+                bi.setText(texts[i]);
+                List<Integer> boundaries = new ArrayList<>();
+                for (int b = bi.first(); b != BreakIterator.DONE; b = bi.next()) {
+                    boundaries.add(b);
+                }
+                expected[t][i] = new int[boundaries.size()];
+                for (int j = 0; j < boundaries.size(); ++j) {
+                    expected[t][i][j] = boundaries.get(j);
+                }
+                assertEquals("getBoundaries(" + texts[i] + "), type " + types[t],
+                        Arrays.toString(expected[t][i]),
+                        Arrays.toString(segmenters[t].getBoundaries(texts[i])));
+            }
+        }
+
+        // Share the segmenters among several threads.
+        final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+        Thread[] threads = new Thread[4];
+        for (int n = 0; n < threads.length; ++n) {
+            threads[n] = new Thread() {
+                @Override
+                public void run() {
+                    for (int iteration = 0; iteration < 200; ++iteration) {
+                        for (int t = 0; t < types.length; ++t) {
+                            for (int i = 0; i < texts.length; ++i) {
+                                if (!Arrays.equals(expected[t][i], segmenters[t].getBoundaries(new StringBuilder(texts[i])))) {
+                                    failures.add("type " + types[t] + ", text " + i);
+                                }
+                            }
+                        }
+                    }
+                }
+            };
+            threads[n].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals("concurrent getBoundaries() failures", "[]", failures.toString());
+
+        try {
+            Segmenter.getInstance(ULocale.ENGLISH, 99);
+            errln("Segmenter.getInstance(locale, 99) should throw IllegalArgumentException");
+        } catch (IllegalArgumentException expectedException) {
+        }
+    }
+
+    @Test
+    public void TestSegmenterReuse() throws Exception {
+        // A Segmenter keeps idle copies of its break iterator for later calls,
+        // rather than copying the iterator for each call.
+        final String text = "Hello, world! Don't stop. Mr. Smith? Yes. \u4E2D\u6587 e\u0301";
+        final int[] expected = Segmenter.getInstance(ULocale.ENGLISH, BreakIterator.KIND_WORD).getBoundaries(text);
+
+        // Calls one after another, on one thread or several, reuse a single copy.
+        final Segmenter segmenter = Segmenter.getInstance(ULocale.ENGLISH, BreakIterator.KIND_WORD);
+        for (int i = 0; i < 100; ++i) {
+            assertTrue("boundaries, call " + i, Arrays.equals(expected, segmenter.getBoundaries(text)));
+        }
+        assertEquals("copies made by one thread", 1, segmenter.getCopyCount());
+        for (int n = 0; n < 4; ++n) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    segmenter.getBoundaries(text);
+                }
+            };
+            thread.start();
+            thread.join();
+        }
+        assertEquals("copies made by threads one after another", 1, segmenter.getCopyCount());
+
+        // A call while another call is in progress makes a second copy. The other call is held
+        // inside getBoundaries() by text that waits when the break iterator first reads it.
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        final CharSequence waitingText = new CharSequence() {
+            private boolean waited = false;
+            @Override
+            public int length() {
+                return text.length();
+            }
+            @Override
+            public char charAt(int index) {
+                if (!waited) {
+                    waited = true;
+                    entered.countDown();
+                    try {
+                        resume.await(60, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return text.charAt(index);
+            }
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                return text.subSequence(start, end);
+            }
+            @Override
+            public String toString() {
+                return text;
+            }
+        };
+        final int[][] waitingResult = new int[1][];
+        Thread waitingThread = new Thread() {
+            @Override
+            public void run() {
+                waitingResult[0] = segmenter.getBoundaries(waitingText);
+            }
+        };
+        waitingThread.start();
+        try {
+            assertTrue("call in progress", entered.await(60, TimeUnit.SECONDS));
+            assertTrue("boundaries, concurrent call", Arrays.equals(expected, segmenter.getBoundaries(text)));
+            assertEquals("copies made with a call in progress", 2, segmenter.getCopyCount());
+        } finally {
+            resume.countDown();
+            waitingThread.join();
+        }
+        assertTrue("boundaries, waiting call", Arrays.equals(expected, waitingResult[0]));
+
+        // Both copies are kept for later calls.
+        for (int i = 0; i < 100; ++i) {
+            segmenter.getBoundaries(text);
+        }
+        assertEquals("copies made after the calls", 2, segmenter.getCopyCount());
+    }
+
+    @Test
+    public void TestSegmenterGraphemes() {
+        // The character Segmenter skips the break rules for simple text.
+        // Check it against the break iterator on random mixes of simple and complex characters.
+        String[] pieces = {
+                "a", "Z", " ", ".", "\u00E9", "\u0436", "\u4E2D", "\r", "\n", "\r\n", "\t", "\u00AD",
+                "\u0301", "\u0903", "\u0915", "\u094D", "\u0600", "\u200D", "\u263A", "\uFE0F",
+                "\uD83D\uDC69", "\uD83C\uDFFD", "\uD83C\uDDE6", "\uD83C\uDDE8", "\u1100", "\u1161",
+                "\u11A8", "\uAC00", "\uAC01", "\uD800", "\uDC00", "\u0E33", "\u0E40",
+        };
+        Segmenter segmenter = Segmenter.getInstance(ULocale.ENGLISH, BreakIterator.KIND_CHARACTER);
+        BreakIterator bi = BreakIterator.getCharacterInstance(ULocale.ENGLISH);
+        Random random = new Random(20181018);
+        for (int iteration = 0; iteration < 2000; ++iteration) {
+            StringBuilder sb = new StringBuilder();
+            int numPieces = random.nextInt(12);
+            for (int i = 0; i < numPieces; ++i) {
+                // Mostly simple text.
+                String piece = random.nextInt(3) == 0 ? pieces[random.nextInt(pieces.length)] : pieces[random.nextInt(5)];
+                sb.append(Utility.unescape(piece));
+            }
+            String text = sb.toString();
+            List<Integer> expected = getBoundaries(bi, text);
+            int[] actual = segmenter.getBoundaries(text);
+            List<Integer> actualList = new ArrayList<>();
+            for (int b : actual) {
+                actualList.add(b);
+            }
+            assertEquals("grapheme boundaries of " + Utility.escape(text), expected, actualList);
+        }
+    }
+
+    private static List<Integer> getBoundaries(BreakIterator bi, String text) {
+        bi.setText(text);
+        List<Integer> boundaries = new ArrayList<>();
+        for (int b = bi.first(); b != BreakIterator.DONE; b = bi.next()) {
+            boundaries.add(b);
+        }
+        return boundaries;
+    }
+
+    @Test
+    public void TestGetInstanceFromRulesCache() throws IOException {
+        String rules = "!!chain;\n$Letter = [a-z];\n$Letter+;\n[0-9]+;\n.;";
+        String text = "abc123 de,f";
+        List<Integer> expected = getBoundaries(new RuleBasedBreakIterator(rules), text);
+
+        File dir = Files.createTempDirectory("rbbicache").toFile();
+        File cacheDir = new File(dir, "compiled");
+        try {
+            // First use compiles the rules and writes the cache file.
+            RuleBasedBreakIterator bi = RuleBasedBreakIterator.getInstanceFromRules(rules, cacheDir);
+            assertEquals("boundaries, rules compiled", expected, getBoundaries(bi, text));
+            File[] files = cacheDir.listFiles();
+            assertEquals("number of cache files", 1, files.length);
+            File cacheFile = files[0];
+            assertTrue("cache file name " + cacheFile.getName(), cacheFile.getName().endsWith(".brkcache"));
+
+            // Second use loads the compiled rules.
+            bi = RuleBasedBreakIterator.getInstanceFromRules(rules, cacheDir);
+            assertEquals("boundaries, rules from cache", expected, getBoundaries(bi, text));
+            assertEquals("rule source", new RuleBasedBreakIterator(rules).toString(), bi.toString());
+
+            // A damaged cache file is replaced.
+            FileOutputStream os = new FileOutputStream(cacheFile);
+            os.write(new byte[] { 1, 2, 3, 4, 5 });
+            os.close();
+            bi = RuleBasedBreakIterator.getInstanceFromRules(rules, cacheDir);
+            assertEquals("boundaries, damaged cache file", expected, getBoundaries(bi, text));
+            assertTrue("cache file rewritten", cacheFile.length() > 5);
+
+            // A truncated cache file, whose hash still matches, is replaced.
+            byte[] data = Files.readAllBytes(cacheFile.toPath());
+            Files.write(cacheFile.toPath(), Arrays.copyOf(data, data.length / 2));
+            bi = RuleBasedBreakIterator.getInstanceFromRules(rules, cacheDir);
+            assertEquals("boundaries, truncated cache file", expected, getBoundaries(bi, text));
+            assertEquals("truncated cache file rewritten", data.length, cacheFile.length());
+
+            // A cache file whose compiled rules are changed, but whose length and hash of the rules
+            // still match, is detected by the hash of the compiled rules, and is replaced.
+            byte[] changed = data.clone();
+            changed[changed.length - 1] ^= 1;
+            Files.write(cacheFile.toPath(), changed);
+            bi = RuleBasedBreakIterator.getInstanceFromRules(rules, cacheDir);
+            assertEquals("boundaries, changed cache file", expected, getBoundaries(bi, text));
+            assertTrue("changed cache file rewritten", Arrays.equals(data, Files.readAllBytes(cacheFile.toPath())));
+
+            // Different rules get a different file.
+            String otherRules = "!!chain;\n[a-z0-9]+;\n.;";
+            bi = RuleBasedBreakIterator.getInstanceFromRules(otherRules, cacheDir);
+            assertEquals("boundaries, other rules",
+                    getBoundaries(new RuleBasedBreakIterator(otherRules), text), getBoundaries(bi, text));
+            assertEquals("number of cache files", 2, cacheDir.listFiles().length);
+
+            // A cache file with the compiled form of other rules is not used, and is replaced.
+            File otherCacheFile = cacheDir.listFiles()[0].equals(cacheFile) ?
+                    cacheDir.listFiles()[1] : cacheDir.listFiles()[0];
+            Files.copy(otherCacheFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            bi = RuleBasedBreakIterator.getInstanceFromRules(rules, cacheDir);
+            assertEquals("boundaries, cache file for other rules", expected, getBoundaries(bi, text));
+            bi = RuleBasedBreakIterator.getInstanceFromRules(rules, cacheDir);
+            assertEquals("boundaries, cache file rewritten", expected, getBoundaries(bi, text));
+            assertEquals("rule source, cache file rewritten",
+                    new RuleBasedBreakIterator(rules).toString(), bi.toString());
+
+            try {
+                RuleBasedBreakIterator.getInstanceFromRules("[a-z", cacheDir);
+                errln("getInstanceFromRules() with bad rules should throw IllegalArgumentException");
+            } catch (IllegalArgumentException expectedException) {
+            }
+            assertEquals("number of cache files", 2, cacheDir.listFiles().length);
+        } finally {
+            File[] files = cacheDir.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    f.delete();
+                }
+            }
+            cacheDir.delete();
+            dir.delete();
+        }
+    }
 }
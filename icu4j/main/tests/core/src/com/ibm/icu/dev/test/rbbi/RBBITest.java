@@ -16,17 +16,34 @@ package com.ibm.icu.dev.test.rbbi;
 //          Much of the remaining data has been moved into the rbbitst.txt test data file,
 //            which is common between ICU4C and ICU4J.  The remaining test data should also be moved,
 //            or simply retired if it is no longer interesting.
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.text.CharacterIterator;
+import java.text.StringCharacterIterator;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.FutureTask;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import com.ibm.icu.dev.test.TestFmwk;
+import com.ibm.icu.impl.ICUBinary;
+import com.ibm.icu.impl.ICUData;
 import com.ibm.icu.impl.RBBIDataWrapper;
+import com.ibm.icu.lang.UScript;
 import com.ibm.icu.text.BreakIterator;
 import com.ibm.icu.text.RuleBasedBreakIterator;
 import com.ibm.icu.util.ULocale;
@@ -551,6 +568,309 @@ public class RBBITest extends TestFmwk {
         assertEquals("", t2.fExpectedBoundaries, t2.fBoundaries);
     }
 
+    @Test
+    public void TestConcurrentBreakEngines() {
+        // Threads that first meet different dictionary scripts at the same time must each
+        // get the right break engine, and all threads must agree on the boundaries.
+        final String[] texts = {
+                "\u0E01\u0E32\u0E23\u0E17\u0E14\u0E2A\u0E2D\u0E1A\u0E20\u0E32\u0E29\u0E32\u0E44\u0E17\u0E22",  // Thai
+                "\u4E2D\u6587\u5B57\u7B26\u3068\u30AB\u30BF\u30AB\u30CA",                                           // Han, Kana
+                "\u1797\u17B6\u179F\u17B6\u1781\u17D2\u1798\u17C2\u179A",                                           // Khmer
+                "\u0EA0\u0EB2\u0EAA\u0EB2\u0EA5\u0EB2\u0EA7",                                                         // Lao
+                "abc \u0E44\u0E17\u0E22 \u65E5\u672C\u8A9E \u1781\u17D2\u1798\u17C2\u179A def",
+        };
+        final List<List<Integer>> expected = new ArrayList<List<Integer>>();
+        for (String text : texts) {
+            expected.add(T13512Thread.getBoundary(text));
+        }
+        final AssertionError[] assertErr = new AssertionError[1];
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int n = 0; n < 8; ++n) {
+            final int first = n;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < texts.length * 20; ++i) {
+                        int t = (first + i) % texts.length;
+                        BreakIterator bi = BreakIterator.getWordInstance(ULocale.ROOT);
+                        bi.setText(texts[t]);
+                        List<Integer> boundaries = new ArrayList<Integer>();
+                        for (int b = bi.first(); b != BreakIterator.DONE; b = bi.next()) {
+                            boundaries.add(b);
+                        }
+                        if (!expected.get(t).equals(boundaries)) {
+                            assertErr[0] = new AssertionError("text " + t + ": expected " +
+                                    expected.get(t) + ", got " + boundaries);
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread thread: threads) {
+            thread.start();
+        }
+        for (Thread thread: threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                fail(e.toString());
+            }
+        }
+        if (assertErr[0] != null) {
+            throw assertErr[0];
+        }
+    }
+
+    /**
+     * The shared cache of dictionary break engines, keyed by script.
+     * Tests clear it or add to it in order to control which engines have been loaded.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<Integer, FutureTask<Object>> getBreakEngineCache() throws Exception {
+        Field field = RuleBasedBreakIterator.class.getDeclaredField("gBreakEnginesByScript");
+        field.setAccessible(true);
+        return (Map<Integer, FutureTask<Object>>)field.get(null);
+    }
+
+    /**
+     * Puts back the engines that were in the shared cache before a test changed it,
+     * so that later tests find the engines they would have found without it.
+     */
+    private static void restoreBreakEngineCache(Map<Integer, FutureTask<Object>> cache,
+            Map<Integer, FutureTask<Object>> saved) {
+        cache.clear();
+        cache.putAll(saved);
+    }
+
+    @Test
+    public void TestConcurrentFirstBreakEngineLoad() throws Exception {
+        // Threads that all meet the same dictionary scripts for the first time, at the same time,
+        // must get working engines. Only one of them loads each dictionary; the others wait for it.
+        final String[] texts = {
+                "\u0E01\u0E32\u0E23\u0E17\u0E14\u0E2A\u0E2D\u0E1A\u0E20\u0E32\u0E29\u0E32\u0E44\u0E17\u0E22",  // Thai
+                "\u1797\u17B6\u179F\u17B6\u1781\u17D2\u1798\u17C2\u179A",                                           // Khmer
+        };
+        final List<List<Integer>> expected = new ArrayList<List<Integer>>();
+        for (String text : texts) {
+            expected.add(T13512Thread.getBoundary(text));
+        }
+        final Map<Integer, FutureTask<Object>> cache = getBreakEngineCache();
+        Map<Integer, FutureTask<Object>> savedCache = new HashMap<Integer, FutureTask<Object>>(cache);
+        final int numThreads = 8;
+        final AssertionError[] assertErr = new AssertionError[1];
+        try {
+            for (int round = 0; round < 5; ++round) {
+                cache.clear();
+                final CyclicBarrier barrier = new CyclicBarrier(numThreads);
+                List<Thread> threads = new ArrayList<Thread>();
+                for (int n = 0; n < numThreads; ++n) {
+                    threads.add(new Thread() {
+                        @Override
+                        public void run() {
+                            BreakIterator bi = BreakIterator.getWordInstance(ULocale.ROOT);
+                            try {
+                                barrier.await();
+                            } catch (Exception e) {
+                                assertErr[0] = new AssertionError(e.toString());
+                                return;
+                            }
+                            for (int t = 0; t < texts.length; ++t) {
+                                bi.setText(texts[t]);
+                                List<Integer> boundaries = new ArrayList<Integer>();
+                                for (int b = bi.first(); b != BreakIterator.DONE; b = bi.next()) {
+                                    boundaries.add(b);
+                                }
+                                if (!expected.get(t).equals(boundaries)) {
+                                    assertErr[0] = new AssertionError("text " + t + ": expected " +
+                                            expected.get(t) + ", got " + boundaries);
+                                }
+                            }
+                        }
+                    });
+                }
+                for (Thread thread: threads) {
+                    thread.start();
+                }
+                for (Thread thread: threads) {
+                    thread.join();
+                }
+                if (assertErr[0] != null) {
+                    throw assertErr[0];
+                }
+            }
+        } finally {
+            restoreBreakEngineCache(cache, savedCache);
+        }
+    }
+
+    @Test
+    public void TestFailedBreakEngineLoad() throws Exception {
+        // A break engine that failed to load must not break lookups for other scripts,
+        // and the next lookup for its own script must try to load it again.
+        String thai = "\u0E01\u0E32\u0E23\u0E17\u0E14\u0E2A\u0E2D\u0E1A";
+        String lao = "\u0EA0\u0EB2\u0EAA\u0EB2\u0EA5\u0EB2\u0EA7";
+        List<Integer> expectedThai = T13512Thread.getBoundary(thai);
+        List<Integer> expectedLao = T13512Thread.getBoundary(lao);
+
+        Map<Integer, FutureTask<Object>> cache = getBreakEngineCache();
+        Map<Integer, FutureTask<Object>> savedCache = new HashMap<Integer, FutureTask<Object>>(cache);
+        try {
+            cache.clear();
+            FutureTask<Object> failed = new FutureTask<Object>(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    throw new MissingResourceException("Test load failure", "", "");
+                }
+            });
+            failed.run();
+            cache.put(UScript.LAO, failed);
+
+            assertEquals("Thai with a failed Lao engine", expectedThai, T13512Thread.getBoundary(thai));
+            try {
+                T13512Thread.getBoundary(lao);
+                fail("Expected the Lao engine load failure to be reported");
+            } catch (MissingResourceException e) {
+                assertEquals("load failure", "Test load failure", e.getMessage());
+            }
+            assertEquals("Lao after a failed load", expectedLao, T13512Thread.getBoundary(lao));
+        } finally {
+            restoreBreakEngineCache(cache, savedCache);
+        }
+    }
+
+    @Test
+    public void TestDictionaryWordBreaks() {
+        // Word boundaries from each of the dictionaries:
+        // bytes tries (Thai, Lao, Khmer, Burmese) and the UChars trie shared by Han and Kana.
+        Object[][] cases = {
+            { "\u0E01\u0E32\u0E23\u0E17\u0E14\u0E2A\u0E2D\u0E1A\u0E20\u0E32\u0E29\u0E32\u0E44\u0E17\u0E22",
+                    new int[] { 0, 3, 8, 12, 15 } },
+            { "\u0EA0\u0EB2\u0EAA\u0EB2\u0EA5\u0EB2\u0EA7", new int[] { 0, 1, 2, 4, 7 } },
+            { "\u1797\u17B6\u179F\u17B6\u1781\u17D2\u1798\u17C2\u179A", new int[] { 0, 9 } },
+            { "\u1019\u103C\u1014\u103A\u1019\u102C\u1018\u102C\u101E\u102C", new int[] { 0, 10 } },
+            { "\u4E2D\u534E\u4EBA\u6C11\u5171\u548C\u56FD\u6210\u7ACB\u4E86",
+                    new int[] { 0, 2, 4, 7, 9, 10 } },
+            { "\u65E5\u672C\u8A9E\u306E\u6587\u7AE0\u3092\u5206\u5272\u3057\u307E\u3059",
+                    new int[] { 0, 3, 4, 6, 7, 9, 10, 12 } },
+        };
+        BreakIterator bi = BreakIterator.getWordInstance(ULocale.ROOT);
+        for (Object[] c : cases) {
+            String text = (String)c[0];
+            int[] expected = (int[])c[1];
+            bi.setText(text);
+            List<Integer> boundaries = new ArrayList<Integer>();
+            for (int b = bi.first(); b != BreakIterator.DONE; b = bi.next()) {
+                boundaries.add(b);
+            }
+            List<Integer> expectedList = new ArrayList<Integer>();
+            for (int b : expected) {
+                expectedList.add(b);
+            }
+            assertEquals("word boundaries of " + text, expectedList, boundaries);
+            // Again, in reverse, through a CharacterIterator over the text.
+            bi.setText(new StringCharacterIterator(text));
+            for (int i = expected.length - 1, b = bi.last(); i >= 0; --i, b = bi.previous()) {
+                assertEquals("previous() of " + text, expected[i], b);
+            }
+        }
+    }
+
+    @Test
+    public void TestDictionaryInBuffer() throws Exception {
+        // Dictionaries in buffers without a backing array, such as mapped data, are read in place.
+        // Their matches must be the same as those from the dictionaries loaded onto the heap.
+        String[][] dictionaries = {
+            { "thaidict.dict", "\u0E01\u0E32\u0E23\u0E17\u0E14\u0E2A\u0E2D\u0E1A\u0E20\u0E32\u0E29\u0E32\u0E44\u0E17\u0E22" },
+            { "laodict.dict", "\u0EA0\u0EB2\u0EAA\u0EB2\u0EA5\u0EB2\u0EA7" },
+            { "khmerdict.dict", "\u1797\u17B6\u179F\u17B6\u1781\u17D2\u1798\u17C2\u179A" },
+            { "burmesedict.dict", "\u1019\u103C\u1014\u103A\u1019\u102C\u1018\u102C\u101E\u102C" },
+            { "cjdict.dict", "\u4E2D\u534E\u4EBA\u6C11\u5171\u548C\u56FD\u6210\u7ACB\u4E86" +
+                    "\u65E5\u672C\u8A9E\u306E\u6587\u7AE0\u3092\u5206\u5272\u3057\u307E\u3059" },
+        };
+        Class<?> dictionaryData = Class.forName("com.ibm.icu.text.DictionaryData");
+        Method load = dictionaryData.getDeclaredMethod("loadDictionary", ByteBuffer.class);
+        load.setAccessible(true);
+        Class<?> dictionaryMatcher = Class.forName("com.ibm.icu.text.DictionaryMatcher");
+        Method matches = dictionaryMatcher.getDeclaredMethod("matches", CharacterIterator.class,
+                int.class, int[].class, int[].class, int.class, int[].class);
+        matches.setAccessible(true);
+        for (String[] d : dictionaries) {
+            ByteBuffer data = ICUBinary.getRequiredData(ICUData.ICU_BRKITR_NAME + '/' + d[0]);
+            ByteBuffer heap = ByteBuffer.allocate(data.remaining());
+            heap.put(data.duplicate()).flip();
+            ByteBuffer direct = ByteBuffer.allocateDirect(data.remaining());
+            direct.put(data.duplicate()).flip();
+            Object heapMatcher = load.invoke(null, heap);
+            Object directMatcher = load.invoke(null, direct);
+            String text = d[1];
+            for (int start = 0; start < text.length(); ++start) {
+                int[] heapLengths = new int[20], heapCount = new int[1], heapValues = new int[20];
+                int[] directLengths = new int[20], directCount = new int[1], directValues = new int[20];
+                CharacterIterator heapText = new StringCharacterIterator(text, start);
+                CharacterIterator directText = new StringCharacterIterator(text, start);
+                Object heapMatched = matches.invoke(heapMatcher, heapText, text.length() - start,
+                        heapLengths, heapCount, 20, heapValues);
+                Object directMatched = matches.invoke(directMatcher, directText, text.length() - start,
+                        directLengths, directCount, 20, directValues);
+                String where = d[0] + " at " + start;
+                assertEquals("matched length, " + where, heapMatched, directMatched);
+                assertEquals("word count, " + where, heapCount[0], directCount[0]);
+                assertEquals("word lengths, " + where, Arrays.toString(heapLengths), Arrays.toString(directLengths));
+                assertEquals("word values, " + where, Arrays.toString(heapValues), Arrays.toString(directValues));
+                assertEquals("text index, " + where, heapText.getIndex(), directText.getIndex());
+            }
+        }
+    }
+
+    private static List<Integer> getBoundaries(BreakIterator bi, String text) {
+        bi.setText(text);
+        List<Integer> boundaries = new ArrayList<Integer>();
+        for (int b = bi.first(); b != BreakIterator.DONE; b = bi.next()) {
+            boundaries.add(b);
+        }
+        return boundaries;
+    }
+
+    @Test
+    public void TestLongCjkRun() {
+        // A run of CJK text much longer than the dictionary engine's segmentation window
+        // must get the same word boundaries as its pieces do on their own.
+        String unit = "\u65E5\u672C\u8A9E\u306E\u6587\u7AE0\u3092\u5206\u5272\u3057\u307E\u3059";
+        BreakIterator bi = BreakIterator.getWordInstance(ULocale.JAPANESE);
+        List<Integer> unitBoundaries = getBoundaries(bi, unit);
+        assertEquals("unit boundaries", Arrays.asList(0, 3, 4, 6, 7, 9, 10, 12), unitBoundaries);
+
+        StringBuilder text = new StringBuilder();
+        List<Integer> expected = new ArrayList<Integer>();
+        expected.add(0);
+        while (text.length() < 5000) {
+            for (int b : unitBoundaries.subList(1, unitBoundaries.size())) {
+                expected.add(text.length() + b);
+            }
+            text.append(unit);
+        }
+        assertEquals("boundaries of a " + text.length() + "-character run",
+                expected, getBoundaries(bi, text.toString()));
+    }
+
+    @Test
+    public void TestLongUnsegmentedDictionaryRun() {
+        // Hangul is not in the CJK dictionary, and the dictionary engine does not break it up.
+        // A long run of it stays one word, rather than being split at the window boundaries.
+        String rules =
+                "!!chain;\n" +
+                "$dictionary = [\\uac00-\\ud7a3];\n" +
+                "$dictionary+;\n";
+        RuleBasedBreakIterator bi = new RuleBasedBreakIterator(rules);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; ++i) {
+            text.append((char)(0xAC00 + (i * 7) % 11172));
+        }
+        text.append(" abc");
+        assertEquals("boundaries of a long Hangul run",
+                Arrays.asList(0, 5000, 5001, 5002, 5003, 5004), getBoundaries(bi, text.toString()));
+    }
+
     @Test
     public void TestBug12677() {
         // Check that stripping of comments from rules for getRules() is not confused by
@@ -655,4 +975,89 @@ public class RBBITest extends TestFmwk {
             assertTrue("Reverse Table",      RBBIDataWrapper.equals(bi.fRData.fRTable, bi2.fRData.fRTable));
         }
     }
+
+    @Test
+    public void TestTable8Bits() throws IOException {
+        // Tables that are small enough are built with 8 bit rows. The break iterators using them
+        // must behave the same as the ones using the 16 bit tables from the ICU data.
+        String text = "Hello, world! Don't stop. 12.5% \u0645\u0631\u062D\u0628\u0627 e\u0301 Mr. Smith? Yes.\r\nOK";
+        int[] kinds = { BreakIterator.KIND_CHARACTER, BreakIterator.KIND_WORD, BreakIterator.KIND_SENTENCE };
+        for (int kind : kinds) {
+            RuleBasedBreakIterator bi = (RuleBasedBreakIterator)BreakIterator.getBreakInstance(ULocale.ENGLISH, kind);
+            assertNotNull("Data table is 16 bits", bi.fRData.fFTable.fTable);
+
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            RuleBasedBreakIterator.compileRules(bi.toString(), os);
+            RuleBasedBreakIterator bi8 = RuleBasedBreakIterator.getInstanceFromCompiledRules(
+                    new ByteArrayInputStream(os.toByteArray()));
+            RBBIDataWrapper.RBBIStateTable table = bi8.fRData.fFTable;
+            assertTrue("8 bit flag, kind " + kind, (table.fFlags & RBBIDataWrapper.RBBI_8BITS_ROWS) != 0);
+            assertTrue("Reverse table 8 bit flag, kind " + kind,
+                    (bi8.fRData.fRTable.fFlags & RBBIDataWrapper.RBBI_8BITS_ROWS) != 0);
+            assertNotNull("8 bit rows widened at load, kind " + kind, table.fTable);
+            assertTrue("Tables equal, kind " + kind, RBBIDataWrapper.equals(bi.fRData.fFTable, table));
+
+            // String text and CharacterIterator text each have their own handleNext()
+            // and handleSafePrevious() loops; check both.
+            for (int pass = 0; pass < 2; pass++) {
+                if (pass == 0) {
+                    bi.setText(text);
+                    bi8.setText(text);
+                } else {
+                    bi.setText(new StringCharacterIterator(text));
+                    bi8.setText(new StringCharacterIterator(text));
+                }
+                for (int b = bi.first(), b8 = bi8.first(); b != BreakIterator.DONE || b8 != BreakIterator.DONE;
+                        b = bi.next(), b8 = bi8.next()) {
+                    assertEquals("Boundary, kind " + kind + ", pass " + pass, b, b8);
+                    assertEquals("Rule status, kind " + kind + ", pass " + pass, bi.getRuleStatus(), bi8.getRuleStatus());
+                }
+                for (int i = 0; i <= text.length(); i++) {
+                    assertEquals("preceding(" + i + "), kind " + kind + ", pass " + pass, bi.preceding(i), bi8.preceding(i));
+                    assertEquals("following(" + i + "), kind " + kind + ", pass " + pass, bi.following(i), bi8.following(i));
+                }
+            }
+        }
+
+        // The line break table has too many states to fit in 8 bits.
+        RuleBasedBreakIterator lineBI = new RuleBasedBreakIterator(BreakIterator.getLineInstance(Locale.ENGLISH).toString());
+        assertNotNull("Line table is 16 bits", lineBI.fRData.fFTable.fTable);
+        assertTrue("Line 8 bit flag", (lineBI.fRData.fFTable.fFlags & RBBIDataWrapper.RBBI_8BITS_ROWS) == 0);
+    }
+
+    @Test
+    public void TestTable8BitsFormatVersion() throws IOException {
+        // Data with 8 bit table rows has format version 6.0, so that readers of version 5 data,
+        // which check only the major version, reject it rather than misreading the rows.
+        // The same data labeled as version 5.0, which has only 16 bit rows, is rejected.
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        RuleBasedBreakIterator.compileRules(BreakIterator.getWordInstance(ULocale.ENGLISH).toString(), os);
+        byte[] data = os.toByteArray();
+        // The format version is in the ICU data header (at 16) and in the RBBI data header (at 32 + 4).
+        int[] versionOffsets = { 16, 36 };
+        for (int offset : versionOffsets) {
+            assertEquals("format version at " + offset, RBBIDataWrapper.FORMAT_VERSION_8BITS_ROWS,
+                    getIntAt(data, offset));
+            data[offset] = 5;   // 6.0 -> 5.0
+        }
+        try {
+            RuleBasedBreakIterator.getInstanceFromCompiledRules(new ByteArrayInputStream(data));
+            fail("8 bit table rows in format version 5.0 data should be rejected");
+        } catch (IOException e) {
+            // expected
+        }
+
+        // Data with only 16 bit tables keeps format version 5.0.
+        os = new ByteArrayOutputStream();
+        RuleBasedBreakIterator.compileRules(BreakIterator.getLineInstance(ULocale.ENGLISH).toString(), os);
+        data = os.toByteArray();
+        for (int offset : versionOffsets) {
+            assertEquals("16 bit format version at " + offset, RBBIDataWrapper.FORMAT_VERSION, getIntAt(data, offset));
+        }
+    }
+
+    private static int getIntAt(byte[] data, int offset) {
+        return ((data[offset] & 0xff) << 24) | ((data[offset + 1] & 0xff) << 16) |
+                ((data[offset + 2] & 0xff) << 8) | (data[offset + 3] & 0xff);
+    }
 }
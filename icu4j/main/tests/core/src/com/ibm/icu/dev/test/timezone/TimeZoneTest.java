@@ -15,10 +15,12 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Random;
 import java.util.Set;
 
 import org.junit.Test;
@@ -26,6 +28,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import com.ibm.icu.dev.test.TestFmwk;
+import com.ibm.icu.impl.Grego;
 import com.ibm.icu.impl.ICUData;
 import com.ibm.icu.impl.TimeZoneAdapter;
 import com.ibm.icu.text.SimpleDateFormat;
@@ -2324,6 +2327,46 @@ public class TimeZoneTest extends TestFmwk
         assertFalse("Compare TimeZoneAdapter with TimeZone", icuChicagoWrapped.equals(icuChicago));
         assertTrue("Compare two TimeZoneAdapters", icuChicagoWrapped.equals(icuChicagoWrapped2));
     }
+
+    @Test
+    public void TestHistoricalOffsetLookupOrder() {
+        // The offsets around each transition must not depend on the order of the lookups.
+        String[] ids = { "America/New_York", "Europe/London", "Australia/Lord_Howe", "America/Sao_Paulo" };
+        Random random = new Random(20181019);
+        for (String id : ids) {
+            BasicTimeZone tz = (BasicTimeZone) TimeZone.getTimeZone(id, TimeZone.TIMEZONE_ICU);
+            List<TimeZoneTransition> transitions = new ArrayList<TimeZoneTransition>();
+            long end = new GregorianCalendar(2100, Calendar.JANUARY, 1).getTimeInMillis();
+            TimeZoneTransition tzt = tz.getNextTransition(Long.MIN_VALUE, false);
+            while (tzt != null && tzt.getTime() < end) {
+                transitions.add(tzt);
+                tzt = tz.getNextTransition(tzt.getTime(), false);
+            }
+            int[] offsets = new int[2];
+            for (int pass = 0; pass < 2; ++pass) {
+                for (int i = 0; i < transitions.size(); ++i) {
+                    // First pass in order, then in random order.
+                    TimeZoneTransition t = transitions.get(pass == 0 ? i : random.nextInt(transitions.size()));
+                    TimeZoneRule from = t.getFrom();
+                    TimeZoneRule to = t.getTo();
+                    tz.getOffset(t.getTime() - 1, false, offsets);
+                    assertEquals(id + " offset before " + t.getTime(),
+                            from.getRawOffset() + from.getDSTSavings(), offsets[0] + offsets[1]);
+                    tz.getOffset(t.getTime(), false, offsets);
+                    assertEquals(id + " offset at " + t.getTime(),
+                            to.getRawOffset() + to.getDSTSavings(), offsets[0] + offsets[1]);
+                    // A local time in the middle of the interval after the transition.
+                    TimeZoneTransition next = i + 1 < transitions.size() && pass == 0 ? transitions.get(i + 1) : null;
+                    if (next != null && next.getTime() - t.getTime() > 4L * Grego.MILLIS_PER_DAY) {
+                        long mid = t.getTime() + (next.getTime() - t.getTime()) / 2;
+                        tz.getOffset(mid + to.getRawOffset() + to.getDSTSavings(), true, offsets);
+                        assertEquals(id + " offset for local time after " + t.getTime(),
+                                to.getRawOffset() + to.getDSTSavings(), offsets[0] + offsets[1]);
+                    }
+                }
+            }
+        }
+    }
 }
 
 //eof
@@ -15,6 +15,7 @@ package com.ibm.icu.dev.test.util;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Random;
 import java.util.Set;
 
@@ -284,6 +285,31 @@ public class UtilityTest extends TestFmwk {
         }
     }
 
+    @Test
+    public void TestSpanASCII() {
+        String ascii = "The quick brown fox jumps over the lazy dog 0123456789 ~!@#$%^&*()_+";
+        assertEquals("spanASCII(ascii)", ascii.length(), Utility.spanASCII(ascii, 0, ascii.length()));
+        assertEquals("spanASCII(ascii, 3, 11)", 11, Utility.spanASCII(ascii, 3, 11));
+        // Put the stop character at each position to test both the blocks and the tail loop.
+        for (int i = 0; i < ascii.length(); ++i) {
+            String message = "stop at " + i;
+            String s = ascii.substring(0, i) + '\u00e9' + ascii.substring(i + 1);
+            assertEquals(message, i, Utility.spanASCII(s, 0, s.length()));
+            String lower = ascii.toLowerCase(Locale.ROOT);
+            s = lower.substring(0, i) + '\u0080' + lower.substring(i + 1);
+            assertEquals(message, i, Utility.spanASCIINotIn(s, 0, s.length(), 'A', 'Z'));
+            s = lower.substring(0, i) + 'A' + lower.substring(i + 1);
+            assertEquals(message, i, Utility.spanASCIINotIn(s, 0, s.length(), 'A', 'Z'));
+            s = lower.substring(0, i) + 'Z' + lower.substring(i + 1);
+            assertEquals(message, i, Utility.spanASCIINotIn(s, 0, s.length(), 'A', 'Z'));
+        }
+        String lower = ascii.toLowerCase(Locale.ROOT);
+        assertEquals("no uppercase", lower.length(),
+                Utility.spanASCIINotIn(lower, 0, lower.length(), 'A', 'Z'));
+        assertEquals("first lowercase", 1, Utility.spanASCIINotIn(ascii, 0, ascii.length(), 'a', 'z'));
+        assertEquals("empty", 5, Utility.spanASCIINotIn(ascii, 5, 5, 'a', 'z'));
+    }
+
     private CharSequence randomCharSequence(int length) {
         StringBuilder sb = new StringBuilder();
         for (int i=0; i<length; i++) {
@@ -33,6 +33,7 @@ my $m1 = "char";
 my $m2 = "word";
 my $m3 = "line";
 my $m4 = "jdkline";
+my $m5 = "cjword";
 
 my $m;
 
@@ -73,6 +74,8 @@ my $tests = {
 "TestNextWord",      ["$jvm1 testRBBINext $m2", "$jvm2 testRBBINext $m2"],
 "TestNextLine",      ["$jvm1 testRBBINext $m3", "$jvm2 testRBBINext $m3"],
 "TestNextJDKLine",   ["$jvm1 testRBBINext $m4", "$jvm2 testRBBINext $m4"],
+"TestNextCJWord",    ["$jvm1 testRBBINext $m5", "$jvm2 testRBBINext $m5"],
+"TestSegmentCJWord", ["$jvm1 testRBBISegment $m5", "$jvm2 testRBBISegment $m5"],
 ##
 "TestPreviousChar",      ["$jvm1 testRBBIPrevious $m1", "$jvm2 testRBBIPrevious $m1"],
 "TestPreviousWord",      ["$jvm1 testRBBIPrevious $m2", "$jvm2 testRBBIPrevious $m2"],
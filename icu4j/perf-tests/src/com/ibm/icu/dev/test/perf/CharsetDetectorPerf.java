@@ -0,0 +1,146 @@
+// © 2018 and later: Unicode, Inc. and others.
+// License & terms of use: http://www.unicode.org/copyright.html#License
+package com.ibm.icu.dev.test.perf;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.charset.Charset;
+
+import com.ibm.icu.text.CharsetDetector;
+import com.ibm.icu.text.StreamingCharsetDetector;
+
+/**
+ * Performance test for CharsetDetector, with HTML pages in several languages and charsets.
+ * <p>
+ * Each page has English markup and navigation text around the body text in its language,
+ * like many real web pages. Most of the time is spent in the single-byte recognizers,
+ * which look up the n-grams of the input for each of their languages.
+ * <p>
+ * Example invocation, from the perf-tests directory:
+ * java -cp classes com.ibm.icu.dev.test.perf.CharsetDetectorPerf -s data/conversion -t 5 -p 4 Detect
+ */
+public class CharsetDetectorPerf extends PerfTest {
+    // The text files in the source directory, and the charsets of the pages made from them.
+    private static final String[][] PAGES = {
+        { "english.txt",   "ISO-8859-1" },
+        { "french.txt",    "windows-1252" },
+        { "greek.txt",     "ISO-8859-7" },
+        { "arabic.txt",    "windows-1256" },
+        { "hebrew.txt",    "ISO-8859-8" },
+        { "japanese.txt",  "Shift_JIS" },
+        { "korean.txt",    "EUC-KR" },
+        { "s-chinese.txt", "GB18030" },
+    };
+
+    private byte[][] pages;
+    private long totalLength;
+
+    public static void main(String[] args) throws Exception {
+        new CharsetDetectorPerf().run(args);
+    }
+
+    @Override
+    protected void setup(String[] args) {
+        if (args.length > 0) {
+            throw new RuntimeException("Extra arguments received");
+        }
+        String dir = sourceDir != null ? sourceDir : "data/conversion";
+        pages = new byte[PAGES.length][];
+        totalLength = 0;
+        try {
+            for (int i = 0; i < PAGES.length; ++i) {
+                FileInputStream in = new FileInputStream(new File(dir, PAGES[i][0]));
+                String text;
+                try {
+                    text = new String(readToEOS(new BOMFreeReader(in, "UTF-8")));
+                } finally {
+                    in.close();
+                }
+                pages[i] = toHtml(text, PAGES[i][1]).getBytes(Charset.forName(PAGES[i][1]));
+                totalLength += pages[i].length;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    private static String toHtml(String text, String charset) {
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n")
+            .append("<meta http-equiv=\"Content-Type\" content=\"text/html\">\n")
+            .append("<link rel=\"stylesheet\" type=\"text/css\" href=\"/styles/main.css\">\n")
+            .append("<title>Unicode</title>\n</head>\n<body>\n")
+            .append("<div class=\"nav\"><a href=\"/\">Home</a> | <a href=\"/about/\">About the Consortium</a> | ")
+            .append("<a href=\"/standard/\">The Unicode Standard</a> | <a href=\"/contact/\">Contact us</a></div>\n");
+        for (String line : text.split("\n")) {
+            line = line.trim();
+            if (line.length() != 0) {
+                html.append("<p class=\"text\">").append(line).append("</p>\n");
+            }
+        }
+        html.append("<div class=\"footer\">Copyright and terms of use. Last updated for the ")
+            .append(charset)
+            .append(" page.</div>\n</body>\n</html>\n");
+        return html.toString();
+    }
+
+    PerfTest.Function TestDetect() {
+        return new PerfTest.Function() {
+            @Override
+            public void call() {
+                for (byte[] page : pages) {
+                    CharsetDetector det = new CharsetDetector();
+                    det.enableInputFilter(true);
+                    det.setText(page);
+                    det.detect();
+                }
+            }
+
+            @Override
+            public long getOperationsPerIteration() {
+                return totalLength;
+            }
+        };
+    }
+
+    PerfTest.Function TestDetectUnfiltered() {
+        return new PerfTest.Function() {
+            @Override
+            public void call() {
+                for (byte[] page : pages) {
+                    CharsetDetector det = new CharsetDetector();
+                    det.setText(page);
+                    det.detect();
+                }
+            }
+
+            @Override
+            public long getOperationsPerIteration() {
+                return totalLength;
+            }
+        };
+    }
+
+    PerfTest.Function TestStreamingDetect() {
+        return new PerfTest.Function() {
+            @Override
+            public void call() {
+                CharsetDetector settings = new CharsetDetector();
+                settings.enableInputFilter(true);
+                for (byte[] page : pages) {
+                    StreamingCharsetDetector det = new StreamingCharsetDetector(settings);
+                    for (int start = 0; start < page.length && !det.isDone(); start += 1024) {
+                        det.update(page, start, Math.min(start + 1024, page.length));
+                    }
+                    det.detect();
+                }
+            }
+
+            @Override
+            public long getOperationsPerIteration() {
+                return totalLength;
+            }
+        };
+    }
+}
@@ -0,0 +1,158 @@
+// © 2018 and later: Unicode, Inc. and others.
+// License & terms of use: http://www.unicode.org/copyright.html#License
+package com.ibm.icu.dev.test.perf;
+
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+
+import com.ibm.icu.text.ImmutableDateFormat;
+import com.ibm.icu.text.SimpleDateFormat;
+import com.ibm.icu.util.Calendar;
+import com.ibm.icu.util.TimeZone;
+
+/**
+ * Performance test for formatting dates spread over the years 1900 to 2100,
+ * in a time zone with many historical transitions.
+ * <p>
+ * Before the start of the zone's final rules, the offsets come from the transition table
+ * of the zone (OlsonTimeZone.getHistoricalOffset()), so each date looks up a transition.
+ * <p>
+ * Arguments: [time zone ID [pattern]], default America/New_York and "yyyy-MM-dd HH:mm:ss zzzz".
+ * <p>
+ * Example invocation, from the perf-tests directory:
+ * java -cp classes com.ibm.icu.dev.test.perf.HistoricalDateFormatPerf -t 5 -p 4 -L en_US Europe/London
+ */
+public class HistoricalDateFormatPerf extends PerfTest {
+    private static final int DATE_COUNT = 1000;
+
+    private TimeZone zone;
+    private String pattern;
+    private long[] times;
+    private Date[] dates;
+    private SimpleDateFormat[] formats;
+    private ImmutableDateFormat immutableFormat;
+    private Calendar[] calendars;
+
+    public static void main(String[] args) throws Exception {
+        new HistoricalDateFormatPerf().run(args);
+    }
+
+    @Override
+    protected void setup(String[] args) {
+        if (args.length > 2) {
+            throw new RuntimeException("Extra arguments received");
+        }
+        zone = TimeZone.getTimeZone(args.length > 0 ? args[0] : "America/New_York");
+        pattern = args.length > 1 ? args[1] : "yyyy-MM-dd HH:mm:ss zzzz";
+        if (locale == null) {
+            locale = Locale.US;
+        }
+
+        // Random times from 1900-01-01 to 2100-01-01 UTC.
+        long start = -2208988800000L;
+        long limit = 4102444800000L;
+        Random random = new Random(20181019);
+        times = new long[DATE_COUNT];
+        dates = new Date[DATE_COUNT];
+        for (int i = 0; i < DATE_COUNT; ++i) {
+            times[i] = start + (long)(random.nextDouble() * (limit - start));
+            dates[i] = new Date(times[i]);
+        }
+
+        formats = new SimpleDateFormat[threads];
+        calendars = new Calendar[threads];
+        for (int i = 0; i < threads; ++i) {
+            formats[i] = new SimpleDateFormat(pattern, locale);
+            formats[i].setTimeZone(zone);
+            calendars[i] = Calendar.getInstance(zone, locale);
+        }
+        immutableFormat = ImmutableDateFormat.getInstance(formats[0]);
+    }
+
+    PerfTest.Function TestFormat() {
+        return new PerfTest.Function() {
+            @Override
+            public void call(int id) {
+                SimpleDateFormat format = formats[id];
+                for (Date date : dates) {
+                    format.format(date);
+                }
+            }
+
+            @Override
+            public long getOperationsPerIteration() {
+                return DATE_COUNT;
+            }
+        };
+    }
+
+    PerfTest.Function TestFormatTo() {
+        return new PerfTest.Function() {
+            @Override
+            public void call(int id) {
+                SimpleDateFormat format = formats[id];
+                StringBuilder sb = new StringBuilder();
+                for (long time : times) {
+                    sb.setLength(0);
+                    format.formatTo(time, sb);
+                }
+            }
+
+            @Override
+            public long getOperationsPerIteration() {
+                return DATE_COUNT;
+            }
+        };
+    }
+
+    PerfTest.Function TestImmutableFormat() {
+        return new PerfTest.Function() {
+            @Override
+            public void call() {
+                for (long time : times) {
+                    immutableFormat.format(time);
+                }
+            }
+
+            @Override
+            public long getOperationsPerIteration() {
+                return DATE_COUNT;
+            }
+        };
+    }
+
+    PerfTest.Function TestCalendarFields() {
+        return new PerfTest.Function() {
+            @Override
+            public void call(int id) {
+                Calendar calendar = calendars[id];
+                for (long time : times) {
+                    calendar.setTimeInMillis(time);
+                    calendar.get(Calendar.HOUR_OF_DAY);
+                }
+            }
+
+            @Override
+            public long getOperationsPerIteration() {
+                return DATE_COUNT;
+            }
+        };
+    }
+
+    PerfTest.Function TestGetOffset() {
+        return new PerfTest.Function() {
+            @Override
+            public void call() {
+                for (long time : times) {
+                    zone.getOffset(time);
+                }
+            }
+
+            @Override
+            public long getOperationsPerIteration() {
+                return DATE_COUNT;
+            }
+        };
+    }
+}
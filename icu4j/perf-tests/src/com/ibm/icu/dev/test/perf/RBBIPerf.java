@@ -61,6 +61,9 @@ public class RBBIPerf extends PerfTest {
                 bi  = (RuleBasedBreakIterator)com.ibm.icu.text.BreakIterator.getCharacterInstance();  
             } else if (args[1].equals("word")) {
                 bi  = (RuleBasedBreakIterator)com.ibm.icu.text.BreakIterator.getWordInstance();
+            } else if (args[1].equals("cjword")) {
+                // Japanese word breaks; Chinese and Japanese text goes through the CJK dictionary engine.
+                bi  = (RuleBasedBreakIterator)com.ibm.icu.text.BreakIterator.getWordInstance(com.ibm.icu.util.ULocale.JAPANESE);
             } else if (args[1].equals("line")) {
                 bi  = (RuleBasedBreakIterator)com.ibm.icu.text.BreakIterator.getLineInstance();
             } else if (args[1].equals("jdkline")) {
@@ -113,6 +116,27 @@ public class RBBIPerf extends PerfTest {
     }
     
     
+    /**
+     * Like testRBBINext, but sets the text again for each iteration so that none of the
+     * boundaries from the previous iteration are cached. For dictionary text, such as
+     * Chinese and Japanese with the cjword break type, this measures the dictionary segmentation.
+     */
+    PerfTest.Function testRBBISegment() {
+        return new PerfTest.Function() {
+
+            public void call() {
+                bi.setText(testString);
+                for (int n = bi.first(); n != BreakIterator.DONE; n=bi.next()) {
+                }
+            }
+
+            public long getOperationsPerIteration() {
+                return testString.length();
+            }
+        };
+    }
+
+
     PerfTest.Function testRBBIPrevious() {
         return new PerfTest.Function() {
             